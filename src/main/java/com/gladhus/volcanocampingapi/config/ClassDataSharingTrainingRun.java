@@ -0,0 +1,55 @@
+package com.gladhus.volcanocampingapi.config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Training run of the class data sharing archive built by the fast-startup maven profile: once the application is
+ * ready, sends it a few requests so that the classes of the request path are loaded too, then exits. The JVM writes
+ * every class loaded so far to the archive on exit, see {@code -XX:ArchiveClassesAtExit}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "volcano.startup.training-run", havingValue = "true")
+public class ClassDataSharingTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    /**
+     * An availability read, and a reservation that does not exist to go through the error handling.
+     */
+    static final List<String> PATHS = List.of("/api/v1.1/reservation/availabilities", "/api/v1.1/reservation/training-run");
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (event.getApplicationContext() instanceof WebServerApplicationContext context) {
+            HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            for (String path : PATHS) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + context.getWebServer().getPort() + path))
+                        .timeout(Duration.ofSeconds(30))
+                        .GET()
+                        .build();
+                try {
+                    HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                    log.info("Training request to {} answered {}.", path, response.statusCode());
+                } catch (IOException e) {
+                    log.warn("Training request to {} failed.", path, e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
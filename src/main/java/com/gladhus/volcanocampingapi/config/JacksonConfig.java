@@ -0,0 +1,35 @@
+package com.gladhus.volcanocampingapi.config;
+
+import com.gladhus.volcanocampingapi.handler.dto.ErrorMessageDto;
+import com.gladhus.volcanocampingapi.handler.serializer.ErrorMessageDtoSerializer;
+import com.gladhus.volcanocampingapi.v1.v1.dto.AvailabilityRangeDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.CampsiteAvailabilityDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
+import com.gladhus.volcanocampingapi.v1.v1.serializer.AvailabilityRangeDtoSerializer;
+import com.gladhus.volcanocampingapi.v1.v1.serializer.CampsiteAvailabilityDtoSerializer;
+import com.gladhus.volcanocampingapi.v1.v1.serializer.IsoDateSerializer;
+import com.gladhus.volcanocampingapi.v1.v1.serializer.ReservationDtoSerializer;
+import java.time.LocalDate;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the hand-written serializers of the response bodies on the object mapper of Spring Boot, used by both web
+ * stacks and by the idempotency keys. They write the same JSON as the default serializers, without reflection, with
+ * pre-encoded field names and with the dates around today encoded once. They are registered after the modules, so the
+ * date serializer replaces the one of the java time module.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer responseSerializersCustomizer() {
+        return builder -> builder
+                .serializerByType(LocalDate.class, new IsoDateSerializer())
+                .serializerByType(ReservationDto.class, new ReservationDtoSerializer())
+                .serializerByType(AvailabilityRangeDto.class, new AvailabilityRangeDtoSerializer())
+                .serializerByType(CampsiteAvailabilityDto.class, new CampsiteAvailabilityDtoSerializer())
+                .serializerByType(ErrorMessageDto.class, new ErrorMessageDtoSerializer());
+    }
+}
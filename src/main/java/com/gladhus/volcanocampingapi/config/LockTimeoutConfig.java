@@ -0,0 +1,55 @@
+package com.gladhus.volcanocampingapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bounds how long a booking waits for a row lock held by another transaction to {@code volcano.booking.lock-timeout},
+ * after which the database gives up and the booking is rolled back, see
+ * {@link com.gladhus.volcanocampingapi.v1.service.BookingLoadShedder}.
+ * <p>
+ * The JPA lock timeout is applied to the locking queries by the dialects that support it. The MySQL dialects do not,
+ * so the InnoDB lock wait timeout of each MySQL connection is set as well when it is opened, unless the pool already
+ * has a connection init SQL. InnoDB counts it in whole seconds, rounded up.
+ */
+@Configuration
+public class LockTimeoutConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer lockTimeoutHibernatePropertiesCustomizer(
+            @Value("${volcano.booking.lock-timeout:PT5S}") Duration lockTimeout) {
+        return hibernateProperties -> hibernateProperties.put("javax.persistence.lock.timeout", lockTimeout.toMillis());
+    }
+
+    @Bean
+    public static InnoDbLockWaitTimeoutPostProcessor innoDbLockWaitTimeoutPostProcessor(
+            @Value("${volcano.booking.lock-timeout:PT5S}") Duration lockTimeout) {
+        return new InnoDbLockWaitTimeoutPostProcessor(lockTimeout);
+    }
+
+    static class InnoDbLockWaitTimeoutPostProcessor implements BeanPostProcessor {
+
+        private final long lockWaitTimeoutSeconds;
+
+        InnoDbLockWaitTimeoutPostProcessor(Duration lockTimeout) {
+            this.lockWaitTimeoutSeconds = Math.max(1, lockTimeout.plusMillis(999).getSeconds());
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            // Bound to its properties by now, the pool itself only starts with the first connection.
+            if (bean instanceof HikariDataSource dataSource
+                    && dataSource.getJdbcUrl() != null
+                    && dataSource.getJdbcUrl().startsWith("jdbc:mysql:")
+                    && dataSource.getConnectionInitSql() == null) {
+                dataSource.setConnectionInitSql("SET SESSION innodb_lock_wait_timeout = " + lockWaitTimeoutSeconds);
+            }
+            return bean;
+        }
+    }
+}
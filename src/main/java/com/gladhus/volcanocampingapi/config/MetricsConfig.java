@@ -0,0 +1,19 @@
+package com.gladhus.volcanocampingapi.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Times the methods annotated with {@link io.micrometer.core.annotation.Timed}, such as the service operations.
+ * HTTP endpoints, the connection pool and the JVM are instrumented by Spring Boot.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
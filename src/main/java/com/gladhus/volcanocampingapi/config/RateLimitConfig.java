@@ -0,0 +1,35 @@
+package com.gladhus.volcanocampingapi.config;
+
+import com.gladhus.volcanocampingapi.v1.service.ratelimit.RateLimitProperties;
+import com.gladhus.volcanocampingapi.v1.service.ratelimit.RateLimiter;
+import com.gladhus.volcanocampingapi.v1.v1.controller.RateLimitInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Applies the per-client rate limits of the {@link RateLimiter} to the handler methods annotated with
+ * {@link com.gladhus.volcanocampingapi.v1.v1.controller.RateLimited}.
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig implements WebMvcConfigurer {
+
+    private final RateLimiter rateLimiter;
+
+    private final RateLimitProperties rateLimitProperties;
+
+    @Autowired
+    public RateLimitConfig(RateLimiter rateLimiter, RateLimitProperties rateLimitProperties) {
+        this.rateLimiter = rateLimiter;
+        this.rateLimitProperties = rateLimitProperties;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter, rateLimitProperties.getClientHeader(),
+                rateLimitProperties.getClientKeys()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.gladhus.volcanocampingapi.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+/**
+ * Infrastructure of the reactive variant of the reservation API, started with the reactive profile, see
+ * {@link com.gladhus.volcanocampingapi.v1.v1.controller.ReactiveReservationController}.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    /**
+     * Runs the reactive transactions on the R2DBC connections. The transaction manager is not a bean, so that
+     * {@code @Transactional} keeps resolving to the JPA one used by the startup reconciliation and the scheduled jobs.
+     */
+    @Bean
+    public TransactionalOperator reactiveTransactionalOperator(ConnectionFactory connectionFactory) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    /**
+     * Serves the requests on the Netty event loops. Tomcat, which the servlet variant needs on the classpath, would be
+     * picked otherwise.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,68 @@
+package com.gladhus.volcanocampingapi.config;
+
+import com.gladhus.volcanocampingapi.v1.service.ReadRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Gives the connections of read-only transactions from the read replica, and all others from the primary database.
+ * Read-only transactions stay on the primary while the replica lags more than allowed by the {@link ReplicaLagMonitor},
+ * or when the caller requires the primary, see {@link ReadRouting}.
+ * <p>
+ * The JPA transaction manager gets its connection before marking the transaction read-only. This data source must be
+ * wrapped in a {@link LazyConnectionDataSourceProxy}, which only gets the connection once the first statement runs.
+ */
+class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    private final Counter replicaReads;
+
+    private final Counter laggingReads;
+
+    private final Counter primaryRequiredReads;
+
+    ReadReplicaRoutingDataSource(DataSource primaryDataSource, DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor, MeterRegistry meterRegistry) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        setTargetDataSources(Map.of(Target.PRIMARY, primaryDataSource, Target.REPLICA, replicaDataSource));
+        setDefaultTargetDataSource(primaryDataSource);
+        this.replicaReads = counter(meterRegistry, "replica");
+        this.laggingReads = counter(meterRegistry, "primary-lagging");
+        this.primaryRequiredReads = counter(meterRegistry, "primary-required");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Target.PRIMARY;
+        }
+        if (ReadRouting.isPrimaryRequired()) {
+            primaryRequiredReads.increment();
+            return Target.PRIMARY;
+        }
+        if (!replicaLagMonitor.isReplicaFresh()) {
+            laggingReads.increment();
+            return Target.PRIMARY;
+        }
+        replicaReads.increment();
+        return Target.REPLICA;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String route) {
+        return Counter.builder("read.routing")
+                .description("Read-only transactions by where they ran: on the replica, or on the primary because the "
+                        + "replica lagged or the caller required it.")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,98 @@
+package com.gladhus.volcanocampingapi.config;
+
+import com.gladhus.volcanocampingapi.domain.ReplicaHeartbeat;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Measures how far the read replica is behind the primary database, with a {@link ReplicaHeartbeat}: the current time
+ * is written to the primary, and the lag is the age of the heartbeat read back from the replica. The clocks of the
+ * instances are expected to be synchronized, since any of them may have written the heartbeat.
+ * <p>
+ * The replica is only used while its lag is known and within the maximum lag. When the heartbeat cannot be read from
+ * it, e.g. before it was ever replicated, or when the replica is down, every read runs on the primary.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    static final int HEARTBEAT_ID = 1;
+
+    private static final long UNKNOWN = -1;
+
+    private final JdbcTemplate primary;
+
+    private final JdbcTemplate replica;
+
+    private final Duration maxLag;
+
+    private final Clock clock;
+
+    private volatile long lagMillis = UNKNOWN;
+
+    public ReplicaLagMonitor(DataSource primaryDataSource, DataSource replicaDataSource, Duration maxLag, Clock clock,
+                             MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.maxLag = maxLag;
+        this.clock = clock;
+        Gauge.builder("read.replica.lag", this, monitor -> monitor.lagMillis == UNKNOWN ? Double.NaN : monitor.lagMillis / 1000.0)
+                .description("Age of the last heartbeat read from the read replica, NaN while it cannot be read.")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes the heartbeat to the primary, then measures the lag of the replica.
+     */
+    @Scheduled(fixedDelayString = "${volcano.read-replica.heartbeat-interval:PT1S}")
+    public void beat() {
+        long now = clock.millis();
+        try {
+            if (primary.update("update replica_heartbeat set beat_at = ? where id = ?", now, HEARTBEAT_ID) == 0) {
+                primary.update("insert into replica_heartbeat (id, beat_at) values (?, ?)", HEARTBEAT_ID, now);
+            }
+        } catch (DataAccessException e) {
+            // Most likely another instance inserted the heartbeat first, the next update will succeed.
+            log.debug("Could not write the replica heartbeat.", e);
+        }
+        measure();
+    }
+
+    void measure() {
+        long lag;
+        try {
+            Long beatAt = replica.query("select beat_at from replica_heartbeat where id = ?",
+                    resultSet -> resultSet.next() ? resultSet.getLong(1) : null, HEARTBEAT_ID);
+            lag = beatAt == null ? UNKNOWN : Math.max(0, clock.millis() - beatAt);
+        } catch (DataAccessException e) {
+            log.debug("Could not read the replica heartbeat.", e);
+            lag = UNKNOWN;
+        }
+
+        boolean wasFresh = isReplicaFresh();
+        lagMillis = lag;
+        if (wasFresh && lag == UNKNOWN) {
+            log.warn("Could not read the heartbeat from the read replica, reading from the primary.");
+        } else if (wasFresh && !isReplicaFresh()) {
+            log.warn("The read replica is {} behind the primary, more than {}, reading from the primary.",
+                    Duration.ofMillis(lag), maxLag);
+        } else if (!wasFresh && isReplicaFresh()) {
+            log.info("The read replica caught up, {} behind the primary.", Duration.ofMillis(lag));
+        }
+    }
+
+    /**
+     * Checks that the replica was last seen within the maximum lag.
+     */
+    public boolean isReplicaFresh() {
+        long lag = lagMillis;
+        return lag != UNKNOWN && lag <= maxLag.toMillis();
+    }
+}
@@ -0,0 +1,12 @@
+package com.gladhus.volcanocampingapi.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the background jobs of the application, such as the resynchronization of the occupancy index.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,36 @@
+package com.gladhus.volcanocampingapi.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs the handling of each request, transactional work included, on its own virtual thread instead of the Tomcat
+ * thread pool, so that requests blocked on database locks do not hold the threads cheap requests need.
+ * The number of concurrent transactions is bounded by the {@link com.gladhus.volcanocampingapi.v1.service.ConnectionBulkhead}.
+ * <p>
+ * Requires Java 21, or Java 19 and 20 with {@code --enable-preview}. The executor is looked up reflectively so the
+ * application still builds for older releases.
+ */
+@Configuration
+@ConditionalOnProperty(name = "volcano.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            throw new IllegalStateException("volcano.virtual-threads.enabled requires Java 21, or --enable-preview on Java 19 and 20.", e);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+}
@@ -0,0 +1,90 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Reservation moved out of the reservation table once it is past or cancelled. It is kept for reading only.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "reservation_archive", indexes = @Index(name = "idx_reservation_archive_checkin", columnList = "checkin"))
+public class ArchivedReservation implements Persistable<UUID> {
+
+    @Id
+    @Column(columnDefinition = "binary(16)")
+    private UUID id;
+
+    @Column(name = "campsite_id", nullable = false, columnDefinition = "bigint default " + Campsite.DEFAULT_ID)
+    private Long campsiteId;
+
+    private String email;
+
+    private String fullName;
+
+    @Enumerated(EnumType.STRING)
+    private ReservationStatus status;
+
+    private LocalDate checkin;
+
+    private LocalDate checkout;
+
+    private Instant archivedAt;
+
+    /**
+     * Version the reservation had when it was archived. Archived reservations never change, so it keeps its ETag.
+     */
+    private Long version;
+
+    public static ArchivedReservation of(Reservation reservation, Instant archivedAt) {
+        return ArchivedReservation.builder()
+                .id(reservation.getId())
+                .campsiteId(reservation.getCampsiteId())
+                .email(reservation.getEmail())
+                .fullName(reservation.getFullName())
+                .status(reservation.getStatus())
+                .checkin(reservation.getCheckin())
+                .checkout(reservation.getCheckout())
+                .archivedAt(archivedAt)
+                .version(reservation.getVersion())
+                .build();
+    }
+
+    public Reservation toReservation() {
+        return Reservation.builder()
+                .id(id)
+                .campsiteId(campsiteId)
+                .email(email)
+                .fullName(fullName)
+                .status(status)
+                .checkin(checkin)
+                .checkout(checkout)
+                .version(version)
+                .build();
+    }
+
+    /**
+     * Archived reservations are only ever inserted. Always reporting them as new makes the repository persist them
+     * directly instead of merging, which would first select the row.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
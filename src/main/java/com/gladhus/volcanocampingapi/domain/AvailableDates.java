@@ -0,0 +1,158 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import java.time.LocalDate;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Immutable, ordered set of available dates backed by a bitmap keyed by the day offset from the first date of the
+ * range. Dates are only materialized when the set is iterated, so checking availability never allocates.
+ */
+public final class AvailableDates extends AbstractSet<LocalDate> {
+
+    private final long fromEpochDay;
+
+    private final BitSet available;
+
+    private final int size;
+
+    private final String version;
+
+    /**
+     * @param fromDate first date of the range, matching bit 0 of the bitmap.
+     * @param available bitmap where a set bit means the date at that offset is available. Ownership of the bitmap is
+     *                  transferred to this instance, it must not be modified afterwards.
+     */
+    public AvailableDates(LocalDate fromDate, BitSet available) {
+        this(fromDate, available, null);
+    }
+
+    /**
+     * @param version identifies these dates among all the versions of the range, null if unknown.
+     */
+    public AvailableDates(LocalDate fromDate, BitSet available, String version) {
+        this.fromEpochDay = fromDate.toEpochDay();
+        this.available = available;
+        this.size = available.cardinality();
+        this.version = version;
+    }
+
+    /**
+     * Marks all dates between the fromDate and toDate (both inclusive) as available and then clears the nights
+     * occupied by the reservations.
+     */
+    public static AvailableDates fromReservations(LocalDate fromDate, LocalDate toDate, List<Reservation> reservations) {
+        BitSet available = allAvailable(fromDate, toDate);
+        for (Reservation reservation : reservations) {
+            clearNights(available, fromDate, reservation.getCheckin(), reservation.getCheckout());
+        }
+        return new AvailableDates(fromDate, available);
+    }
+
+    /**
+     * Same as {@link #fromReservations(LocalDate, LocalDate, List)}, from the stays of the reservations.
+     */
+    public static AvailableDates fromStays(LocalDate fromDate, LocalDate toDate, List<Stay> stays) {
+        BitSet available = allAvailable(fromDate, toDate);
+        for (Stay stay : stays) {
+            clearNights(available, fromDate, stay.checkin(), stay.checkout());
+        }
+        return new AvailableDates(fromDate, available);
+    }
+
+    private static BitSet allAvailable(LocalDate fromDate, LocalDate toDate) {
+        int length = (int) (toDate.toEpochDay() - fromDate.toEpochDay()) + 1;
+        BitSet available = new BitSet(length);
+        available.set(0, length);
+        return available;
+    }
+
+    /**
+     * Clears the nights between checkin (inclusive) and checkout (exclusive) that fall within the bitmap.
+     */
+    private static void clearNights(BitSet available, LocalDate fromDate, LocalDate checkin, LocalDate checkout) {
+        long fromEpochDay = fromDate.toEpochDay();
+        int length = available.length();
+        long start = Math.max(0, checkin.toEpochDay() - fromEpochDay);
+        long end = Math.min(length, checkout.toEpochDay() - fromEpochDay);
+        if (start < end) {
+            available.clear((int) start, (int) end);
+        }
+    }
+
+    /**
+     * Returns the version of these dates, if they were read from a source that tracks it.
+     */
+    public Optional<String> getVersion() {
+        return Optional.ofNullable(version);
+    }
+
+    /**
+     * Checks that every night between checkin (inclusive) and checkout (exclusive) is available.
+     */
+    public boolean isAvailable(LocalDate checkin, LocalDate checkout) {
+        long start = checkin.toEpochDay() - fromEpochDay;
+        long end = checkout.toEpochDay() - fromEpochDay;
+        if (start < 0 || end > Integer.MAX_VALUE) {
+            return false;
+        }
+        return start >= end || available.nextClearBit((int) start) >= end;
+    }
+
+    /**
+     * Returns the maximal ranges of consecutive available dates, in order. Ranges are read from the bitmap in a single
+     * pass, without materializing the dates within them.
+     */
+    public List<DateRange> ranges() {
+        List<DateRange> ranges = new ArrayList<>();
+        int start = available.nextSetBit(0);
+        while (start >= 0) {
+            int end = available.nextClearBit(start);
+            ranges.add(new DateRange(LocalDate.ofEpochDay(fromEpochDay + start), LocalDate.ofEpochDay(fromEpochDay + end - 1)));
+            start = available.nextSetBit(end);
+        }
+        return ranges;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof LocalDate date)) {
+            return false;
+        }
+        long offset = date.toEpochDay() - fromEpochDay;
+        return offset >= 0 && offset < Integer.MAX_VALUE && available.get((int) offset);
+    }
+
+    @Override
+    public Iterator<LocalDate> iterator() {
+        return new Iterator<>() {
+
+            private int next = available.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public LocalDate next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                LocalDate date = LocalDate.ofEpochDay(fromEpochDay + next);
+                next = available.nextSetBit(next + 1);
+                return date;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,33 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Site that can be booked, with its own calendar: reservations of different campsites never hold the same nights.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "campsite")
+public class Campsite {
+
+    /**
+     * Campsite of the reservations made before there were several campsites, and of the ones that do not pick any.
+     */
+    public static final long DEFAULT_ID = 1;
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+}
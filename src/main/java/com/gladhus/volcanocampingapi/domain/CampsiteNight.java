@@ -0,0 +1,20 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One night of the calendar of a campsite, the primary key of the tables holding a row per booked night.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CampsiteNight implements Serializable {
+
+    private Long campsiteId;
+
+    private LocalDate night;
+}
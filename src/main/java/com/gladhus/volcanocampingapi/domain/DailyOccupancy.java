@@ -0,0 +1,45 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import javax.persistence.Version;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Occupancy of one night of a campsite, guarded by a version number. Every booking that takes or releases the night
+ * updates the row, so of two concurrent bookings of the same night, the one committing second fails its version check.
+ * Rows are created the first time their night is booked and kept, free, once it is released.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "daily_occupancy")
+@IdClass(CampsiteNight.class)
+public class DailyOccupancy {
+
+    @Id
+    @Column(name = "campsite_id")
+    private Long campsiteId;
+
+    @Id
+    private LocalDate night;
+
+    /**
+     * Active reservation holding the night, null if the night is free.
+     */
+    @Column(name = "reservation_id", columnDefinition = "binary(16)")
+    private UUID reservationId;
+
+    @Version
+    private Long version;
+}
@@ -0,0 +1,9 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import java.time.LocalDate;
+
+/**
+ * Range of consecutive dates, both from and to inclusive.
+ */
+public record DateRange(LocalDate from, LocalDate to) {
+}
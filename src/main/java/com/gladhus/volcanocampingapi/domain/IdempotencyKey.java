@@ -0,0 +1,50 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import java.time.Instant;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Version;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Idempotency key of a request, with the response to replay once the request completed. The row is inserted before
+ * the request runs, so that a duplicate sent to another instance finds it.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "idempotency_key")
+public class IdempotencyKey {
+
+    /**
+     * Key sent by the client, prefixed by the operation.
+     */
+    @Id
+    @Column(name = "idempotency_key", length = 320)
+    private String key;
+
+    /**
+     * Hash of the request, to tell a retry from another request sent with the same key.
+     */
+    @Column(length = 64, nullable = false)
+    private String fingerprint;
+
+    /**
+     * Response of the request as JSON, null while it is in progress.
+     */
+    @Column(columnDefinition = "text")
+    private String response;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Version
+    private Long version;
+}
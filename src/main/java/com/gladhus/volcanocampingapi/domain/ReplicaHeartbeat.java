@@ -0,0 +1,32 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Time last written to the primary database, read back from the read replica to measure how far behind it is.
+ * Only mapped for the schema: the row is written and read with plain JDBC on each database, bypassing the routing.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "replica_heartbeat")
+public class ReplicaHeartbeat {
+
+    @Id
+    private Integer id;
+
+    /**
+     * Epoch milliseconds of the last heartbeat.
+     */
+    @Column(name = "beat_at", nullable = false)
+    private Long beatAt;
+}
@@ -1,12 +1,16 @@
 package com.gladhus.volcanocampingapi.domain;
 
 import java.time.LocalDate;
+import java.util.UUID;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,16 +22,25 @@ import org.hibernate.annotations.GenericGenerator;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table
+@Table(indexes = @Index(name = "idx_reservation_campsite_id_checkin", columnList = "campsite_id, checkin"))
 public class Reservation {
 
     /**
-     * Using UUID generation strategy in order to have unpredictable ids.
+     * Time-ordered id, so that new reservations are appended to the primary key index. It is never exposed as such,
+     * the API only shows it encrypted.
      */
     @Id
-    @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid")
-    private String id;
+    @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+    @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = "com.gladhus.volcanocampingapi.domain.TimeOrderedUuidGenerator")
+    @Column(columnDefinition = "binary(16)")
+    private UUID id;
+
+    /**
+     * Campsite booked, reservations made before there were several campsites are on the default one.
+     */
+    @Builder.Default
+    @Column(name = "campsite_id", nullable = false, columnDefinition = "bigint default " + Campsite.DEFAULT_ID)
+    private Long campsiteId = Campsite.DEFAULT_ID;
 
     private String email;
 
@@ -40,4 +53,12 @@ public class Reservation {
 
     private LocalDate checkout;
 
+    /**
+     * Incremented on every change of the reservation, and sent as its ETag. Rows created before the column existed
+     * start at 0.
+     */
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * One night of a campsite booked by an active reservation.
+ * The campsite and the night are the primary key, so two reservations can never hold the same night of a campsite: the
+ * second insert fails on the unique constraint instead of having to lock a range of reservations beforehand.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "reservation_night", indexes = @Index(name = "idx_reservation_night_reservation_id", columnList = "reservation_id"))
+@IdClass(CampsiteNight.class)
+public class ReservationNight implements Persistable<CampsiteNight> {
+
+    @Id
+    @Column(name = "campsite_id")
+    private Long campsiteId;
+
+    @Id
+    private LocalDate night;
+
+    @Column(name = "reservation_id", nullable = false, columnDefinition = "binary(16)")
+    private UUID reservationId;
+
+    @Override
+    public CampsiteNight getId() {
+        return new CampsiteNight(campsiteId, night);
+    }
+
+    /**
+     * Nights are only ever inserted or deleted, never updated. Always reporting them as new makes the repository
+     * persist them directly instead of merging, which would first select the row and then overwrite it.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
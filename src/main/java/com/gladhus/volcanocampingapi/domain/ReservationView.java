@@ -0,0 +1,12 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Reservation as returned by read-only requests. It is selected straight from the columns of the reservation, or of
+ * the archived reservation, and never is a managed entity: Hibernate neither tracks it nor keeps a snapshot of it.
+ */
+public record ReservationView(UUID id, Long campsiteId, String email, String fullName, ReservationStatus status,
+                              LocalDate checkin, LocalDate checkout, Long version) {
+}
@@ -0,0 +1,10 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import java.time.LocalDate;
+
+/**
+ * Nights occupied by a reservation, from the checkin (inclusive) to the checkout (exclusive). Selected instead of the
+ * whole reservation when only its dates are needed.
+ */
+public record Stay(LocalDate checkin, LocalDate checkout) {
+}
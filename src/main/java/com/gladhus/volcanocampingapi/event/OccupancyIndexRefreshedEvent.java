@@ -0,0 +1,12 @@
+package com.gladhus.volcanocampingapi.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published once the occupancy index serves the current state of some nights of a campsite.
+ * @param campsiteId campsite refreshed.
+ * @param fromDate first night refreshed (inclusive).
+ * @param toDate last night refreshed (exclusive).
+ */
+public record OccupancyIndexRefreshedEvent(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+}
@@ -0,0 +1,12 @@
+package com.gladhus.volcanocampingapi.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published by the service layer whenever the occupancy of some nights of a campsite may have changed.
+ * @param campsiteId campsite affected.
+ * @param fromDate first night affected (inclusive).
+ * @param toDate last night affected (exclusive), usually the checkout date.
+ */
+public record ReservationDatesChangedEvent(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+}
@@ -0,0 +1,27 @@
+package com.gladhus.volcanocampingapi.exception;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when at least one reservation of a batch is rejected, in which case none of them is created.
+ * Holds the error of each rejected reservation by its index in the batch.
+ */
+public class BatchReservationException extends GenericAPIException {
+
+    private static final String ERROR_MESSAGE = "The batch was rejected, none of its reservations were created.";
+
+    private final SortedMap<Integer, String> itemErrors;
+
+    public BatchReservationException(HttpStatus status, Map<Integer, String> itemErrors) {
+        super(status, ERROR_MESSAGE);
+        this.itemErrors = Collections.unmodifiableSortedMap(new TreeMap<>(itemErrors));
+    }
+
+    public SortedMap<Integer, String> getItemErrors() {
+        return itemErrors;
+    }
+}
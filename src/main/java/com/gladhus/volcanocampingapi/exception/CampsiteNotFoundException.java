@@ -0,0 +1,12 @@
+package com.gladhus.volcanocampingapi.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class CampsiteNotFoundException extends GenericAPIException {
+
+    private static final String ERROR_MESSAGE = "No campsite was found for provided campsite id.";
+
+    public CampsiteNotFoundException() {
+        super(HttpStatus.NOT_FOUND, ERROR_MESSAGE);
+    }
+}
@@ -0,0 +1,17 @@
+package com.gladhus.volcanocampingapi.exception;
+
+/**
+ * Thrown when valid dates are requested but some of the nights are already booked.
+ */
+public class DatesNotAvailableException extends InvalidDatesException {
+
+    private static final String ERROR_MESSAGE = "The dates selected are not available.";
+
+    public DatesNotAvailableException() {
+        super(ERROR_MESSAGE);
+    }
+
+    public DatesNotAvailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.gladhus.volcanocampingapi.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when the request holding an idempotency key is still running on another instance.
+ */
+public class IdempotencyKeyInProgressException extends GenericAPIException {
+
+    private static final String ERROR_MESSAGE = "A request with the same idempotency key is in progress, please try again later.";
+
+    public IdempotencyKeyInProgressException() {
+        super(HttpStatus.CONFLICT, ERROR_MESSAGE);
+    }
+}
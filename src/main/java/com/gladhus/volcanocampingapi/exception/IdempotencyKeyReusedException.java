@@ -0,0 +1,15 @@
+package com.gladhus.volcanocampingapi.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when an idempotency key already used for a request is sent again with a different request.
+ */
+public class IdempotencyKeyReusedException extends GenericAPIException {
+
+    private static final String ERROR_MESSAGE = "The idempotency key was already used for a different request.";
+
+    public IdempotencyKeyReusedException() {
+        super(HttpStatus.UNPROCESSABLE_ENTITY, ERROR_MESSAGE);
+    }
+}
@@ -0,0 +1,29 @@
+package com.gladhus.volcanocampingapi.exception;
+
+import java.time.Duration;
+import org.springframework.http.HttpStatus;
+
+public class ServiceUnavailableException extends GenericAPIException {
+
+    private static final String ERROR_MESSAGE = "The service is busy, please try again later.";
+
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final Duration retryAfter;
+
+    public ServiceUnavailableException() {
+        this(DEFAULT_RETRY_AFTER);
+    }
+
+    /**
+     * @param retryAfter delay after which the client may try again, sent in the Retry-After header.
+     */
+    public ServiceUnavailableException(Duration retryAfter) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, ERROR_MESSAGE);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,23 @@
+package com.gladhus.volcanocampingapi.exception;
+
+import java.time.Duration;
+import org.springframework.http.HttpStatus;
+
+public class TooManyRequestsException extends GenericAPIException {
+
+    private static final String ERROR_MESSAGE = "Too many requests, please try again later.";
+
+    private final Duration retryAfter;
+
+    /**
+     * @param retryAfter delay after which the client may try again, sent in the Retry-After header.
+     */
+    public TooManyRequestsException(Duration retryAfter) {
+        super(HttpStatus.TOO_MANY_REQUESTS, ERROR_MESSAGE);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
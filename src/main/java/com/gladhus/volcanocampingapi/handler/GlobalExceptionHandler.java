@@ -1,10 +1,20 @@
 package com.gladhus.volcanocampingapi.handler;
 
+import com.gladhus.volcanocampingapi.exception.BatchReservationException;
+import com.gladhus.volcanocampingapi.exception.CampsiteNotFoundException;
 import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.exception.IdempotencyKeyInProgressException;
+import com.gladhus.volcanocampingapi.exception.IdempotencyKeyReusedException;
 import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
 import com.gladhus.volcanocampingapi.exception.ReservationNotFoundException;
+import com.gladhus.volcanocampingapi.exception.ServiceUnavailableException;
+import com.gladhus.volcanocampingapi.exception.TooManyRequestsException;
 import com.gladhus.volcanocampingapi.handler.dto.ErrorMessageDto;
+import com.gladhus.volcanocampingapi.handler.dto.ItemErrorDto;
+import java.time.Duration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -13,7 +23,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 public class GlobalExceptionHandler {
 
     @ResponseStatus(HttpStatus.NOT_FOUND)
-    @ExceptionHandler(value = {ReservationNotFoundException.class})
+    @ExceptionHandler(value = {ReservationNotFoundException.class, CampsiteNotFoundException.class})
     public ErrorMessageDto notFoundErrorHandler(GenericAPIException e) {
         return ErrorMessageDto.builder().status(e.getStatus()).message(e.getMessage()).build();
     }
@@ -24,10 +34,51 @@ public class GlobalExceptionHandler {
         return ErrorMessageDto.builder().status(e.getStatus()).message(e.getMessage()).build();
     }
 
+    @ExceptionHandler(value = {BatchReservationException.class})
+    public ResponseEntity<ErrorMessageDto> batchReservationErrorHandler(BatchReservationException e) {
+        return new ResponseEntity<>(ErrorMessageDto.builder().status(e.getStatus()).message(e.getMessage())
+                .errors(e.getItemErrors().entrySet().stream()
+                        .map(error -> ItemErrorDto.builder().index(error.getKey()).message(error.getValue()).build())
+                        .toList())
+                .build(), e.getStatus());
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(value = {IdempotencyKeyInProgressException.class})
+    public ErrorMessageDto idempotencyKeyInProgressErrorHandler(GenericAPIException e) {
+        return ErrorMessageDto.builder().status(e.getStatus()).message(e.getMessage()).build();
+    }
+
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    @ExceptionHandler(value = {IdempotencyKeyReusedException.class})
+    public ErrorMessageDto idempotencyKeyReusedErrorHandler(GenericAPIException e) {
+        return ErrorMessageDto.builder().status(e.getStatus()).message(e.getMessage()).build();
+    }
+
+    @ExceptionHandler(value = {ServiceUnavailableException.class})
+    public ResponseEntity<ErrorMessageDto> serviceUnavailableErrorHandler(ServiceUnavailableException e) {
+        return retryLater(e, e.getRetryAfter());
+    }
+
+    @ExceptionHandler(value = {TooManyRequestsException.class})
+    public ResponseEntity<ErrorMessageDto> tooManyRequestsErrorHandler(TooManyRequestsException e) {
+        return retryLater(e, e.getRetryAfter());
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(value = {IllegalArgumentException.class})
     public ErrorMessageDto illegalArgumentErrorHandler(IllegalArgumentException e) {
         return ErrorMessageDto.builder().status(HttpStatus.BAD_REQUEST).message(e.getMessage()).build();
     }
 
+    /**
+     * Rejects the request with the Retry-After header, in whole seconds rounded up.
+     */
+    private static ResponseEntity<ErrorMessageDto> retryLater(GenericAPIException e, Duration retryAfter) {
+        long seconds = Math.max(1, retryAfter.plusMillis(999).getSeconds());
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                .body(ErrorMessageDto.builder().status(e.getStatus()).message(e.getMessage()).build());
+    }
+
 }
\ No newline at end of file
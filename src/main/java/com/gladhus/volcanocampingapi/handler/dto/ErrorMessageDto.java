@@ -1,5 +1,7 @@
 package com.gladhus.volcanocampingapi.handler.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.http.HttpStatus;
@@ -11,4 +13,10 @@ public class ErrorMessageDto {
     private HttpStatus status;
     private String message;
 
+    /**
+     * Errors of the items rejected, when the request holds several items.
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<ItemErrorDto> errors;
+
 }
\ No newline at end of file
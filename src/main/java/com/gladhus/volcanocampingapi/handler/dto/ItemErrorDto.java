@@ -0,0 +1,13 @@
+package com.gladhus.volcanocampingapi.handler.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ItemErrorDto {
+
+    private int index;
+    private String message;
+
+}
@@ -0,0 +1,71 @@
+package com.gladhus.volcanocampingapi.handler.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.gladhus.volcanocampingapi.handler.dto.ErrorMessageDto;
+import com.gladhus.volcanocampingapi.handler.dto.ItemErrorDto;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Writes an {@link ErrorMessageDto} and its {@link ItemErrorDto}s with pre-encoded field names and statuses, like the
+ * default bean serializer.
+ */
+public class ErrorMessageDtoSerializer extends StdSerializer<ErrorMessageDto> {
+
+    private static final SerializableString STATUS = new SerializedString("status");
+    private static final SerializableString MESSAGE = new SerializedString("message");
+    private static final SerializableString ERRORS = new SerializedString("errors");
+    private static final SerializableString INDEX = new SerializedString("index");
+
+    private static final Map<HttpStatus, SerializableString> STATUSES = new EnumMap<>(HttpStatus.class);
+
+    static {
+        for (HttpStatus status : HttpStatus.values()) {
+            STATUSES.put(status, new SerializedString(status.name()));
+        }
+    }
+
+    public ErrorMessageDtoSerializer() {
+        super(ErrorMessageDto.class);
+    }
+
+    @Override
+    public void serialize(ErrorMessageDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        gen.writeFieldName(STATUS);
+        if (value.getStatus() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(STATUSES.get(value.getStatus()));
+        }
+        gen.writeFieldName(MESSAGE);
+        gen.writeString(value.getMessage());
+
+        List<ItemErrorDto> errors = value.getErrors();
+        if (errors != null && !errors.isEmpty()) {
+            gen.writeFieldName(ERRORS);
+            gen.writeStartArray(errors, errors.size());
+            for (ItemErrorDto error : errors) {
+                if (error == null) {
+                    gen.writeNull();
+                } else {
+                    gen.writeStartObject(error);
+                    gen.writeFieldName(INDEX);
+                    gen.writeNumber(error.getIndex());
+                    gen.writeFieldName(MESSAGE);
+                    gen.writeString(error.getMessage());
+                    gen.writeEndObject();
+                }
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,31 @@
+package com.gladhus.volcanocampingapi.repository;
+
+import com.gladhus.volcanocampingapi.domain.ArchivedReservation;
+import com.gladhus.volcanocampingapi.domain.ReservationView;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional(propagation = Propagation.MANDATORY)
+public interface ArchivedReservationRepository extends JpaRepository<ArchivedReservation, UUID> {
+
+    /**
+     * Selects the archived reservation straight into a {@link ReservationView}, without loading it in the persistence
+     * context.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("select new com.gladhus.volcanocampingapi.domain.ReservationView(r.id, r.campsiteId, r.email, r.fullName, r.status, "
+            + "r.checkin, r.checkout, r.version) "
+            + "from ArchivedReservation r where r.id = :id")
+    Optional<ReservationView> findViewById(UUID id);
+
+    /**
+     * Selects only the version of the archived reservation, to check whether a client already has its latest state.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("select r.version from ArchivedReservation r where r.id = :id")
+    Optional<Long> findVersionById(UUID id);
+}
@@ -0,0 +1,10 @@
+package com.gladhus.volcanocampingapi.repository;
+
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional(propagation = Propagation.MANDATORY)
+public interface CampsiteRepository extends JpaRepository<Campsite, Long> {
+}
@@ -0,0 +1,26 @@
+package com.gladhus.volcanocampingapi.repository;
+
+import com.gladhus.volcanocampingapi.domain.CampsiteNight;
+import com.gladhus.volcanocampingapi.domain.DailyOccupancy;
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional(propagation = Propagation.MANDATORY)
+public interface DailyOccupancyRepository extends JpaRepository<DailyOccupancy, CampsiteNight> {
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    List<DailyOccupancy> findByNightGreaterThanEqual(LocalDate night);
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    List<DailyOccupancy> findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(Long campsiteId, LocalDate fromNight, LocalDate toNight);
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Modifying
+    @Query("delete from DailyOccupancy o where o.night < :night")
+    int deleteByNightLessThan(LocalDate night);
+}
@@ -0,0 +1,18 @@
+package com.gladhus.volcanocampingapi.repository;
+
+import com.gladhus.volcanocampingapi.domain.IdempotencyKey;
+import java.time.Instant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional(propagation = Propagation.MANDATORY)
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.expiresAt < :now")
+    int deleteByExpiresAtBefore(Instant now);
+}
@@ -0,0 +1,216 @@
+package com.gladhus.volcanocampingapi.repository;
+
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationNight;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.domain.ReservationView;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads and writes the reservation, reservation_archive and reservation_night tables through R2DBC, for the reactive
+ * variant of the API. The statements join the reactive transaction of the caller, if any.
+ * <p>
+ * Same statements as the JPA repositories, written out in SQL: the rows are the ones of the JPA entities, ids
+ * included, which are stored as BINARY(16).
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveReservationRepository {
+
+    private static final String RESERVATION_COLUMNS = "id, campsite_id, email, full_name, status, checkin, checkout, version";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveReservationRepository(ConnectionFactory connectionFactory) {
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+    }
+
+    /**
+     * Inserts the reservations provided, with their id, in a single statement.
+     */
+    public Mono<Void> insert(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return Mono.empty();
+        }
+        StringBuilder sql = new StringBuilder("insert into reservation (" + RESERVATION_COLUMNS + ") values ");
+        for (int i = 0; i < reservations.size(); i++) {
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(:id%1$d, :campsiteId%1$d, :email%1$d, :fullName%1$d, :status%1$d, :checkin%1$d, :checkout%1$d, :version%1$d)".formatted(i));
+        }
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(sql.toString());
+        for (int i = 0; i < reservations.size(); i++) {
+            Reservation reservation = reservations.get(i);
+            statement = statement.bind("id" + i, toBytes(reservation.getId()))
+                    .bind("campsiteId" + i, reservation.getCampsiteId())
+                    .bind("email" + i, reservation.getEmail())
+                    .bind("fullName" + i, reservation.getFullName())
+                    .bind("status" + i, reservation.getStatus().name())
+                    .bind("checkin" + i, reservation.getCheckin())
+                    .bind("checkout" + i, reservation.getCheckout())
+                    .bind("version" + i, reservation.getVersion());
+        }
+        return statement.then();
+    }
+
+    /**
+     * Saves the new state of a reservation locked by {@link #findForUpdateById(UUID)}, version included.
+     */
+    public Mono<Void> update(Reservation reservation) {
+        return databaseClient.sql("update reservation set campsite_id = :campsiteId, email = :email, full_name = :fullName, "
+                        + "status = :status, checkin = :checkin, checkout = :checkout, version = :version where id = :id")
+                .bind("campsiteId", reservation.getCampsiteId())
+                .bind("email", reservation.getEmail())
+                .bind("fullName", reservation.getFullName())
+                .bind("status", reservation.getStatus().name())
+                .bind("checkin", reservation.getCheckin())
+                .bind("checkout", reservation.getCheckout())
+                .bind("version", reservation.getVersion())
+                .bind("id", toBytes(reservation.getId()))
+                .then();
+    }
+
+    /**
+     * Locks the reservation until the end of the transaction, see {@link ReservationRepository#findForUpdateById(UUID)}.
+     */
+    public Mono<Reservation> findForUpdateById(UUID id) {
+        return databaseClient.sql("select " + RESERVATION_COLUMNS + " from reservation where id = :id for update")
+                .bind("id", toBytes(id))
+                .map(ReactiveReservationRepository::toReservation)
+                .one();
+    }
+
+    public Mono<Reservation> findForUpdateByIdAndStatus(UUID id, ReservationStatus status) {
+        return databaseClient.sql("select " + RESERVATION_COLUMNS + " from reservation where id = :id and status = :status for update")
+                .bind("id", toBytes(id))
+                .bind("status", status.name())
+                .map(ReactiveReservationRepository::toReservation)
+                .one();
+    }
+
+    public Mono<ReservationView> findViewById(UUID id) {
+        return findView("reservation", id);
+    }
+
+    public Mono<ReservationView> findArchivedViewById(UUID id) {
+        return findView("reservation_archive", id);
+    }
+
+    /**
+     * Selects only the version of the reservation, empty if it has none.
+     */
+    public Mono<Long> findVersionById(UUID id) {
+        return findVersion("reservation", id);
+    }
+
+    public Mono<Long> findArchivedVersionById(UUID id) {
+        return findVersion("reservation_archive", id);
+    }
+
+    /**
+     * Inserts the nights provided in a single statement. A night already booked fails with a
+     * {@link org.springframework.dao.DataIntegrityViolationException}, once the transaction that holds it completes.
+     */
+    public Mono<Void> insertNights(List<ReservationNight> nights) {
+        if (nights.isEmpty()) {
+            return Mono.empty();
+        }
+        StringBuilder sql = new StringBuilder("insert into reservation_night (campsite_id, night, reservation_id) values ");
+        for (int i = 0; i < nights.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(:campsiteId%1$d, :night%1$d, :reservationId%1$d)".formatted(i));
+        }
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(sql.toString());
+        for (int i = 0; i < nights.size(); i++) {
+            statement = statement.bind("campsiteId" + i, nights.get(i).getCampsiteId())
+                    .bind("night" + i, nights.get(i).getNight())
+                    .bind("reservationId" + i, toBytes(nights.get(i).getReservationId()));
+        }
+        return statement.then();
+    }
+
+    /**
+     * Deletes the nights of the campsite provided that are held by the reservation, see
+     * {@link ReservationNightRepository#deleteByCampsiteIdAndReservationIdAndNightIn(Long, UUID, Collection)}.
+     */
+    public Mono<Void> deleteNights(Long campsiteId, UUID reservationId, Collection<LocalDate> nights) {
+        if (nights.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.sql("delete from reservation_night where campsite_id = :campsiteId and night in (:nights) "
+                        + "and reservation_id = :reservationId")
+                .bind("campsiteId", campsiteId)
+                .bind("nights", nights)
+                .bind("reservationId", toBytes(reservationId))
+                .then();
+    }
+
+    /**
+     * Returns the booked nights of the campsite from fromNight (inclusive) to toNight (exclusive), with a primary key
+     * range read.
+     */
+    public Flux<LocalDate> findBookedNights(Long campsiteId, LocalDate fromNight, LocalDate toNight) {
+        return databaseClient.sql("select night from reservation_night where campsite_id = :campsiteId "
+                        + "and night >= :fromNight and night < :toNight")
+                .bind("campsiteId", campsiteId)
+                .bind("fromNight", fromNight)
+                .bind("toNight", toNight)
+                .map(row -> row.get("night", LocalDate.class))
+                .all();
+    }
+
+    private Mono<ReservationView> findView(String table, UUID id) {
+        return databaseClient.sql("select " + RESERVATION_COLUMNS + " from " + table + " where id = :id")
+                .bind("id", toBytes(id))
+                .map(row -> {
+                    Reservation reservation = toReservation(row);
+                    return new ReservationView(reservation.getId(), reservation.getCampsiteId(), reservation.getEmail(),
+                            reservation.getFullName(), reservation.getStatus(), reservation.getCheckin(),
+                            reservation.getCheckout(), reservation.getVersion());
+                })
+                .one();
+    }
+
+    private Mono<Long> findVersion(String table, UUID id) {
+        return databaseClient.sql("select version from " + table + " where id = :id")
+                .bind("id", toBytes(id))
+                .map(row -> Optional.ofNullable(row.get("version", Long.class)))
+                .one()
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    private static Reservation toReservation(Row row) {
+        String status = row.get("status", String.class);
+        return Reservation.builder()
+                .id(toUuid(row.get("id", byte[].class)))
+                .campsiteId(row.get("campsite_id", Long.class))
+                .email(row.get("email", String.class))
+                .fullName(row.get("full_name", String.class))
+                .status(status == null ? null : ReservationStatus.valueOf(status))
+                .checkin(row.get("checkin", LocalDate.class))
+                .checkout(row.get("checkout", LocalDate.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+
+    static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+
+    static UUID toUuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,46 @@
+package com.gladhus.volcanocampingapi.repository;
+
+import com.gladhus.volcanocampingapi.domain.CampsiteNight;
+import com.gladhus.volcanocampingapi.domain.ReservationNight;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional(propagation = Propagation.MANDATORY)
+public interface ReservationNightRepository extends JpaRepository<ReservationNight, CampsiteNight> {
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    List<ReservationNight> findByNightGreaterThanEqual(LocalDate night);
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    List<ReservationNight> findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(Long campsiteId, LocalDate fromNight, LocalDate toNight);
+
+    /**
+     * Deletes the nights of the campsite provided that are held by the reservation. Deleting by primary key only
+     * locks the rows deleted, without gap locks that would block other bookings.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Modifying
+    @Query("delete from ReservationNight n where n.campsiteId = :campsiteId and n.night in :nights and n.reservationId = :reservationId")
+    int deleteByCampsiteIdAndReservationIdAndNightIn(Long campsiteId, UUID reservationId, Collection<LocalDate> nights);
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Modifying
+    @Query("delete from ReservationNight n where n.reservationId in :reservationIds")
+    int deleteByReservationIdIn(Collection<UUID> reservationIds);
+
+    /**
+     * Deletes all nights that are not held by an active reservation of their campsite covering them.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Modifying
+    @Query("delete from ReservationNight n where not exists (select r.id from Reservation r where r.id = n.reservationId and r.campsiteId = n.campsiteId "
+            + "and r.status = com.gladhus.volcanocampingapi.domain.ReservationStatus.ACTIVE and r.checkin <= n.night and r.checkout > n.night)")
+    int deleteOrphans();
+}
@@ -2,10 +2,14 @@ package com.gladhus.volcanocampingapi.repository;
 
 import com.gladhus.volcanocampingapi.domain.Reservation;
 import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.domain.ReservationView;
+import com.gladhus.volcanocampingapi.domain.Stay;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import javax.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
@@ -13,21 +17,74 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Transactional(propagation = Propagation.MANDATORY)
-public interface ReservationRepository extends JpaRepository<Reservation, String> {
+public interface ReservationRepository extends JpaRepository<Reservation, UUID> {
 
     @Transactional(propagation = Propagation.MANDATORY)
-    Optional<Reservation> findByIdAndStatus(String id, ReservationStatus status);
+    Optional<Reservation> findByIdAndStatus(UUID id, ReservationStatus status);
 
     /**
-     * This repository query uses a PESSIMISTIC_WRITE lock on the table to ensure repeatable reads
-     * and avoid conflicts with concurrent requests.
+     * Locks the reservation until the end of the transaction, so that concurrent updates and cancellations of the same
+     * reservation are applied one after the other, each seeing the result of the previous one.
      */
     @Transactional(propagation = Propagation.MANDATORY)
     @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("from Reservation r where r.status in :status and (r.checkin between :fromDate and :toDate or r.checkout between :fromDate and :toDate)")
-    Optional<List<Reservation>> findByCheckoutOrCheckinIsBetweenAndStatusForUpdate(LocalDate fromDate, LocalDate toDate, ReservationStatus status);
+    Optional<Reservation> findForUpdateById(UUID id);
 
     @Transactional(propagation = Propagation.MANDATORY)
-    @Query("from Reservation r where r.status in :status and (r.checkin between :fromDate and :toDate or r.checkout between :fromDate and :toDate)")
-    Optional<List<Reservation>> findByCheckoutOrCheckinIsBetweenAndStatus(LocalDate fromDate, LocalDate toDate, ReservationStatus status);
-}
\ No newline at end of file
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Reservation> findForUpdateByIdAndStatus(UUID id, ReservationStatus status);
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    List<Reservation> findByStatusAndCheckoutAfter(ReservationStatus status, LocalDate date);
+
+    /**
+     * Selects the reservation straight into a {@link ReservationView}, without loading it in the persistence context.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("select new com.gladhus.volcanocampingapi.domain.ReservationView(r.id, r.campsiteId, r.email, r.fullName, r.status, "
+            + "r.checkin, r.checkout, r.version) "
+            + "from Reservation r where r.id = :id")
+    Optional<ReservationView> findViewById(UUID id);
+
+    /**
+     * Selects only the version of the reservation, to check whether a client already has its latest state.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("select r.version from Reservation r where r.id = :id")
+    Optional<Long> findVersionById(UUID id);
+
+    /**
+     * Returns all reservations of the campsite with the status provided that occupy at least one night between
+     * fromDate (inclusive) and toDate (exclusive).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("from Reservation r where r.campsiteId = :campsiteId and r.status = :status and r.checkin < :toDate and r.checkout > :fromDate")
+    List<Reservation> findOverlappingByStatus(Long campsiteId, LocalDate fromDate, LocalDate toDate, ReservationStatus status);
+
+    /**
+     * Same as {@link #findOverlappingByStatus(Long, LocalDate, LocalDate, ReservationStatus)}, selecting only the stays
+     * of the reservations, which are not loaded in the persistence context.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("select new com.gladhus.volcanocampingapi.domain.Stay(r.checkin, r.checkout) "
+            + "from Reservation r where r.campsiteId = :campsiteId and r.status = :status and r.checkin < :toDate and r.checkout > :fromDate")
+    List<Stay> findStaysOverlappingByStatus(Long campsiteId, LocalDate fromDate, LocalDate toDate, ReservationStatus status);
+
+    /**
+     * Same as {@link #findOverlappingByStatus(Long, LocalDate, LocalDate, ReservationStatus)}, locking the reservations
+     * returned with a PESSIMISTIC_WRITE lock until the end of the transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("from Reservation r where r.campsiteId = :campsiteId and r.status = :status and r.checkin < :toDate and r.checkout > :fromDate")
+    List<Reservation> findOverlappingByStatusForUpdate(Long campsiteId, LocalDate fromDate, LocalDate toDate, ReservationStatus status);
+
+    /**
+     * Returns the reservations that checked out before the date provided, or that have the status provided, locking
+     * them until the end of the transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("from Reservation r where r.checkout < :date or r.status = :status order by r.checkin")
+    List<Reservation> findArchivableForUpdate(LocalDate date, ReservationStatus status, Pageable pageable);
+}
@@ -0,0 +1,139 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.event.OccupancyIndexRefreshedEvent;
+import com.gladhus.volcanocampingapi.event.ReservationDatesChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Bounded cache of computed availabilities, with one cache per campsite keyed by the requested range.
+ * <p>
+ * Entries overlapping the nights of a booking are evicted once its transaction commits, and again once the
+ * {@link OccupancyIndex} caught up with it, as results computed from the index in between could be stale. A result
+ * computed while a booking was committing could already be stale too, so it is only stored if no eviction happened
+ * on the campsite since the computation started. Bookings of one campsite therefore neither evict nor hold back the
+ * results of another. The expiry only bounds how long a result can live if an eviction is ever missed.
+ */
+@Component
+public class AvailabilityCache {
+
+    private final boolean enabled;
+
+    private final long maximumSize;
+
+    private final Duration expireAfterWrite;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Long, Shard> shards = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AvailabilityCache(@Value("${volcano.availability-cache.enabled:true}") boolean enabled,
+                             @Value("${volcano.availability-cache.maximum-size:10000}") long maximumSize,
+                             @Value("${volcano.availability-cache.expire-after-write:PT5M}") Duration expireAfterWrite,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Returns the cached available dates of the campsite between fromDate and toDate (both inclusive), or computes and
+     * caches them.
+     */
+    public AvailableDates get(Long campsiteId, LocalDate fromDate, LocalDate toDate, Supplier<AvailableDates> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Shard shard = shards.computeIfAbsent(campsiteId, this::newShard);
+        Range range = new Range(fromDate, toDate);
+        AvailableDates cached = shard.cache().getIfPresent(range);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadedGeneration = shard.generation().get();
+        AvailableDates loaded = loader.get();
+        if (shard.generation().get() == loadedGeneration) {
+            shard.cache().asMap().putIfAbsent(range, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Evicts the ranges that include a night touched by a committed booking.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationDatesChanged(ReservationDatesChangedEvent event) {
+        evict(event.campsiteId(), event.fromDate(), event.toDate());
+    }
+
+    /**
+     * Evicts the ranges that include a night the {@link OccupancyIndex} just refreshed.
+     */
+    @EventListener
+    public void onOccupancyIndexRefreshed(OccupancyIndexRefreshedEvent event) {
+        evict(event.campsiteId(), event.fromDate(), event.toDate());
+    }
+
+    private void evict(Long campsiteId, LocalDate fromNight, LocalDate toNight) {
+        Shard shard = shards.get(campsiteId);
+        if (!enabled || shard == null) {
+            return;
+        }
+
+        shard.generation().incrementAndGet();
+        shard.cache().asMap().keySet().removeIf(range -> range.overlaps(fromNight, toNight));
+    }
+
+    Optional<AvailableDates> getIfPresent(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        return Optional.ofNullable(shards.get(campsiteId))
+                .map(shard -> shard.cache().getIfPresent(new Range(fromDate, toDate)));
+    }
+
+    private Shard newShard(Long campsiteId) {
+        Cache<Range, AvailableDates> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "availabilities", "campsite", String.valueOf(campsiteId));
+        return new Shard(cache, new AtomicLong());
+    }
+
+    /**
+     * Cache of a campsite, with the number of evictions it went through.
+     */
+    private record Shard(Cache<Range, AvailableDates> cache, AtomicLong generation) {
+    }
+
+    /**
+     * Range of dates, both inclusive.
+     */
+    private record Range(LocalDate fromDate, LocalDate toDate) {
+
+        /**
+         * Checks if this range includes a night between fromNight (inclusive) and toNight (exclusive).
+         */
+        boolean overlaps(LocalDate fromNight, LocalDate toNight) {
+            return fromDate.isBefore(toNight) && !toDate.isBefore(fromNight);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.exception.ServiceUnavailableException;
+import com.gladhus.volcanocampingapi.exception.TooManyRequestsException;
+import com.gladhus.volcanocampingapi.v1.service.ConnectionBulkhead.TransactionalWork;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rejects bookings right away when the booking path is saturated, instead of letting them hold a request thread and a
+ * connection while they queue, so that a rush on some nights cannot starve the other endpoints.
+ * <ul>
+ *     <li>At most {@code volcano.booking.max-in-flight} bookings run at once, retries included. Further bookings are
+ *     rejected with a 429 without waiting. Zero or less disables the limit.</li>
+ *     <li>A booking that did not get the lock of a night within {@code volcano.booking.lock-timeout}, in this instance
+ *     or in the database, is rolled back and rejected with a 503.</li>
+ * </ul>
+ * Both responses carry a Retry-After header, and are counted by the {@link BookingMetrics}.
+ */
+@Component
+public class BookingLoadShedder {
+
+    private final BookingMetrics bookingMetrics;
+
+    private final Semaphore permits;
+
+    private final Duration retryAfter;
+
+    @Autowired
+    public BookingLoadShedder(BookingMetrics bookingMetrics,
+                              @Value("${volcano.booking.max-in-flight:16}") int maxInFlight,
+                              @Value("${volcano.booking.shed-retry-after:PT1S}") Duration retryAfter,
+                              MeterRegistry meterRegistry) {
+        this.bookingMetrics = bookingMetrics;
+        this.retryAfter = retryAfter;
+        this.permits = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+        if (permits != null) {
+            Gauge.builder("booking.in-flight", () -> maxInFlight - permits.availablePermits())
+                    .description("Bookings currently running.")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Runs the booking, unless too many are already running.
+     * @param operation booking operation, as tagged in the {@link BookingMetrics}.
+     * @throws TooManyRequestsException if the maximum number of bookings in flight is reached.
+     * @throws ServiceUnavailableException if the booking timed out waiting for the lock of a night.
+     */
+    public <T> T call(String operation, TransactionalWork<T> work) throws GenericAPIException {
+        if (permits != null && !permits.tryAcquire()) {
+            bookingMetrics.recordShed(operation, BookingMetrics.SHED_IN_FLIGHT_LIMIT);
+            throw new TooManyRequestsException(retryAfter);
+        }
+
+        try {
+            return work.call();
+        } catch (PessimisticLockingFailureException e) {
+            // Lock wait timeouts, and deadlocks, of the database and of the NightLockManager.
+            bookingMetrics.recordShed(operation, BookingMetrics.SHED_LOCK_TIMEOUT);
+            throw new ServiceUnavailableException(retryAfter);
+        } finally {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+}
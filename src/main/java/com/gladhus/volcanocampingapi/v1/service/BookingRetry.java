@@ -0,0 +1,81 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.v1.service.ConnectionBulkhead.TransactionalWork;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Runs a booking transaction again when it lost an optimistic version check to a concurrent booking. Each attempt is a
+ * new transaction, which sees the nights as the other booking left them: either they are taken and the booking is
+ * rejected as usual, or they were released and it goes through.
+ * <p>
+ * Attempts are spaced by a random delay, up to a bound that doubles with every attempt ("full jitter"), so that the
+ * bookings that collided do not collide again. Once all attempts are used, the booking is rejected as not available.
+ */
+@Component
+public class BookingRetry {
+
+    private final BookingMetrics bookingMetrics;
+
+    private final int maxAttempts;
+
+    private final long initialBackoffNanos;
+
+    private final long maxBackoffNanos;
+
+    @Autowired
+    public BookingRetry(BookingMetrics bookingMetrics,
+                        @Value("${volcano.booking.retry.max-attempts:4}") int maxAttempts,
+                        @Value("${volcano.booking.retry.initial-backoff:PT0.005S}") Duration initialBackoff,
+                        @Value("${volcano.booking.retry.max-backoff:PT0.1S}") Duration maxBackoff) {
+        Assert.isTrue(maxAttempts > 0, "The number of booking attempts must be positive.");
+        this.bookingMetrics = bookingMetrics;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+
+    /**
+     * Runs the booking transaction until it is not rejected by an optimistic version check anymore.
+     * @param operation booking operation, as tagged in the {@link BookingMetrics}.
+     * @throws DatesNotAvailableException if every attempt lost a version check.
+     */
+    public <T> T call(String operation, TransactionalWork<T> work) throws GenericAPIException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.call();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts || !backOff(attempt)) {
+                    DatesNotAvailableException rejected = new DatesNotAvailableException();
+                    bookingMetrics.recordRejected(operation, rejected);
+                    throw rejected;
+                }
+                bookingMetrics.recordRetry(operation);
+            }
+        }
+    }
+
+    /**
+     * Waits before the next attempt.
+     * @return false if the thread was interrupted while waiting.
+     */
+    private boolean backOff(int attempt) {
+        long bound = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30));
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.event.ReservationDatesChangedEvent;
+import com.gladhus.volcanocampingapi.exception.BatchReservationException;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import com.gladhus.volcanocampingapi.exception.ReservationNotFoundException;
+import com.gladhus.volcanocampingapi.exception.ServiceUnavailableException;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.service.ConnectionBulkhead.TransactionalWork;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingGuard;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Books reservations on a single writer thread, in place of the transactions of the {@link ReservationService}.
+ * <p>
+ * Creations, updates and cancellations are queued in a bounded queue, in arrival order. The writer thread takes them in
+ * batches and decides each one against the in-memory calendar of the booked nights of its campsite, without any lock:
+ * it is the only thread booking nights. The decisions of a batch are then saved in a single transaction, and each request gets its
+ * outcome once that transaction is committed. If the commit fails, every request of the batch fails and the calendar
+ * is read again from the database.
+ * <p>
+ * The {@link BookingGuard} is not asked whether nights are available, but the nights each booking takes or releases are
+ * still written to its rows within the transaction of the batch, so that the availabilities read from them stay right.
+ * <p>
+ * The calendar is loaded from the active reservations at startup. It only knows about the bookings of this instance:
+ * the sequencer requires all bookings to go through a single instance. When the queue is full, requests are rejected
+ * right away with a 503.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "volcano.booking.sequencer.enabled", havingValue = "true")
+public class BookingSequencer implements SmartInitializingSingleton, DisposableBean {
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final ReservationRepository reservationRepository;
+
+    private final BookingGuard bookingGuard;
+
+    private final BookingMetrics bookingMetrics;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<Command<?>> queue;
+
+    private final int maxBatchSize;
+
+    private final DistributionSummary batchSizes;
+
+    /**
+     * Reservation holding each booked night, by campsite. Only read and written by the writer thread, or before it
+     * starts.
+     */
+    private final Map<Long, NavigableMap<LocalDate, UUID>> calendars = new HashMap<>();
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    private boolean recovered;
+
+    @Autowired
+    public BookingSequencer(ReservationRepository reservationRepository, BookingGuard bookingGuard, BookingMetrics bookingMetrics,
+                            ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${volcano.booking.sequencer.queue-capacity:4096}") int queueCapacity,
+                            @Value("${volcano.booking.sequencer.max-batch-size:256}") int maxBatchSize) {
+        Assert.isTrue(maxBatchSize > 0, "The sequencer batch size must be positive.");
+        this.reservationRepository = reservationRepository;
+        this.bookingGuard = bookingGuard;
+        this.bookingMetrics = bookingMetrics;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = DistributionSummary.builder("booking.sequencer.batch.size")
+                .description("Bookings saved in each transaction of the sequencer.")
+                .register(meterRegistry);
+        Gauge.builder("booking.sequencer.queued", queue, BlockingQueue::size)
+                .description("Bookings waiting for the sequencer.")
+                .register(meterRegistry);
+        this.writer = new Thread(this::run, "booking-sequencer");
+        this.writer.setDaemon(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        recover();
+        writer.start();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // The bookings already queued are still saved, new ones are rejected.
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        failQueued();
+    }
+
+    /**
+     * Same as {@link ReservationService#createReservation(Reservation)}.
+     */
+    public Reservation createReservation(Reservation reservation) throws GenericAPIException {
+        return submit(() -> create(reservation));
+    }
+
+    /**
+     * Same as {@link ReservationService#createReservations(List)}.
+     */
+    public List<Reservation> createReservations(List<Reservation> reservations) throws GenericAPIException {
+        return submit(() -> createAll(reservations));
+    }
+
+    /**
+     * Same as {@link ReservationService#updateReservation(Reservation)}.
+     */
+    public Reservation updateReservation(Reservation newReservation) throws GenericAPIException {
+        return submit(() -> update(newReservation));
+    }
+
+    /**
+     * Same as {@link ReservationService#cancelReservation(UUID)}.
+     */
+    public Reservation cancelReservation(UUID id) throws GenericAPIException {
+        return submit(() -> cancel(id));
+    }
+
+    private <T> T submit(TransactionalWork<T> decision) throws GenericAPIException {
+        Command<T> command = new Command<>(decision);
+        if (!running || !queue.offer(command)) {
+            throw new ServiceUnavailableException();
+        }
+        try {
+            return command.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GenericAPIException apiException) {
+                throw apiException;
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private void run() {
+        List<Command<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Command<?> first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Keeps the writer alive whatever happens to a batch, process already failed its requests.
+                log.error("Could not process a batch of bookings.", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Decides every booking of the batch, in order, then saves them in a single transaction.
+     */
+    void process(List<Command<?>> batch) {
+        if (!recovered) {
+            recover();
+        }
+        if (!recovered) {
+            batch.forEach(command -> command.result.completeExceptionally(new ServiceUnavailableException()));
+            return;
+        }
+
+        try {
+            // Past nights can no longer be booked nor released.
+            calendars.values().forEach(calendar -> calendar.headMap(LocalDate.now()).clear());
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(Command::decide));
+        } catch (RuntimeException e) {
+            // Nothing was saved: the decisions already applied to the calendar are undone by reading it again.
+            recovered = false;
+            batch.forEach(command -> command.result.completeExceptionally(e));
+            throw e;
+        }
+        batchSizes.record(batch.size());
+        batch.forEach(Command::acknowledge);
+    }
+
+    /**
+     * Loads the nights held by the active reservations.
+     */
+    void recover() {
+        try {
+            LocalDate today = LocalDate.now();
+            List<Reservation> reservations = transactionTemplate.execute(status ->
+                    reservationRepository.findByStatusAndCheckoutAfter(ReservationStatus.ACTIVE, today));
+            calendars.clear();
+            for (Reservation reservation : reservations) {
+                NavigableMap<LocalDate, UUID> calendar = calendarOf(reservation.getCampsiteId());
+                reservation.getCheckin().datesUntil(reservation.getCheckout())
+                        .filter(night -> !night.isBefore(today))
+                        .forEach(night -> {
+                            UUID holder = calendar.putIfAbsent(night, reservation.getId());
+                            if (holder != null) {
+                                log.warn("Night {} of campsite {} is booked by both reservations {} and {}.",
+                                        night, reservation.getCampsiteId(), holder, reservation.getId());
+                            }
+                        });
+            }
+            recovered = true;
+            log.info("Loaded {} booked nights into the booking sequencer.",
+                    calendars.values().stream().mapToInt(Map::size).sum());
+        } catch (RuntimeException e) {
+            // Deciding on an incomplete calendar could book a night twice: bookings fail until it is loaded.
+            log.error("Could not load the booked nights, bookings are rejected until they are.", e);
+        }
+    }
+
+    private Reservation create(Reservation reservation) throws InvalidDatesException {
+        Reservation createdReservation;
+        try {
+            ReservationService.validateDates(reservation);
+            checkAvailability(reservation.getCampsiteId(), reservation.getCheckin(), reservation.getCheckout(), null);
+
+            reservation.setStatus(ReservationStatus.ACTIVE);
+            createdReservation = reservationRepository.save(reservation);
+        } catch (InvalidDatesException e) {
+            bookingMetrics.recordRejected(BookingMetrics.OPERATION_CREATE, e);
+            throw e;
+        }
+        take(createdReservation);
+        updateGuard(() -> bookingGuard.reserveNights(createdReservation, null, null));
+        bookingMetrics.recordBooked(BookingMetrics.OPERATION_CREATE);
+
+        eventPublisher.publishEvent(new ReservationDatesChangedEvent(createdReservation.getCampsiteId(),
+                createdReservation.getCheckin(), createdReservation.getCheckout()));
+        return createdReservation;
+    }
+
+    private List<Reservation> createAll(List<Reservation> reservations) throws BatchReservationException {
+        Map<Integer, InvalidDatesException> rejected = ReservationService.validateBatch(reservations);
+        for (int i = 0; i < reservations.size(); i++) {
+            Reservation reservation = reservations.get(i);
+            if (!rejected.containsKey(i) && !isAvailable(reservation.getCampsiteId(), reservation.getCheckin(), reservation.getCheckout(), null)) {
+                rejected.put(i, new DatesNotAvailableException());
+            }
+        }
+        if (!rejected.isEmpty()) {
+            Map<Integer, String> itemErrors = new TreeMap<>();
+            rejected.forEach((index, e) -> {
+                bookingMetrics.recordRejected(BookingMetrics.OPERATION_BATCH_CREATE, e);
+                itemErrors.put(index, e.getMessage());
+            });
+            throw new BatchReservationException(HttpStatus.FORBIDDEN, itemErrors);
+        }
+
+        reservations.forEach(reservation -> reservation.setStatus(ReservationStatus.ACTIVE));
+        List<Reservation> createdReservations = reservationRepository.saveAll(reservations);
+        createdReservations.forEach(reservation -> {
+            take(reservation);
+            bookingMetrics.recordBooked(BookingMetrics.OPERATION_BATCH_CREATE);
+        });
+        updateGuard(() -> bookingGuard.reserveNights(createdReservations));
+
+        ReservationService.datesChangedEvents(createdReservations).forEach(eventPublisher::publishEvent);
+        return createdReservations;
+    }
+
+    private Reservation update(Reservation newReservation) throws InvalidDatesException, ReservationNotFoundException {
+        Reservation oldReservation = reservationRepository.findById(newReservation.getId()).orElseThrow(ReservationNotFoundException::new);
+        ReservationService.fillMissingFields(newReservation, oldReservation);
+
+        Long oldCampsiteId = oldReservation.getCampsiteId();
+        LocalDate oldCheckin = oldReservation.getCheckin();
+        LocalDate oldCheckout = oldReservation.getCheckout();
+        boolean wasActive = oldReservation.getStatus() == ReservationStatus.ACTIVE;
+        boolean movedCampsite = !oldCampsiteId.equals(newReservation.getCampsiteId());
+
+        Reservation updatedReservation;
+        try {
+            ReservationService.validateDates(newReservation);
+            checkAvailability(newReservation.getCampsiteId(), newReservation.getCheckin(), newReservation.getCheckout(), newReservation.getId());
+
+            newReservation.setStatus(ReservationStatus.ACTIVE);
+            updatedReservation = reservationRepository.save(newReservation);
+        } catch (InvalidDatesException e) {
+            bookingMetrics.recordRejected(BookingMetrics.OPERATION_UPDATE, e);
+            throw e;
+        }
+        if (wasActive) {
+            release(oldCampsiteId, updatedReservation.getId(), oldCheckin, oldCheckout);
+        }
+        take(updatedReservation);
+        // Same guard updates as the ReservationService.
+        updateGuard(() -> {
+            if (wasActive && movedCampsite) {
+                bookingGuard.releaseNights(Reservation.builder().id(updatedReservation.getId()).campsiteId(oldCampsiteId)
+                        .checkin(oldCheckin).checkout(oldCheckout).build());
+            }
+            if (wasActive && !movedCampsite) {
+                bookingGuard.reserveNights(updatedReservation, oldCheckin, oldCheckout);
+            } else {
+                bookingGuard.reserveNights(updatedReservation, null, null);
+            }
+        });
+        bookingMetrics.recordBooked(BookingMetrics.OPERATION_UPDATE);
+
+        ReservationService.updatedDatesChangedEvents(oldCampsiteId, oldCheckin, oldCheckout, updatedReservation)
+                .forEach(eventPublisher::publishEvent);
+        return updatedReservation;
+    }
+
+    private Reservation cancel(UUID id) throws ReservationNotFoundException {
+        Reservation reservation = reservationRepository.findByIdAndStatus(id, ReservationStatus.ACTIVE).orElseThrow(ReservationNotFoundException::new);
+
+        reservation.setStatus(ReservationStatus.CANCELLED);
+        release(reservation.getCampsiteId(), id, reservation.getCheckin(), reservation.getCheckout());
+        bookingGuard.releaseNights(reservation);
+
+        eventPublisher.publishEvent(new ReservationDatesChangedEvent(reservation.getCampsiteId(),
+                reservation.getCheckin(), reservation.getCheckout()));
+        return reservation;
+    }
+
+    private void checkAvailability(Long campsiteId, LocalDate checkin, LocalDate checkout, UUID reservationId) throws DatesNotAvailableException {
+        if (!isAvailable(campsiteId, checkin, checkout, reservationId)) {
+            throw new DatesNotAvailableException();
+        }
+    }
+
+    /**
+     * Checks that no reservation other than the one provided holds a night of the stay on the campsite.
+     */
+    private boolean isAvailable(Long campsiteId, LocalDate checkin, LocalDate checkout, UUID reservationId) {
+        return calendarOf(campsiteId).subMap(checkin, checkout).values().stream().allMatch(holder -> holder.equals(reservationId));
+    }
+
+    private void take(Reservation reservation) {
+        NavigableMap<LocalDate, UUID> calendar = calendarOf(reservation.getCampsiteId());
+        reservation.getCheckin().datesUntil(reservation.getCheckout()).forEach(night -> calendar.put(night, reservation.getId()));
+    }
+
+    private void release(Long campsiteId, UUID reservationId, LocalDate checkin, LocalDate checkout) {
+        NavigableMap<LocalDate, UUID> calendar = calendarOf(campsiteId);
+        checkin.datesUntil(checkout).forEach(night -> calendar.remove(night, reservationId));
+    }
+
+    /**
+     * Writes the nights decided by the calendar to the rows of the booking guard. Rows disagreeing with the calendar
+     * fail the whole batch rather than the booking alone, whose reservation is already saved.
+     */
+    private static void updateGuard(GuardUpdate update) {
+        try {
+            update.run();
+        } catch (InvalidDatesException e) {
+            throw new IllegalStateException("The nights kept by the booking guard disagree with the calendar of the sequencer.", e);
+        }
+    }
+
+    private NavigableMap<LocalDate, UUID> calendarOf(Long campsiteId) {
+        return calendars.computeIfAbsent(campsiteId, id -> new TreeMap<>());
+    }
+
+    private void failQueued() {
+        List<Command<?>> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(command -> command.result.completeExceptionally(new ServiceUnavailableException()));
+    }
+
+    @FunctionalInterface
+    private interface GuardUpdate {
+        void run() throws InvalidDatesException;
+    }
+
+    /**
+     * Booking request waiting in the queue. It is decided within the transaction of its batch, and acknowledged once
+     * that transaction is committed.
+     */
+    static final class Command<T> {
+
+        private final TransactionalWork<T> decision;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private T value;
+
+        private GenericAPIException rejection;
+
+        Command(TransactionalWork<T> decision) {
+            this.decision = decision;
+        }
+
+        void decide() {
+            try {
+                value = decision.call();
+            } catch (GenericAPIException e) {
+                // A rejection leaves no change behind, the other bookings of the batch are still saved.
+                rejection = e;
+            }
+        }
+
+        void acknowledge() {
+            if (rejection != null) {
+                result.completeExceptionally(rejection);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+}
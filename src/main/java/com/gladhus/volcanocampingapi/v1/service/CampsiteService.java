@@ -0,0 +1,117 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.exception.CampsiteNotFoundException;
+import com.gladhus.volcanocampingapi.repository.CampsiteRepository;
+import java.util.Comparator;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the list of campsites in memory, so that checking the campsite of a request does not hit the database.
+ * <p>
+ * Campsites are rarely added: the list is read again periodically, and right away when a request names a campsite it
+ * does not know yet. The default campsite is created at startup if it does not exist.
+ */
+@Slf4j
+@Service
+public class CampsiteService implements SmartInitializingSingleton {
+
+    private final CampsiteRepository campsiteRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final String defaultName;
+
+    private volatile List<Campsite> campsites = List.of();
+
+    @Autowired
+    public CampsiteService(CampsiteRepository campsiteRepository, PlatformTransactionManager transactionManager,
+                           @Value("${volcano.campsites.default-name:Volcano campsite}") String defaultName) {
+        this.campsiteRepository = campsiteRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultName = defaultName;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!campsiteRepository.existsById(Campsite.DEFAULT_ID)) {
+                    campsiteRepository.save(Campsite.builder().id(Campsite.DEFAULT_ID).name(defaultName).build());
+                    log.info("Created the default campsite {}.", Campsite.DEFAULT_ID);
+                }
+            });
+        } catch (DataAccessException e) {
+            // Most likely another instance created it at the same time.
+            log.warn("Could not create the default campsite.", e);
+        }
+        refresh();
+    }
+
+    /**
+     * Reads the campsites from the database.
+     */
+    @Scheduled(initialDelayString = "${volcano.campsites.refresh-interval:PT1M}",
+            fixedDelayString = "${volcano.campsites.refresh-interval:PT1M}")
+    public void refresh() {
+        try {
+            List<Campsite> loaded = transactionTemplate.execute(status -> campsiteRepository.findAll());
+            campsites = loaded == null ? List.of()
+                    : loaded.stream().sorted(Comparator.comparing(Campsite::getId)).toList();
+        } catch (DataAccessException e) {
+            // The campsites already known are kept until the next refresh.
+            log.warn("Could not read the campsites.", e);
+        }
+    }
+
+    /**
+     * Returns all campsites, by ascending id.
+     */
+    public List<Campsite> getCampsites() {
+        return campsites;
+    }
+
+    /**
+     * Returns the ids of all campsites, in ascending order.
+     */
+    public List<Long> getCampsiteIds() {
+        return campsites.stream().map(Campsite::getId).toList();
+    }
+
+    /**
+     * Checks whether the campsite exists, reading the campsites again if it is not known yet.
+     */
+    public boolean exists(Long campsiteId) {
+        if (campsiteId == null) {
+            return false;
+        }
+        if (isKnown(campsiteId)) {
+            return true;
+        }
+        refresh();
+        return isKnown(campsiteId);
+    }
+
+    /**
+     * Same as {@link #exists(Long)}.
+     * @throws CampsiteNotFoundException if there is no campsite with the id provided.
+     */
+    public void checkExists(Long campsiteId) throws CampsiteNotFoundException {
+        if (!exists(campsiteId)) {
+            throw new CampsiteNotFoundException();
+        }
+    }
+
+    private boolean isKnown(Long campsiteId) {
+        return campsites.stream().anyMatch(campsite -> campsite.getId().equals(campsiteId));
+    }
+}
@@ -0,0 +1,106 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.exception.ServiceUnavailableException;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the number of requests running transactional work to what the connection pool can serve.
+ * <p>
+ * With a platform thread pool, the number of request threads already bounds the queue in front of the connection pool.
+ * With virtual threads there is no such bound, so requests would queue inside the pool and fail after its connection
+ * timeout. Requests wait here instead, in arrival order, and fail fast with a 503 once the wait exceeds the acquire
+ * timeout. One connection is left for background work such as the occupancy index refresh.
+ */
+@Component
+public class ConnectionBulkhead {
+
+    private final boolean enabled;
+
+    private final Semaphore permits;
+
+    private final Duration acquireTimeout;
+
+    private final Timer waitTimer;
+
+    @Autowired
+    public ConnectionBulkhead(@Value("${volcano.connection-bulkhead.enabled:${volcano.virtual-threads.enabled:false}}") boolean enabled,
+                              @Value("${volcano.connection-bulkhead.max-concurrent-transactions:0}") int maxConcurrentTransactions,
+                              @Value("${volcano.connection-bulkhead.acquire-timeout:PT5S}") Duration acquireTimeout,
+                              DataSource dataSource,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.acquireTimeout = acquireTimeout;
+        this.permits = new Semaphore(maxConcurrentTransactions > 0
+                ? maxConcurrentTransactions
+                : Math.max(1, maximumPoolSize(dataSource) - 1), true);
+        this.waitTimer = Timer.builder("booking.bulkhead.wait")
+                .description("Time spent waiting for a connection permit before running transactional work.")
+                .register(meterRegistry);
+        Gauge.builder("booking.bulkhead.available", permits, Semaphore::availablePermits)
+                .description("Connection permits currently available.")
+                .register(meterRegistry);
+        Gauge.builder("booking.bulkhead.waiting", permits, Semaphore::getQueueLength)
+                .description("Requests currently waiting for a connection permit.")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the transactional work once a permit is available.
+     * @throws ServiceUnavailableException if no permit became available within the acquire timeout.
+     */
+    public <T> T call(TransactionalWork<T> work) throws GenericAPIException {
+        if (!enabled) {
+            return work.call();
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException();
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            throw new ServiceUnavailableException();
+        }
+
+        try {
+            return work.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static int maximumPoolSize(DataSource dataSource) {
+        // Behind the read replica routing, the pool unwrapped outside of a transaction is the primary one.
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            // Falls back to the default size below.
+        }
+        // Defaults to the default size of the Hikari pool when the data source is not a Hikari pool.
+        return 10;
+    }
+
+    @FunctionalInterface
+    public interface TransactionalWork<T> {
+        T call() throws GenericAPIException;
+    }
+}
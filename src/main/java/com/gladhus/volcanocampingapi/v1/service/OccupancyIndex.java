@@ -0,0 +1,391 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.domain.Stay;
+import com.gladhus.volcanocampingapi.event.OccupancyIndexRefreshedEvent;
+import com.gladhus.volcanocampingapi.event.ReservationDatesChangedEvent;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory index of the booked nights of each campsite, used to answer availability queries without hitting the
+ * database.
+ * <p>
+ * The index covers a fixed number of days starting today. It is sharded by campsite: each campsite has its own state,
+ * writer lock and pending refresh, so bookings of different campsites never wait on each other here. The state of a
+ * campsite is an immutable snapshot (one bit per night) published through a volatile field, so readers never lock.
+ * Writers build a copy of the bitmap and swap it in.
+ * <p>
+ * The index is loaded once the application is ready and resynchronized periodically, which also moves the covered
+ * window as days go by. After a booking transaction commits, the nights it touched are re-read from the database
+ * rather than patched from the entity: after-commit callbacks of concurrent transactions can run in any order, while
+ * re-reading under the writer lock always converges to the last committed state.
+ * <p>
+ * Only the bookings of this instance are applied as they commit. Bookings made on other instances are only read by the
+ * next resynchronization, so with several instances the index is eventually consistent: it can miss their changes for
+ * up to {@code volcano.occupancy-index.resync-interval}, and so can the versions derived from it.
+ * <p>
+ * The re-reads run on a single background thread. The committing thread still holds its connection during after-commit
+ * callbacks, so reading from there would need a second connection and could exhaust the pool under load. Nights
+ * touched while a refresh is pending are merged into a single re-read, and an {@link OccupancyIndexRefreshedEvent} is
+ * published once they are up-to-date.
+ * <p>
+ * Each snapshot also carries a version per month, incremented whenever a night of the month changes, so that clients
+ * polling availabilities can be told nothing changed without computing them. The versions start over, with a new
+ * random epoch, whenever the index is loaded from scratch.
+ */
+@Slf4j
+@Component
+public class OccupancyIndex {
+
+    private final ReservationRepository reservationRepository;
+
+    private final CampsiteService campsiteService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int horizonDays;
+
+    private final Map<Long, Shard> shards = new ConcurrentHashMap<>();
+
+    private final Executor refreshExecutor;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public OccupancyIndex(ReservationRepository reservationRepository,
+                          CampsiteService campsiteService,
+                          PlatformTransactionManager transactionManager,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${volcano.occupancy-index.enabled:true}") boolean enabled,
+                          @Value("${volcano.occupancy-index.horizon-days:64}") int horizonDays) {
+        this(reservationRepository, campsiteService, transactionManager, eventPublisher, enabled, horizonDays,
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "occupancy-index-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    OccupancyIndex(ReservationRepository reservationRepository,
+                   CampsiteService campsiteService,
+                   PlatformTransactionManager transactionManager,
+                   ApplicationEventPublisher eventPublisher,
+                   boolean enabled,
+                   int horizonDays,
+                   Executor refreshExecutor) {
+        this.reservationRepository = reservationRepository;
+        this.campsiteService = campsiteService;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.horizonDays = horizonDays;
+        this.refreshExecutor = refreshExecutor;
+
+        // Reloads can run from the startup event, while another transaction is bound to the thread.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Returns the available dates of the campsite between fromDate and toDate (both inclusive) if the index is loaded
+     * and covers the whole range, otherwise returns an empty optional and the caller should fall back to the database.
+     */
+    public Optional<AvailableDates> findAvailableDates(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        Snapshot current = snapshotOf(campsiteId);
+        if (current == null || !current.covers(fromDate, toDate)) {
+            return Optional.empty();
+        }
+
+        int start = current.offsetOf(fromDate);
+        BitSet available = current.booked().get(start, current.offsetOf(toDate) + 1);
+        available.flip(0, (int) (toDate.toEpochDay() - fromDate.toEpochDay()) + 1);
+
+        return Optional.of(new AvailableDates(fromDate, available, current.version(fromDate, toDate)));
+    }
+
+    /**
+     * Returns the version of the available dates of the campsite between fromDate and toDate (both inclusive) if the
+     * index is loaded and covers the whole range. It changes whenever one of the dates may have changed, and matches
+     * the version of the {@link AvailableDates} returned for the range by
+     * {@link #findAvailableDates(Long, LocalDate, LocalDate)}.
+     */
+    public Optional<String> findVersion(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        Snapshot current = snapshotOf(campsiteId);
+        if (current == null || !current.covers(fromDate, toDate)) {
+            return Optional.empty();
+        }
+        return Optional.of(current.version(fromDate, toDate));
+    }
+
+    /**
+     * Rebuilds the whole index of every campsite from the database, starting from today.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${volcano.occupancy-index.resync-interval:PT1M}",
+            fixedDelayString = "${volcano.occupancy-index.resync-interval:PT1M}")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+
+        List<Long> campsiteIds = campsiteService.getCampsiteIds();
+        shards.keySet().retainAll(campsiteIds);
+        for (Long campsiteId : campsiteIds) {
+            reload(shards.computeIfAbsent(campsiteId, Shard::new));
+        }
+    }
+
+    private void reload(Shard shard) {
+        shard.writeLock.lock();
+        try {
+            LocalDate baseDate = LocalDate.now();
+            Snapshot previous = shard.snapshot;
+            Snapshot empty = new Snapshot(baseDate.toEpochDay(), horizonDays, new BitSet(horizonDays),
+                    previous == null ? MonthVersions.initial() : previous.monthVersions());
+            Snapshot loaded = rebuild(shard.campsiteId, empty, baseDate, baseDate.plusDays(horizonDays)).withVersionsAfter(previous);
+            shard.snapshot = loaded;
+            if (!loaded.hasSameNights(previous)) {
+                eventPublisher.publishEvent(new OccupancyIndexRefreshedEvent(shard.campsiteId, loaded.fromDate(), loaded.toDate()));
+            }
+        } catch (RuntimeException e) {
+            // Availability queries fall back to the database until the next reload succeeds.
+            log.warn("Could not load the occupancy index of campsite {}.", shard.campsiteId, e);
+        } finally {
+            shard.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Schedules a re-read of the nights affected by a booking transaction once it is committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationDatesChanged(ReservationDatesChangedEvent event) {
+        Shard shard = shards.get(event.campsiteId());
+        // The nights of a campsite that is not loaded yet are read by the next reload.
+        if (!enabled || shard == null) {
+            return;
+        }
+
+        synchronized (shard) {
+            boolean scheduled = shard.pendingFromDate != null;
+            shard.pendingFromDate = scheduled ? min(shard.pendingFromDate, event.fromDate()) : event.fromDate();
+            shard.pendingToDate = scheduled ? max(shard.pendingToDate, event.toDate()) : event.toDate();
+            if (!scheduled) {
+                refreshExecutor.execute(() -> refreshPendingNights(shard));
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (refreshExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private Snapshot snapshotOf(Long campsiteId) {
+        Shard shard = shards.get(campsiteId);
+        return shard == null ? null : shard.snapshot;
+    }
+
+    /**
+     * Re-reads the nights of the campsite touched by the transactions committed since the last refresh.
+     */
+    private void refreshPendingNights(Shard shard) {
+        LocalDate eventFromDate;
+        LocalDate eventToDate;
+        synchronized (shard) {
+            eventFromDate = shard.pendingFromDate;
+            eventToDate = shard.pendingToDate;
+            shard.pendingFromDate = null;
+            shard.pendingToDate = null;
+        }
+
+        shard.writeLock.lock();
+        try {
+            Snapshot current = shard.snapshot;
+            if (current == null) {
+                return;
+            }
+
+            LocalDate fromDate = max(eventFromDate, current.fromDate());
+            LocalDate toDate = min(eventToDate, current.toDate());
+            if (fromDate.isBefore(toDate)) {
+                shard.snapshot = rebuild(shard.campsiteId, current, fromDate, toDate).withVersionsAfter(current);
+                eventPublisher.publishEvent(new OccupancyIndexRefreshedEvent(shard.campsiteId, fromDate, toDate));
+            }
+        } catch (RuntimeException e) {
+            // The next resynchronization will fix the index, drop it until then so it does not serve stale data.
+            log.warn("Could not refresh the occupancy index of campsite {}, disabling it until the next reload.", shard.campsiteId, e);
+            shard.snapshot = null;
+        } finally {
+            shard.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the snapshot where the nights of the campsite between fromDate (inclusive) and toDate
+     * (exclusive) are replaced by what is currently stored in the database.
+     */
+    private Snapshot rebuild(Long campsiteId, Snapshot base, LocalDate fromDate, LocalDate toDate) {
+        List<Stay> stays;
+        // Refreshes follow the commits of this instance, which the read replica may not have applied yet.
+        try (ReadRouting.Scope ignored = ReadRouting.primary()) {
+            stays = transactionTemplate.execute(status ->
+                    reservationRepository.findStaysOverlappingByStatus(campsiteId, fromDate, toDate, ReservationStatus.ACTIVE));
+        }
+
+        BitSet booked = (BitSet) base.booked().clone();
+        int start = base.offsetOf(fromDate);
+        int end = base.offsetOf(toDate);
+        booked.clear(start, end);
+
+        if (stays != null) {
+            for (Stay stay : stays) {
+                int checkin = Math.max(start, base.offsetOf(stay.checkin()));
+                int checkout = Math.min(end, base.offsetOf(stay.checkout()));
+                if (checkin < checkout) {
+                    booked.set(checkin, checkout);
+                }
+            }
+        }
+
+        return new Snapshot(base.fromEpochDay(), base.length(), booked, base.monthVersions());
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * State of the index of a campsite. The snapshot is replaced under the writer lock, the pending range of nights to
+     * refresh is guarded by the shard itself.
+     */
+    private static final class Shard {
+
+        private final Long campsiteId;
+
+        private final ReentrantLock writeLock = new ReentrantLock();
+
+        private volatile Snapshot snapshot;
+
+        private LocalDate pendingFromDate;
+
+        private LocalDate pendingToDate;
+
+        Shard(Long campsiteId) {
+            this.campsiteId = campsiteId;
+        }
+    }
+
+    /**
+     * Immutable state of the index of a campsite: bit i is set when the night of fromEpochDay + i is booked.
+     */
+    private record Snapshot(long fromEpochDay, int length, BitSet booked, MonthVersions monthVersions) {
+
+        LocalDate fromDate() {
+            return LocalDate.ofEpochDay(fromEpochDay);
+        }
+
+        LocalDate toDate() {
+            return LocalDate.ofEpochDay(fromEpochDay + length);
+        }
+
+        int offsetOf(LocalDate date) {
+            return (int) Math.max(0, Math.min(length, date.toEpochDay() - fromEpochDay));
+        }
+
+        boolean covers(LocalDate fromDate, LocalDate toDate) {
+            return fromDate.toEpochDay() >= fromEpochDay && toDate.toEpochDay() < fromEpochDay + length;
+        }
+
+        boolean hasSameNights(Snapshot other) {
+            return other != null && fromEpochDay == other.fromEpochDay && length == other.length
+                    && booked.equals(other.booked);
+        }
+
+        /**
+         * Version of the nights between fromDate and toDate (both inclusive). The versions of the months only ever
+         * increase, so their sum changes as soon as one of them does.
+         */
+        String version(LocalDate fromDate, LocalDate toDate) {
+            long sum = 0;
+            for (YearMonth month = YearMonth.from(fromDate); !month.isAfter(YearMonth.from(toDate)); month = month.plusMonths(1)) {
+                sum += monthVersions.months().getOrDefault(month, 0L);
+            }
+            return Long.toHexString(monthVersions.epoch()) + "-" + sum + "-" + fromDate + "-" + toDate;
+        }
+
+        /**
+         * Returns this snapshot with the version of each month holding a night that changed since the previous
+         * snapshot incremented. Nights covered by only one of the snapshots are not compared: no range including them
+         * could have been read from both.
+         */
+        Snapshot withVersionsAfter(Snapshot previous) {
+            if (previous == null) {
+                return this;
+            }
+
+            long from = Math.max(fromEpochDay, previous.fromEpochDay);
+            long to = Math.min(fromEpochDay + length, previous.fromEpochDay + previous.length);
+            Map<YearMonth, Long> months = null;
+            for (long day = from; day < to; day++) {
+                if (booked.get((int) (day - fromEpochDay)) != previous.booked.get((int) (day - previous.fromEpochDay))) {
+                    YearMonth month = YearMonth.from(LocalDate.ofEpochDay(day));
+                    if (months == null) {
+                        months = new HashMap<>(monthVersions.months());
+                    }
+                    months.put(month, monthVersions.months().getOrDefault(month, 0L) + 1);
+                    // The rest of the month is covered by this increment.
+                    day = month.atEndOfMonth().toEpochDay();
+                }
+            }
+            return months == null ? this
+                    : new Snapshot(fromEpochDay, length, booked, new MonthVersions(monthVersions.epoch(), Map.copyOf(months)));
+        }
+    }
+
+    /**
+     * Versions of the months of the calendar, missing months are at version 0. The random epoch tells the versions of
+     * different instances, or of successive loads of the index, apart.
+     */
+    private record MonthVersions(long epoch, Map<YearMonth, Long> months) {
+
+        static MonthVersions initial() {
+            return new MonthVersions(ThreadLocalRandom.current().nextLong(), Map.of());
+        }
+    }
+}
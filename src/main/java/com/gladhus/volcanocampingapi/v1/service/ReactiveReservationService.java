@@ -0,0 +1,305 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationNight;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.domain.ReservationView;
+import com.gladhus.volcanocampingapi.domain.TimeOrderedUuidGenerator;
+import com.gladhus.volcanocampingapi.exception.BatchReservationException;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import com.gladhus.volcanocampingapi.exception.ReservationNotFoundException;
+import com.gladhus.volcanocampingapi.exception.ServiceUnavailableException;
+import com.gladhus.volcanocampingapi.repository.ReactiveReservationRepository;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive variant of the {@link ReservationService}, on R2DBC. The dates are validated by the same rules, and double
+ * bookings are prevented the same way as in the {@code night-rows} booking mode: each booked night is a row keyed by
+ * the campsite and the date, and a conflicting booking fails on insert. No lock is taken in process, a booking waiting
+ * for the row lock of a night holds a connection but no thread.
+ * <p>
+ * Availabilities are read from the night rows, neither the occupancy index nor the availability cache are used.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveReservationService {
+
+    private final ReactiveReservationRepository reservationRepository;
+
+    private final CampsiteService campsiteService;
+
+    private final BookingMetrics bookingMetrics;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final Duration retryAfter;
+
+    @Autowired
+    public ReactiveReservationService(ReactiveReservationRepository reservationRepository, CampsiteService campsiteService,
+                                      BookingMetrics bookingMetrics, TransactionalOperator reactiveTransactionalOperator,
+                                      @Value("${volcano.booking.shed-retry-after:PT1S}") Duration retryAfter) {
+        this.reservationRepository = reservationRepository;
+        this.campsiteService = campsiteService;
+        this.bookingMetrics = bookingMetrics;
+        this.transactionalOperator = reactiveTransactionalOperator;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Validates a reservation, then saves it with its nights in one transaction.
+     * @return the {@link Reservation} created, or an {@link InvalidDatesException} if any validation fails.
+     */
+    public Mono<Reservation> createReservation(Reservation reservation) {
+        return validateDates(reservation)
+                .then(Mono.defer(() -> {
+                    activate(reservation);
+                    return reservationRepository.insert(List.of(reservation))
+                            .then(reserveNights(nightsOf(reservation, nightsOfStay(reservation))));
+                }))
+                .as(transactionalOperator::transactional)
+                .thenReturn(reservation)
+                .doOnSuccess(created -> bookingMetrics.recordBooked(BookingMetrics.OPERATION_CREATE))
+                .doOnError(InvalidDatesException.class, e -> bookingMetrics.recordRejected(BookingMetrics.OPERATION_CREATE, e))
+                .onErrorMap(TransientDataAccessException.class, e -> shed(BookingMetrics.OPERATION_CREATE));
+    }
+
+    /**
+     * Validates a batch of reservations against each other and against the booked nights, then saves all of them, or
+     * none of them if any is rejected.
+     * @return the {@link Reservation}s created, in the order provided, or a {@link BatchReservationException} with the
+     * error of each reservation rejected.
+     */
+    public Mono<List<Reservation>> createReservations(List<Reservation> reservations) {
+        return Mono.defer(() -> {
+                    Map<Integer, InvalidDatesException> rejected = ReservationService.validateBatch(reservations);
+                    return rejectIfAny(rejected)
+                            .thenMany(Flux.fromIterable(ReservationService.indexesByCampsite(reservations).entrySet()))
+                            .concatMap(campsite -> {
+                                List<Reservation> campsiteReservations = campsite.getValue().stream().map(reservations::get).toList();
+                                LocalDate fromDate = campsiteReservations.stream().map(Reservation::getCheckin).min(Comparator.naturalOrder()).orElseThrow();
+                                LocalDate toDate = campsiteReservations.stream().map(Reservation::getCheckout).max(Comparator.naturalOrder()).orElseThrow();
+                                return findAvailableNights(campsite.getKey(), fromDate, toDate)
+                                        .doOnNext(availableNights -> campsite.getValue().stream()
+                                                .filter(i -> !availableNights.isAvailable(reservations.get(i).getCheckin(), reservations.get(i).getCheckout()))
+                                                .forEach(i -> rejected.put(i, new DatesNotAvailableException())));
+                            })
+                            .then(Mono.defer(() -> rejectIfAny(rejected)));
+                })
+                .then(Mono.defer(() -> {
+                    reservations.forEach(this::activate);
+                    return reservationRepository.insert(reservations)
+                            .then(reservationRepository.insertNights(reservations.stream()
+                                    .flatMap(reservation -> nightsOf(reservation, nightsOfStay(reservation)).stream())
+                                    .toList()))
+                            .onErrorMap(DataIntegrityViolationException.class, e -> {
+                                // Nights booked concurrently, which reservation of the batch was hit is unknown.
+                                bookingMetrics.recordRejected(BookingMetrics.OPERATION_BATCH_CREATE, new DatesNotAvailableException());
+                                return new BatchReservationException(HttpStatus.FORBIDDEN, Map.of());
+                            });
+                }))
+                .as(transactionalOperator::transactional)
+                .thenReturn(reservations)
+                .doOnSuccess(created -> created.forEach(reservation -> bookingMetrics.recordBooked(BookingMetrics.OPERATION_BATCH_CREATE)))
+                .onErrorMap(TransientDataAccessException.class, e -> shed(BookingMetrics.OPERATION_BATCH_CREATE));
+    }
+
+    /**
+     * Merges the new reservation into the existing one, locked until the end of the transaction, validates it, then
+     * moves its nights.
+     * @return the {@link Reservation} updated, or a {@link ReservationNotFoundException} if there is none with its id,
+     * or an {@link InvalidDatesException} if any validation fails.
+     */
+    public Mono<Reservation> updateReservation(Reservation newReservation) {
+        return reservationRepository.findForUpdateById(newReservation.getId())
+                .switchIfEmpty(Mono.error(ReservationNotFoundException::new))
+                .flatMap(oldReservation -> {
+                    ReservationService.fillMissingFields(newReservation, oldReservation);
+                    return validateDates(newReservation).then(Mono.defer(() -> update(oldReservation, newReservation)));
+                })
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(updated -> bookingMetrics.recordBooked(BookingMetrics.OPERATION_UPDATE))
+                .doOnError(InvalidDatesException.class, e -> bookingMetrics.recordRejected(BookingMetrics.OPERATION_UPDATE, e))
+                .onErrorMap(TransientDataAccessException.class, e -> shed(BookingMetrics.OPERATION_UPDATE));
+    }
+
+    private Mono<Reservation> update(Reservation oldReservation, Reservation newReservation) {
+        boolean wasActive = oldReservation.getStatus() == ReservationStatus.ACTIVE;
+        boolean movedCampsite = !oldReservation.getCampsiteId().equals(newReservation.getCampsiteId());
+
+        // A cancelled reservation does not hold its nights anymore, nor does a reservation moved to another campsite
+        // hold nights on the new one.
+        List<LocalDate> releasedNights = List.of();
+        List<LocalDate> newNights = nightsOfStay(newReservation);
+        if (wasActive && movedCampsite) {
+            releasedNights = nightsOfStay(oldReservation);
+        } else if (wasActive) {
+            releasedNights = nightsOfStay(oldReservation).stream().filter(night -> !isWithinStay(night, newReservation)).toList();
+            newNights = newNights.stream().filter(night -> !isWithinStay(night, oldReservation)).toList();
+        }
+
+        newReservation.setStatus(ReservationStatus.ACTIVE);
+        newReservation.setVersion(oldReservation.getVersion() + 1);
+        return reservationRepository.update(newReservation)
+                .then(reservationRepository.deleteNights(oldReservation.getCampsiteId(), oldReservation.getId(), releasedNights))
+                .then(reserveNights(nightsOf(newReservation, newNights)))
+                .thenReturn(newReservation);
+    }
+
+    /**
+     * Finds a reservation by its id, in the archive if it is not in the reservation table anymore.
+     * @return the {@link ReservationView} of the reservation, or a {@link ReservationNotFoundException}.
+     */
+    public Mono<ReservationView> getReservation(UUID id) {
+        return reservationRepository.findViewById(id)
+                .switchIfEmpty(Mono.defer(() -> reservationRepository.findArchivedViewById(id)))
+                .switchIfEmpty(Mono.error(ReservationNotFoundException::new));
+    }
+
+    /**
+     * Finds the version of a reservation by its id, in the archive if it is not in the reservation table anymore.
+     * @return the version of the reservation, or empty if it was not found or has no version.
+     */
+    public Mono<Long> getReservationVersion(UUID id) {
+        return reservationRepository.findVersionById(id)
+                .switchIfEmpty(Mono.defer(() -> reservationRepository.findArchivedVersionById(id)));
+    }
+
+    /**
+     * Cancels the active reservation with the id provided and releases its nights.
+     * @return the {@link Reservation} cancelled, or a {@link ReservationNotFoundException} if there is no active
+     * reservation with the id.
+     */
+    public Mono<Reservation> cancelReservation(UUID id) {
+        return reservationRepository.findForUpdateByIdAndStatus(id, ReservationStatus.ACTIVE)
+                .switchIfEmpty(Mono.error(ReservationNotFoundException::new))
+                .flatMap(reservation -> {
+                    reservation.setStatus(ReservationStatus.CANCELLED);
+                    reservation.setVersion(reservation.getVersion() + 1);
+                    return reservationRepository.update(reservation)
+                            .then(reservationRepository.deleteNights(reservation.getCampsiteId(), reservation.getId(), nightsOfStay(reservation)))
+                            .thenReturn(reservation);
+                })
+                .as(transactionalOperator::transactional)
+                .onErrorMap(TransientDataAccessException.class, e -> shed(BookingMetrics.OPERATION_CANCEL));
+    }
+
+    /**
+     * Returns the available dates of a campsite between fromDate and toDate, both inclusive, read from the night rows.
+     * The range never starts in the past, see the reactive adapter, so the rows cover it.
+     * @return ordered {@link AvailableDates}, or an {@link InvalidDatesException} if there is an error with the dates.
+     */
+    public Mono<AvailableDates> getAvailabilities(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        return validateAvailabilityDates(fromDate, toDate)
+                .then(Mono.defer(() -> findAvailableNights(campsiteId, fromDate, toDate.plusDays(1))));
+    }
+
+    /**
+     * Returns the available dates of every campsite between fromDate and toDate, each one read as by
+     * {@link #getAvailabilities(Long, LocalDate, LocalDate)}.
+     * @return the {@link AvailableDates} of each campsite, by ascending campsite id.
+     */
+    public Mono<Map<Campsite, AvailableDates>> getAvailabilitiesByCampsite(LocalDate fromDate, LocalDate toDate) {
+        return validateAvailabilityDates(fromDate, toDate)
+                .thenMany(Flux.defer(() -> Flux.fromIterable(campsiteService.getCampsites())))
+                .concatMap(campsite -> findAvailableNights(campsite.getId(), fromDate, toDate.plusDays(1))
+                        .map(availableDates -> Map.entry(campsite, availableDates)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
+    }
+
+    private Mono<AvailableDates> findAvailableNights(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        int length = (int) (toDate.toEpochDay() - fromDate.toEpochDay());
+        return reservationRepository.findBookedNights(campsiteId, fromDate, toDate)
+                .collect(() -> {
+                    BitSet available = new BitSet(length);
+                    available.set(0, length);
+                    return available;
+                }, (available, night) -> available.clear((int) (night.toEpochDay() - fromDate.toEpochDay())))
+                .map(available -> new AvailableDates(fromDate, available));
+    }
+
+    /**
+     * Inserts the nights, a night already booked rejects the booking.
+     */
+    private Mono<Void> reserveNights(List<ReservationNight> nights) {
+        return reservationRepository.insertNights(nights)
+                .onErrorMap(DataIntegrityViolationException.class, e -> new DatesNotAvailableException());
+    }
+
+    private void activate(Reservation reservation) {
+        reservation.setId(TimeOrderedUuidGenerator.next());
+        reservation.setStatus(ReservationStatus.ACTIVE);
+        reservation.setVersion(0L);
+    }
+
+    private ServiceUnavailableException shed(String operation) {
+        // Lock wait timeouts and deadlocks of the database, which the R2DBC drivers report as transient errors.
+        bookingMetrics.recordShed(operation, BookingMetrics.SHED_LOCK_TIMEOUT);
+        return new ServiceUnavailableException(retryAfter);
+    }
+
+    private Mono<Void> rejectIfAny(Map<Integer, InvalidDatesException> rejected) {
+        try {
+            ReservationService.rejectIfAny(rejected, bookingMetrics);
+            return Mono.empty();
+        } catch (BatchReservationException e) {
+            return Mono.error(e);
+        }
+    }
+
+    private static Mono<Void> validateDates(Reservation reservation) {
+        try {
+            ReservationService.validateDates(reservation);
+            return Mono.empty();
+        } catch (InvalidDatesException e) {
+            return Mono.error(e);
+        }
+    }
+
+    private static Mono<Void> validateAvailabilityDates(LocalDate fromDate, LocalDate toDate) {
+        try {
+            ReservationService.validateAvailabilityDates(fromDate, toDate);
+            return Mono.empty();
+        } catch (InvalidDatesException e) {
+            return Mono.error(e);
+        }
+    }
+
+    private static List<LocalDate> nightsOfStay(Reservation reservation) {
+        return reservation.getCheckin().datesUntil(reservation.getCheckout()).toList();
+    }
+
+    private static List<ReservationNight> nightsOf(Reservation reservation, List<LocalDate> nights) {
+        return nights.stream()
+                .map(night -> ReservationNight.builder()
+                        .campsiteId(reservation.getCampsiteId())
+                        .night(night)
+                        .reservationId(reservation.getId())
+                        .build())
+                .toList();
+    }
+
+    private static boolean isWithinStay(LocalDate night, Reservation reservation) {
+        return !night.isBefore(reservation.getCheckin()) && night.isBefore(reservation.getCheckout());
+    }
+}
@@ -0,0 +1,39 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+/**
+ * Keeps read-only transactions on the primary database when they must see the latest committed changes.
+ * <p>
+ * When a read replica is configured, read-only transactions run on it and may miss the changes committed in the last
+ * moments. The ones started on the current thread while a {@link #primary()} scope is open run on the primary
+ * instead, e.g. reading a reservation right after booking it. Without a read replica, the scope has no effect.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    /**
+     * Requires the primary for the transactions started on the current thread until the scope is closed.
+     */
+    public static Scope primary() {
+        boolean alreadyRequired = isPrimaryRequired();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        return () -> {
+            if (!alreadyRequired) {
+                PRIMARY_REQUIRED.remove();
+            }
+        };
+    }
+
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
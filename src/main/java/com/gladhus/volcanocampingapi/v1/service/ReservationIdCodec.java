@@ -0,0 +1,92 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Converts the storage ids of the reservations to the ids exposed by the API, and back.
+ * <p>
+ * Storage ids are time-ordered, which makes them guessable from one another. The public id is the storage id
+ * encrypted as a single AES block with a secret key, written as 32 hexadecimal characters: the same format as the
+ * random ids used before, and just as unpredictable without the key. Since AES is a permutation of the 128-bit
+ * blocks, every public id decodes to exactly one storage id.
+ */
+@Component
+public class ReservationIdCodec {
+
+    private static final String TRANSFORMATION = "AES/ECB/NoPadding";
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final ThreadLocal<Cipher> encryptCipher;
+
+    private final ThreadLocal<Cipher> decryptCipher;
+
+    /**
+     * @param key base64 encoded AES key of 16, 24 or 32 bytes. It has no default, anyone knowing it could read and forge
+     *            public ids.
+     */
+    @Autowired
+    public ReservationIdCodec(@Value("${volcano.reservation-id.key:}") String key) {
+        Assert.hasText(key, "volcano.reservation-id.key must be set to a secret base64 encoded AES key, e.g. one generated "
+                + "with openssl rand -base64 16.");
+        SecretKeySpec secretKey = new SecretKeySpec(Base64.getDecoder().decode(key), "AES");
+        this.encryptCipher = ThreadLocal.withInitial(() -> cipher(Cipher.ENCRYPT_MODE, secretKey));
+        this.decryptCipher = ThreadLocal.withInitial(() -> cipher(Cipher.DECRYPT_MODE, secretKey));
+        // Fails at startup rather than on the first request if the key is not a valid AES key.
+        encryptCipher.get();
+    }
+
+    public String encode(UUID id) {
+        ByteBuffer block = ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return HEX.formatHex(doFinal(encryptCipher.get(), block.array()));
+    }
+
+    /**
+     * @return the storage id matching the public id provided, or empty if it is not a public id at all.
+     */
+    public Optional<UUID> decode(String publicId) {
+        if (publicId == null || publicId.length() != 32) {
+            return Optional.empty();
+        }
+        byte[] block;
+        try {
+            block = HEX.parseHex(publicId);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        ByteBuffer id = ByteBuffer.wrap(doFinal(decryptCipher.get(), block));
+        return Optional.of(new UUID(id.getLong(), id.getLong()));
+    }
+
+    private static Cipher cipher(int mode, SecretKeySpec secretKey) {
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(mode, secretKey);
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid reservation id key.", e);
+        }
+    }
+
+    private static byte[] doFinal(Cipher cipher, byte[] block) {
+        try {
+            return cipher.doFinal(block);
+        } catch (GeneralSecurityException e) {
+            // Cannot happen with a single block and no padding.
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,22 +1,42 @@
 package com.gladhus.volcanocampingapi.v1.service;
 
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
 import com.gladhus.volcanocampingapi.domain.Reservation;
 import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.domain.ReservationView;
+import com.gladhus.volcanocampingapi.event.ReservationDatesChangedEvent;
+import com.gladhus.volcanocampingapi.exception.BatchReservationException;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
 import com.gladhus.volcanocampingapi.exception.GenericAPIException;
 import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
 import com.gladhus.volcanocampingapi.exception.ReservationNotFoundException;
+import com.gladhus.volcanocampingapi.repository.ArchivedReservationRepository;
 import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingGuard;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import com.gladhus.volcanocampingapi.v1.service.booking.NightLockManager;
+import io.micrometer.core.annotation.Timed;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.IntStream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 /**
@@ -27,9 +47,41 @@ public class ReservationService {
 
     private final ReservationRepository reservationRepository;
 
+    private final ArchivedReservationRepository archivedReservationRepository;
+
+    private final BookingGuard bookingGuard;
+
+    private final NightLockManager nightLockManager;
+
+    private final BookingMetrics bookingMetrics;
+
+    private final OccupancyIndex occupancyIndex;
+
+    private final AvailabilityCache availabilityCache;
+
+    private final CampsiteService campsiteService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate readOnlyTransaction;
+
     @Autowired
-    public ReservationService(ReservationRepository reservationRepository) {
+    public ReservationService(ReservationRepository reservationRepository, ArchivedReservationRepository archivedReservationRepository,
+                              BookingGuard bookingGuard, NightLockManager nightLockManager,
+                              BookingMetrics bookingMetrics, OccupancyIndex occupancyIndex, AvailabilityCache availabilityCache,
+                              CampsiteService campsiteService, ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager) {
         this.reservationRepository = reservationRepository;
+        this.archivedReservationRepository = archivedReservationRepository;
+        this.bookingGuard = bookingGuard;
+        this.nightLockManager = nightLockManager;
+        this.bookingMetrics = bookingMetrics;
+        this.occupancyIndex = occupancyIndex;
+        this.availabilityCache = availabilityCache;
+        this.campsiteService = campsiteService;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     /**
@@ -38,13 +90,149 @@ public class ReservationService {
      * @return the {@link Reservation} that was created.
      * @throws InvalidDatesException if any validation fails on the reservation.
      */
-    @Transactional(propagation = Propagation.REQUIRED)
+    @Timed("reservation.service")
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = {GenericAPIException.class})
     public Reservation createReservation(Reservation reservation) throws InvalidDatesException {
 
-        validateDatesForCreationOrUpdate(reservation);
+        Reservation createdReservation;
+        try {
+            validateDatesForCreationOrUpdate(reservation);
+
+            reservation.setStatus(ReservationStatus.ACTIVE);
+            createdReservation = reservationRepository.save(reservation);
+            bookingGuard.reserveNights(createdReservation, null, null);
+        } catch (InvalidDatesException e) {
+            bookingMetrics.recordRejected(BookingMetrics.OPERATION_CREATE, e);
+            throw e;
+        }
+        bookingMetrics.recordBooked(BookingMetrics.OPERATION_CREATE);
 
-        reservation.setStatus(ReservationStatus.ACTIVE);
-        return reservationRepository.save(reservation);
+        eventPublisher.publishEvent(new ReservationDatesChangedEvent(createdReservation.getCampsiteId(),
+                createdReservation.getCheckin(), createdReservation.getCheckout()));
+        return createdReservation;
+    }
+
+    /**
+     * Service operation that validates a batch of reservations against each other and against the existing ones, then
+     * saves all of them, or none of them if any is rejected. The nights covering the reservations of each campsite are
+     * locked once.
+     * @param reservations The reservations to be created.
+     * @return the {@link Reservation}s that were created, in the order provided.
+     * @throws BatchReservationException with the error of each reservation rejected.
+     */
+    @Timed("reservation.service")
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = {GenericAPIException.class})
+    public List<Reservation> createReservations(List<Reservation> reservations) throws BatchReservationException {
+
+        Map<Integer, InvalidDatesException> rejected;
+        long start = System.nanoTime();
+        try {
+            rejected = validateBatch(reservations);
+            rejectIfAny(rejected, bookingMetrics);
+
+            // Campsites are locked by ascending id, see NightLockManager.
+            for (Map.Entry<Long, List<Integer>> campsite : indexesByCampsite(reservations).entrySet()) {
+                List<Reservation> campsiteReservations = campsite.getValue().stream().map(reservations::get).toList();
+                LocalDate fromDate = campsiteReservations.stream().map(Reservation::getCheckin).min(Comparator.naturalOrder()).orElseThrow();
+                LocalDate toDate = campsiteReservations.stream().map(Reservation::getCheckout).max(Comparator.naturalOrder()).orElseThrow();
+
+                nightLockManager.lockNights(campsite.getKey(), fromDate, toDate);
+                AvailableDates availableNights = bookingGuard.findAvailableNights(campsite.getKey(), fromDate, toDate);
+                for (Integer i : campsite.getValue()) {
+                    if (!availableNights.isAvailable(reservations.get(i).getCheckin(), reservations.get(i).getCheckout())) {
+                        rejected.put(i, new DatesNotAvailableException());
+                    }
+                }
+            }
+            rejectIfAny(rejected, bookingMetrics);
+        } finally {
+            bookingMetrics.recordValidation(System.nanoTime() - start);
+        }
+
+        reservations.forEach(reservation -> reservation.setStatus(ReservationStatus.ACTIVE));
+        List<Reservation> createdReservations = reservationRepository.saveAll(reservations);
+        try {
+            bookingGuard.reserveNights(createdReservations);
+        } catch (InvalidDatesException e) {
+            // Nights booked concurrently by another instance, which reservation of the batch was hit is unknown.
+            bookingMetrics.recordRejected(BookingMetrics.OPERATION_BATCH_CREATE, e);
+            throw new BatchReservationException(HttpStatus.FORBIDDEN, Map.of());
+        }
+        createdReservations.forEach(reservation -> bookingMetrics.recordBooked(BookingMetrics.OPERATION_BATCH_CREATE));
+
+        datesChangedEvents(createdReservations).forEach(eventPublisher::publishEvent);
+        return createdReservations;
+    }
+
+    /**
+     * Returns the indexes of the reservations of a batch by campsite, in ascending campsite order.
+     */
+    static Map<Long, List<Integer>> indexesByCampsite(List<Reservation> reservations) {
+        Map<Long, List<Integer>> indexes = new TreeMap<>();
+        for (int i = 0; i < reservations.size(); i++) {
+            indexes.computeIfAbsent(reservations.get(i).getCampsiteId(), campsiteId -> new ArrayList<>()).add(i);
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns one event per campsite covering the nights of the reservations of a batch.
+     */
+    static List<ReservationDatesChangedEvent> datesChangedEvents(List<Reservation> reservations) {
+        return indexesByCampsite(reservations).entrySet().stream()
+                .map(campsite -> new ReservationDatesChangedEvent(campsite.getKey(),
+                        campsite.getValue().stream().map(i -> reservations.get(i).getCheckin()).min(Comparator.naturalOrder()).orElseThrow(),
+                        campsite.getValue().stream().map(i -> reservations.get(i).getCheckout()).max(Comparator.naturalOrder()).orElseThrow()))
+                .toList();
+    }
+
+    /**
+     * Checks the dates of each reservation of a batch, then the stays of the batch on each campsite against each
+     * other, regardless of the existing reservations.
+     * @return the error of each reservation rejected, by index.
+     */
+    static Map<Integer, InvalidDatesException> validateBatch(List<Reservation> reservations) {
+        Map<Integer, InvalidDatesException> rejected = new TreeMap<>();
+        for (int i = 0; i < reservations.size(); i++) {
+            try {
+                validateDates(reservations.get(i));
+            } catch (InvalidDatesException e) {
+                rejected.put(i, e);
+            }
+        }
+
+        // Check the stays of the batch on each campsite against each other, by checkin date.
+        List<Integer> validIndexes = IntStream.range(0, reservations.size())
+                .filter(i -> !rejected.containsKey(i))
+                .boxed()
+                .sorted(Comparator.<Integer, Long>comparing(i -> reservations.get(i).getCampsiteId())
+                        .thenComparing(i -> reservations.get(i).getCheckin()))
+                .toList();
+        Integer lastIndex = null;
+        for (Integer index : validIndexes) {
+            if (lastIndex != null && reservations.get(index).getCampsiteId().equals(reservations.get(lastIndex).getCampsiteId())
+                    && reservations.get(index).getCheckin().isBefore(reservations.get(lastIndex).getCheckout())) {
+                rejected.put(index, new DatesNotAvailableException("The dates selected overlap the reservation at index " + lastIndex + " of the batch."));
+            } else {
+                lastIndex = index;
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Records and throws the errors of the reservations rejected in a batch, if any.
+     */
+    static void rejectIfAny(Map<Integer, InvalidDatesException> rejected, BookingMetrics bookingMetrics) throws BatchReservationException {
+        if (rejected.isEmpty()) {
+            return;
+        }
+        Map<Integer, String> itemErrors = new TreeMap<>();
+        rejected.forEach((index, e) -> {
+            bookingMetrics.recordRejected(BookingMetrics.OPERATION_BATCH_CREATE, e);
+            itemErrors.put(index, e.getMessage());
+        });
+        throw new BatchReservationException(HttpStatus.FORBIDDEN, itemErrors);
     }
 
     /**
@@ -54,10 +242,74 @@ public class ReservationService {
      * @throws InvalidDatesException if any validation fails on the reservation.
      * @throws ReservationNotFoundException if no reservation was found for the id provided.
      */
+    @Timed("reservation.service")
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = {GenericAPIException.class})
     public Reservation updateReservation(Reservation newReservation) throws InvalidDatesException, ReservationNotFoundException {
 
-        Reservation oldReservation = reservationRepository.findById(newReservation.getId()).orElseThrow(ReservationNotFoundException::new);
+        Reservation oldReservation = reservationRepository.findForUpdateById(newReservation.getId()).orElseThrow(ReservationNotFoundException::new);
+
+        fillMissingFields(newReservation, oldReservation);
+
+        // Keep the reservation as it was before the update, both old and new nights need to be refreshed. The old
+        // reservation is the managed entity that saving the new one merges into, it cannot be read after the save.
+        Long oldCampsiteId = oldReservation.getCampsiteId();
+        LocalDate oldCheckin = oldReservation.getCheckin();
+        LocalDate oldCheckout = oldReservation.getCheckout();
+        boolean wasActive = oldReservation.getStatus() == ReservationStatus.ACTIVE;
+        boolean movedCampsite = !oldCampsiteId.equals(newReservation.getCampsiteId());
+
+        Reservation updatedReservation;
+        try {
+            validateDatesForCreationOrUpdate(newReservation);
+
+            newReservation.setStatus(ReservationStatus.ACTIVE);
+            updatedReservation = reservationRepository.save(newReservation);
+            // A cancelled reservation does not hold its nights anymore, all nights of the new stay need to be reserved.
+            // So does a reservation moved to another campsite, once it released the nights of the former one.
+            if (wasActive && movedCampsite) {
+                bookingGuard.releaseNights(Reservation.builder().id(updatedReservation.getId()).campsiteId(oldCampsiteId)
+                        .checkin(oldCheckin).checkout(oldCheckout).build());
+            }
+            if (wasActive && !movedCampsite) {
+                bookingGuard.reserveNights(updatedReservation, oldCheckin, oldCheckout);
+            } else {
+                bookingGuard.reserveNights(updatedReservation, null, null);
+            }
+        } catch (InvalidDatesException e) {
+            bookingMetrics.recordRejected(BookingMetrics.OPERATION_UPDATE, e);
+            throw e;
+        }
+        bookingMetrics.recordBooked(BookingMetrics.OPERATION_UPDATE);
+
+        updatedDatesChangedEvents(oldCampsiteId, oldCheckin, oldCheckout, updatedReservation).forEach(eventPublisher::publishEvent);
+        return updatedReservation;
+    }
+
+    /**
+     * Returns the events covering both the former and the new nights of an updated reservation, one per campsite.
+     */
+    static List<ReservationDatesChangedEvent> updatedDatesChangedEvents(Long oldCampsiteId, LocalDate oldCheckin,
+                                                                        LocalDate oldCheckout, Reservation updatedReservation) {
+        if (!oldCampsiteId.equals(updatedReservation.getCampsiteId())) {
+            return List.of(new ReservationDatesChangedEvent(oldCampsiteId, oldCheckin, oldCheckout),
+                    new ReservationDatesChangedEvent(updatedReservation.getCampsiteId(),
+                            updatedReservation.getCheckin(), updatedReservation.getCheckout()));
+        }
+        return List.of(new ReservationDatesChangedEvent(oldCampsiteId,
+                oldCheckin.isBefore(updatedReservation.getCheckin()) ? oldCheckin : updatedReservation.getCheckin(),
+                oldCheckout.isAfter(updatedReservation.getCheckout()) ? oldCheckout : updatedReservation.getCheckout()));
+    }
+
+    /**
+     * Keeps the values of the existing reservation for the fields the update leaves empty.
+     */
+    static void fillMissingFields(Reservation newReservation, Reservation oldReservation) {
+        // The update is merged into the existing reservation, as of its current version.
+        newReservation.setVersion(oldReservation.getVersion());
+
+        if (newReservation.getCampsiteId() == null) {
+            newReservation.setCampsiteId(oldReservation.getCampsiteId());
+        }
 
         if (newReservation.getCheckin() == null) {
             newReservation.setCheckin(oldReservation.getCheckin());
@@ -74,22 +326,36 @@ public class ReservationService {
         if (!StringUtils.hasText(newReservation.getEmail())) {
             newReservation.setEmail(oldReservation.getEmail());
         }
-
-        validateDatesForCreationOrUpdate(newReservation);
-
-        newReservation.setStatus(ReservationStatus.ACTIVE);
-        return reservationRepository.save(newReservation);
     }
 
     /**
-     * Service operation that finds a reservation by its id.
+     * Service operation that finds a reservation by its id, in the archive if it is not in the reservation table anymore.
+     * Runs on the read replica when there is one, unless the primary is required, see {@link ReadRouting}.
+     * The read-only transaction does not flush, and the reservation is selected straight into a view, so nothing is
+     * loaded in the persistence context.
      * @param id id of the reservation to find.
-     * @return the {@link Reservation} corresponding to the id provided.
+     * @return the {@link ReservationView} corresponding to the id provided.
      * @throws ReservationNotFoundException if no reservation was found for the id provided.
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public Reservation getReservation(String id) throws ReservationNotFoundException {
-        return reservationRepository.findById(id).orElseThrow(ReservationNotFoundException::new);
+    @Timed("reservation.service")
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public ReservationView getReservation(UUID id) throws ReservationNotFoundException {
+        return reservationRepository.findViewById(id)
+                .or(() -> archivedReservationRepository.findViewById(id))
+                .orElseThrow(ReservationNotFoundException::new);
+    }
+
+    /**
+     * Service operation that finds the version of a reservation by its id, in the archive if it is not in the
+     * reservation table anymore, without reading the rest of the reservation.
+     * @param id id of the reservation to find.
+     * @return the version of the reservation, or an empty optional if it was not found or has no version.
+     */
+    @Timed("reservation.service")
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public Optional<Long> getReservationVersion(UUID id) {
+        return reservationRepository.findVersionById(id)
+                .or(() -> archivedReservationRepository.findVersionById(id));
     }
 
     /**
@@ -99,27 +365,59 @@ public class ReservationService {
      * @return the {@link Reservation} that was cancelled with the updated status.
      * @throws ReservationNotFoundException if no reservation was found for the id provided.
      */
+    @Timed("reservation.service")
     @Transactional(propagation = Propagation.REQUIRED)
-    public Reservation cancelReservation(String id) throws ReservationNotFoundException {
-        Reservation reservation = reservationRepository.findByIdAndStatus(id, ReservationStatus.ACTIVE).orElseThrow(ReservationNotFoundException::new);
+    public Reservation cancelReservation(UUID id) throws ReservationNotFoundException {
+        Reservation reservation = reservationRepository.findForUpdateByIdAndStatus(id, ReservationStatus.ACTIVE).orElseThrow(ReservationNotFoundException::new);
 
         reservation.setStatus(ReservationStatus.CANCELLED);
+        bookingGuard.releaseNights(reservation);
 
+        eventPublisher.publishEvent(new ReservationDatesChangedEvent(reservation.getCampsiteId(),
+                reservation.getCheckin(), reservation.getCheckout()));
         return reservation;
     }
 
     /**
-     * Service operation that returns all available reservation dates in the range provided.
-     * This operation checks all active reservations within the date range and makes sure that all dates returned are
-     * available at the moment of the call.
+     * Service operation that returns all available reservation dates of a campsite in the range provided.
+     * Results are served from the {@link AvailabilityCache} when possible. Otherwise, the dates are read from the
+     * {@link OccupancyIndex} when it covers the range, without opening a transaction, or from the rows the
+     * {@link BookingGuard} keeps for each booked night, or else from the active reservations of the campsite within the
+     * date range in the database.
+     * @param campsiteId campsite to check
      * @param fromDate start of the range
      * @param toDate end of the range
-     * @return {@link TreeSet} of {@link LocalDate} representing all available dates.
+     * @return ordered {@link AvailableDates} representing all available dates.
      * @throws InvalidDatesException if there is an error with the dates provided.
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public Set<LocalDate> getAvailabilities(LocalDate fromDate, LocalDate toDate) throws InvalidDatesException {
+    @Timed("reservation.service")
+    public AvailableDates getAvailabilities(Long campsiteId, LocalDate fromDate, LocalDate toDate) throws InvalidDatesException {
+        validateAvailabilityDates(fromDate, toDate);
+
+        return availabilityCache.get(campsiteId, fromDate, toDate, () -> loadAvailabilities(campsiteId, fromDate, toDate));
+    }
+
+    /**
+     * Service operation that returns all available reservation dates of every campsite in the range provided, each
+     * one read as by {@link #getAvailabilities(Long, LocalDate, LocalDate)}.
+     * @param fromDate start of the range
+     * @param toDate end of the range
+     * @return the {@link AvailableDates} of each campsite, by ascending campsite id.
+     * @throws InvalidDatesException if there is an error with the dates provided.
+     */
+    @Timed("reservation.service")
+    public Map<Campsite, AvailableDates> getAvailabilitiesByCampsite(LocalDate fromDate, LocalDate toDate) throws InvalidDatesException {
+        validateAvailabilityDates(fromDate, toDate);
+
+        Map<Campsite, AvailableDates> availabilities = new LinkedHashMap<>();
+        for (Campsite campsite : campsiteService.getCampsites()) {
+            availabilities.put(campsite, availabilityCache.get(campsite.getId(), fromDate, toDate,
+                    () -> loadAvailabilities(campsite.getId(), fromDate, toDate)));
+        }
+        return availabilities;
+    }
 
+    static void validateAvailabilityDates(LocalDate fromDate, LocalDate toDate) throws InvalidDatesException {
         // Check that the toDate is after fromDate
         if (!toDate.isAfter(fromDate)) {
             throw new InvalidDatesException("The toDate should be after the fromDate.");
@@ -129,28 +427,95 @@ public class ReservationService {
         if (!toDate.isBefore(LocalDate.now().plusMonths(1).plusDays(1))) {
             throw new InvalidDatesException("The toDate cannot be more than a month in the future.");
         }
+    }
+
+    /**
+     * Returns the current version of the available dates of a campsite between fromDate and toDate (both inclusive),
+     * without computing them. Only the dates read from the {@link OccupancyIndex} have a version, see
+     * {@link OccupancyIndex#findVersion(Long, LocalDate, LocalDate)}.
+     * @throws InvalidDatesException if there is an error with the dates provided, as for
+     * {@link #getAvailabilities(Long, LocalDate, LocalDate)}.
+     */
+    public Optional<String> getAvailabilitiesVersion(Long campsiteId, LocalDate fromDate, LocalDate toDate) throws InvalidDatesException {
+        validateAvailabilityDates(fromDate, toDate);
 
-        List<Reservation> reservations = reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatus(fromDate, toDate, ReservationStatus.ACTIVE)
-                .orElse(new ArrayList<>());
+        return occupancyIndex.findVersion(campsiteId, fromDate, toDate);
+    }
+
+    /**
+     * Returns the current version of the available dates of every campsite between fromDate and toDate (both
+     * inclusive), without computing them. It is known only if the version of every campsite is, see
+     * {@link #combineVersions(Map)}.
+     * @throws InvalidDatesException if there is an error with the dates provided, as for
+     * {@link #getAvailabilitiesByCampsite(LocalDate, LocalDate)}.
+     */
+    public Optional<String> getAvailabilitiesByCampsiteVersion(LocalDate fromDate, LocalDate toDate) throws InvalidDatesException {
+        validateAvailabilityDates(fromDate, toDate);
 
-        return getAvailableDatesFromReservations(fromDate, toDate, reservations);
+        Map<Long, Optional<String>> versions = new TreeMap<>();
+        campsiteService.getCampsiteIds().forEach(campsiteId ->
+                versions.put(campsiteId, occupancyIndex.findVersion(campsiteId, fromDate, toDate)));
+        return combineVersions(versions);
     }
 
     /**
-     * Creates a list of all dates between the fromDate and toDate and then filters out the unavailable dates.
+     * Combines the versions of the available dates of several campsites, by campsite id, into a single version. It
+     * changes whenever one of them does, or when campsites are added, and is unknown if one of them is.
      */
-    private Set<LocalDate> getAvailableDatesFromReservations(LocalDate fromDate, LocalDate toDate, List<Reservation> reservations) {
-        Set<LocalDate> alreadyReservedDates = reservations.stream().flatMap(reservation -> reservation.getCheckin().datesUntil(reservation.getCheckout())).collect(Collectors.toSet());
+    public static Optional<String> combineVersions(Map<Long, Optional<String>> versions) {
+        StringBuilder combined = new StringBuilder();
+        for (Map.Entry<Long, Optional<String>> version : new TreeMap<>(versions).entrySet()) {
+            if (version.getValue().isEmpty()) {
+                return Optional.empty();
+            }
+            combined.append(version.getKey()).append(':').append(version.getValue().get()).append(';');
+        }
+        return Optional.of(UUID.nameUUIDFromBytes(combined.toString().getBytes(StandardCharsets.UTF_8)).toString());
+    }
 
-        return fromDate.datesUntil(toDate.plusDays(1))
-                .filter(date -> !alreadyReservedDates.contains(date))
-                .collect(Collectors.toCollection(TreeSet::new));
+    private AvailableDates loadAvailabilities(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        Optional<AvailableDates> indexedDates = occupancyIndex.findAvailableDates(campsiteId, fromDate, toDate);
+        if (indexedDates.isPresent()) {
+            return indexedDates.get();
+        }
+
+        // The toDate is inclusive, so the night of the toDate is the last one to check.
+        AvailableDates availableDates = readOnlyTransaction.execute(status -> {
+            // Only the upcoming nights are kept in the booking guard's rows.
+            if (!fromDate.isBefore(LocalDate.now())) {
+                Optional<AvailableDates> availableNights = bookingGuard.readAvailableNights(campsiteId, fromDate, toDate.plusDays(1));
+                if (availableNights.isPresent()) {
+                    return availableNights.get();
+                }
+            }
+            return AvailableDates.fromStays(fromDate, toDate,
+                    reservationRepository.findStaysOverlappingByStatus(campsiteId, fromDate, toDate.plusDays(1), ReservationStatus.ACTIVE));
+        });
+
+        return availableDates == null ? AvailableDates.fromStays(fromDate, toDate, List.of()) : availableDates;
     }
 
     /**
      * Checks the selected dates for a reservation and validates that they are valid and available.
      */
-    private void validateDatesForCreationOrUpdate(Reservation reservation) throws InvalidDatesException {
+    void validateDatesForCreationOrUpdate(Reservation reservation) throws InvalidDatesException {
+        long start = System.nanoTime();
+        try {
+            validateDates(reservation);
+
+            // Requests for the same nights queue here rather than on database locks, until this transaction completes.
+            nightLockManager.lockNights(reservation.getCampsiteId(), reservation.getCheckin(), reservation.getCheckout());
+
+            bookingGuard.checkAvailability(reservation);
+        } finally {
+            bookingMetrics.recordValidation(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Checks that the selected dates for a reservation are valid, regardless of their availability.
+     */
+    static void validateDates(Reservation reservation) throws InvalidDatesException {
         // Abort if checkin date is after checkout date
         if (reservation.getCheckin().isAfter(reservation.getCheckout())) {
             throw new InvalidDatesException("The checkout date should be after the checkin date.");
@@ -176,20 +541,5 @@ public class ReservationService {
         if (!reservation.getCheckout().isBefore(LocalDate.now().plusMonths(1))) {
             throw new InvalidDatesException("The checkout date cannot be more than a month in the future.");
         }
-
-        // Get all active reservation within date range
-        List<Reservation> reservationsWithinDateRange =
-                reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatusForUpdate(
-                                reservation.getCheckin(), reservation.getCheckout(),
-                                ReservationStatus.ACTIVE).orElse(new ArrayList<>())
-                        .stream()
-                        .filter(res -> !res.getId().equals(reservation.getId()))
-                        .toList();
-
-        // Abort that the dates selected are available
-        if (!getAvailableDatesFromReservations(reservation.getCheckin(), reservation.getCheckout(), reservationsWithinDateRange)
-                .containsAll(reservation.getCheckin().datesUntil(reservation.getCheckout()).toList())) {
-            throw new InvalidDatesException("The dates selected are not available.");
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Strategy used by the reservation service to prevent two active reservations from holding the same night of a
+ * campsite.
+ * All operations run in the transaction of the booking and their effects are rolled back with it.
+ * The strategy is selected with the {@code volcano.booking.mode} property.
+ */
+public interface BookingGuard {
+
+    /**
+     * Called before the reservation is saved.
+     * @param reservation reservation with the requested dates, and its id in case of an update.
+     * @throws InvalidDatesException if the dates selected are not available.
+     */
+    void checkAvailability(Reservation reservation) throws InvalidDatesException;
+
+    /**
+     * Called once the reservation is saved with its new dates.
+     * @param reservation the saved reservation.
+     * @param previousCheckin checkin date before the update, null if the reservation was just created.
+     * @param previousCheckout checkout date before the update, null if the reservation was just created.
+     * @throws InvalidDatesException if the dates selected are not available.
+     */
+    void reserveNights(Reservation reservation, LocalDate previousCheckin, LocalDate previousCheckout) throws InvalidDatesException;
+
+    /**
+     * Called before a batch of new reservations is saved, once per campsite for the range covering all of them.
+     * @param campsiteId campsite of the reservations.
+     * @param fromDate first night of the range.
+     * @param toDate night after the last night of the range.
+     * @return the nights of the range that are not held by an active reservation. Rows that prove it may stay locked
+     * until the end of the transaction.
+     */
+    AvailableDates findAvailableNights(Long campsiteId, LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Called outside of bookings, in a read-only transaction, to list the available nights of a campsite without
+     * going through its reservations. The rows are trusted over the reservations, so every path booking nights must
+     * keep them through this guard, the {@link com.gladhus.volcanocampingapi.v1.service.BookingSequencer} included.
+     * @param campsiteId campsite of the nights.
+     * @param fromDate first night of the range, not before today.
+     * @param toDate night after the last night of the range.
+     * @return the nights of the range that are not held by an active reservation, read without locking from the rows
+     * kept for each booked night, or empty if the strategy keeps none.
+     */
+    Optional<AvailableDates> readAvailableNights(Long campsiteId, LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Called once all reservations of a batch are saved, with reservations that do not overlap each other.
+     * @param reservations the saved reservations.
+     * @throws InvalidDatesException if the dates of one of the reservations are not available.
+     */
+    void reserveNights(List<Reservation> reservations) throws InvalidDatesException;
+
+    /**
+     * Called when the reservation is cancelled.
+     * @param reservation the cancelled reservation.
+     */
+    void releaseNights(Reservation reservation);
+}
@@ -0,0 +1,114 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters of the booking path: time spent waiting for the database locks that guard the nights, time spent validating
+ * bookings, the outcome of each booking attempt, and the bookings shed under load.
+ */
+@Component
+public class BookingMetrics {
+
+    static final String LOCK_WAIT_METRIC = "booking.lock.wait";
+
+    static final String VALIDATION_METRIC = "booking.validation";
+
+    static final String OUTCOME_METRIC = "booking.outcomes";
+
+    static final String RETRY_METRIC = "booking.retries";
+
+    static final String SHED_METRIC = "booking.shed";
+
+    public static final String OPERATION_CREATE = "create";
+
+    public static final String OPERATION_UPDATE = "update";
+
+    public static final String OPERATION_BATCH_CREATE = "batch-create";
+
+    public static final String OPERATION_CANCEL = "cancel";
+
+    public static final String SHED_IN_FLIGHT_LIMIT = "in-flight-limit";
+
+    public static final String SHED_LOCK_TIMEOUT = "lock-timeout";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer lockWaitTimer;
+
+    private final Timer validationTimer;
+
+    @Autowired
+    public BookingMetrics(MeterRegistry meterRegistry, @Value("${volcano.booking.mode:night-rows}") String bookingMode) {
+        this.meterRegistry = meterRegistry;
+        this.lockWaitTimer = Timer.builder(LOCK_WAIT_METRIC)
+                .description("Time spent in the statement that waits for the database locks guarding the nights of a booking.")
+                .tag("mode", bookingMode)
+                .register(meterRegistry);
+        this.validationTimer = Timer.builder(VALIDATION_METRIC)
+                .description("Time spent validating the dates of a booking, availability check included.")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the statement that waits for the database locks guarding the nights, and records how long it took.
+     */
+    public <T> T recordLockWait(Supplier<T> statement) {
+        return lockWaitTimer.record(statement);
+    }
+
+    public void recordValidation(long durationNanos) {
+        validationTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBooked(String operation) {
+        outcomeCounter(operation, "booked").increment();
+    }
+
+    /**
+     * Records a booking that failed, either because the nights were already booked or because the dates were invalid.
+     */
+    public void recordRejected(String operation, InvalidDatesException exception) {
+        outcomeCounter(operation, exception instanceof DatesNotAvailableException ? "conflict" : "invalid").increment();
+    }
+
+    /**
+     * Records a booking attempt that lost an optimistic version check and is about to be retried.
+     */
+    public void recordRetry(String operation) {
+        Counter.builder(RETRY_METRIC)
+                .description("Booking attempts retried after losing an optimistic version check to a concurrent booking.")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Records a booking rejected before completing because the booking path was saturated.
+     * @param reason {@link #SHED_IN_FLIGHT_LIMIT} or {@link #SHED_LOCK_TIMEOUT}.
+     */
+    public void recordShed(String operation, String reason) {
+        Counter.builder(SHED_METRIC)
+                .description("Bookings rejected under load: too many bookings in flight, or a lock of a night not acquired in time.")
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Counter outcomeCounter(String operation, String outcome) {
+        return Counter.builder(OUTCOME_METRIC)
+                .description("Booking attempts by outcome: booked, conflict with another booking, or invalid dates.")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,101 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.CampsiteNight;
+import com.gladhus.volcanocampingapi.domain.DailyOccupancy;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.repository.DailyOccupancyRepository;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Brings the {@link DailyOccupancy} rows in line with the active reservations before the application starts serving
+ * requests. This covers reservations made while another booking mode was in use.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "volcano.booking.mode", havingValue = "optimistic")
+public class DailyOccupancyReconciler implements SmartInitializingSingleton {
+
+    private final ReservationRepository reservationRepository;
+
+    private final DailyOccupancyRepository dailyOccupancyRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public DailyOccupancyReconciler(ReservationRepository reservationRepository,
+                                    DailyOccupancyRepository dailyOccupancyRepository,
+                                    PlatformTransactionManager transactionManager) {
+        this.reservationRepository = reservationRepository;
+        this.dailyOccupancyRepository = dailyOccupancyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> reconcile());
+        } catch (DataAccessException e) {
+            // Most likely another instance reconciled at the same time, it will be retried on the next start.
+            log.warn("Could not reconcile the daily occupancy.", e);
+        }
+    }
+
+    /**
+     * Deletes the past nights, then assigns each upcoming night of each campsite to the active reservation holding it,
+     * or frees it.
+     */
+    void reconcile() {
+        LocalDate today = LocalDate.now();
+        int deleted = dailyOccupancyRepository.deleteByNightLessThan(today);
+
+        Map<CampsiteNight, UUID> holders = new HashMap<>();
+        for (Reservation reservation : reservationRepository.findByStatusAndCheckoutAfter(ReservationStatus.ACTIVE, today)) {
+            reservation.getCheckin().datesUntil(reservation.getCheckout())
+                    .filter(night -> !night.isBefore(today))
+                    .map(night -> new CampsiteNight(reservation.getCampsiteId(), night))
+                    .forEach(night -> {
+                        UUID holder = holders.putIfAbsent(night, reservation.getId());
+                        if (holder != null && !holder.equals(reservation.getId())) {
+                            log.warn("Night {} of campsite {} is booked by both reservations {} and {}.",
+                                    night.getNight(), night.getCampsiteId(), holder, reservation.getId());
+                        }
+                    });
+        }
+
+        List<DailyOccupancy> changed = new ArrayList<>();
+        for (DailyOccupancy night : dailyOccupancyRepository.findByNightGreaterThanEqual(today)) {
+            UUID holder = holders.remove(new CampsiteNight(night.getCampsiteId(), night.getNight()));
+            if (!Objects.equals(holder, night.getReservationId())) {
+                night.setReservationId(holder);
+                changed.add(night);
+            }
+        }
+        holders.forEach((night, holder) -> changed.add(DailyOccupancy.builder()
+                .campsiteId(night.getCampsiteId())
+                .night(night.getNight())
+                .reservationId(holder)
+                .build()));
+
+        dailyOccupancyRepository.saveAll(changed);
+
+        if (deleted > 0 || !changed.isEmpty()) {
+            log.info("Reconciled daily occupancy: {} past nights deleted, {} nights updated.", deleted, changed.size());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * Serializes, within this instance, the booking transactions that want the same nights of a campsite, so that they
+ * queue here instead of on database locks. Bookings of disjoint nights, or of different campsites, never wait on each
+ * other.
+ * <p>
+ * Each campsite has its own locks, striped by night: the night with epoch day d maps to stripe d modulo the number of
+ * stripes. With at least as many stripes as bookable days, nights of the booking window never share a stripe. Stripes
+ * are always acquired in ascending order, which is the order of the nights within the window, and the campsites of a
+ * batch by ascending id, so two bookings can never deadlock. The locks are held until the transaction of the booking
+ * completes. A booking waits at most {@code volcano.booking.lock-timeout} for all of them.
+ */
+@Component
+public class NightLockManager {
+
+    static final String LOCK_WAIT_METRIC = "booking.night.lock.wait";
+
+    static final String LOCK_HOLD_METRIC = "booking.night.lock.hold";
+
+    private final boolean enabled;
+
+    private final int stripeCount;
+
+    private final long lockTimeoutNanos;
+
+    private final Map<Long, ReentrantLock[]> stripesByCampsite = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public NightLockManager(@Value("${volcano.night-locks.enabled:true}") boolean enabled,
+                            @Value("${volcano.night-locks.stripes:64}") int stripes,
+                            @Value("${volcano.booking.lock-timeout:PT5S}") Duration lockTimeout,
+                            MeterRegistry meterRegistry) {
+        Assert.isTrue(stripes > 0, "The number of night lock stripes must be positive.");
+        this.enabled = enabled;
+        this.meterRegistry = meterRegistry;
+        this.stripeCount = stripes;
+        this.lockTimeoutNanos = lockTimeout.toNanos();
+    }
+
+    /**
+     * Locks the nights of the campsite between checkin (inclusive) and checkout (exclusive) until the current
+     * transaction completes. Outside a transaction there is no database work to protect, so no lock is taken.
+     * A transaction locking the nights of several campsites must lock them by ascending campsite id.
+     * @throws CannotAcquireLockException if the nights could not all be locked within the lock timeout. None of them
+     * is locked then.
+     */
+    public void lockNights(Long campsiteId, LocalDate checkin, LocalDate checkout) {
+        if (!enabled || !TransactionSynchronizationManager.isSynchronizationActive() || !checkin.isBefore(checkout)) {
+            return;
+        }
+
+        ReentrantLock[] stripes = stripesByCampsite.computeIfAbsent(campsiteId, id -> newStripes());
+        int nights = (int) Math.min(stripes.length, checkout.toEpochDay() - checkin.toEpochDay());
+        int[] stripeIndexes = new int[nights];
+        for (int i = 0; i < nights; i++) {
+            stripeIndexes[i] = Math.floorMod(checkin.toEpochDay() + i, stripes.length);
+        }
+        Arrays.sort(stripeIndexes);
+
+        long[] acquiredAt = new long[nights];
+        long deadline = System.nanoTime() + lockTimeoutNanos;
+        for (int i = 0; i < nights; i++) {
+            long waitStart = System.nanoTime();
+            boolean acquired = tryLock(stripes[stripeIndexes[i]], deadline - waitStart);
+            acquiredAt[i] = System.nanoTime();
+            timer(LOCK_WAIT_METRIC, campsiteId, nightOf(checkin, stripeIndexes[i])).record(acquiredAt[i] - waitStart, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                for (int j = i - 1; j >= 0; j--) {
+                    stripes[stripeIndexes[j]].unlock();
+                }
+                throw new CannotAcquireLockException("Timed out waiting for the lock of night " + nightOf(checkin, stripeIndexes[i])
+                        + " of campsite " + campsiteId + ".");
+            }
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                long releasedAt = System.nanoTime();
+                for (int i = nights - 1; i >= 0; i--) {
+                    stripes[stripeIndexes[i]].unlock();
+                    timer(LOCK_HOLD_METRIC, campsiteId, nightOf(checkin, stripeIndexes[i])).record(releasedAt - acquiredAt[i], TimeUnit.NANOSECONDS);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes the metrics of the nights that are over, so the number of meters stays bounded by the booking window.
+     */
+    @Scheduled(cron = "${volcano.night-locks.metrics-cleanup-cron:0 5 0 * * *}")
+    public void removeMetricsOfPastNights() {
+        String today = LocalDate.now().toString();
+        for (String metric : new String[]{LOCK_WAIT_METRIC, LOCK_HOLD_METRIC}) {
+            for (Meter meter : meterRegistry.find(metric).meters()) {
+                String night = meter.getId().getTag("night");
+                if (night != null && night.compareTo(today) < 0) {
+                    meterRegistry.remove(meter);
+                }
+            }
+        }
+    }
+
+    private static boolean tryLock(ReentrantLock lock, long timeoutNanos) {
+        try {
+            return lock.tryLock(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private ReentrantLock[] newStripes() {
+        ReentrantLock[] stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        return stripes;
+    }
+
+    /**
+     * Returns the night of the stay that maps to the stripe.
+     */
+    private LocalDate nightOf(LocalDate checkin, int stripeIndex) {
+        return checkin.plusDays(Math.floorMod(stripeIndex - checkin.toEpochDay(), stripeCount));
+    }
+
+    private Timer timer(String name, Long campsiteId, LocalDate night) {
+        return Timer.builder(name)
+                .description(LOCK_WAIT_METRIC.equals(name)
+                        ? "Time spent waiting for the in-process lock of a night."
+                        : "Time the in-process lock of a night was held by a booking transaction.")
+                .tag("campsite", String.valueOf(campsiteId))
+                .tag("night", night.toString())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,119 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationNight;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import com.gladhus.volcanocampingapi.repository.ReservationNightRepository;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds one {@link ReservationNight} row per booked night. The campsite and the night are the primary key of the row,
+ * so a conflicting booking fails on insert with a constraint violation. Only bookings that want the same nights of the
+ * same campsite ever wait on each other, other bookings do not take any common lock.
+ */
+@Component
+@ConditionalOnProperty(name = "volcano.booking.mode", havingValue = "night-rows", matchIfMissing = true)
+public class NightRowBookingGuard implements BookingGuard {
+
+    private final ReservationNightRepository reservationNightRepository;
+
+    private final BookingMetrics bookingMetrics;
+
+    @Autowired
+    public NightRowBookingGuard(ReservationNightRepository reservationNightRepository, BookingMetrics bookingMetrics) {
+        this.reservationNightRepository = reservationNightRepository;
+        this.bookingMetrics = bookingMetrics;
+    }
+
+    @Override
+    public void checkAvailability(Reservation reservation) {
+        // Availability is enforced by the unique key when the nights are inserted.
+    }
+
+    @Override
+    public void reserveNights(Reservation reservation, LocalDate previousCheckin, LocalDate previousCheckout) throws InvalidDatesException {
+        if (previousCheckin != null) {
+            List<LocalDate> releasedNights = previousCheckin.datesUntil(previousCheckout)
+                    .filter(night -> !isWithinStay(night, reservation))
+                    .toList();
+            if (!releasedNights.isEmpty()) {
+                reservationNightRepository.deleteByCampsiteIdAndReservationIdAndNightIn(reservation.getCampsiteId(), reservation.getId(),
+                        releasedNights);
+            }
+        }
+
+        List<ReservationNight> newNights = reservation.getCheckin().datesUntil(reservation.getCheckout())
+                .filter(night -> previousCheckin == null || night.isBefore(previousCheckin) || !night.isBefore(previousCheckout))
+                .map(night -> nightOf(reservation, night))
+                .toList();
+        if (newNights.isEmpty()) {
+            return;
+        }
+
+        try {
+            // Inserting a night held by a transaction that is not committed yet waits for its outcome.
+            bookingMetrics.recordLockWait(() -> reservationNightRepository.saveAllAndFlush(newNights));
+        } catch (DataIntegrityViolationException e) {
+            throw new DatesNotAvailableException();
+        }
+    }
+
+    @Override
+    public AvailableDates findAvailableNights(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        int length = (int) (toDate.toEpochDay() - fromDate.toEpochDay());
+        BitSet available = new BitSet(length);
+        available.set(0, length);
+        // Nights booked by transactions that are not committed yet are not seen, the unique key still rejects them.
+        reservationNightRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(campsiteId, fromDate, toDate)
+                .forEach(night -> available.clear((int) (night.getNight().toEpochDay() - fromDate.toEpochDay())));
+        return new AvailableDates(fromDate, available);
+    }
+
+    @Override
+    public Optional<AvailableDates> readAvailableNights(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        // A primary key range read of the booked nights, past nights may be missing but upcoming ones are reconciled.
+        return Optional.of(findAvailableNights(campsiteId, fromDate, toDate));
+    }
+
+    @Override
+    public void reserveNights(List<Reservation> reservations) throws InvalidDatesException {
+        List<ReservationNight> newNights = reservations.stream()
+                .flatMap(reservation -> reservation.getCheckin().datesUntil(reservation.getCheckout())
+                        .map(night -> nightOf(reservation, night)))
+                .toList();
+
+        try {
+            // Inserted in JDBC batches, see hibernate.jdbc.batch_size.
+            bookingMetrics.recordLockWait(() -> reservationNightRepository.saveAllAndFlush(newNights));
+        } catch (DataIntegrityViolationException e) {
+            throw new DatesNotAvailableException();
+        }
+    }
+
+    @Override
+    public void releaseNights(Reservation reservation) {
+        reservationNightRepository.deleteByCampsiteIdAndReservationIdAndNightIn(reservation.getCampsiteId(), reservation.getId(),
+                reservation.getCheckin().datesUntil(reservation.getCheckout()).toList());
+    }
+
+    private static ReservationNight nightOf(Reservation reservation, LocalDate night) {
+        return ReservationNight.builder()
+                .campsiteId(reservation.getCampsiteId())
+                .night(night)
+                .reservationId(reservation.getId())
+                .build();
+    }
+
+    private static boolean isWithinStay(LocalDate night, Reservation reservation) {
+        return !night.isBefore(reservation.getCheckin()) && night.isBefore(reservation.getCheckout());
+    }
+}
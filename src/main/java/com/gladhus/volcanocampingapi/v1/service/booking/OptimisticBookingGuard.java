@@ -0,0 +1,160 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.DailyOccupancy;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import com.gladhus.volcanocampingapi.repository.DailyOccupancyRepository;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the {@link DailyOccupancy} rows of the booking without locking them, then writes every night the booking takes
+ * or releases with a version check. Without contention, no lock is taken before the writes at the end of the
+ * transaction. When another booking changed one of the nights in the meantime, the write fails with an
+ * {@link OptimisticLockingFailureException} and the whole transaction is retried by {@link BookingRetry}, which then
+ * reads the nights as the other booking left them.
+ */
+@Component
+@ConditionalOnProperty(name = "volcano.booking.mode", havingValue = "optimistic")
+public class OptimisticBookingGuard implements BookingGuard {
+
+    private final DailyOccupancyRepository dailyOccupancyRepository;
+
+    private final BookingMetrics bookingMetrics;
+
+    @Autowired
+    public OptimisticBookingGuard(DailyOccupancyRepository dailyOccupancyRepository, BookingMetrics bookingMetrics) {
+        this.dailyOccupancyRepository = dailyOccupancyRepository;
+        this.bookingMetrics = bookingMetrics;
+    }
+
+    @Override
+    public void checkAvailability(Reservation reservation) {
+        // Availability is checked against the occupancy read when the nights are reserved.
+    }
+
+    @Override
+    public void reserveNights(Reservation reservation, LocalDate previousCheckin, LocalDate previousCheckout) throws InvalidDatesException {
+        LocalDate fromDate = previousCheckin == null || reservation.getCheckin().isBefore(previousCheckin)
+                ? reservation.getCheckin() : previousCheckin;
+        LocalDate toDate = previousCheckout == null || reservation.getCheckout().isAfter(previousCheckout)
+                ? reservation.getCheckout() : previousCheckout;
+        Map<LocalDate, DailyOccupancy> occupancy = findOccupancy(reservation.getCampsiteId(), fromDate, toDate);
+
+        List<DailyOccupancy> changed = new ArrayList<>();
+        if (previousCheckin != null) {
+            previousCheckin.datesUntil(previousCheckout)
+                    .filter(night -> night.isBefore(reservation.getCheckin()) || !night.isBefore(reservation.getCheckout()))
+                    .map(occupancy::get)
+                    .filter(night -> night != null && reservation.getId().equals(night.getReservationId()))
+                    .forEach(night -> {
+                        night.setReservationId(null);
+                        changed.add(night);
+                    });
+        }
+        take(reservation, occupancy, changed);
+
+        write(changed);
+    }
+
+    @Override
+    public AvailableDates findAvailableNights(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        int length = (int) (toDate.toEpochDay() - fromDate.toEpochDay());
+        BitSet available = new BitSet(length);
+        available.set(0, length);
+        // The occupancy read may already be outdated, the version checks on write catch it.
+        dailyOccupancyRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(campsiteId, fromDate, toDate).stream()
+                .filter(night -> night.getReservationId() != null)
+                .forEach(night -> available.clear((int) (night.getNight().toEpochDay() - fromDate.toEpochDay())));
+        return new AvailableDates(fromDate, available);
+    }
+
+    @Override
+    public Optional<AvailableDates> readAvailableNights(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        // A primary key range read of the occupancy, past nights may be missing but upcoming ones are reconciled.
+        return Optional.of(findAvailableNights(campsiteId, fromDate, toDate));
+    }
+
+    @Override
+    public void reserveNights(List<Reservation> reservations) throws InvalidDatesException {
+        List<DailyOccupancy> changed = new ArrayList<>();
+        for (List<Reservation> campsiteReservations : reservations.stream()
+                .collect(Collectors.groupingBy(Reservation::getCampsiteId, TreeMap::new, Collectors.toList())).values()) {
+            // Rows read by findAvailableNights are still in the persistence context, reading them again costs one query.
+            Map<LocalDate, DailyOccupancy> occupancy = findOccupancy(campsiteReservations.get(0).getCampsiteId(),
+                    campsiteReservations.stream().map(Reservation::getCheckin).min(Comparator.naturalOrder()).orElseThrow(),
+                    campsiteReservations.stream().map(Reservation::getCheckout).max(Comparator.naturalOrder()).orElseThrow());
+            for (Reservation reservation : campsiteReservations) {
+                take(reservation, occupancy, changed);
+            }
+        }
+
+        write(changed);
+    }
+
+    @Override
+    public void releaseNights(Reservation reservation) {
+        List<DailyOccupancy> changed = findOccupancy(reservation.getCampsiteId(), reservation.getCheckin(), reservation.getCheckout())
+                .values().stream()
+                .filter(night -> reservation.getId().equals(night.getReservationId()))
+                .toList();
+        changed.forEach(night -> night.setReservationId(null));
+
+        write(changed);
+    }
+
+    private Map<LocalDate, DailyOccupancy> findOccupancy(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        return dailyOccupancyRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(campsiteId, fromDate, toDate).stream()
+                .collect(Collectors.toMap(DailyOccupancy::getNight, Function.identity()));
+    }
+
+    /**
+     * Assigns every night of the stay to the reservation, creating the rows of the nights never booked before.
+     */
+    private static void take(Reservation reservation, Map<LocalDate, DailyOccupancy> occupancy, List<DailyOccupancy> changed)
+            throws DatesNotAvailableException {
+        for (LocalDate night : reservation.getCheckin().datesUntil(reservation.getCheckout()).toList()) {
+            DailyOccupancy nightOccupancy = occupancy.get(night);
+            if (nightOccupancy == null) {
+                changed.add(DailyOccupancy.builder()
+                        .campsiteId(reservation.getCampsiteId())
+                        .night(night)
+                        .reservationId(reservation.getId())
+                        .build());
+            } else if (nightOccupancy.getReservationId() == null) {
+                nightOccupancy.setReservationId(reservation.getId());
+                changed.add(nightOccupancy);
+            } else if (!nightOccupancy.getReservationId().equals(reservation.getId())) {
+                throw new DatesNotAvailableException();
+            }
+        }
+    }
+
+    private void write(List<DailyOccupancy> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            // Updates of a row written by a transaction that is not committed yet wait for its outcome.
+            bookingMetrics.recordLockWait(() -> dailyOccupancyRepository.saveAllAndFlush(changed));
+        } catch (DataIntegrityViolationException e) {
+            // Another booking created the row of a night first.
+            throw new OptimisticLockingFailureException("A night was booked concurrently.", e);
+        }
+    }
+}
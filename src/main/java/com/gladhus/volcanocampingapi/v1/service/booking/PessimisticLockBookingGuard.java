@@ -0,0 +1,80 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Locks all active reservations of the campsite within the dates of the booking with a PESSIMISTIC_WRITE lock, then
+ * checks that none of them holds one of the nights.
+ */
+@Component
+@ConditionalOnProperty(name = "volcano.booking.mode", havingValue = "pessimistic")
+public class PessimisticLockBookingGuard implements BookingGuard {
+
+    private final ReservationRepository reservationRepository;
+
+    private final BookingMetrics bookingMetrics;
+
+    @Autowired
+    public PessimisticLockBookingGuard(ReservationRepository reservationRepository, BookingMetrics bookingMetrics) {
+        this.reservationRepository = reservationRepository;
+        this.bookingMetrics = bookingMetrics;
+    }
+
+    @Override
+    public void checkAvailability(Reservation reservation) throws InvalidDatesException {
+        // Get all active reservations holding one of the nights, including the ones covering the whole stay
+        List<Reservation> reservationsWithinDateRange = bookingMetrics.recordLockWait(() ->
+                        reservationRepository.findOverlappingByStatusForUpdate(
+                                reservation.getCampsiteId(), reservation.getCheckin(), reservation.getCheckout(),
+                                ReservationStatus.ACTIVE))
+                        .stream()
+                        .filter(res -> !res.getId().equals(reservation.getId()))
+                        .toList();
+
+        // Abort that the dates selected are available
+        if (!AvailableDates.fromReservations(reservation.getCheckin(), reservation.getCheckout(), reservationsWithinDateRange)
+                .isAvailable(reservation.getCheckin(), reservation.getCheckout())) {
+            throw new DatesNotAvailableException();
+        }
+    }
+
+    @Override
+    public void reserveNights(Reservation reservation, LocalDate previousCheckin, LocalDate previousCheckout) {
+        // The reservation row itself holds the nights, the locks taken while checking are kept until commit.
+    }
+
+    @Override
+    public AvailableDates findAvailableNights(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        List<Reservation> reservationsWithinDateRange = bookingMetrics.recordLockWait(() ->
+                reservationRepository.findOverlappingByStatusForUpdate(campsiteId, fromDate, toDate, ReservationStatus.ACTIVE));
+
+        return AvailableDates.fromReservations(fromDate, toDate.minusDays(1), reservationsWithinDateRange);
+    }
+
+    @Override
+    public Optional<AvailableDates> readAvailableNights(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        // The nights are only held by the reservation rows.
+        return Optional.empty();
+    }
+
+    @Override
+    public void reserveNights(List<Reservation> reservations) {
+        // The locks taken while finding the available nights are kept until commit.
+    }
+
+    @Override
+    public void releaseNights(Reservation reservation) {
+        // Nothing to release, cancelled reservations are ignored when checking availability.
+    }
+}
@@ -0,0 +1,96 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.CampsiteNight;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationNight;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.repository.ReservationNightRepository;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Brings the {@link ReservationNight} rows in line with the active reservations before the application starts serving
+ * requests. This covers reservations made before the night rows existed, or while another booking mode was in use.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "volcano.booking.mode", havingValue = "night-rows", matchIfMissing = true)
+public class ReservationNightReconciler implements SmartInitializingSingleton {
+
+    private final ReservationRepository reservationRepository;
+
+    private final ReservationNightRepository reservationNightRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ReservationNightReconciler(ReservationRepository reservationRepository,
+                                      ReservationNightRepository reservationNightRepository,
+                                      PlatformTransactionManager transactionManager) {
+        this.reservationRepository = reservationRepository;
+        this.reservationNightRepository = reservationNightRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> reconcile());
+        } catch (DataAccessException e) {
+            // Most likely another instance reconciled at the same time, it will be retried on the next start.
+            log.warn("Could not reconcile the reservation nights.", e);
+        }
+    }
+
+    /**
+     * Deletes the nights that are not held by an active reservation anymore, then inserts the missing nights of the
+     * upcoming active reservations.
+     */
+    void reconcile() {
+        int deleted = reservationNightRepository.deleteOrphans();
+
+        LocalDate today = LocalDate.now();
+        Map<CampsiteNight, UUID> heldNights = new HashMap<>();
+        reservationNightRepository.findByNightGreaterThanEqual(today)
+                .forEach(night -> heldNights.put(night.getId(), night.getReservationId()));
+
+        List<ReservationNight> missingNights = new ArrayList<>();
+        for (Reservation reservation : reservationRepository.findByStatusAndCheckoutAfter(ReservationStatus.ACTIVE, today)) {
+            reservation.getCheckin().datesUntil(reservation.getCheckout())
+                    .filter(night -> !night.isBefore(today))
+                    .map(night -> new CampsiteNight(reservation.getCampsiteId(), night))
+                    .forEach(night -> {
+                        UUID holder = heldNights.putIfAbsent(night, reservation.getId());
+                        if (holder == null) {
+                            missingNights.add(ReservationNight.builder()
+                                    .campsiteId(night.getCampsiteId())
+                                    .night(night.getNight())
+                                    .reservationId(reservation.getId())
+                                    .build());
+                        } else if (!holder.equals(reservation.getId())) {
+                            log.warn("Night {} of campsite {} is booked by both reservations {} and {}.",
+                                    night.getNight(), night.getCampsiteId(), holder, reservation.getId());
+                        }
+                    });
+        }
+
+        reservationNightRepository.saveAll(missingNights);
+
+        if (deleted > 0 || !missingNights.isEmpty()) {
+            log.info("Reconciled reservation nights: {} deleted, {} inserted.", deleted, missingNights.size());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.gladhus.volcanocampingapi.v1.service.idempotency;
+
+import com.gladhus.volcanocampingapi.domain.IdempotencyKey;
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.repository.IdempotencyKeyRepository;
+import com.gladhus.volcanocampingapi.v1.service.ConnectionBulkhead;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the idempotency keys in the idempotency_key table, shared by all instances.
+ * <p>
+ * A key is claimed by inserting its row before the request runs, so that of two instances receiving the same request,
+ * the second one fails on insert and finds the request in progress. A claim expires after
+ * volcano.idempotency.in-flight-timeout, in case the instance holding it stopped before completing the request, and a
+ * completed request after volcano.idempotency.ttl. Expired rows are ignored, then deleted by a background job.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "volcano.idempotency.store", havingValue = "database")
+public class DatabaseIdempotencyStore implements IdempotencyStore {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private final ConnectionBulkhead connectionBulkhead;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration ttl;
+
+    private final Duration inFlightTimeout;
+
+    @Autowired
+    public DatabaseIdempotencyStore(IdempotencyKeyRepository idempotencyKeyRepository,
+                                    ConnectionBulkhead connectionBulkhead,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${volcano.idempotency.ttl:PT24H}") Duration ttl,
+                                    @Value("${volcano.idempotency.in-flight-timeout:PT1M}") Duration inFlightTimeout) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.connectionBulkhead = connectionBulkhead;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.inFlightTimeout = inFlightTimeout;
+    }
+
+    @Override
+    public Optional<StoredRequest> claim(String key, String fingerprint) throws GenericAPIException {
+        return connectionBulkhead.call(() -> {
+            try {
+                return transactionTemplate.execute(status -> {
+                    Instant now = Instant.now();
+                    Optional<IdempotencyKey> existing = idempotencyKeyRepository.findById(key);
+                    if (existing.isPresent() && existing.get().getExpiresAt().isAfter(now)) {
+                        return existing.map(DatabaseIdempotencyStore::toStoredRequest);
+                    }
+                    existing.ifPresent(idempotencyKeyRepository::delete);
+                    idempotencyKeyRepository.flush();
+                    idempotencyKeyRepository.saveAndFlush(IdempotencyKey.builder()
+                            .key(key)
+                            .fingerprint(fingerprint)
+                            .expiresAt(now.plus(inFlightTimeout))
+                            .build());
+                    return Optional.<StoredRequest>empty();
+                });
+            } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+                // Another instance claimed the key at the same time.
+                return Optional.of(transactionTemplate.execute(status -> idempotencyKeyRepository.findById(key))
+                        .map(DatabaseIdempotencyStore::toStoredRequest)
+                        .orElseGet(() -> new StoredRequest(fingerprint, null)));
+            }
+        });
+    }
+
+    @Override
+    public void complete(String key, StoredRequest request) throws GenericAPIException {
+        connectionBulkhead.call(() -> transactionTemplate.execute(status -> {
+            IdempotencyKey idempotencyKey = idempotencyKeyRepository.findById(key).orElseGet(() -> IdempotencyKey.builder()
+                    .key(key)
+                    .build());
+            idempotencyKey.setFingerprint(request.fingerprint());
+            idempotencyKey.setResponse(request.response());
+            idempotencyKey.setExpiresAt(Instant.now().plus(ttl));
+            return idempotencyKeyRepository.save(idempotencyKey);
+        }));
+    }
+
+    @Override
+    public void release(String key) throws GenericAPIException {
+        connectionBulkhead.call(() -> transactionTemplate.execute(status -> {
+            idempotencyKeyRepository.findById(key).ifPresent(idempotencyKeyRepository::delete);
+            return null;
+        }));
+    }
+
+    @Scheduled(cron = "${volcano.idempotency.purge-cron:0 15 * * * *}")
+    public void purge() {
+        try {
+            int purged = transactionTemplate.execute(status -> idempotencyKeyRepository.deleteByExpiresAtBefore(Instant.now()));
+            log.debug("Purged {} expired idempotency keys.", purged);
+        } catch (DataAccessException e) {
+            log.warn("Could not purge the expired idempotency keys.", e);
+        }
+    }
+
+    private static StoredRequest toStoredRequest(IdempotencyKey idempotencyKey) {
+        return new StoredRequest(idempotencyKey.getFingerprint(), idempotencyKey.getResponse());
+    }
+}
@@ -0,0 +1,38 @@
+package com.gladhus.volcanocampingapi.v1.service.idempotency;
+
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import java.util.Optional;
+
+/**
+ * Keeps the idempotency keys of the requests, with their responses, until they expire. The implementation is selected
+ * with the property volcano.idempotency.store.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key for a request about to run.
+     * @return the request that holds the key already, or empty if the key is now held by the caller.
+     */
+    Optional<StoredRequest> claim(String key, String fingerprint) throws GenericAPIException;
+
+    /**
+     * Stores the response of the request holding the key, to replay it to the retries of the request.
+     */
+    void complete(String key, StoredRequest request) throws GenericAPIException;
+
+    /**
+     * Forgets the key of a request that failed, so that a retry runs it again.
+     */
+    void release(String key) throws GenericAPIException;
+
+    /**
+     * @param fingerprint hash of the request.
+     * @param response response of the request as JSON, null while the request is in progress.
+     */
+    record StoredRequest(String fingerprint, String response) {
+
+        public boolean inProgress() {
+            return response == null;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.gladhus.volcanocampingapi.v1.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.exception.IdempotencyKeyInProgressException;
+import com.gladhus.volcanocampingapi.exception.IdempotencyKeyReusedException;
+import com.gladhus.volcanocampingapi.exception.ServiceUnavailableException;
+import com.gladhus.volcanocampingapi.v1.service.ConnectionBulkhead.TransactionalWork;
+import com.gladhus.volcanocampingapi.v1.service.idempotency.IdempotencyStore.StoredRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+
+import static org.springframework.util.Assert.hasText;
+import static org.springframework.util.Assert.isTrue;
+
+/**
+ * Runs a request at most once per idempotency key, and replays its response to the retries sent with the same key.
+ * <p>
+ * A retry sent while the request is still running on this instance waits for it and gets the same outcome. Otherwise,
+ * it gets the stored response, without reaching the booking path nor its locks. Only successful responses are stored:
+ * after a failure the key is released, and a retry runs the request again.
+ */
+@Slf4j
+@Component
+public class IdempotentRequests {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final IdempotencyStore idempotencyStore;
+
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentMap<String, InFlightRequest> inFlightRequests = new ConcurrentHashMap<>();
+
+    private final Counter executed;
+
+    private final Counter replayed;
+
+    private final Counter collapsed;
+
+    @Autowired
+    public IdempotentRequests(IdempotencyStore idempotencyStore, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.executed = counter(meterRegistry, "executed");
+        this.replayed = counter(meterRegistry, "replayed");
+        this.collapsed = counter(meterRegistry, "collapsed");
+    }
+
+    /**
+     * Runs the request, unless it already ran with the same idempotency key.
+     * @param idempotencyKey key sent by the client, null to run the request unconditionally.
+     * @param operation operation of the request, keys are only compared within the same operation.
+     * @param fingerprint hash of the request, see {@link #fingerprint(Object...)}.
+     * @throws IdempotencyKeyReusedException if the key was used for a request with another fingerprint.
+     * @throws IdempotencyKeyInProgressException if the request holding the key is running on another instance.
+     */
+    public <T> T call(String idempotencyKey, String operation, String fingerprint, Class<T> responseType,
+                      TransactionalWork<T> work) throws GenericAPIException {
+        if (idempotencyKey == null) {
+            return work.call();
+        }
+        hasText(idempotencyKey, "Idempotency key cannot be blank.");
+        isTrue(idempotencyKey.length() <= MAX_KEY_LENGTH, "Idempotency key cannot be longer than " + MAX_KEY_LENGTH + " characters.");
+
+        String key = operation + ":" + idempotencyKey;
+        InFlightRequest request = new InFlightRequest(fingerprint, new CompletableFuture<>());
+        InFlightRequest running = inFlightRequests.putIfAbsent(key, request);
+        if (running != null) {
+            collapsed.increment();
+            return responseType.cast(await(running, fingerprint));
+        }
+
+        try {
+            T response = claimAndCall(key, fingerprint, responseType, work);
+            request.response().complete(response);
+            return response;
+        } catch (GenericAPIException | RuntimeException | Error e) {
+            request.response().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRequests.remove(key, request);
+        }
+    }
+
+    private <T> T claimAndCall(String key, String fingerprint, Class<T> responseType, TransactionalWork<T> work)
+            throws GenericAPIException {
+        Optional<StoredRequest> stored = idempotencyStore.claim(key, fingerprint);
+        if (stored.isPresent()) {
+            if (!stored.get().fingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyReusedException();
+            }
+            if (stored.get().inProgress()) {
+                throw new IdempotencyKeyInProgressException();
+            }
+            replayed.increment();
+            return read(stored.get().response(), responseType);
+        }
+
+        T response;
+        try {
+            response = work.call();
+        } catch (GenericAPIException | RuntimeException | Error e) {
+            // Errors included, a key left claimed would turn away every retry until it expires.
+            idempotencyStore.release(key);
+            throw e;
+        }
+        executed.increment();
+
+        try {
+            idempotencyStore.complete(key, new StoredRequest(fingerprint, write(response)));
+        } catch (GenericAPIException | RuntimeException e) {
+            // The request is committed already, failing now would only make the client retry it.
+            log.warn("Could not store the response of the request with idempotency key {}.", key, e);
+        }
+        return response;
+    }
+
+    private static Object await(InFlightRequest running, String fingerprint) throws GenericAPIException {
+        if (!running.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException();
+        }
+        try {
+            return running.response().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GenericAPIException apiException) {
+                throw apiException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw (Error) e.getCause();
+        }
+    }
+
+    /**
+     * Hashes the parts of a request, in order, to tell a retry from a different request sent with the same key.
+     */
+    public static String fingerprint(Object... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256.
+            throw new IllegalStateException(e);
+        }
+        for (Object part : parts) {
+            digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return HEX.formatHex(digest.digest());
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the response to store.", e);
+        }
+    }
+
+    private <T> T read(String response, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(response, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read the stored response.", e);
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("idempotent.requests")
+                .description("Requests sent with an idempotency key, by outcome: executed, replayed from the store, "
+                        + "or collapsed onto the same request in flight.")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record InFlightRequest(String fingerprint, CompletableFuture<Object> response) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.gladhus.volcanocampingapi.v1.service.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the idempotency keys in a bounded cache of this instance. A retry sent to another instance runs again, so this
+ * store suits a single instance, or a load balancer that routes the retries of a client to the same instance.
+ */
+@Component
+@ConditionalOnProperty(name = "volcano.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, StoredRequest> cache;
+
+    @Autowired
+    public InMemoryIdempotencyStore(@Value("${volcano.idempotency.maximum-size:100000}") long maximumSize,
+                                    @Value("${volcano.idempotency.ttl:PT24H}") Duration ttl,
+                                    MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency-keys");
+    }
+
+    @Override
+    public Optional<StoredRequest> claim(String key, String fingerprint) {
+        return Optional.ofNullable(cache.asMap().putIfAbsent(key, new StoredRequest(fingerprint, null)));
+    }
+
+    @Override
+    public void complete(String key, StoredRequest request) {
+        cache.put(key, request);
+    }
+
+    @Override
+    public void release(String key) {
+        cache.invalidate(key);
+    }
+}
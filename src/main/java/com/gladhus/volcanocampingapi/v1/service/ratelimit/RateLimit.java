@@ -0,0 +1,21 @@
+package com.gladhus.volcanocampingapi.v1.service.ratelimit;
+
+import org.springframework.util.Assert;
+
+/**
+ * Budget of a client on an endpoint: up to capacity requests in a burst, then refillPerSecond requests per second.
+ */
+public record RateLimit(int capacity, double refillPerSecond) {
+
+    public RateLimit {
+        Assert.isTrue(capacity > 0, "The capacity of a rate limit must be positive.");
+        Assert.isTrue(refillPerSecond > 0, "The refill rate of a rate limit must be positive.");
+    }
+
+    /**
+     * Time it takes to refill one token.
+     */
+    long nanosPerToken() {
+        return Math.max(1, (long) (1_000_000_000 / refillPerSecond));
+    }
+}
@@ -0,0 +1,50 @@
+package com.gladhus.volcanocampingapi.v1.service.ratelimit;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the {@link RateLimiter}, under {@code volcano.rate-limit}. The limits are keyed by endpoint, see
+ * the {@code ENDPOINT_*} constants of {@link RateLimiter}.
+ */
+@Data
+@ConfigurationProperties("volcano.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Header identifying the client, such as an API key. Clients that do not send it are identified by their address.
+     */
+    private String clientHeader = "X-API-Key";
+
+    /**
+     * Values of the client header that identify a client. The header is not authenticated, so clients sending any
+     * other value are identified by their address.
+     */
+    private Set<String> clientKeys = new LinkedHashSet<>();
+
+    /**
+     * Maximum number of buckets kept, the least recently used ones are evicted first.
+     */
+    private long maximumBuckets = 100_000;
+
+    /**
+     * Buckets not used for that long are evicted. It should be longer than the time a bucket takes to refill, so
+     * that only full buckets are evicted.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    private Map<String, Limit> limits = new LinkedHashMap<>();
+
+    @Data
+    public static class Limit {
+        private int capacity;
+        private double refillPerSecond;
+    }
+}
@@ -0,0 +1,104 @@
+package com.gladhus.volcanocampingapi.v1.service.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Limits the requests of each client on each endpoint with a {@link TokenBucket}, so that a few clients sending
+ * bookings in a loop cannot take all the places in the queue for the locks of popular nights. Writes and reads have
+ * separate budgets.
+ * <p>
+ * The buckets are kept in a bounded cache of this instance, which evicts the idle ones. The limits can be changed
+ * while running through the {@link RateLimitsEndpoint}.
+ */
+@Component
+public class RateLimiter {
+
+    public static final String ENDPOINT_CREATE = "create";
+
+    public static final String ENDPOINT_BATCH_CREATE = "batch-create";
+
+    public static final String ENDPOINT_UPDATE = "update";
+
+    public static final String ENDPOINT_CANCEL = "cancel";
+
+    public static final String ENDPOINT_READ = "read";
+
+    static final String REJECTED_METRIC = "rate.limit.rejected";
+
+    private final boolean enabled;
+
+    private final Map<String, RateLimit> limits = new ConcurrentHashMap<>();
+
+    private final Cache<BucketKey, TokenBucket> buckets;
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.meterRegistry = meterRegistry;
+        properties.getLimits().forEach((endpoint, limit) ->
+                limits.put(endpoint, new RateLimit(limit.getCapacity(), limit.getRefillPerSecond())));
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumBuckets())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rate-limit-buckets");
+    }
+
+    /**
+     * Takes a token from the bucket of the client on the endpoint. Endpoints without a limit are not limited.
+     * @return zero if the request may go through, otherwise the nanoseconds until the client may try again.
+     */
+    public long tryAcquire(String endpoint, String client) {
+        return tryAcquire(endpoint, client, System.nanoTime());
+    }
+
+    long tryAcquire(String endpoint, String client, long now) {
+        RateLimit limit = limits.get(endpoint);
+        if (!enabled || limit == null) {
+            return 0;
+        }
+
+        long wait = buckets.get(new BucketKey(endpoint, client), key -> new TokenBucket(now)).tryTake(limit, now);
+        if (wait > 0) {
+            Counter.builder(REJECTED_METRIC)
+                    .description("Requests rejected because the client used up its budget on the endpoint.")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry)
+                    .increment();
+        }
+        return wait;
+    }
+
+    /**
+     * Returns the current limits, by endpoint.
+     */
+    public Map<String, RateLimit> getLimits() {
+        return Collections.unmodifiableMap(new TreeMap<>(limits));
+    }
+
+    /**
+     * Changes the limit of an endpoint. It applies right away to every client, with the tokens they have left.
+     * @throws IllegalArgumentException if the endpoint has no limit configured.
+     */
+    public void setLimit(String endpoint, RateLimit limit) {
+        Assert.isTrue(limits.containsKey(endpoint), "No rate limit is configured for endpoint " + endpoint + ".");
+        limits.put(endpoint, limit);
+    }
+
+    private record BucketKey(String endpoint, String client) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.gladhus.volcanocampingapi.v1.service.ratelimit;
+
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admin endpoint listing the rate limits at {@code /actuator/ratelimits}, and changing the limit of an endpoint
+ * with a POST of its new {@code capacity} and {@code refillPerSecond} to {@code /actuator/ratelimits/{endpoint}}.
+ * Changes are not persisted, and only apply to this instance.
+ */
+@Component
+@Endpoint(id = "ratelimits")
+public class RateLimitsEndpoint {
+
+    private final RateLimiter rateLimiter;
+
+    @Autowired
+    public RateLimitsEndpoint(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @ReadOperation
+    public Map<String, RateLimit> limits() {
+        return rateLimiter.getLimits();
+    }
+
+    @WriteOperation
+    public RateLimit setLimit(@Selector String endpoint, int capacity, double refillPerSecond) {
+        RateLimit limit = new RateLimit(capacity, refillPerSecond);
+        rateLimiter.setLimit(endpoint, limit);
+        return limit;
+    }
+}
@@ -0,0 +1,41 @@
+package com.gladhus.volcanocampingapi.v1.service.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket of one client on one endpoint.
+ * <p>
+ * Rather than a number of tokens refilled over time, the bucket only stores the instant at which it will be full
+ * again. The tokens available at any instant follow from it, so taking one is a single compare-and-set, without any
+ * lock or refill task. The limit is passed on each call, so a change of the limit applies to the existing buckets.
+ */
+final class TokenBucket {
+
+    private final AtomicLong fullAt;
+
+    TokenBucket(long now) {
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token if one is available.
+     * @param now current {@link System#nanoTime()}.
+     * @return zero if a token was taken, otherwise the nanoseconds until one is available.
+     */
+    long tryTake(RateLimit limit, long now) {
+        long nanosPerToken = limit.nanosPerToken();
+        // At least one token is available once the bucket is at most capacity - 1 refills away from being full.
+        long oneTokenBefore = (limit.capacity() - 1) * nanosPerToken;
+        while (true) {
+            long current = fullAt.get();
+            long from = current - now > 0 ? current : now;
+            long wait = from - oneTokenBefore - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, from + nanosPerToken)) {
+                return 0;
+            }
+        }
+    }
+}
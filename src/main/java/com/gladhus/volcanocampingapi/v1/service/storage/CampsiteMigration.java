@@ -0,0 +1,68 @@
+package com.gladhus.volcanocampingapi.v1.service.storage;
+
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops the tables keyed by night only on MySQL, before Hibernate updates the schema, as it does not change primary
+ * keys. They are now keyed by campsite and night.
+ * <p>
+ * Both tables are derived from the active reservations and rebuilt by their reconciler, see
+ * {@link com.gladhus.volcanocampingapi.v1.service.booking.ReservationNightReconciler} and
+ * {@link com.gladhus.volcanocampingapi.v1.service.booking.DailyOccupancyReconciler}. The reservations themselves get a
+ * campsite_id column defaulting to the default campsite. All instances must be stopped while the migration runs. Other
+ * databases are left as they are.
+ */
+@Slf4j
+@Component
+public class CampsiteMigration implements InitializingBean {
+
+    static final List<String> NIGHT_TABLES = List.of("reservation_night", "daily_occupancy");
+
+    static final String CAMPSITE_ID = "campsite_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CampsiteMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equals(databaseProductName)) {
+            return;
+        }
+
+        NIGHT_TABLES.forEach(this::migrate);
+    }
+
+    void migrate(String table) {
+        List<String> columns = jdbcTemplate.queryForList("select column_name from information_schema.columns "
+                + "where table_schema = database() and table_name = ?", String.class, table);
+        if (!columns.isEmpty() && !columns.contains(CAMPSITE_ID)) {
+            jdbcTemplate.execute("drop table " + table);
+            log.info("Dropped {}, it is rebuilt by campsite from the active reservations.", table);
+        }
+    }
+
+    /**
+     * Runs the migration before the entity manager factory starts, as Hibernate would otherwise keep the former
+     * primary keys.
+     */
+    @Component
+    static class EntityManagerFactoryDependency extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependency() {
+            super(CampsiteMigration.class);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.gladhus.volcanocampingapi.v1.service.storage;
+
+import com.gladhus.volcanocampingapi.domain.ArchivedReservation;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.repository.ArchivedReservationRepository;
+import com.gladhus.volcanocampingapi.repository.ReservationNightRepository;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Moves the past and cancelled reservations to the archive table, so that the reservation table only holds the
+ * reservations that still matter for availability. Reservations are moved in small batches, each in its own
+ * transaction, so that bookings never wait long on the rows locked by the job.
+ */
+@Slf4j
+@Component
+public class ReservationArchiver {
+
+    private final ReservationRepository reservationRepository;
+
+    private final ReservationNightRepository reservationNightRepository;
+
+    private final ArchivedReservationRepository archivedReservationRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    @Autowired
+    public ReservationArchiver(ReservationRepository reservationRepository,
+                               ReservationNightRepository reservationNightRepository,
+                               ArchivedReservationRepository archivedReservationRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${volcano.archive.enabled:true}") boolean enabled,
+                               @Value("${volcano.archive.batch-size:500}") int batchSize) {
+        Assert.isTrue(batchSize > 0, "The archive batch size must be positive.");
+        this.reservationRepository = reservationRepository;
+        this.reservationNightRepository = reservationNightRepository;
+        this.archivedReservationRepository = archivedReservationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${volcano.archive.cron:0 0 * * * *}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+
+        int archived = 0;
+        try {
+            int moved;
+            do {
+                moved = transactionTemplate.execute(status -> archiveBatch());
+                archived += moved;
+            } while (moved == batchSize);
+        } catch (DataAccessException e) {
+            // The batches already moved are committed, the remaining ones are retried on the next run.
+            log.warn("Could not archive the reservations.", e);
+        }
+
+        if (archived > 0) {
+            log.info("Archived {} reservations.", archived);
+        }
+    }
+
+    /**
+     * Moves one batch of reservations to the archive, along with deleting the nights they still hold.
+     * @return the number of reservations moved.
+     */
+    int archiveBatch() {
+        List<Reservation> reservations = reservationRepository.findArchivableForUpdate(
+                LocalDate.now(), ReservationStatus.CANCELLED, PageRequest.of(0, batchSize));
+        if (reservations.isEmpty()) {
+            return 0;
+        }
+
+        Instant archivedAt = Instant.now();
+        archivedReservationRepository.saveAll(reservations.stream()
+                .map(reservation -> ArchivedReservation.of(reservation, archivedAt))
+                .toList());
+        reservationNightRepository.deleteByReservationIdIn(reservations.stream().map(Reservation::getId).toList());
+        reservationRepository.deleteAllInBatch(reservations);
+        return reservations.size();
+    }
+}
@@ -0,0 +1,116 @@
+package com.gladhus.volcanocampingapi.v1.service.storage;
+
+import com.gladhus.volcanocampingapi.domain.TimeOrderedUuidGenerator;
+import com.gladhus.volcanocampingapi.v1.service.ReservationIdCodec;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts the reservation ids stored as 32 hexadecimal characters into BINARY(16) on MySQL, before Hibernate
+ * validates or updates the schema.
+ * <p>
+ * Each former id becomes the storage id that {@link ReservationIdCodec} encodes back to it, so the ids already given
+ * to guests keep working. Reservation nights are derived from the active reservations: their table is dropped and
+ * rebuilt by the {@link com.gladhus.volcanocampingapi.v1.service.booking.ReservationNightReconciler}.
+ * <p>
+ * All instances must be stopped while the migration runs. Each step can be run again, so a migration that failed
+ * half-way resumes on the next start. Other databases are left as they are.
+ */
+@Slf4j
+@Component
+public class ReservationIdMigration implements InitializingBean {
+
+    static final String BINARY_ID = "binary_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReservationIdCodec reservationIdCodec;
+
+    @Autowired
+    public ReservationIdMigration(JdbcTemplate jdbcTemplate, ReservationIdCodec reservationIdCodec) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reservationIdCodec = reservationIdCodec;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equals(databaseProductName)) {
+            return;
+        }
+
+        migrate(ReservationPartitionManager.RESERVATION_TABLE);
+        migrate(ReservationPartitionManager.ARCHIVE_TABLE);
+        if ("varchar".equals(columnType("reservation_night", "reservation_id"))) {
+            jdbcTemplate.execute("drop table reservation_night");
+            log.info("Dropped reservation_night, it is rebuilt from the active reservations.");
+        }
+    }
+
+    void migrate(String table) {
+        boolean legacyId = "varchar".equals(columnType(table, "id"));
+        boolean binaryIdAdded = columnType(table, BINARY_ID) != null;
+        if (!legacyId && !binaryIdAdded) {
+            return;
+        }
+
+        if (legacyId) {
+            if (!binaryIdAdded) {
+                jdbcTemplate.execute("alter table " + table + " add column " + BINARY_ID + " binary(16)");
+            }
+            List<String> ids = jdbcTemplate.queryForList("select id from " + table + " where " + BINARY_ID + " is null", String.class);
+            jdbcTemplate.batchUpdate("update " + table + " set " + BINARY_ID + " = ? where id = ?",
+                    ids.stream().map(id -> new Object[] {toBytes(storageId(id)), id}).toList());
+            jdbcTemplate.execute("alter table " + table + " drop primary key, drop column id");
+            log.info("Converted {} ids of {} to binary.", ids.size(), table);
+        }
+
+        // A partitioned table needs its partitioning column in the primary key, see ReservationPartitionManager.
+        boolean partitioned = !jdbcTemplate.queryForList("select partition_name from information_schema.partitions "
+                + "where table_schema = database() and table_name = ? and partition_name is not null", String.class, table).isEmpty();
+        jdbcTemplate.execute("alter table " + table + " change column " + BINARY_ID + " id binary(16) not null, "
+                + "add primary key " + (partitioned ? "(id, checkin)" : "(id)"));
+    }
+
+    private String columnType(String table, String column) {
+        return jdbcTemplate.queryForList("select data_type from information_schema.columns "
+                        + "where table_schema = database() and table_name = ? and column_name = ?", String.class, table, column)
+                .stream().findFirst().orElse(null);
+    }
+
+    private UUID storageId(String legacyId) {
+        return reservationIdCodec.decode(legacyId).orElseGet(() -> {
+            UUID storageId = TimeOrderedUuidGenerator.next();
+            log.warn("Reservation id {} is not a public id, it is replaced by {}.", legacyId, reservationIdCodec.encode(storageId));
+            return storageId;
+        });
+    }
+
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * Runs the migration before the entity manager factory starts, as Hibernate would otherwise map the binary ids
+     * onto the former columns.
+     */
+    @Component
+    static class EntityManagerFactoryDependency extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependency() {
+            super(ReservationIdMigration.class);
+        }
+    }
+}
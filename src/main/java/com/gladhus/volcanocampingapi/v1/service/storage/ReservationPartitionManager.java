@@ -0,0 +1,137 @@
+package com.gladhus.volcanocampingapi.v1.service.storage;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Partitions the reservation and archive tables by checkin month on MySQL, so that the range queries on checkin only
+ * read and lock the months they cover.
+ * <p>
+ * MySQL requires the partitioning column in every unique key, so the primary key of both tables becomes (id, checkin).
+ * The first partition holds everything before the oldest month at the time the table is partitioned, the last one
+ * everything after the months created ahead. Each day, the months ahead are split out of the last partition, and
+ * the past months of the reservation table are dropped once the archiver emptied them. Other databases are left as
+ * they are.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "volcano.partitioning.enabled", havingValue = "true")
+public class ReservationPartitionManager implements SmartInitializingSingleton {
+
+    static final String RESERVATION_TABLE = "reservation";
+
+    static final String ARCHIVE_TABLE = "reservation_archive";
+
+    static final String OLDEST_PARTITION = "pold";
+
+    static final String FUTURE_PARTITION = "pfuture";
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int monthsAhead;
+
+    @Autowired
+    public ReservationPartitionManager(JdbcTemplate jdbcTemplate,
+                                       @Value("${volcano.partitioning.months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${volcano.partitioning.maintenance-cron:0 30 0 * * *}")
+    public void maintainPartitions() {
+        try {
+            String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (!"MySQL".equals(databaseProductName)) {
+                log.info("Reservation tables are not partitioned on {}.", databaseProductName);
+                return;
+            }
+
+            YearMonth currentMonth = YearMonth.now();
+            maintainPartitions(RESERVATION_TABLE, currentMonth, true);
+            maintainPartitions(ARCHIVE_TABLE, currentMonth, false);
+        } catch (DataAccessException e) {
+            // The tables keep working unpartitioned, or with the partitions they have, until the next run.
+            log.warn("Could not maintain the partitions of the reservation tables.", e);
+        }
+    }
+
+    void maintainPartitions(String table, YearMonth currentMonth, boolean dropEmptyPastMonths) {
+        List<String> partitions = jdbcTemplate.queryForList("select partition_name from information_schema.partitions "
+                + "where table_schema = database() and table_name = ? and partition_name is not null "
+                + "order by partition_ordinal_position", String.class, table);
+        YearMonth lastMonth = currentMonth.plusMonths(monthsAhead);
+
+        if (partitions.isEmpty()) {
+            LocalDate oldestCheckin = jdbcTemplate.queryForObject("select min(checkin) from " + table, LocalDate.class);
+            YearMonth firstMonth = oldestCheckin == null || YearMonth.from(oldestCheckin).isAfter(currentMonth)
+                    ? currentMonth : YearMonth.from(oldestCheckin);
+            jdbcTemplate.execute("alter table " + table + " drop primary key, add primary key (id, checkin)");
+            jdbcTemplate.execute("alter table " + table + " partition by range columns(checkin) ("
+                    + partitionDefinition(OLDEST_PARTITION, "'" + firstMonth.atDay(1) + "'") + ", "
+                    + monthPartitionDefinitions(firstMonth, lastMonth) + ")");
+            log.info("Partitioned {} by checkin month from {} to {}.", table, firstMonth, lastMonth);
+            return;
+        }
+
+        YearMonth lastPartitionedMonth = partitions.stream()
+                .filter(partition -> !partition.equals(OLDEST_PARTITION) && !partition.equals(FUTURE_PARTITION))
+                .map(partition -> YearMonth.parse(partition, PARTITION_NAME))
+                .max(YearMonth::compareTo)
+                .orElse(currentMonth.minusMonths(1));
+        if (lastPartitionedMonth.isBefore(lastMonth)) {
+            jdbcTemplate.execute("alter table " + table + " reorganize partition " + FUTURE_PARTITION + " into ("
+                    + monthPartitionDefinitions(lastPartitionedMonth.plusMonths(1), lastMonth) + ")");
+            log.info("Added the partitions of {} up to {}.", table, lastMonth);
+        }
+
+        if (dropEmptyPastMonths) {
+            // Bookings always check in after today, rows are never added to past months once they are empty.
+            for (String partition : partitions) {
+                if (!partition.equals(FUTURE_PARTITION) && (partition.equals(OLDEST_PARTITION)
+                        || YearMonth.parse(partition, PARTITION_NAME).isBefore(currentMonth))
+                        && jdbcTemplate.queryForList("select 1 from " + table + " partition (" + partition + ") limit 1").isEmpty()) {
+                    jdbcTemplate.execute("alter table " + table + " drop partition " + partition);
+                    log.info("Dropped the empty partition {} of {}.", partition, table);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the definitions of one partition per month from firstMonth to lastMonth, followed by the last partition
+     * holding all later dates.
+     */
+    static String monthPartitionDefinitions(YearMonth firstMonth, YearMonth lastMonth) {
+        List<String> definitions = new ArrayList<>();
+        for (YearMonth month = firstMonth; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+            definitions.add(partitionDefinition(month.format(PARTITION_NAME), "'" + month.plusMonths(1).atDay(1) + "'"));
+        }
+        definitions.add(partitionDefinition(FUTURE_PARTITION, "maxvalue"));
+        return String.join(", ", definitions);
+    }
+
+    private static String partitionDefinition(String name, String lessThan) {
+        return "partition " + name + " values less than (" + lessThan + ")";
+    }
+}
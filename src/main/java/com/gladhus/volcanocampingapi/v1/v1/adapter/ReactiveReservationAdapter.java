@@ -0,0 +1,234 @@
+package com.gladhus.volcanocampingapi.v1.v1.adapter;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.exception.BatchReservationException;
+import com.gladhus.volcanocampingapi.exception.CampsiteNotFoundException;
+import com.gladhus.volcanocampingapi.exception.ReservationNotFoundException;
+import com.gladhus.volcanocampingapi.v1.service.CampsiteService;
+import com.gladhus.volcanocampingapi.v1.service.ReactiveReservationService;
+import com.gladhus.volcanocampingapi.v1.service.ReservationIdCodec;
+import com.gladhus.volcanocampingapi.v1.v1.dto.AvailabilityRangeDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.CampsiteAvailabilityDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.CreateReservationDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
+import com.gladhus.volcanocampingapi.v1.v1.mapper.ReservationMapper;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+
+import static org.springframework.util.Assert.hasText;
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notEmpty;
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Reactive variant of the {@link ReservationAdapter}, adapting the DTOs and entities between the reactive controller
+ * and the {@link ReactiveReservationService}. The requests are checked by the same rules, and every operation is
+ * deferred until subscription, its failures included.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveReservationAdapter {
+
+    private static final String ID_REQUIRED_MESSAGE = "Reservation id is required.";
+
+    private final ReservationMapper reservationMapper;
+
+    private final ReactiveReservationService reservationService;
+
+    private final CampsiteService campsiteService;
+
+    private final ReservationIdCodec reservationIdCodec;
+
+    private final int batchMaxSize;
+
+    @Autowired
+    public ReactiveReservationAdapter(ReservationMapper reservationMapper, ReactiveReservationService reservationService,
+                                      CampsiteService campsiteService, ReservationIdCodec reservationIdCodec,
+                                      @Value("${volcano.batch.max-size:50}") int batchMaxSize) {
+        this.reservationMapper = reservationMapper;
+        this.reservationService = reservationService;
+        this.campsiteService = campsiteService;
+        this.reservationIdCodec = reservationIdCodec;
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    /**
+     * Creates a new reservation through the {@link ReactiveReservationService}.
+     * @param createReservationDto DTO containing the information for the reservation to be created.
+     * @return {@link ReservationDto} with all information for the newly created reservation.
+     */
+    public Mono<ReservationDto> createReservation(CreateReservationDto createReservationDto) {
+        return Mono.defer(() -> {
+            ReservationAdapter.validateCreation(createReservationDto);
+            return checkCampsite(createReservationDto.getCampsiteId())
+                    .then(Mono.defer(() -> reservationService.createReservation(reservationMapper.mapToEntity(createReservationDto))))
+                    .map(reservationMapper::mapToDto);
+        });
+    }
+
+    /**
+     * Creates all reservations of a batch, or none of them, through the {@link ReactiveReservationService}.
+     * @param createReservationDtos DTOs containing the information for each reservation to be created.
+     * @return {@link ReservationDto}s with all information for the newly created reservations, in the order provided,
+     * or a {@link BatchReservationException} with the error of each reservation rejected.
+     */
+    public Mono<List<ReservationDto>> createReservations(List<CreateReservationDto> createReservationDtos) {
+        return Mono.defer(() -> {
+            notEmpty(createReservationDtos, "At least one reservation is required.");
+            isTrue(createReservationDtos.size() <= batchMaxSize, "A batch cannot hold more than " + batchMaxSize + " reservations.");
+
+            Map<Integer, String> itemErrors = new TreeMap<>();
+            return Flux.range(0, createReservationDtos.size())
+                    .concatMap(i -> Mono.defer(() -> {
+                                ReservationAdapter.validateCreation(createReservationDtos.get(i));
+                                return checkCampsite(createReservationDtos.get(i).getCampsiteId());
+                            })
+                            .onErrorResume(e -> e instanceof IllegalArgumentException || e instanceof CampsiteNotFoundException, e -> {
+                                itemErrors.put(i, e.getMessage());
+                                return Mono.empty();
+                            }))
+                    .then(Mono.defer(() -> itemErrors.isEmpty()
+                            ? reservationService.createReservations(createReservationDtos.stream().map(reservationMapper::mapToEntity).toList())
+                            : Mono.error(new BatchReservationException(HttpStatus.BAD_REQUEST, itemErrors))))
+                    .map(reservations -> reservations.stream().map(reservationMapper::mapToDto).toList());
+        });
+    }
+
+    /**
+     * Updates a reservation through the {@link ReactiveReservationService}.
+     * @param id of the reservation to be updated.
+     * @param createReservationDto DTO containing the information to update on the reservation.
+     * @return {@link ReservationDto} with updated information of the reservation.
+     */
+    public Mono<ReservationDto> updateReservation(String id, CreateReservationDto createReservationDto) {
+        return Mono.defer(() -> {
+            hasText(id, ID_REQUIRED_MESSAGE);
+            return decodeId(id).flatMap(reservationId -> {
+                notNull(createReservationDto, "Reservation is required.");
+                return checkCampsite(createReservationDto.getCampsiteId())
+                        .then(Mono.defer(() -> reservationService.updateReservation(reservationMapper.mapToEntity(reservationId, createReservationDto))))
+                        .map(reservationMapper::mapToDto);
+            });
+        });
+    }
+
+    /**
+     * Gets a reservation through the {@link ReactiveReservationService}.
+     * @param id of the reservation to find.
+     * @return {@link ReservationDto} with all the information of the reservation.
+     */
+    public Mono<ReservationDto> getReservation(String id) {
+        return Mono.defer(() -> {
+            hasText(id, ID_REQUIRED_MESSAGE);
+            return decodeId(id).flatMap(reservationService::getReservation).map(reservationMapper::mapToDto);
+        });
+    }
+
+    /**
+     * Gets the version of a reservation through the {@link ReactiveReservationService}, without reading the rest of it.
+     * @param id of the reservation to find.
+     * @return the version of the reservation, or empty if it was not found or has no version.
+     */
+    public Mono<Long> getReservationVersion(String id) {
+        return Mono.defer(() -> {
+            hasText(id, ID_REQUIRED_MESSAGE);
+            return decodeId(id).flatMap(reservationService::getReservationVersion);
+        });
+    }
+
+    /**
+     * Cancels a reservation through the {@link ReactiveReservationService}.
+     * @param id of the reservation to cancel.
+     * @return {@link ReservationDto} with updated status of the reservation.
+     */
+    public Mono<ReservationDto> cancelReservation(String id) {
+        return Mono.defer(() -> {
+            hasText(id, ID_REQUIRED_MESSAGE);
+            return decodeId(id).flatMap(reservationService::cancelReservation).map(reservationMapper::mapToDto);
+        });
+    }
+
+    /**
+     * Gets all dates available for reservation on a campsite through the {@link ReactiveReservationService}, with the
+     * same defaults as {@link ReservationAdapter#getAvailabilities(Long, LocalDate, LocalDate)}.
+     * @param campsiteId campsite to check, the default one if not provided.
+     * @param fromDate start of the range
+     * @param toDate end of the range
+     * @return ordered {@link AvailableDates} representing all available dates.
+     */
+    public Mono<AvailableDates> getAvailabilities(Long campsiteId, LocalDate fromDate, LocalDate toDate) {
+        return Mono.defer(() -> {
+            Long campsite = ReservationAdapter.defaultCampsiteId(campsiteId);
+            LocalDate from = ReservationAdapter.defaultFromDate(fromDate);
+            LocalDate to = ReservationAdapter.defaultToDate(toDate);
+            return checkCampsite(campsite).then(Mono.defer(() -> reservationService.getAvailabilities(campsite, from, to)));
+        });
+    }
+
+    /**
+     * Gets all dates available for reservation on every campsite through the {@link ReactiveReservationService}, with
+     * the same defaults as {@link ReservationAdapter#getAvailabilitiesByCampsite(LocalDate, LocalDate)}.
+     * @param fromDate start of the range
+     * @param toDate end of the range
+     * @return the {@link AvailableDates} of each campsite, by ascending campsite id.
+     */
+    public Mono<Map<Campsite, AvailableDates>> getAvailabilitiesByCampsite(LocalDate fromDate, LocalDate toDate) {
+        return Mono.defer(() -> reservationService.getAvailabilitiesByCampsite(ReservationAdapter.defaultFromDate(fromDate),
+                ReservationAdapter.defaultToDate(toDate)));
+    }
+
+    /**
+     * Maps the dates available on each campsite using the {@link ReservationMapper}.
+     */
+    public List<CampsiteAvailabilityDto> getCampsiteAvailabilities(Map<Campsite, AvailableDates> availabilities, boolean ranges) {
+        return availabilities.entrySet().stream()
+                .map(entry -> reservationMapper.mapToDto(entry.getKey(), entry.getValue(), ranges))
+                .toList();
+    }
+
+    /**
+     * Maps available dates to the ranges of consecutive dates using the {@link ReservationMapper}.
+     */
+    public List<AvailabilityRangeDto> getAvailabilityRanges(AvailableDates availableDates) {
+        return availableDates.ranges().stream()
+                .map(reservationMapper::mapToDto)
+                .toList();
+    }
+
+    /**
+     * Known campsites are checked in memory. Unknown ones make the {@link CampsiteService} read the campsites again,
+     * which is done off the event loop.
+     */
+    private Mono<Void> checkCampsite(Long campsiteId) {
+        if (campsiteId == null || campsiteService.getCampsiteIds().contains(campsiteId)) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> {
+                    campsiteService.checkExists(campsiteId);
+                    return campsiteId;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    /**
+     * Ids that are not public reservation ids cannot match any reservation, they are rejected without a query.
+     */
+    private Mono<UUID> decodeId(String id) {
+        return Mono.justOrEmpty(reservationIdCodec.decode(id))
+                .switchIfEmpty(Mono.error(ReservationNotFoundException::new));
+    }
+}
@@ -1,18 +1,43 @@
 package com.gladhus.volcanocampingapi.v1.v1.adapter;
 
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.exception.BatchReservationException;
+import com.gladhus.volcanocampingapi.exception.CampsiteNotFoundException;
 import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.exception.ReservationNotFoundException;
+import com.gladhus.volcanocampingapi.v1.service.BookingLoadShedder;
+import com.gladhus.volcanocampingapi.v1.service.BookingRetry;
+import com.gladhus.volcanocampingapi.v1.service.BookingSequencer;
+import com.gladhus.volcanocampingapi.v1.service.CampsiteService;
+import com.gladhus.volcanocampingapi.v1.service.ConnectionBulkhead;
+import com.gladhus.volcanocampingapi.v1.service.ReadRouting;
+import com.gladhus.volcanocampingapi.v1.service.ReservationIdCodec;
 import com.gladhus.volcanocampingapi.v1.service.ReservationService;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import com.gladhus.volcanocampingapi.v1.service.idempotency.IdempotentRequests;
+import com.gladhus.volcanocampingapi.v1.v1.dto.AvailabilityRangeDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.CampsiteAvailabilityDto;
 import com.gladhus.volcanocampingapi.v1.v1.dto.CreateReservationDto;
 import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
 import com.gladhus.volcanocampingapi.v1.v1.mapper.ReservationMapper;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.TreeMap;
+import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 
 
 import static org.springframework.util.Assert.hasText;
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notEmpty;
 import static org.springframework.util.Assert.notNull;
 
 /**
@@ -28,55 +53,206 @@ public class ReservationAdapter {
 
     private final ReservationService reservationService;
 
+    private final CampsiteService campsiteService;
+
+    private final ConnectionBulkhead connectionBulkhead;
+
+    private final ReservationIdCodec reservationIdCodec;
+
+    private final BookingRetry bookingRetry;
+
+    private final BookingLoadShedder bookingLoadShedder;
+
+    private final IdempotentRequests idempotentRequests;
+
+    private final Optional<BookingSequencer> bookingSequencer;
+
+    private final int batchMaxSize;
+
     @Autowired
-    public ReservationAdapter(ReservationMapper reservationMapper, ReservationService reservationService) {
+    public ReservationAdapter(ReservationMapper reservationMapper, ReservationService reservationService,
+                              CampsiteService campsiteService, ConnectionBulkhead connectionBulkhead, ReservationIdCodec reservationIdCodec,
+                              BookingRetry bookingRetry, BookingLoadShedder bookingLoadShedder, IdempotentRequests idempotentRequests,
+                              Optional<BookingSequencer> bookingSequencer, @Value("${volcano.batch.max-size:50}") int batchMaxSize) {
         this.reservationMapper = reservationMapper;
         this.reservationService = reservationService;
+        this.campsiteService = campsiteService;
+        this.connectionBulkhead = connectionBulkhead;
+        this.reservationIdCodec = reservationIdCodec;
+        this.bookingRetry = bookingRetry;
+        this.bookingLoadShedder = bookingLoadShedder;
+        this.idempotentRequests = idempotentRequests;
+        this.bookingSequencer = bookingSequencer;
+        this.batchMaxSize = batchMaxSize;
     }
 
     /**
      * Creates a new reservation through the {@link ReservationService} using the {@link ReservationMapper}.
      * @param createReservationDto DTO containing the information for the reservation to be created.
+     * @param idempotencyKey key of the request, its retries with the same key get the same reservation. Optional.
      * @return {@link ReservationDto} with all information for the newly created reservation.
      * @throws GenericAPIException if any exception was raised during mapping or creation of the reservation.
      */
-    public ReservationDto createReservation(CreateReservationDto createReservationDto) throws GenericAPIException {
+    public ReservationDto createReservation(CreateReservationDto createReservationDto, String idempotencyKey) throws GenericAPIException {
+        validateCreation(createReservationDto);
+        checkCampsite(createReservationDto);
+
+        return idempotentRequests.call(idempotencyKey, BookingMetrics.OPERATION_CREATE, fingerprint(null, createReservationDto),
+                ReservationDto.class, () -> reservationMapper.mapToDto(create(createReservationDto)));
+    }
+
+    private Reservation create(CreateReservationDto createReservationDto) throws GenericAPIException {
+        if (bookingSequencer.isPresent()) {
+            return bookingSequencer.get().createReservation(reservationMapper.mapToEntity(createReservationDto));
+        }
+        // Each attempt maps a new entity, the one of a rolled back attempt may hold an id that was never saved.
+        return bookingLoadShedder.call(BookingMetrics.OPERATION_CREATE, () ->
+                bookingRetry.call(BookingMetrics.OPERATION_CREATE, () -> connectionBulkhead.call(() ->
+                        reservationService.createReservation(reservationMapper.mapToEntity(createReservationDto)))));
+    }
+
+    /**
+     * Creates all reservations of a batch, or none of them, through the {@link ReservationService} using the
+     * {@link ReservationMapper}.
+     * @param createReservationDtos DTOs containing the information for each reservation to be created.
+     * @return {@link ReservationDto}s with all information for the newly created reservations, in the order provided.
+     * @throws BatchReservationException with the error of each reservation rejected.
+     * @throws GenericAPIException if any other exception was raised during mapping or creation of the reservations.
+     */
+    public List<ReservationDto> createReservations(List<CreateReservationDto> createReservationDtos) throws GenericAPIException {
+        notEmpty(createReservationDtos, "At least one reservation is required.");
+        isTrue(createReservationDtos.size() <= batchMaxSize, "A batch cannot hold more than " + batchMaxSize + " reservations.");
+
+        Map<Integer, String> itemErrors = new TreeMap<>();
+        for (int i = 0; i < createReservationDtos.size(); i++) {
+            try {
+                validateCreation(createReservationDtos.get(i));
+                checkCampsite(createReservationDtos.get(i));
+            } catch (IllegalArgumentException | CampsiteNotFoundException e) {
+                itemErrors.put(i, e.getMessage());
+            }
+        }
+        if (!itemErrors.isEmpty()) {
+            throw new BatchReservationException(HttpStatus.BAD_REQUEST, itemErrors);
+        }
+
+        return createAll(createReservationDtos).stream()
+                .map(reservationMapper::mapToDto)
+                .toList();
+    }
+
+    private List<Reservation> createAll(List<CreateReservationDto> createReservationDtos) throws GenericAPIException {
+        if (bookingSequencer.isPresent()) {
+            return bookingSequencer.get().createReservations(createReservationDtos.stream().map(reservationMapper::mapToEntity).toList());
+        }
+        return bookingLoadShedder.call(BookingMetrics.OPERATION_BATCH_CREATE, () ->
+                bookingRetry.call(BookingMetrics.OPERATION_BATCH_CREATE, () -> connectionBulkhead.call(() ->
+                        reservationService.createReservations(
+                                createReservationDtos.stream().map(reservationMapper::mapToEntity).toList()))));
+    }
+
+    static void validateCreation(CreateReservationDto createReservationDto) {
+        notNull(createReservationDto, "Reservation is required.");
         hasText(createReservationDto.getEmail(), "Email is required.");
         hasText(createReservationDto.getFullName(), "Full name is required.");
         notNull(createReservationDto.getCheckin(), "Checkin date is required.");
         notNull(createReservationDto.getCheckout(), "Checkout date is required.");
+    }
+
+    /**
+     * Reservations without a campsite are made on the default one, see {@link ReservationMapper#mapToEntity(CreateReservationDto)}.
+     */
+    private void checkCampsite(CreateReservationDto createReservationDto) throws CampsiteNotFoundException {
+        if (createReservationDto.getCampsiteId() != null) {
+            campsiteService.checkExists(createReservationDto.getCampsiteId());
+        }
+    }
+
+    /**
+     * Ids that are not public reservation ids cannot match any reservation, they are rejected without a query.
+     */
+    private UUID decodeId(String id) throws ReservationNotFoundException {
+        return reservationIdCodec.decode(id).orElseThrow(ReservationNotFoundException::new);
+    }
 
-        return reservationMapper.mapToDto(
-                reservationService.createReservation(
-                        reservationMapper.mapToEntity(createReservationDto)));
+    private static String fingerprint(UUID reservationId, CreateReservationDto createReservationDto) {
+        // The campsite is left out when not provided, so that the keys stored before campsites keep their fingerprint.
+        if (createReservationDto.getCampsiteId() == null) {
+            return IdempotentRequests.fingerprint(reservationId, createReservationDto.getEmail(), createReservationDto.getFullName(),
+                    createReservationDto.getCheckin(), createReservationDto.getCheckout());
+        }
+        return IdempotentRequests.fingerprint(reservationId, createReservationDto.getEmail(), createReservationDto.getFullName(),
+                createReservationDto.getCheckin(), createReservationDto.getCheckout(), createReservationDto.getCampsiteId());
     }
 
     /**
      * Updates a reservation through the {@link ReservationService} using the {@link ReservationMapper}.
      * @param id if of the reservation to be updated.
      * @param createReservationDto DTO containing the information for the reservation to be created.
+     * @param idempotencyKey key of the request, its retries with the same key get the same response. Optional.
      * @return {@link ReservationDto} with updated information of the reservation.
      * @throws GenericAPIException if any exception was raised during mapping or update of the reservation.
      */
-    public ReservationDto updateReservation(String id, CreateReservationDto createReservationDto) throws GenericAPIException {
+    public ReservationDto updateReservation(String id, CreateReservationDto createReservationDto, String idempotencyKey) throws GenericAPIException {
         hasText(id, ID_REQUIRED_MESSAGE);
+        UUID reservationId = decodeId(id);
+        notNull(createReservationDto, "Reservation is required.");
+        checkCampsite(createReservationDto);
 
-        return reservationMapper.mapToDto(
-                reservationService.updateReservation(
-                        reservationMapper.mapToEntity(id, createReservationDto)));
+        return idempotentRequests.call(idempotencyKey, BookingMetrics.OPERATION_UPDATE, fingerprint(reservationId, createReservationDto),
+                ReservationDto.class, () -> reservationMapper.mapToDto(update(reservationId, createReservationDto)));
+    }
+
+    private Reservation update(UUID reservationId, CreateReservationDto createReservationDto) throws GenericAPIException {
+        if (bookingSequencer.isPresent()) {
+            return bookingSequencer.get().updateReservation(reservationMapper.mapToEntity(reservationId, createReservationDto));
+        }
+        return bookingLoadShedder.call(BookingMetrics.OPERATION_UPDATE, () ->
+                bookingRetry.call(BookingMetrics.OPERATION_UPDATE, () -> connectionBulkhead.call(() ->
+                        reservationService.updateReservation(reservationMapper.mapToEntity(reservationId, createReservationDto)))));
     }
 
     /**
      * Gets a reservation through the {@link ReservationService} using the {@link ReservationMapper}.
      * @param id of the reservation to find.
+     * @param fresh true to read the reservation from the primary database, even when a read replica is configured.
      * @return {@link ReservationDto} with all the information of the reservation.
      * @throws GenericAPIException if any exception was raised getting or mapping the reservation.
      */
-    public ReservationDto getReservation(String id) throws GenericAPIException {
+    public ReservationDto getReservation(String id, boolean fresh) throws GenericAPIException {
+        hasText(id, ID_REQUIRED_MESSAGE);
+        UUID reservationId = decodeId(id);
+
+        if (fresh) {
+            try (ReadRouting.Scope ignored = ReadRouting.primary()) {
+                return findReservation(reservationId);
+            }
+        }
+        return findReservation(reservationId);
+    }
+
+    private ReservationDto findReservation(UUID reservationId) throws GenericAPIException {
+        return reservationMapper.mapToDto(connectionBulkhead.call(() ->
+                reservationService.getReservation(reservationId)));
+    }
+
+    /**
+     * Gets the version of a reservation through the {@link ReservationService}, without reading the rest of it.
+     * @param id of the reservation to find.
+     * @param fresh true to read the version from the primary database, even when a read replica is configured.
+     * @return the version of the reservation, or an empty optional if it was not found or has no version.
+     * @throws GenericAPIException if any exception was raised getting the version.
+     */
+    public Optional<Long> getReservationVersion(String id, boolean fresh) throws GenericAPIException {
         hasText(id, ID_REQUIRED_MESSAGE);
+        UUID reservationId = decodeId(id);
 
-        return reservationMapper.mapToDto(
-                reservationService.getReservation(id));
+        if (fresh) {
+            try (ReadRouting.Scope ignored = ReadRouting.primary()) {
+                return connectionBulkhead.call(() -> reservationService.getReservationVersion(reservationId));
+            }
+        }
+        return connectionBulkhead.call(() -> reservationService.getReservationVersion(reservationId));
     }
 
     /**
@@ -87,28 +263,119 @@ public class ReservationAdapter {
      */
     public ReservationDto cancelReservation(String id) throws GenericAPIException {
         hasText(id, ID_REQUIRED_MESSAGE);
+        UUID reservationId = decodeId(id);
 
-        return reservationMapper.mapToDto(
-                reservationService.cancelReservation(id));
+        if (bookingSequencer.isPresent()) {
+            return reservationMapper.mapToDto(bookingSequencer.get().cancelReservation(reservationId));
+        }
+        return reservationMapper.mapToDto(bookingLoadShedder.call(BookingMetrics.OPERATION_CANCEL, () -> connectionBulkhead.call(() ->
+                reservationService.cancelReservation(reservationId))));
     }
 
     /**
-     * Gets all dates available for reservation through the {@link ReservationService} using the {@link ReservationMapper}.
+     * Gets all dates available for reservation on a campsite through the {@link ReservationService}.
      * If no dates are provided, will use today and today + 1 month by default.
+     * @param campsiteId campsite to check, the default one if not provided.
      * @param fromDate start of the range
      * @param toDate end of the range
-     * @return {@link TreeSet} of {@link LocalDate} representing all available dates.
-     * @throws GenericAPIException if any exception was raised getting the availabile dates.
+     * @return ordered {@link AvailableDates} representing all available dates.
+     * @throws GenericAPIException if any exception was raised getting the available dates.
      */
-    public Set<LocalDate> getAvailabilities(LocalDate fromDate, LocalDate toDate) throws GenericAPIException {
-        if (fromDate == null || fromDate.isBefore(LocalDate.now())) {
-            fromDate = LocalDate.now();
-        }
+    public AvailableDates getAvailabilities(Long campsiteId, LocalDate fromDate, LocalDate toDate) throws GenericAPIException {
+        Long campsite = defaultCampsiteId(campsiteId);
+        campsiteService.checkExists(campsite);
+        LocalDate from = defaultFromDate(fromDate);
+        LocalDate to = defaultToDate(toDate);
+        return connectionBulkhead.call(() -> reservationService.getAvailabilities(campsite, from, to));
+    }
 
-        if (toDate == null || toDate.isAfter(LocalDate.now().plusMonths(1))) {
-            toDate = LocalDate.now().plusMonths(1);
-        }
+    /**
+     * Gets the current version of the dates available for reservation on a campsite through the
+     * {@link ReservationService}, without computing them. If no dates are provided, will use today and today + 1 month
+     * by default.
+     * @param campsiteId campsite to check, the default one if not provided.
+     * @param fromDate start of the range
+     * @param toDate end of the range
+     * @return the version the {@link AvailableDates} of the range would have, or an empty optional if it is unknown.
+     * @throws GenericAPIException if the campsite does not exist or the dates are invalid.
+     */
+    public Optional<String> getAvailabilitiesVersion(Long campsiteId, LocalDate fromDate, LocalDate toDate) throws GenericAPIException {
+        Long campsite = defaultCampsiteId(campsiteId);
+        campsiteService.checkExists(campsite);
+        return reservationService.getAvailabilitiesVersion(campsite, defaultFromDate(fromDate), defaultToDate(toDate));
+    }
+
+    /**
+     * Gets all dates available for reservation on every campsite through the {@link ReservationService}.
+     * If no dates are provided, will use today and today + 1 month by default.
+     * @param fromDate start of the range
+     * @param toDate end of the range
+     * @return the {@link AvailableDates} of each campsite, by ascending campsite id.
+     * @throws GenericAPIException if any exception was raised getting the available dates.
+     */
+    public Map<Campsite, AvailableDates> getAvailabilitiesByCampsite(LocalDate fromDate, LocalDate toDate) throws GenericAPIException {
+        LocalDate from = defaultFromDate(fromDate);
+        LocalDate to = defaultToDate(toDate);
+        return connectionBulkhead.call(() -> reservationService.getAvailabilitiesByCampsite(from, to));
+    }
+
+    /**
+     * Gets the current version of the dates available for reservation on every campsite through the
+     * {@link ReservationService}, without computing them. If no dates are provided, will use today and today + 1 month
+     * by default.
+     * @param fromDate start of the range
+     * @param toDate end of the range
+     * @return the version the {@link AvailableDates} of the campsites would have, or an empty optional if it is unknown.
+     * @throws GenericAPIException if the dates are invalid.
+     */
+    public Optional<String> getAvailabilitiesByCampsiteVersion(LocalDate fromDate, LocalDate toDate) throws GenericAPIException {
+        return reservationService.getAvailabilitiesByCampsiteVersion(defaultFromDate(fromDate), defaultToDate(toDate));
+    }
+
+    /**
+     * Returns the version of the dates available on several campsites, combined as by
+     * {@link ReservationService#combineVersions(Map)}.
+     * @param availabilities the {@link AvailableDates} of each campsite.
+     * @return the combined version, or an empty optional if the version of any campsite is unknown.
+     */
+    public Optional<String> getVersion(Map<Campsite, AvailableDates> availabilities) {
+        Map<Long, Optional<String>> versions = new TreeMap<>();
+        availabilities.forEach((campsite, availableDates) -> versions.put(campsite.getId(), availableDates.getVersion()));
+        return ReservationService.combineVersions(versions);
+    }
+
+    /**
+     * Maps the dates available on each campsite using the {@link ReservationMapper}.
+     * @param availabilities the {@link AvailableDates} of each campsite.
+     * @param ranges true to list the ranges of consecutive available dates, false to list each available date.
+     * @return {@link CampsiteAvailabilityDto} of each campsite, in the order provided.
+     */
+    public List<CampsiteAvailabilityDto> getCampsiteAvailabilities(Map<Campsite, AvailableDates> availabilities, boolean ranges) {
+        return availabilities.entrySet().stream()
+                .map(entry -> reservationMapper.mapToDto(entry.getKey(), entry.getValue(), ranges))
+                .toList();
+    }
+
+    /**
+     * Maps available dates to the ranges of consecutive dates using the {@link ReservationMapper}.
+     * @param availableDates dates available for reservation.
+     * @return ordered {@link List} of {@link AvailabilityRangeDto} representing all available dates.
+     */
+    public List<AvailabilityRangeDto> getAvailabilityRanges(AvailableDates availableDates) {
+        return availableDates.ranges().stream()
+                .map(reservationMapper::mapToDto)
+                .toList();
+    }
+
+    static Long defaultCampsiteId(Long campsiteId) {
+        return campsiteId == null ? Campsite.DEFAULT_ID : campsiteId;
+    }
+
+    static LocalDate defaultFromDate(LocalDate fromDate) {
+        return fromDate == null || fromDate.isBefore(LocalDate.now()) ? LocalDate.now() : fromDate;
+    }
 
-        return reservationService.getAvailabilities(fromDate, toDate);
+    static LocalDate defaultToDate(LocalDate toDate) {
+        return toDate == null || toDate.isAfter(LocalDate.now().plusMonths(1)) ? LocalDate.now().plusMonths(1) : toDate;
     }
-}
\ No newline at end of file
+}
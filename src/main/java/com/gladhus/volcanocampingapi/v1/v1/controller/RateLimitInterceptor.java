@@ -0,0 +1,56 @@
+package com.gladhus.volcanocampingapi.v1.v1.controller;
+
+import com.gladhus.volcanocampingapi.exception.TooManyRequestsException;
+import com.gladhus.volcanocampingapi.v1.service.ratelimit.RateLimiter;
+import java.time.Duration;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Rejects the requests to {@link RateLimited} handler methods with a 429 once the client used up its budget, before
+ * any work is done for them. Clients are identified by the client header when it holds one of the configured client
+ * keys, or by their address otherwise. Behind a proxy, {@code server.forward-headers-strategy} must be set for the address to be the one of the client.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+
+    private final String clientHeader;
+
+    private final Set<String> clientKeys;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter, String clientHeader, Set<String> clientKeys) {
+        this.rateLimiter = rateLimiter;
+        this.clientHeader = clientHeader;
+        this.clientKeys = clientKeys;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws TooManyRequestsException {
+        if (!(handler instanceof HandlerMethod handlerMethod) || !handlerMethod.hasMethodAnnotation(RateLimited.class)) {
+            return true;
+        }
+
+        String endpoint = handlerMethod.getMethodAnnotation(RateLimited.class).value();
+        long wait = rateLimiter.tryAcquire(endpoint, clientOf(request.getHeader(clientHeader), request.getRemoteAddr(), clientKeys));
+        if (wait > 0) {
+            throw new TooManyRequestsException(Duration.ofNanos(wait));
+        }
+        return true;
+    }
+
+    /**
+     * Returns the key of the client in the {@link RateLimiter}, from the value of its client header and its address.
+     * Nothing else checks the header, so values that are not configured client keys are ignored: a client sending a
+     * new value with each request would otherwise get a full bucket each time, and evict the buckets of other clients.
+     */
+    static String clientOf(String clientHeaderValue, String address, Set<String> clientKeys) {
+        if (clientHeaderValue != null && clientKeys.contains(clientHeaderValue)) {
+            return "key:" + clientHeaderValue;
+        }
+        return "address:" + address;
+    }
+}
@@ -0,0 +1,20 @@
+package com.gladhus.volcanocampingapi.v1.v1.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Counts the requests of a handler method against the budget of the client on an endpoint of the
+ * {@link com.gladhus.volcanocampingapi.v1.service.ratelimit.RateLimiter}, see {@link RateLimitInterceptor}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+
+    /**
+     * Endpoint whose budget the requests use.
+     */
+    String value();
+}
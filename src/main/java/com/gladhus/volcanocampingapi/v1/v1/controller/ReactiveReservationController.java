@@ -0,0 +1,171 @@
+package com.gladhus.volcanocampingapi.v1.v1.controller;
+
+import com.gladhus.volcanocampingapi.exception.TooManyRequestsException;
+import com.gladhus.volcanocampingapi.v1.service.idempotency.IdempotentRequests;
+import com.gladhus.volcanocampingapi.v1.service.ratelimit.RateLimitProperties;
+import com.gladhus.volcanocampingapi.v1.service.ratelimit.RateLimiter;
+import com.gladhus.volcanocampingapi.v1.v1.adapter.ReactiveReservationAdapter;
+import com.gladhus.volcanocampingapi.v1.v1.dto.CampsiteAvailabilityDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.CreateReservationDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Same endpoints as the {@link ReservationController}, served on the Netty event loops and reading and writing the
+ * reservations through R2DBC. Started instead of it with the reactive profile.
+ * <p>
+ * Idempotency keys are not supported, requests sending one are rejected rather than run without the guarantee. The
+ * availabilities are always read from the database, without ETags.
+ */
+@RestController
+@Profile(ReactiveReservationController.PROFILE)
+@RequestMapping("/api/v1.1/reservation")
+public class ReactiveReservationController {
+
+    static final String PROFILE = "reactive";
+
+    private final ReactiveReservationAdapter reservationAdapter;
+
+    private final RateLimiter rateLimiter;
+
+    private final String clientHeader;
+
+    private final Set<String> clientKeys;
+
+    @Autowired
+    public ReactiveReservationController(ReactiveReservationAdapter reservationAdapter, RateLimiter rateLimiter,
+                                         RateLimitProperties rateLimitProperties) {
+        this.reservationAdapter = reservationAdapter;
+        this.rateLimiter = rateLimiter;
+        this.clientHeader = rateLimitProperties.getClientHeader();
+        this.clientKeys = rateLimitProperties.getClientKeys();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<ReservationDto>> getReservationById(@PathVariable String id, ServerHttpRequest request) {
+        List<String> ifNoneMatch = request.getHeaders().get(HttpHeaders.IF_NONE_MATCH);
+        // Only clients that already have a version are worth the extra query.
+        Mono<ResponseEntity<ReservationDto>> notModified = ifNoneMatch == null
+                ? Mono.empty()
+                : reservationAdapter.getReservationVersion(id)
+                        .map(String::valueOf)
+                        .filter(version -> ReservationController.isNotModified(ifNoneMatch.toArray(String[]::new), version))
+                        .map(version -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(version).<ReservationDto>build());
+
+        return checkRateLimit(RateLimiter.ENDPOINT_READ, request)
+                .then(notModified)
+                .switchIfEmpty(Mono.defer(() -> reservationAdapter.getReservation(id)
+                        .map(reservationDto -> {
+                            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                            if (reservationDto.getVersion() != null) {
+                                response.eTag(String.valueOf(reservationDto.getVersion()));
+                            }
+                            return response.body(reservationDto);
+                        })));
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<ReservationDto>> createReservation(@RequestBody CreateReservationDto createReservationDto,
+                                                                  ServerHttpRequest request) {
+        return checkRateLimit(RateLimiter.ENDPOINT_CREATE, request)
+                .then(rejectIdempotencyKey(request))
+                .then(Mono.defer(() -> reservationAdapter.createReservation(createReservationDto)))
+                .map(reservationDto -> new ResponseEntity<>(reservationDto, HttpStatus.CREATED));
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<List<ReservationDto>>> createReservations(@RequestBody List<CreateReservationDto> createReservationDtos,
+                                                                         ServerHttpRequest request) {
+        return checkRateLimit(RateLimiter.ENDPOINT_BATCH_CREATE, request)
+                .then(Mono.defer(() -> reservationAdapter.createReservations(createReservationDtos)))
+                .map(reservationDtos -> new ResponseEntity<>(reservationDtos, HttpStatus.CREATED));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<ReservationDto>> updateReservation(@PathVariable String id, @RequestBody CreateReservationDto createReservationDto,
+                                                                  ServerHttpRequest request) {
+        return checkRateLimit(RateLimiter.ENDPOINT_UPDATE, request)
+                .then(rejectIdempotencyKey(request))
+                .then(Mono.defer(() -> reservationAdapter.updateReservation(id, createReservationDto)))
+                .map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<ReservationDto>> cancelReservation(@PathVariable String id, ServerHttpRequest request) {
+        return checkRateLimit(RateLimiter.ENDPOINT_CANCEL, request)
+                .then(Mono.defer(() -> reservationAdapter.cancelReservation(id)))
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/availabilities")
+    public Mono<ResponseEntity<List<?>>> getAvailabilities(@RequestParam(required = false) Long campsiteId,
+                                                           @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
+                                                           @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate,
+                                                           @RequestParam(defaultValue = ReservationController.FORMAT_DATES) String format,
+                                                           ServerHttpRequest request) {
+        return checkRateLimit(RateLimiter.ENDPOINT_READ, request)
+                .then(Mono.fromRunnable(() -> ReservationController.validateFormat(format)))
+                .then(Mono.defer(() -> reservationAdapter.getAvailabilities(campsiteId, fromDate, toDate)))
+                .map(availableDates -> {
+                    List<?> body = ReservationController.FORMAT_DATES.equals(format)
+                            ? new ArrayList<>(availableDates)
+                            : reservationAdapter.getAvailabilityRanges(availableDates);
+                    return ResponseEntity.<List<?>>ok(body);
+                });
+    }
+
+    @GetMapping("/availabilities/campsites")
+    public Mono<ResponseEntity<List<CampsiteAvailabilityDto>>> getCampsiteAvailabilities(@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
+                                                                                         @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate,
+                                                                                         @RequestParam(defaultValue = ReservationController.FORMAT_DATES) String format,
+                                                                                         ServerHttpRequest request) {
+        return checkRateLimit(RateLimiter.ENDPOINT_READ, request)
+                .then(Mono.fromRunnable(() -> ReservationController.validateFormat(format)))
+                .then(Mono.defer(() -> reservationAdapter.getAvailabilitiesByCampsite(fromDate, toDate)))
+                .map(availabilities -> ResponseEntity.ok(reservationAdapter.getCampsiteAvailabilities(availabilities,
+                        ReservationController.FORMAT_RANGES.equals(format))));
+    }
+
+    /**
+     * Same budgets and client keys as the {@link RateLimitInterceptor}, which only applies to the servlet variant.
+     */
+    private Mono<Void> checkRateLimit(String endpoint, ServerHttpRequest request) {
+        return Mono.defer(() -> {
+            InetSocketAddress remoteAddress = request.getRemoteAddress();
+            String address = remoteAddress == null || remoteAddress.getAddress() == null
+                    ? null
+                    : remoteAddress.getAddress().getHostAddress();
+            long wait = rateLimiter.tryAcquire(endpoint,
+                    RateLimitInterceptor.clientOf(request.getHeaders().getFirst(clientHeader), address, clientKeys));
+            return wait > 0 ? Mono.error(new TooManyRequestsException(Duration.ofNanos(wait))) : Mono.empty();
+        });
+    }
+
+    private static Mono<Void> rejectIdempotencyKey(ServerHttpRequest request) {
+        return request.getHeaders().containsKey(IdempotentRequests.HEADER)
+                ? Mono.error(new IllegalArgumentException("The " + IdempotentRequests.HEADER + " header is not supported by this server."))
+                : Mono.empty();
+    }
+}
@@ -1,10 +1,17 @@
 package com.gladhus.volcanocampingapi.v1.v1.controller;
 
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
 import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.v1.service.idempotency.IdempotentRequests;
+import com.gladhus.volcanocampingapi.v1.service.ratelimit.RateLimiter;
 import com.gladhus.volcanocampingapi.v1.v1.adapter.ReservationAdapter;
+import com.gladhus.volcanocampingapi.v1.v1.dto.AvailabilityRangeDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.CampsiteAvailabilityDto;
 import com.gladhus.volcanocampingapi.v1.v1.dto.CreateReservationDto;
 import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,9 +20,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -24,15 +36,27 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
+@Profile("!" + ReactiveReservationController.PROFILE)
 @RequestMapping("/api/v1.1/reservation")
 @Tag(name = "Reservation", description = "All operations related to reservations.")
 public class ReservationController {
 
+    static final String FORMAT_DATES = "dates";
+
+    static final String FORMAT_RANGES = "ranges";
+
+    private static final String NO_CACHE = "no-cache";
+
+    private static final String IDEMPOTENCY_KEY_DESCRIPTION = "Unique key of the request, up to 255 characters. "
+            + "Retries sent with the same key get the response of the first request instead of running it again.";
+
     private final ReservationAdapter reservationAdapter;
 
     @Autowired
@@ -41,44 +65,94 @@ public class ReservationController {
     }
 
     @GetMapping("/{id}")
+    @RateLimited(RateLimiter.ENDPOINT_READ)
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "OK", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservationDto.class))),
+            @ApiResponse(responseCode = "304", description = "The reservation did not change since the version sent in If-None-Match.", content = @Content),
             @ApiResponse(responseCode = "400", description = "Error(s) related to validating the information provided.", content = @Content),
-            @ApiResponse(responseCode = "404", description = "Reservation could not be found.", content = @Content)
+            @ApiResponse(responseCode = "404", description = "Reservation could not be found.", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many requests from the client, retry after the delay in Retry-After.", content = @Content)
     })
     @Operation(summary = "Returns the details of a reservation for the id.")
-    public ResponseEntity<ReservationDto> getReservationById(@PathVariable String id) throws GenericAPIException {
-        return new ResponseEntity<>(reservationAdapter.getReservation(id), HttpStatus.OK);
+    public ResponseEntity<ReservationDto> getReservationById(@PathVariable String id,
+                                                             @Parameter(description = "no-cache to read the latest state of the reservation, "
+                                                                     + "e.g. right after changing it, instead of a copy that may lag by a few seconds.")
+                                                             @RequestHeader(name = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl,
+                                                             @Parameter(hidden = true) WebRequest webRequest) throws GenericAPIException {
+        boolean fresh = isNoCache(cacheControl);
+        // Only clients that already have a version are worth the extra query.
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = reservationAdapter.getReservationVersion(id, fresh);
+            if (version.isPresent() && isNotModified(webRequest, String.valueOf(version.get()))) {
+                return notModified(String.valueOf(version.get()));
+            }
+        }
+
+        ReservationDto reservationDto = reservationAdapter.getReservation(id, fresh);
+        return withETag(reservationDto.getVersion() == null ? null : String.valueOf(reservationDto.getVersion()))
+                .body(reservationDto);
     }
 
     @PostMapping
+    @RateLimited(RateLimiter.ENDPOINT_CREATE)
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Created", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservationDto.class))),
             @ApiResponse(responseCode = "400", description = "Error(s) related to validating the information provided.", content = @Content),
-            @ApiResponse(responseCode = "403", description = "Reservation could not be done for provided dates.", content = @Content)
+            @ApiResponse(responseCode = "403", description = "Reservation could not be done for provided dates.", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Campsite could not be found.", content = @Content),
+            @ApiResponse(responseCode = "409", description = "A request with the same idempotency key is in progress.", content = @Content),
+            @ApiResponse(responseCode = "422", description = "The idempotency key was used for a different request.", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many requests from the client, or bookings in progress, retry after the delay in Retry-After.", content = @Content),
+            @ApiResponse(responseCode = "503", description = "The nights could not be locked in time, retry after the delay in Retry-After.", content = @Content)
     })
     @Operation(summary = "Creates a new reservation with the information provided.")
-    public ResponseEntity<ReservationDto> createReservation(@RequestBody CreateReservationDto createReservationDto) throws GenericAPIException {
-        return new ResponseEntity<>(reservationAdapter.createReservation(createReservationDto), HttpStatus.CREATED);
+    public ResponseEntity<ReservationDto> createReservation(@RequestBody CreateReservationDto createReservationDto,
+                                                            @Parameter(description = IDEMPOTENCY_KEY_DESCRIPTION)
+                                                            @RequestHeader(name = IdempotentRequests.HEADER, required = false) String idempotencyKey) throws GenericAPIException {
+        return new ResponseEntity<>(reservationAdapter.createReservation(createReservationDto, idempotencyKey), HttpStatus.CREATED);
+    }
+
+    @PostMapping("/batch")
+    @RateLimited(RateLimiter.ENDPOINT_BATCH_CREATE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Created", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ReservationDto.class)))),
+            @ApiResponse(responseCode = "400", description = "Error(s) related to validating the information provided, per reservation.", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Reservations could not be done for provided dates, per reservation.", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many requests from the client, or bookings in progress, retry after the delay in Retry-After.", content = @Content),
+            @ApiResponse(responseCode = "503", description = "The nights could not be locked in time, retry after the delay in Retry-After.", content = @Content)
+    })
+    @Operation(summary = "Creates all reservations provided, or none of them if any is rejected.")
+    public ResponseEntity<List<ReservationDto>> createReservations(@RequestBody List<CreateReservationDto> createReservationDtos) throws GenericAPIException {
+        return new ResponseEntity<>(reservationAdapter.createReservations(createReservationDtos), HttpStatus.CREATED);
     }
 
     @PutMapping("/{id}")
+    @RateLimited(RateLimiter.ENDPOINT_UPDATE)
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "OK", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservationDto.class))),
             @ApiResponse(responseCode = "400", description = "Error(s) related to validating the information provided.", content = @Content),
             @ApiResponse(responseCode = "403", description = "Reservation could not be done for provided dates.", content = @Content),
-            @ApiResponse(responseCode = "404", description = "Reservation could not be found.", content = @Content)
+            @ApiResponse(responseCode = "404", description = "Reservation or campsite could not be found.", content = @Content),
+            @ApiResponse(responseCode = "409", description = "A request with the same idempotency key is in progress.", content = @Content),
+            @ApiResponse(responseCode = "422", description = "The idempotency key was used for a different request.", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many requests from the client, or bookings in progress, retry after the delay in Retry-After.", content = @Content),
+            @ApiResponse(responseCode = "503", description = "The nights could not be locked in time, retry after the delay in Retry-After.", content = @Content)
     })
     @Operation(summary = "Updates an existing reservation with the information provided.")
-    public ResponseEntity<ReservationDto> updateReservation(@PathVariable String id, @RequestBody CreateReservationDto createReservationDto) throws GenericAPIException {
-        return new ResponseEntity<>(reservationAdapter.updateReservation(id, createReservationDto), HttpStatus.OK);
+    public ResponseEntity<ReservationDto> updateReservation(@PathVariable String id, @RequestBody CreateReservationDto createReservationDto,
+                                                            @Parameter(description = IDEMPOTENCY_KEY_DESCRIPTION)
+                                                            @RequestHeader(name = IdempotentRequests.HEADER, required = false) String idempotencyKey) throws GenericAPIException {
+        return new ResponseEntity<>(reservationAdapter.updateReservation(id, createReservationDto, idempotencyKey), HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
+    @RateLimited(RateLimiter.ENDPOINT_CANCEL)
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "OK", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservationDto.class))),
             @ApiResponse(responseCode = "400", description = "Error(s) related to validating the information provided.", content = @Content),
-            @ApiResponse(responseCode = "404", description = "Reservation could not be found.", content = @Content)
+            @ApiResponse(responseCode = "404", description = "Reservation could not be found.", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many requests from the client, or bookings in progress, retry after the delay in Retry-After.", content = @Content),
+            @ApiResponse(responseCode = "503", description = "The nights could not be locked in time, retry after the delay in Retry-After.", content = @Content)
     })
     @Operation(summary = "Cancels an existing reservation with the id provided.")
     public ResponseEntity<ReservationDto> cancelReservation(@PathVariable String id) throws GenericAPIException {
@@ -86,14 +160,108 @@ public class ReservationController {
     }
 
     @GetMapping("/availabilities")
+    @RateLimited(RateLimiter.ENDPOINT_READ)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(oneOf = {LocalDate.class, AvailabilityRangeDto.class})))),
+            @ApiResponse(responseCode = "304", description = "The available dates did not change since the version sent in If-None-Match.", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Error(s) related to validating the information provided.", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Campsite could not be found.", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many requests from the client, retry after the delay in Retry-After.", content = @Content)
+    })
+    @Operation(summary = "Provides a list dates that are available for reserving, or the ranges of consecutive available dates.")
+    public ResponseEntity<List<?>> getAvailabilities(@Parameter(description = "Campsite to check, the default campsite if not provided.")
+                                                     @RequestParam(required = false) Long campsiteId,
+                                                     @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
+                                                     @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate,
+                                                     @Parameter(description = "dates lists each available date, ranges lists the ranges of consecutive available dates.",
+                                                             schema = @Schema(allowableValues = {FORMAT_DATES, FORMAT_RANGES}))
+                                                     @RequestParam(defaultValue = FORMAT_DATES) String format,
+                                                     @Parameter(hidden = true) WebRequest webRequest) throws GenericAPIException {
+        validateFormat(format);
+
+        Optional<String> version = reservationAdapter.getAvailabilitiesVersion(campsiteId, fromDate, toDate);
+        if (version.isPresent() && isNotModified(webRequest, version.get())) {
+            return notModified(version.get());
+        }
+
+        AvailableDates availableDates = reservationAdapter.getAvailabilities(campsiteId, fromDate, toDate);
+        List<?> body = FORMAT_DATES.equals(format)
+                ? new ArrayList<>(availableDates)
+                : reservationAdapter.getAvailabilityRanges(availableDates);
+        return withETag(availableDates.getVersion().orElse(null)).body(body);
+    }
+
+    @GetMapping("/availabilities/campsites")
+    @RateLimited(RateLimiter.ENDPOINT_READ)
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "OK", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = LocalDate.class)))),
-            @ApiResponse(responseCode = "400", description = "Error(s) related to validating the information provided.", content = @Content)
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = CampsiteAvailabilityDto.class)))),
+            @ApiResponse(responseCode = "304", description = "The available dates did not change since the version sent in If-None-Match.", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Error(s) related to validating the information provided.", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many requests from the client, retry after the delay in Retry-After.", content = @Content)
     })
-    @Operation(summary = "Provides a list dates that are available for reserving.")
-    public ResponseEntity<List<LocalDate>> getAvailabilities(@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
-                                                             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate) throws GenericAPIException {
-        return new ResponseEntity<>(new ArrayList<>(reservationAdapter.getAvailabilities(fromDate, toDate)), HttpStatus.OK);
+    @Operation(summary = "Provides the dates that are available for reserving on each campsite, or the ranges of consecutive available dates.")
+    public ResponseEntity<List<CampsiteAvailabilityDto>> getCampsiteAvailabilities(@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
+                                                                                   @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate,
+                                                                                   @Parameter(description = "dates lists each available date, ranges lists the ranges of consecutive available dates.",
+                                                                                           schema = @Schema(allowableValues = {FORMAT_DATES, FORMAT_RANGES}))
+                                                                                   @RequestParam(defaultValue = FORMAT_DATES) String format,
+                                                                                   @Parameter(hidden = true) WebRequest webRequest) throws GenericAPIException {
+        validateFormat(format);
+
+        Optional<String> version = reservationAdapter.getAvailabilitiesByCampsiteVersion(fromDate, toDate);
+        if (version.isPresent() && isNotModified(webRequest, version.get())) {
+            return notModified(version.get());
+        }
+
+        Map<Campsite, AvailableDates> availabilities = reservationAdapter.getAvailabilitiesByCampsite(fromDate, toDate);
+        return withETag(reservationAdapter.getVersion(availabilities).orElse(null))
+                .body(reservationAdapter.getCampsiteAvailabilities(availabilities, FORMAT_RANGES.equals(format)));
+    }
+
+    static void validateFormat(String format) {
+        if (!FORMAT_DATES.equals(format) && !FORMAT_RANGES.equals(format)) {
+            throw new IllegalArgumentException("The format should be either " + FORMAT_DATES + " or " + FORMAT_RANGES + ".");
+        }
+    }
+
+    /**
+     * Starts a 200 response with a strong ETag for the version provided, if any. Requests sending it back in
+     * If-None-Match get a 304 response while the version stays the same.
+     */
+    private static ResponseEntity.BodyBuilder withETag(String version) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        return version == null ? response : response.eTag(version);
+    }
+
+    private static <T> ResponseEntity<T> notModified(String version) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(version).build();
+    }
+
+    /**
+     * Checks whether the If-None-Match header of the request lists the ETag of the version provided.
+     */
+    private static boolean isNotModified(WebRequest webRequest, String version) {
+        return isNotModified(webRequest.getHeaderValues(HttpHeaders.IF_NONE_MATCH), version);
+    }
+
+    /**
+     * Checks whether the values of the If-None-Match header list the ETag of the version provided.
+     */
+    static boolean isNotModified(String[] ifNoneMatch, String version) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String eTag = "\"" + version + "\"";
+        return Arrays.stream(ifNoneMatch)
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals(eTag) || tag.equals("*"));
+    }
+
+    private static boolean isNoCache(String cacheControl) {
+        return cacheControl != null && Arrays.stream(cacheControl.split(","))
+                .anyMatch(directive -> directive.trim().equalsIgnoreCase(NO_CACHE));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.gladhus.volcanocampingapi.v1.v1.dto;
+
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvailabilityRangeDto {
+    private LocalDate from;
+    private LocalDate to;
+}
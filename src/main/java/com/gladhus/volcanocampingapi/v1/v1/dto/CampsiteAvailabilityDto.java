@@ -0,0 +1,30 @@
+package com.gladhus.volcanocampingapi.v1.v1.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CampsiteAvailabilityDto {
+    private Long campsiteId;
+    private String name;
+
+    /**
+     * Each available date, when the dates format is requested.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<LocalDate> dates;
+
+    /**
+     * Ranges of consecutive available dates, when the ranges format is requested.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<AvailabilityRangeDto> ranges;
+}
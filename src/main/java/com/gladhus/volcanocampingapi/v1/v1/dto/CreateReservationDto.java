@@ -11,6 +11,12 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 public class CreateReservationDto {
+
+    /**
+     * Campsite to book, the default campsite when creating a reservation without one, or the current campsite of the
+     * reservation when updating it.
+     */
+    private Long campsiteId;
     private String email;
     private String fullName;
     private LocalDate checkin;
@@ -1,5 +1,6 @@
 package com.gladhus.volcanocampingapi.v1.v1.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.gladhus.volcanocampingapi.domain.ReservationStatus;
 import java.time.LocalDate;
 import lombok.AllArgsConstructor;
@@ -13,9 +14,16 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class ReservationDto {
     private String id;
+    private Long campsiteId;
     private String email;
     private String fullName;
     private ReservationStatus status;
     private LocalDate checkin;
     private LocalDate checkout;
+
+    /**
+     * Version of the reservation, sent as the ETag of the response rather than in its body.
+     */
+    @JsonIgnore
+    private Long version;
 }
\ No newline at end of file
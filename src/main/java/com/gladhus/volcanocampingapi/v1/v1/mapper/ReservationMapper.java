@@ -1,8 +1,18 @@
 package com.gladhus.volcanocampingapi.v1.v1.mapper;
 
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.DateRange;
 import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationView;
+import com.gladhus.volcanocampingapi.v1.service.ReservationIdCodec;
+import com.gladhus.volcanocampingapi.v1.v1.dto.AvailabilityRangeDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.CampsiteAvailabilityDto;
 import com.gladhus.volcanocampingapi.v1.v1.dto.CreateReservationDto;
 import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
+import java.util.ArrayList;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
@@ -11,13 +21,22 @@ import org.springframework.stereotype.Component;
 @Component
 public class ReservationMapper {
 
+    private final ReservationIdCodec reservationIdCodec;
+
+    @Autowired
+    public ReservationMapper(ReservationIdCodec reservationIdCodec) {
+        this.reservationIdCodec = reservationIdCodec;
+    }
+
     /**
      * Maps a CreateReservationDto to a domain's Reservation entity.
      * @param createReservationDto with all information for a reservation.
-     * @return {@link Reservation} entity with the same information as the dto provided.
+     * @return {@link Reservation} entity with the same information as the dto provided, on the default campsite if
+     * the dto has none.
      */
     public Reservation mapToEntity(CreateReservationDto createReservationDto) {
         return Reservation.builder()
+                .campsiteId(createReservationDto.getCampsiteId() == null ? Campsite.DEFAULT_ID : createReservationDto.getCampsiteId())
                 .fullName(createReservationDto.getFullName())
                 .email(createReservationDto.getEmail())
                 .checkin(createReservationDto.getCheckin())
@@ -28,32 +47,82 @@ public class ReservationMapper {
     /**
      * Maps a domain's Reservation entity to a ReservationDto.
      * @param reservation entity with all information for a reservation.
-     * @return ReservationDto with the same information as the entity provided.
+     * @return ReservationDto with the same information as the entity provided, and the public id of the reservation.
      */
     public ReservationDto mapToDto(Reservation reservation) {
         return ReservationDto.builder()
-                .id(reservation.getId())
+                .id(reservationIdCodec.encode(reservation.getId()))
+                .campsiteId(reservation.getCampsiteId())
                 .fullName(reservation.getFullName())
                 .email(reservation.getEmail())
                 .status(reservation.getStatus())
                 .checkin(reservation.getCheckin())
                 .checkout(reservation.getCheckout())
+                .version(reservation.getVersion())
+                .build();
+    }
+
+    /**
+     * Maps a ReservationView to a ReservationDto.
+     * @param reservation view with all information for a reservation.
+     * @return ReservationDto with the same information as the view provided, and the public id of the reservation.
+     */
+    public ReservationDto mapToDto(ReservationView reservation) {
+        return ReservationDto.builder()
+                .id(reservationIdCodec.encode(reservation.id()))
+                .campsiteId(reservation.campsiteId())
+                .fullName(reservation.fullName())
+                .email(reservation.email())
+                .status(reservation.status())
+                .checkin(reservation.checkin())
+                .checkout(reservation.checkout())
+                .version(reservation.version())
                 .build();
     }
 
     /**
      * Maps a CreateReservationDto to a Reservation entity and adding the id provided to the entity.
-     * @param id id of the reservation.
+     * @param id storage id of the reservation.
      * @param createReservationDto containing all information about the reservation.
-     * @return Reservation entity with all information from the DTO and the id provided.
+     * @return Reservation entity with all information from the DTO and the id provided, without campsite if the DTO
+     * has none.
      */
-    public Reservation mapToEntity(String id, CreateReservationDto createReservationDto) {
+    public Reservation mapToEntity(UUID id, CreateReservationDto createReservationDto) {
         return Reservation.builder()
                 .id(id)
+                .campsiteId(createReservationDto.getCampsiteId())
                 .fullName(createReservationDto.getFullName())
                 .email(createReservationDto.getEmail())
                 .checkin(createReservationDto.getCheckin())
                 .checkout(createReservationDto.getCheckout())
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Maps a domain's DateRange to an AvailabilityRangeDto.
+     * @param dateRange range of available dates.
+     * @return AvailabilityRangeDto with the same dates as the range provided.
+     */
+    public AvailabilityRangeDto mapToDto(DateRange dateRange) {
+        return AvailabilityRangeDto.builder()
+                .from(dateRange.from())
+                .to(dateRange.to())
+                .build();
+    }
+
+    /**
+     * Maps the available dates of a campsite to a CampsiteAvailabilityDto.
+     * @param campsite campsite of the dates.
+     * @param availableDates dates available for reservation on the campsite.
+     * @param ranges true to list the ranges of consecutive available dates, false to list each available date.
+     * @return CampsiteAvailabilityDto with the campsite and its available dates.
+     */
+    public CampsiteAvailabilityDto mapToDto(Campsite campsite, AvailableDates availableDates, boolean ranges) {
+        return CampsiteAvailabilityDto.builder()
+                .campsiteId(campsite.getId())
+                .name(campsite.getName())
+                .dates(ranges ? null : new ArrayList<>(availableDates))
+                .ranges(ranges ? availableDates.ranges().stream().map(this::mapToDto).toList() : null)
+                .build();
+    }
+}
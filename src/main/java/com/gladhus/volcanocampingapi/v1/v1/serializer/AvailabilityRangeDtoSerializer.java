@@ -0,0 +1,36 @@
+package com.gladhus.volcanocampingapi.v1.v1.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.gladhus.volcanocampingapi.v1.v1.dto.AvailabilityRangeDto;
+import java.io.IOException;
+
+/**
+ * Writes an {@link AvailabilityRangeDto} with pre-encoded field names and cached dates.
+ */
+public class AvailabilityRangeDtoSerializer extends StdSerializer<AvailabilityRangeDto> {
+
+    private static final SerializableString FROM = new SerializedString("from");
+    private static final SerializableString TO = new SerializedString("to");
+
+    public AvailabilityRangeDtoSerializer() {
+        super(AvailabilityRangeDto.class);
+    }
+
+    @Override
+    public void serialize(AvailabilityRangeDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        writeRange(value, gen);
+    }
+
+    static void writeRange(AvailabilityRangeDto range, JsonGenerator gen) throws IOException {
+        gen.writeStartObject(range);
+        gen.writeFieldName(FROM);
+        IsoDateSerializer.writeDate(range.getFrom(), gen);
+        gen.writeFieldName(TO);
+        IsoDateSerializer.writeDate(range.getTo(), gen);
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,66 @@
+package com.gladhus.volcanocampingapi.v1.v1.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.gladhus.volcanocampingapi.v1.v1.dto.AvailabilityRangeDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.CampsiteAvailabilityDto;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Writes a {@link CampsiteAvailabilityDto} with pre-encoded field names and cached dates, leaving out the format that
+ * was not requested like the default bean serializer.
+ */
+public class CampsiteAvailabilityDtoSerializer extends StdSerializer<CampsiteAvailabilityDto> {
+
+    private static final SerializableString CAMPSITE_ID = new SerializedString("campsiteId");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString DATES = new SerializedString("dates");
+    private static final SerializableString RANGES = new SerializedString("ranges");
+
+    public CampsiteAvailabilityDtoSerializer() {
+        super(CampsiteAvailabilityDto.class);
+    }
+
+    @Override
+    public void serialize(CampsiteAvailabilityDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        gen.writeFieldName(CAMPSITE_ID);
+        if (value.getCampsiteId() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value.getCampsiteId());
+        }
+        gen.writeFieldName(NAME);
+        gen.writeString(value.getName());
+
+        List<LocalDate> dates = value.getDates();
+        if (dates != null) {
+            gen.writeFieldName(DATES);
+            gen.writeStartArray(dates, dates.size());
+            for (LocalDate date : dates) {
+                IsoDateSerializer.writeDate(date, gen);
+            }
+            gen.writeEndArray();
+        }
+
+        List<AvailabilityRangeDto> ranges = value.getRanges();
+        if (ranges != null) {
+            gen.writeFieldName(RANGES);
+            gen.writeStartArray(ranges, ranges.size());
+            for (AvailabilityRangeDto range : ranges) {
+                if (range == null) {
+                    gen.writeNull();
+                } else {
+                    AvailabilityRangeDtoSerializer.writeRange(range, gen);
+                }
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,34 @@
+package com.gladhus.volcanocampingapi.v1.v1.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Writes dates as ISO-8601 strings, like the default serializer with timestamps disabled, from the bytes cached by
+ * {@link IsoDates} rather than formatting each date.
+ */
+public class IsoDateSerializer extends StdSerializer<LocalDate> {
+
+    public IsoDateSerializer() {
+        super(LocalDate.class);
+    }
+
+    @Override
+    public void serialize(LocalDate value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeString(IsoDates.of(value));
+    }
+
+    /**
+     * Writes the date, or null.
+     */
+    static void writeDate(LocalDate date, JsonGenerator gen) throws IOException {
+        if (date == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(IsoDates.of(date));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.gladhus.volcanocampingapi.v1.v1.serializer;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import java.time.LocalDate;
+
+/**
+ * ISO-8601 representations of the dates around today, encoded once and written as is by the serializers. The window
+ * covers the recent past, for the stays of current reservations, and the bookable horizon of a month ahead with some
+ * margin. It moves forward the first time a date past its end is written after the day changed.
+ */
+final class IsoDates {
+
+    static final int PAST_DAYS = 32;
+
+    static final int WINDOW_DAYS = 128;
+
+    private static volatile Window window = new Window(LocalDate.now().toEpochDay() - PAST_DAYS);
+
+    private IsoDates() {
+    }
+
+    /**
+     * Returns the date as a quoted JSON string, cached when the date falls within the window.
+     */
+    static SerializableString of(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        SerializableString cached = window.get(epochDay);
+        if (cached != null) {
+            return cached;
+        }
+
+        long firstEpochDay = LocalDate.now().toEpochDay() - PAST_DAYS;
+        if (epochDay >= firstEpochDay && window.firstEpochDay != firstEpochDay) {
+            // Concurrent writers may each build a window, they are all the same.
+            Window moved = new Window(firstEpochDay);
+            window = moved;
+            cached = moved.get(epochDay);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return new SerializedString(date.toString());
+    }
+
+    private static final class Window {
+
+        private final long firstEpochDay;
+
+        private final SerializedString[] dates = new SerializedString[WINDOW_DAYS];
+
+        private Window(long firstEpochDay) {
+            this.firstEpochDay = firstEpochDay;
+            for (int i = 0; i < WINDOW_DAYS; i++) {
+                dates[i] = new SerializedString(LocalDate.ofEpochDay(firstEpochDay + i).toString());
+                // Encodes the bytes and characters now, instead of on the first write.
+                dates[i].asQuotedUTF8();
+                dates[i].asQuotedChars();
+            }
+        }
+
+        private SerializableString get(long epochDay) {
+            long offset = epochDay - firstEpochDay;
+            return offset >= 0 && offset < WINDOW_DAYS ? dates[(int) offset] : null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.gladhus.volcanocampingapi.v1.v1.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Writes a {@link ReservationDto} with pre-encoded field names and statuses, in the order and with the nulls of the
+ * default bean serializer.
+ */
+public class ReservationDtoSerializer extends StdSerializer<ReservationDto> {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString CAMPSITE_ID = new SerializedString("campsiteId");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString FULL_NAME = new SerializedString("fullName");
+    private static final SerializableString STATUS = new SerializedString("status");
+    private static final SerializableString CHECKIN = new SerializedString("checkin");
+    private static final SerializableString CHECKOUT = new SerializedString("checkout");
+
+    private static final Map<ReservationStatus, SerializableString> STATUSES = new EnumMap<>(ReservationStatus.class);
+
+    static {
+        for (ReservationStatus status : ReservationStatus.values()) {
+            STATUSES.put(status, new SerializedString(status.name()));
+        }
+    }
+
+    public ReservationDtoSerializer() {
+        super(ReservationDto.class);
+    }
+
+    @Override
+    public void serialize(ReservationDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        gen.writeFieldName(ID);
+        gen.writeString(value.getId());
+        gen.writeFieldName(CAMPSITE_ID);
+        if (value.getCampsiteId() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value.getCampsiteId());
+        }
+        gen.writeFieldName(EMAIL);
+        gen.writeString(value.getEmail());
+        gen.writeFieldName(FULL_NAME);
+        gen.writeString(value.getFullName());
+        gen.writeFieldName(STATUS);
+        if (value.getStatus() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(STATUSES.get(value.getStatus()));
+        }
+        gen.writeFieldName(CHECKIN);
+        IsoDateSerializer.writeDate(value.getCheckin(), gen);
+        gen.writeFieldName(CHECKOUT);
+        IsoDateSerializer.writeDate(value.getCheckout(), gen);
+        gen.writeEndObject();
+    }
+}
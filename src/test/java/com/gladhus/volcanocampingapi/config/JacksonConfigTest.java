@@ -0,0 +1,96 @@
+package com.gladhus.volcanocampingapi.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.handler.dto.ErrorMessageDto;
+import com.gladhus.volcanocampingapi.handler.dto.ItemErrorDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.AvailabilityRangeDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.CampsiteAvailabilityDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JacksonConfigTest {
+
+    private final ObjectMapper defaultMapper = builder().build();
+
+    private final ObjectMapper testee = customizedBuilder().build();
+
+    /**
+     * Configured like the object mapper of Spring Boot, which disables WRITE_DATES_AS_TIMESTAMPS.
+     */
+    static Jackson2ObjectMapperBuilder builder() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    static Jackson2ObjectMapperBuilder customizedBuilder() {
+        Jackson2ObjectMapperBuilder builder = builder();
+        new JacksonConfig().responseSerializersCustomizer().customize(builder);
+        return builder;
+    }
+
+    @Test
+    void responseSerializers_Dates() throws JsonProcessingException {
+        LocalDate today = LocalDate.now();
+        List<LocalDate> dates = Arrays.asList(today, today.plusMonths(1), today.minusDays(10),
+                today.minusYears(5), today.plusYears(5), LocalDate.of(-1, 1, 1), LocalDate.of(10000, 1, 1), null);
+
+        assertSameJson(dates);
+        assertThat(testee.writeValueAsString(List.of(today.plusDays(1)))).isEqualTo("[\"" + today.plusDays(1) + "\"]");
+    }
+
+    @Test
+    void responseSerializers_ReservationDto() throws JsonProcessingException {
+        assertSameJson(ReservationDto.builder()
+                .id("QmFzZTY0")
+                .campsiteId(1L)
+                .email("john.doe@example.com")
+                .fullName("Jöhn \"Doe\"\n")
+                .status(ReservationStatus.CANCELLED)
+                .checkin(LocalDate.now().plusDays(1))
+                .checkout(LocalDate.now().plusDays(4))
+                .version(3L)
+                .build());
+        assertSameJson(new ReservationDto());
+    }
+
+    @Test
+    void responseSerializers_Availabilities() throws JsonProcessingException {
+        LocalDate today = LocalDate.now();
+        assertSameJson(List.of(new AvailabilityRangeDto(today, today.plusDays(2)), new AvailabilityRangeDto()));
+        assertSameJson(List.of(
+                CampsiteAvailabilityDto.builder().campsiteId(1L).name("Volcano").dates(List.of(today, today.plusDays(1))).build(),
+                CampsiteAvailabilityDto.builder().campsiteId(2L).name("Lake").ranges(List.of(new AvailabilityRangeDto(today, today))).build(),
+                CampsiteAvailabilityDto.builder().dates(List.of()).build()));
+    }
+
+    @Test
+    void responseSerializers_ErrorMessageDto() throws JsonProcessingException {
+        assertSameJson(ErrorMessageDto.builder().status(HttpStatus.NOT_FOUND).message("Reservation not found.").build());
+        assertSameJson(ErrorMessageDto.builder().status(HttpStatus.BAD_REQUEST).message("Invalid").errors(List.of()).build());
+        assertSameJson(ErrorMessageDto.builder()
+                .status(HttpStatus.CONFLICT)
+                .message("Some reservations were rejected.")
+                .errors(List.of(ItemErrorDto.builder().index(0).message("Dates unavailable").build(),
+                        ItemErrorDto.builder().index(2).build()))
+                .build());
+        assertSameJson(ErrorMessageDto.builder().build());
+    }
+
+    /**
+     * Checks both the byte and the character output, which are written by different generators.
+     */
+    private void assertSameJson(Object value) throws JsonProcessingException {
+        assertThat(testee.writeValueAsString(value)).isEqualTo(defaultMapper.writeValueAsString(value));
+        assertThat(testee.writeValueAsBytes(value)).isEqualTo(defaultMapper.writeValueAsBytes(value));
+    }
+}
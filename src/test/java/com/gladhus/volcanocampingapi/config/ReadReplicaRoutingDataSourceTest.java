@@ -0,0 +1,147 @@
+package com.gladhus.volcanocampingapi.config;
+
+import com.gladhus.volcanocampingapi.v1.service.ReadRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two embedded databases stand in for the primary and the read replica. Nothing is replicated between them: each one
+ * holds its own name, and the tests copy the heartbeat to the replica when they need it to be up-to-date.
+ */
+class ReadReplicaRoutingDataSourceTest {
+
+    private static final String SELECT_NAME = "select name from database_name";
+
+    EmbeddedDatabase primary;
+
+    EmbeddedDatabase replica;
+
+    SimpleMeterRegistry meterRegistry;
+
+    ReplicaLagMonitor replicaLagMonitor;
+
+    JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate readWriteTransaction;
+
+    TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    void setup() {
+        primary = embeddedDatabase("primary");
+        replica = embeddedDatabase("replica");
+        meterRegistry = new SimpleMeterRegistry();
+        replicaLagMonitor = new ReplicaLagMonitor(primary, replica, Duration.ofSeconds(5), Clock.systemUTC(), meterRegistry);
+
+        ReadReplicaRoutingDataSource routingDataSource = new ReadReplicaRoutingDataSource(primary, replica, replicaLagMonitor, meterRegistry);
+        routingDataSource.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    void readWriteTransaction_Primary() {
+        replicate(System.currentTimeMillis());
+
+        assertThat(databaseName(readWriteTransaction)).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransaction_Replica() {
+        replicaLagMonitor.beat();
+        replicate(new JdbcTemplate(primary).queryForObject("select beat_at from replica_heartbeat", Long.class));
+
+        assertThat(databaseName(readOnlyTransaction)).isEqualTo("replica");
+        assertThat(meterRegistry.get("read.routing").tag("route", "replica").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("read.replica.lag").gauge().value()).isLessThan(5);
+    }
+
+    @Test
+    void readOnlyTransaction_PrimaryRequired() {
+        replicate(System.currentTimeMillis());
+
+        try (ReadRouting.Scope ignored = ReadRouting.primary()) {
+            assertThat(databaseName(readOnlyTransaction)).isEqualTo("primary");
+        }
+        assertThat(databaseName(readOnlyTransaction)).isEqualTo("replica");
+        assertThat(meterRegistry.get("read.routing").tag("route", "primary-required").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void readOnlyTransaction_ReplicaLagging() {
+        replicate(System.currentTimeMillis() - Duration.ofSeconds(10).toMillis());
+
+        assertThat(databaseName(readOnlyTransaction)).isEqualTo("primary");
+        assertThat(meterRegistry.get("read.routing").tag("route", "primary-lagging").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void readOnlyTransaction_HeartbeatNotReplicated() {
+        replicaLagMonitor.beat();
+
+        assertThat(replicaLagMonitor.isReplicaFresh()).isFalse();
+        assertThat(databaseName(readOnlyTransaction)).isEqualTo("primary");
+        assertThat(meterRegistry.get("read.replica.lag").gauge().value()).isNaN();
+    }
+
+    @Test
+    void readOnlyTransaction_ReplicaDown() {
+        replicate(System.currentTimeMillis());
+        replica.shutdown();
+        replicaLagMonitor.measure();
+
+        assertThat(databaseName(readOnlyTransaction)).isEqualTo("primary");
+    }
+
+    /**
+     * Reads the name of the database the transaction ran on.
+     */
+    private String databaseName(TransactionTemplate transaction) {
+        return transaction.execute(status -> jdbcTemplate.queryForObject(SELECT_NAME, String.class));
+    }
+
+    /**
+     * Writes the heartbeat to the replica, as replication would, then measures the lag.
+     */
+    private void replicate(long beatAt) {
+        new JdbcTemplate(replica).update("merge into replica_heartbeat (id, beat_at) key (id) values (?, ?)",
+                ReplicaLagMonitor.HEARTBEAT_ID, beatAt);
+        replicaLagMonitor.measure();
+    }
+
+    private static EmbeddedDatabase embeddedDatabase(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("create table replica_heartbeat (id int primary key, beat_at bigint not null)");
+        jdbcTemplate.execute("create table database_name (name varchar(16) not null)");
+        jdbcTemplate.update("insert into database_name (name) values (?)", name);
+        return database;
+    }
+}
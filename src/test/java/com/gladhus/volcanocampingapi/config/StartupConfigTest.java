@@ -0,0 +1,35 @@
+package com.gladhus.volcanocampingapi.config;
+
+import com.gladhus.volcanocampingapi.handler.GlobalExceptionHandler;
+import com.gladhus.volcanocampingapi.v1.service.CampsiteService;
+import com.gladhus.volcanocampingapi.v1.service.ReservationIdCodec;
+import com.gladhus.volcanocampingapi.v1.service.storage.ReservationArchiver;
+import com.gladhus.volcanocampingapi.v1.v1.controller.ReservationController;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StartupConfigTest {
+
+    private final LazyInitializationExcludeFilter testee = StartupConfig.eagerBeansExcludeFilter();
+
+    @Test
+    void eagerBeansExcludeFilter_RequestPath() {
+        assertThat(testee.isExcluded("reservationController", null, ReservationController.class)).isTrue();
+        assertThat(testee.isExcluded("globalExceptionHandler", null, GlobalExceptionHandler.class)).isTrue();
+    }
+
+    @Test
+    void eagerBeansExcludeFilter_BackgroundJobs() {
+        assertThat(testee.isExcluded("campsiteService", null, CampsiteService.class)).isTrue();
+        assertThat(testee.isExcluded("reservationArchiver", null, ReservationArchiver.class)).isTrue();
+    }
+
+    @Test
+    void eagerBeansExcludeFilter_Lazy() {
+        assertThat(testee.isExcluded("reservationIdCodec", null, ReservationIdCodec.class)).isFalse();
+        assertThat(testee.isExcluded("unknown", null, null)).isFalse();
+    }
+}
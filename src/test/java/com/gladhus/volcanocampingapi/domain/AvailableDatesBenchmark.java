@@ -0,0 +1,73 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Computation of the available dates of a month from the reservations overlapping it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AvailableDatesBenchmark {
+
+    @Param({"0", "30", "300"})
+    public int reservations;
+
+    LocalDate fromDate;
+
+    LocalDate toDate;
+
+    List<Reservation> overlappingReservations;
+
+    @Setup
+    public void setup() {
+        fromDate = LocalDate.now();
+        toDate = fromDate.plusMonths(1);
+        overlappingReservations = randomReservations(fromDate, reservations);
+    }
+
+    @Benchmark
+    public AvailableDates fromReservations() {
+        return AvailableDates.fromReservations(fromDate, toDate, overlappingReservations);
+    }
+
+    /**
+     * Same computation, followed by the copy to a list that the controller returns.
+     */
+    @Benchmark
+    public List<LocalDate> fromReservationsToList() {
+        return new ArrayList<>(AvailableDates.fromReservations(fromDate, toDate, overlappingReservations));
+    }
+
+    /**
+     * Returns stays of 1 to 3 nights starting within the month after fromDate, seeded so every run uses the same data.
+     */
+    public static List<Reservation> randomReservations(LocalDate fromDate, int count) {
+        Random random = new Random(42);
+        List<Reservation> reservations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate checkin = fromDate.plusDays(random.nextInt(31));
+            reservations.add(ReservationDataTestUtil.getReservationEntity(checkin, checkin.plusDays(1 + random.nextInt(3))));
+        }
+        return reservations;
+    }
+}
@@ -0,0 +1,50 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvailableDatesTest {
+
+    private static final LocalDate FROM_DATE = LocalDate.of(2022, 6, 1);
+
+    @Test
+    void ranges() {
+        AvailableDates availableDates = AvailableDates.fromReservations(FROM_DATE, FROM_DATE.plusDays(9), List.of(
+                ReservationDataTestUtil.getReservationEntity(FROM_DATE.minusDays(1), FROM_DATE.plusDays(1)),
+                ReservationDataTestUtil.getReservationEntity(FROM_DATE.plusDays(3), FROM_DATE.plusDays(5)),
+                ReservationDataTestUtil.getReservationEntity(FROM_DATE.plusDays(5), FROM_DATE.plusDays(6))));
+
+        assertThat(availableDates.ranges()).containsExactly(
+                new DateRange(FROM_DATE.plusDays(1), FROM_DATE.plusDays(2)),
+                new DateRange(FROM_DATE.plusDays(6), FROM_DATE.plusDays(9)));
+    }
+
+    @Test
+    void ranges_AllAvailable() {
+        AvailableDates availableDates = AvailableDates.fromReservations(FROM_DATE, FROM_DATE.plusDays(9), List.of());
+
+        assertThat(availableDates.ranges()).containsExactly(new DateRange(FROM_DATE, FROM_DATE.plusDays(9)));
+    }
+
+    @Test
+    void ranges_NoneAvailable() {
+        AvailableDates availableDates = AvailableDates.fromReservations(FROM_DATE, FROM_DATE.plusDays(1), List.of(
+                ReservationDataTestUtil.getReservationEntity(FROM_DATE, FROM_DATE.plusDays(2))));
+
+        assertThat(availableDates.ranges()).isEmpty();
+    }
+
+    @Test
+    void fromStays() {
+        AvailableDates availableDates = AvailableDates.fromStays(FROM_DATE, FROM_DATE.plusDays(4), List.of(
+                new Stay(FROM_DATE.minusDays(2), FROM_DATE.plusDays(1)),
+                new Stay(FROM_DATE.plusDays(3), FROM_DATE.plusDays(10))));
+
+        assertThat(availableDates).containsExactly(FROM_DATE.plusDays(1), FROM_DATE.plusDays(2));
+    }
+}
@@ -0,0 +1,31 @@
+package com.gladhus.volcanocampingapi.domain;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedUuidGeneratorTest {
+
+    @Test
+    void next() {
+        long before = System.currentTimeMillis();
+        UUID id = TimeOrderedUuidGenerator.next();
+        long after = System.currentTimeMillis();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isBetween(before, after);
+    }
+
+    @Test
+    void next_OrderedByCreationTime() throws InterruptedException {
+        UUID first = TimeOrderedUuidGenerator.next();
+        Thread.sleep(2);
+        UUID second = TimeOrderedUuidGenerator.next();
+
+        // Binary columns compare bytes as unsigned, as Long.compareUnsigned does on the first 8 bytes.
+        assertThat(Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits())).isNegative();
+    }
+}
@@ -0,0 +1,342 @@
+package com.gladhus.volcanocampingapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a mix of reservation API operations against a running instance at a fixed rate, then checks that no two
+ * active reservations it created share a night.
+ * <p>
+ * Requests are scheduled open-loop: the n-th request is due at start + n / rate whether the previous ones completed or
+ * not, and its latency is measured from that due time. A server stall therefore shows up in the percentiles, instead
+ * of silently lowering the rate like it would with a fixed pool of clients waiting for their responses.
+ * <p>
+ * Pollers, on the other hand, are closed-loop clients that each keep a connection open and read the availabilities
+ * again a poll interval after every response, like many idle browsers would. They load the server with concurrent
+ * connections rather than requests, and can run alone or next to the scheduled requests.
+ * <p>
+ * Run with {@code mvn -Pload-test test-compile exec:java -Dexec.args="--rate 200 --duration PT1M"}, see
+ * {@link LoadOptions#USAGE} for all options.
+ */
+public class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadOptions options;
+
+    private final HttpClient httpClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+    private final Semaphore inFlight;
+
+    private final CountDownLatch pollersDone;
+
+    private final ServerMetrics serverMetrics;
+
+    /**
+     * Reservations that are active as far as this generator knows, to pick update, cancel and get targets from.
+     */
+    private final List<String> activeIds = new ArrayList<>();
+
+    /**
+     * Every reservation created during the run, checked for overlaps at the end.
+     */
+    private final Set<String> createdIds = ConcurrentHashMap.newKeySet();
+
+    LoadGenerator(LoadOptions options) {
+        this.options = options;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.inFlight = new Semaphore(options.maxInFlight());
+        this.pollersDone = new CountDownLatch(options.pollers());
+        this.serverMetrics = options.serverMetricsUrl() == null ? null : new ServerMetrics(options.serverMetricsUrl(), httpClient);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        LoadGenerator generator = new LoadGenerator(options);
+        generator.run();
+        generator.printReport();
+
+        List<String> overlaps = generator.findOverlappingReservations();
+        if (overlaps.isEmpty()) {
+            System.out.printf("%nVerification passed: no overlapping active reservations among the %d created.%n",
+                    generator.createdIds.size());
+        } else {
+            System.out.printf("%nVerification FAILED: %d overlapping active reservations.%n", overlaps.size());
+            overlaps.forEach(System.out::println);
+        }
+        System.exit(overlaps.isEmpty() ? 0 : 1);
+    }
+
+    void run() throws InterruptedException {
+        System.out.printf("Sending %d requests/s for %s to %s with mix %s, and %d pollers every %s%n",
+                options.rate(), options.duration(), options.baseUrl(), options.mix(), options.pollers(), options.pollInterval());
+
+        long durationNanos = options.duration().toNanos();
+        long start = System.nanoTime();
+        if (serverMetrics != null) {
+            serverMetrics.start();
+        }
+        for (int i = 0; i < options.pollers(); i++) {
+            // Spreads the first polls over an interval, so that the pollers do not stay in lockstep.
+            long firstPoll = ThreadLocalRandom.current().nextLong(Math.max(options.pollInterval().toNanos(), 1));
+            CompletableFuture.delayedExecutor(firstPoll, TimeUnit.NANOSECONDS).execute(() -> poll(start + durationNanos));
+        }
+
+        if (options.rate() > 0) {
+            long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+            for (long i = 0; i * intervalNanos < durationNanos; i++) {
+                long scheduled = start + i * intervalNanos;
+                long delay;
+                while ((delay = scheduled - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                send(pickOperation(), scheduled);
+            }
+        }
+
+        // Waits for the pending requests and the pollers to complete.
+        if (!inFlight.tryAcquire(options.maxInFlight(), REQUEST_TIMEOUT.toSeconds() + 5, TimeUnit.SECONDS)) {
+            System.out.println("Some requests did not complete in time.");
+        }
+        long pollersDeadline = start + durationNanos + TimeUnit.SECONDS.toNanos(REQUEST_TIMEOUT.toSeconds() + 5);
+        if (!pollersDone.await(pollersDeadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            System.out.println("Some pollers did not complete in time.");
+        }
+        if (serverMetrics != null) {
+            serverMetrics.stop();
+        }
+    }
+
+    /**
+     * Reads the availabilities, then polls again a poll interval after the response, until the end of the run.
+     */
+    private void poll(long end) {
+        if (System.nanoTime() - end >= 0) {
+            pollersDone.countDown();
+            return;
+        }
+        OperationStats pollStats = stats.get(Operation.POLL);
+        long sent = System.nanoTime();
+        httpClient.sendAsync(request(Operation.POLL, null), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long completed = System.nanoTime();
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        pollStats.record(sent, completed, cause.getClass().getSimpleName());
+                    } else {
+                        pollStats.record(sent, completed, String.valueOf(response.statusCode()));
+                    }
+                    CompletableFuture.delayedExecutor(options.pollInterval().toNanos(), TimeUnit.NANOSECONDS)
+                            .execute(() -> poll(end));
+                });
+    }
+
+    private void send(Operation operation, long scheduled) {
+        String id = null;
+        if (operation.needsReservation()) {
+            id = pickActiveId(operation == Operation.CANCEL);
+            if (id == null) {
+                // Nothing to target yet, create a reservation instead.
+                operation = Operation.CREATE;
+            }
+        }
+
+        OperationStats operationStats = stats.get(operation);
+        if (!inFlight.tryAcquire()) {
+            operationStats.dropped();
+            return;
+        }
+
+        Operation sent = operation;
+        String targetId = id;
+        httpClient.sendAsync(request(operation, id), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    long completed = System.nanoTime();
+                    try {
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                            operationStats.record(scheduled, completed, cause.getClass().getSimpleName());
+                        } else {
+                            operationStats.record(scheduled, completed, String.valueOf(response.statusCode()));
+                            onResponse(sent, targetId, response);
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+    }
+
+    private void onResponse(Operation operation, String id, HttpResponse<String> response) {
+        if (operation == Operation.CREATE && response.statusCode() == 201) {
+            String createdId = readTree(response.body()).path("id").asText();
+            createdIds.add(createdId);
+            synchronized (activeIds) {
+                activeIds.add(createdId);
+            }
+        } else if (operation == Operation.CANCEL && response.statusCode() != 200 && response.statusCode() != 404) {
+            // The reservation was not cancelled, it can still be targeted.
+            synchronized (activeIds) {
+                activeIds.add(id);
+            }
+        }
+    }
+
+    private HttpRequest request(Operation operation, String id) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(REQUEST_TIMEOUT);
+        return switch (operation) {
+            case CREATE -> builder.uri(options.baseUrl())
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(randomStay()))
+                    .build();
+            case UPDATE -> builder.uri(reservationUri(id))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(randomStay()))
+                    .build();
+            case CANCEL -> builder.uri(reservationUri(id)).DELETE().build();
+            case GET -> builder.uri(reservationUri(id)).GET().build();
+            case AVAILABILITY, POLL -> builder.uri(URI.create(options.baseUrl() + "/availabilities")).GET().build();
+        };
+    }
+
+    private URI reservationUri(String id) {
+        return URI.create(options.baseUrl() + "/" + id);
+    }
+
+    /**
+     * Returns the body of a reservation for a random stay of 1 to 3 nights that passes the date validation, checking in
+     * within the checkin window.
+     */
+    private String randomStay() {
+        LocalDate today = LocalDate.now();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int nights = 1 + random.nextInt(3);
+        // The checkout must be before a month from today and the checkin at least tomorrow.
+        int lastCheckout = (int) ChronoUnit.DAYS.between(today, today.plusMonths(1)) - 1;
+        int checkins = lastCheckout - nights;
+        if (options.checkinWindow() > 0) {
+            checkins = Math.min(checkins, options.checkinWindow());
+        }
+        LocalDate checkin = today.plusDays(1 + random.nextInt(checkins));
+        return """
+                {"email":"load@example.com","fullName":"Load Generator","checkin":"%s","checkout":"%s"}"""
+                .formatted(checkin, checkin.plusDays(nights));
+    }
+
+    private Operation pickOperation() {
+        int total = options.mix().values().stream().mapToInt(Integer::intValue).sum();
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Operation, Integer> entry : options.mix().entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private String pickActiveId(boolean remove) {
+        synchronized (activeIds) {
+            if (activeIds.isEmpty()) {
+                return null;
+            }
+            int index = ThreadLocalRandom.current().nextInt(activeIds.size());
+            String id = activeIds.get(index);
+            if (remove) {
+                activeIds.set(index, activeIds.get(activeIds.size() - 1));
+                activeIds.remove(activeIds.size() - 1);
+            }
+            return id;
+        }
+    }
+
+    void printReport() {
+        System.out.println();
+        OperationStats.printHeader(System.out);
+        stats.forEach((operation, operationStats) -> operationStats.print(System.out, operation));
+        if (serverMetrics != null) {
+            serverMetrics.print(System.out);
+        }
+    }
+
+    /**
+     * Reads back every reservation created during the run and returns a description of each pair of active
+     * reservations that share a night.
+     */
+    List<String> findOverlappingReservations() {
+        Semaphore permits = new Semaphore(32);
+        List<CompletableFuture<JsonNode>> reads = new ArrayList<>();
+        for (String id : createdIds) {
+            permits.acquireUninterruptibly();
+            reads.add(httpClient.sendAsync(request(Operation.GET, id), HttpResponse.BodyHandlers.ofString())
+                    .thenApply(response -> response.statusCode() == 200 ? readTree(response.body()) : null)
+                    .whenComplete((reservation, error) -> permits.release()));
+        }
+
+        List<JsonNode> active = reads.stream()
+                .map(CompletableFuture::join)
+                .filter(reservation -> reservation != null && "ACTIVE".equals(reservation.path("status").asText()))
+                .sorted((a, b) -> a.path("checkin").asText().compareTo(b.path("checkin").asText()))
+                .toList();
+
+        // Sorted by checkin, a reservation overlaps another one if it starts before the latest checkout seen so far.
+        List<String> overlaps = new ArrayList<>();
+        JsonNode latest = null;
+        for (JsonNode reservation : active) {
+            if (latest != null && reservation.path("checkin").asText().compareTo(latest.path("checkout").asText()) < 0) {
+                overlaps.add(latest + " overlaps " + reservation);
+            }
+            if (latest == null || reservation.path("checkout").asText().compareTo(latest.path("checkout").asText()) > 0) {
+                latest = reservation;
+            }
+        }
+        return overlaps;
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid response body: " + body, e);
+        }
+    }
+}
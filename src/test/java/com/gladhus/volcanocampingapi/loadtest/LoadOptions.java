@@ -0,0 +1,108 @@
+package com.gladhus.volcanocampingapi.loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command line options of the {@link LoadGenerator}.
+ *
+ * @param baseUrl base url of the reservation API.
+ * @param rate number of requests started per second, whether the previous ones completed or not. 0 only runs the
+ *             pollers.
+ * @param duration how long requests are started for.
+ * @param mix relative weight of each operation.
+ * @param maxInFlight requests still pending when this limit is reached are not sent and counted as dropped.
+ * @param checkinWindow number of days, from tomorrow, among which the checkin of each stay is picked. 0 spreads the
+ *                      stays over the whole bookable month, smaller windows make bookings contend for the same nights.
+ * @param pollers number of clients each polling the availabilities in a closed loop, on their own connection.
+ * @param pollInterval pause of each poller between a response and its next request.
+ * @param serverMetricsUrl base url of the actuator metrics endpoint of the server, sampled every second during the
+ *                         run, or null.
+ */
+record LoadOptions(URI baseUrl, int rate, Duration duration, Map<Operation, Integer> mix, int maxInFlight, int checkinWindow,
+                   int pollers, Duration pollInterval, URI serverMetricsUrl) {
+
+    static final String USAGE = """
+            Usage: LoadGenerator [options]
+              --base-url <url>        default http://localhost:8080/api/v1.1/reservation
+              --rate <requests/s>     default 50, 0 to only run the pollers
+              --duration <duration>   ISO-8601 duration, default PT30S
+              --mix <op=weight,...>   operations among create, update, cancel, get, availability,
+                                      default create=20,update=10,cancel=5,get=25,availability=40
+              --max-in-flight <n>     default 1000
+              --checkin-window <days> checkins among the next n days, default 0 for the whole month
+              --pollers <n>           clients polling the availabilities in a closed loop, default 0
+              --poll-interval <duration>
+                                      ISO-8601 pause between the polls of each poller, default PT1S
+              --server-metrics <url>  actuator metrics url of the server, e.g. http://localhost:8080/actuator/metrics,
+                                      to report its peak threads and connections in use
+            """;
+
+    static LoadOptions parse(String[] args) {
+        URI baseUrl = URI.create("http://localhost:8080/api/v1.1/reservation");
+        int rate = 50;
+        Duration duration = Duration.ofSeconds(30);
+        Map<Operation, Integer> mix = parseMix("create=20,update=10,cancel=5,get=25,availability=40");
+        int maxInFlight = 1000;
+        int checkinWindow = 0;
+        int pollers = 0;
+        Duration pollInterval = Duration.ofSeconds(1);
+        URI serverMetricsUrl = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            String value = args[++i];
+            switch (args[i - 1]) {
+                case "--base-url" -> baseUrl = URI.create(value.endsWith("/") ? value.substring(0, value.length() - 1) : value);
+                case "--rate" -> rate = Integer.parseInt(value);
+                case "--duration" -> duration = Duration.parse(value);
+                case "--mix" -> mix = parseMix(value);
+                case "--max-in-flight" -> maxInFlight = Integer.parseInt(value);
+                case "--checkin-window" -> checkinWindow = Integer.parseInt(value);
+                case "--pollers" -> pollers = Integer.parseInt(value);
+                case "--poll-interval" -> pollInterval = Duration.parse(value);
+                case "--server-metrics" -> serverMetricsUrl = URI.create(value.endsWith("/") ? value.substring(0, value.length() - 1) : value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+            }
+        }
+
+        if (rate < 0 || maxInFlight <= 0 || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("The duration and max in flight must be positive, and the rate cannot be negative.");
+        }
+        if (checkinWindow < 0 || pollers < 0 || pollInterval.isNegative()) {
+            throw new IllegalArgumentException("The checkin window, pollers and poll interval cannot be negative.");
+        }
+        if (rate == 0 && pollers == 0) {
+            throw new IllegalArgumentException("Either the rate or the pollers must be positive.");
+        }
+        return new LoadOptions(baseUrl, rate, duration, mix, maxInFlight, checkinWindow, pollers, pollInterval, serverMetricsUrl);
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Invalid mix weight " + entry);
+            }
+            Operation operation = Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+            if (operation == Operation.POLL) {
+                throw new IllegalArgumentException("Polls are sent by the pollers, not part of the mix.");
+            }
+            mix.put(operation, weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix needs at least one operation with a positive weight.");
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,23 @@
+package com.gladhus.volcanocampingapi.loadtest;
+
+/**
+ * Operations of the reservation API driven by the {@link LoadGenerator}.
+ */
+enum Operation {
+    CREATE,
+    UPDATE,
+    CANCEL,
+    GET,
+    AVAILABILITY,
+    /**
+     * Availability requests of the pollers, measured from the time they are sent.
+     */
+    POLL;
+
+    /**
+     * Whether the operation targets an existing reservation.
+     */
+    boolean needsReservation() {
+        return this == UPDATE || this == CANCEL || this == GET;
+    }
+}
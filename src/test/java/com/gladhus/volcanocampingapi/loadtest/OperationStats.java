@@ -0,0 +1,54 @@
+package com.gladhus.volcanocampingapi.loadtest;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies and outcomes of one {@link Operation}. Latencies are measured in microseconds from the time the request
+ * was scheduled to start, so a stalled server shows up in the percentiles instead of just slowing the load down.
+ */
+class OperationStats {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    void record(long scheduledNanos, long completedNanos, String outcome) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(completedNanos - scheduledNanos);
+        latencies.recordValue(Math.min(Math.max(micros, 0), HIGHEST_LATENCY_MICROS));
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    void dropped() {
+        outcomes.computeIfAbsent("dropped", key -> new LongAdder()).increment();
+    }
+
+    void print(PrintStream out, Operation operation) {
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        out.printf("%-13s %8d %10.2f %10.2f %10.2f %10.2f   %s%n",
+                operation,
+                latencies.getTotalCount(),
+                millis(latencies.getValueAtPercentile(50)),
+                millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue()),
+                counts);
+    }
+
+    static void printHeader(PrintStream out) {
+        out.printf("%-13s %8s %10s %10s %10s %10s   %s%n", "operation", "count", "p50 ms", "p99 ms", "p999 ms", "max ms", "outcomes");
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,105 @@
+package com.gladhus.volcanocampingapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples gauges of the server under load through its actuator metrics endpoint, once per second, and keeps the peak
+ * of each. Gauges the server does not publish, e.g. the R2DBC pool of the servlet variant, are reported as n/a.
+ */
+class ServerMetrics {
+
+    /**
+     * Threads of the server, and connections checked out of the JDBC and R2DBC pools.
+     */
+    static final List<String> GAUGES = List.of("jvm.threads.live", "hikaricp.connections.active", "r2dbc.pool.acquired");
+
+    private static final Duration SAMPLE_TIMEOUT = Duration.ofSeconds(2);
+
+    private final URI metricsUrl;
+
+    private final HttpClient httpClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, Double> peaks = new LinkedHashMap<>();
+
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "server-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    ServerMetrics(URI metricsUrl, HttpClient httpClient) {
+        this.metricsUrl = metricsUrl;
+        this.httpClient = httpClient;
+    }
+
+    void start() {
+        sampler.scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+    }
+
+    void stop() throws InterruptedException {
+        sampler.shutdown();
+        sampler.awaitTermination(SAMPLE_TIMEOUT.toSeconds() * GAUGES.size(), TimeUnit.SECONDS);
+    }
+
+    private void sample() {
+        for (String gauge : GAUGES) {
+            Double value = read(gauge);
+            if (value != null) {
+                synchronized (peaks) {
+                    peaks.merge(gauge, value, Math::max);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the gauge summed over all its tags, or null if it could not be read.
+     */
+    private Double read(String gauge) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(metricsUrl + "/" + gauge)).timeout(SAMPLE_TIMEOUT).GET().build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            for (JsonNode measurement : objectMapper.readTree(response.body()).path("measurements")) {
+                if ("VALUE".equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    void print(PrintStream out) {
+        out.println();
+        out.printf("%-28s %10s%n", "server gauge", "peak");
+        synchronized (peaks) {
+            for (String gauge : GAUGES) {
+                Double peak = peaks.get(gauge);
+                out.printf("%-28s %10s%n", gauge, peak == null ? "n/a" : String.format("%.0f", peak));
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gladhus.volcanocampingapi.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Command line options of the {@link StartupTimer}.
+ *
+ * @param runs number of measured starts.
+ * @param warmupRuns starts run first and left out of the results, e.g. while the files are not cached yet.
+ * @param path path of the request that must be answered, on the port the instance is started on.
+ * @param timeout how long each start may take before it is counted as failed.
+ * @param command command starting the instance, to which the port is appended as {@code --server.port}.
+ */
+record StartupOptions(int runs, int warmupRuns, String path, Duration timeout, List<String> command) {
+
+    static final String USAGE = """
+            Usage: StartupTimer [options] <command>
+              --runs <n>              default 5
+              --warmup-runs <n>       default 1
+              --path <path>           default /api/v1.1/reservation/availabilities
+              --timeout <duration>    ISO-8601 duration, default PT2M
+              <command>               command starting the application, e.g.
+                                      java -jar target/volcano-camping-api-0.0.1-SNAPSHOT-exec.jar
+            """;
+
+    static StartupOptions parse(String[] args) {
+        int runs = 5;
+        int warmupRuns = 1;
+        String path = "/api/v1.1/reservation/availabilities";
+        Duration timeout = Duration.ofMinutes(2);
+
+        // The options end where the command starts.
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            String value = args[++i];
+            switch (args[i - 1]) {
+                case "--runs" -> runs = Integer.parseInt(value);
+                case "--warmup-runs" -> warmupRuns = Integer.parseInt(value);
+                case "--path" -> path = value.startsWith("/") ? value : "/" + value;
+                case "--timeout" -> timeout = Duration.parse(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+            }
+        }
+
+        if (i == args.length) {
+            throw new IllegalArgumentException("The command starting the application is required.");
+        }
+        if (runs <= 0 || warmupRuns < 0 || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("The runs and timeout must be positive, and the warmup runs cannot be negative.");
+        }
+        return new StartupOptions(runs, warmupRuns, path, timeout, List.copyOf(Arrays.asList(args).subList(i, args.length)));
+    }
+}
@@ -0,0 +1,191 @@
+package com.gladhus.volcanocampingapi.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts the application again and again with the command provided, and measures the time from launching the process
+ * to the first answer to a request, which is when a new instance starts taking its share of the load. The startup
+ * time Spring Boot logs is reported next to it: the difference is the JVM startup, and the work left to the first
+ * request.
+ * <p>
+ * Each run gets a free port and its output is written to {@code target/startup-timer}. Compare two setups by running
+ * it once with each command, e.g. with and without the fast-startup profile and its class data sharing archive.
+ * <p>
+ * Run with {@code mvn -Pstartup-benchmark test-compile exec:java -Dexec.args="--runs 10 java -jar ..."}, see
+ * {@link StartupOptions#USAGE} for all options.
+ */
+public class StartupTimer {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in (\\d+(?:\\.\\d+)?) seconds");
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(30);
+
+    private final StartupOptions options;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    private final Path logDirectory = Path.of("target", "startup-timer");
+
+    StartupTimer(StartupOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        StartupOptions options;
+        try {
+            options = StartupOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(StartupOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        System.exit(new StartupTimer(options).run() ? 0 : 1);
+    }
+
+    /**
+     * Runs the warmup runs then the measured ones, and prints the results.
+     * @return whether every measured run answered a request in time.
+     */
+    boolean run() throws IOException, InterruptedException {
+        Files.createDirectories(logDirectory);
+        System.out.printf("Starting %s %d times after %d warmup runs, until %s answers%n",
+                String.join(" ", options.command()), options.runs(), options.warmupRuns(), options.path());
+
+        List<Run> runs = new ArrayList<>();
+        for (int i = 0; i < options.warmupRuns() + options.runs(); i++) {
+            boolean warmup = i < options.warmupRuns();
+            Run run = start(warmup ? "warmup-" + (i + 1) : "run-" + (i - options.warmupRuns() + 1));
+            System.out.println(run);
+            if (!warmup) {
+                runs.add(run);
+            }
+        }
+
+        printSummary(runs);
+        return runs.stream().allMatch(run -> run.firstRequestMillis() != null);
+    }
+
+    private Run start(String name) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>(options.command());
+        command.add("--server.port=" + port);
+        Path log = logDirectory.resolve(name + ".log");
+        URI uri = URI.create("http://localhost:" + port + options.path());
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            Double firstRequestMillis = awaitFirstAnswer(process, uri, start);
+            return new Run(name, firstRequestMillis, startedMillis(log));
+        } finally {
+            stop(process);
+        }
+    }
+
+    /**
+     * Polls the instance until it answers, and returns the time elapsed since its start in milliseconds, or null if
+     * it exited or timed out first.
+     */
+    private Double awaitFirstAnswer(Process process, URI uri, long start) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).GET().build();
+        long deadline = start + options.timeout().toNanos();
+        while (System.nanoTime() - deadline < 0 && process.isAlive()) {
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                // Any answer other than a server error means requests are served.
+                if (response.statusCode() < 500) {
+                    return (System.nanoTime() - start) / 1_000_000.0;
+                }
+            } catch (IOException e) {
+                // Not listening yet.
+            }
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        }
+        return null;
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        // The command may be a launcher, such as mvn, running the application in a child process.
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+        if (!process.waitFor(STOP_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    /**
+     * Returns the startup time logged by Spring Boot in milliseconds, or null if it was not logged.
+     */
+    private static Double startedMillis(Path log) throws IOException {
+        Matcher matcher = STARTED.matcher(Files.readString(log));
+        return matcher.find() ? Double.parseDouble(matcher.group(1)) * 1000 : null;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void printSummary(List<Run> runs) {
+        System.out.println();
+        System.out.printf("%-22s %10s %10s %10s %10s%n", "", "min ms", "median ms", "mean ms", "max ms");
+        printSummary("time to first request", runs.stream().map(Run::firstRequestMillis).toList());
+        printSummary("spring boot startup", runs.stream().map(Run::startedMillis).toList());
+        long failed = runs.stream().filter(run -> run.firstRequestMillis() == null).count();
+        if (failed > 0) {
+            System.out.printf("%d of %d runs did not answer in time, see target/startup-timer.%n", failed, runs.size());
+        }
+    }
+
+    private static void printSummary(String label, List<Double> values) {
+        List<Double> sorted = values.stream().filter(value -> value != null).sorted().toList();
+        if (sorted.isEmpty()) {
+            System.out.printf("%-22s %10s%n", label, "n/a");
+            return;
+        }
+        int middle = sorted.size() / 2;
+        double median = sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+        OptionalDouble mean = sorted.stream().mapToDouble(Double::doubleValue).average();
+        System.out.printf("%-22s %10.0f %10.0f %10.0f %10.0f%n",
+                label, sorted.get(0), median, mean.orElseThrow(), sorted.get(sorted.size() - 1));
+    }
+
+    /**
+     * Outcome of one start, times in milliseconds, null when not measured.
+     */
+    private record Run(String name, Double firstRequestMillis, Double startedMillis) {
+
+        @Override
+        public String toString() {
+            return "%-10s first request %s, spring boot startup %s".formatted(name,
+                    firstRequestMillis == null ? "FAILED" : "%.0f ms".formatted(firstRequestMillis),
+                    startedMillis == null ? "n/a" : "%.0f ms".formatted(startedMillis));
+        }
+    }
+}
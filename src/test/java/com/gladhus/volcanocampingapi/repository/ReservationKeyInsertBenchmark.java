@@ -0,0 +1,116 @@
+package com.gladhus.volcanocampingapi.repository;
+
+import com.gladhus.volcanocampingapi.domain.TimeOrderedUuidGenerator;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.id.UUIDHexGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inserts of reservations into a file-backed H2 table already holding {@link #PREFILLED_ROWS} rows, in batches of
+ * {@link #BATCH_SIZE}, for each kind of primary key. The scores are rows inserted per second.
+ * <ul>
+ *     <li>hibernate-hex: the former ids, 32 hexadecimal characters from Hibernate's uuid generator.</li>
+ *     <li>random-hex: 32 random hexadecimal characters, as inserted by several instances at once.</li>
+ *     <li>time-ordered-binary: {@link TimeOrderedUuidGenerator} ids stored as BINARY(16).</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReservationKeyInsertBenchmark {
+
+    private static final int PREFILLED_ROWS = 200_000;
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final UUIDHexGenerator HIBERNATE_HEX = new UUIDHexGenerator();
+
+    @Param({"hibernate-hex", "random-hex", "time-ordered-binary"})
+    public String key;
+
+    Path directory;
+
+    Connection connection;
+
+    PreparedStatement insert;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("reservation-key-benchmark");
+        connection = DriverManager.getConnection("jdbc:h2:file:" + directory.resolve("db") + ";MODE=MySQL", "sa", "");
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table reservation (id " + ("time-ordered-binary".equals(key) ? "binary(16)" : "varchar(255)")
+                    + " not null primary key, email varchar(255), full_name varchar(255), status varchar(255), "
+                    + "checkin date, checkout date)");
+            statement.execute("create index idx_reservation_checkin on reservation (checkin)");
+        }
+        insert = connection.prepareStatement("insert into reservation values (?, ?, ?, ?, ?, ?)");
+        for (int i = 0; i < PREFILLED_ROWS / BATCH_SIZE; i++) {
+            insertBatch();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        try (var files = Files.walk(directory)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insertBatch() throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            LocalDate checkin = LocalDate.now().plusDays(random.nextInt(1, 365));
+            insert.setObject(1, nextId());
+            insert.setString(2, "test@example.com");
+            insert.setString(3, "fullName-test");
+            insert.setString(4, "ACTIVE");
+            insert.setObject(5, checkin);
+            insert.setObject(6, checkin.plusDays(random.nextInt(1, 4)));
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+
+    private Object nextId() {
+        return switch (key) {
+            case "hibernate-hex" -> HIBERNATE_HEX.generate(null, null);
+            case "random-hex" -> UUID.randomUUID().toString().replace("-", "");
+            default -> {
+                UUID id = TimeOrderedUuidGenerator.next();
+                yield ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+            }
+        };
+    }
+}
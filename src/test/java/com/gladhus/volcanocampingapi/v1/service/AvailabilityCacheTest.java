@@ -0,0 +1,109 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.event.OccupancyIndexRefreshedEvent;
+import com.gladhus.volcanocampingapi.event.ReservationDatesChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvailabilityCacheTest {
+
+    static final Long CAMPSITE_ID = Campsite.DEFAULT_ID;
+
+    static final Long OTHER_CAMPSITE_ID = 2L;
+
+    AvailabilityCache testee;
+
+    SimpleMeterRegistry meterRegistry;
+
+    LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        testee = new AvailabilityCache(true, 100, Duration.ofMinutes(5), meterRegistry);
+    }
+
+    @Test
+    void get_Cached() {
+        AvailableDates loaded = AvailableDates.fromReservations(today, today.plusDays(5), List.of());
+
+        assertThat(testee.get(CAMPSITE_ID, today, today.plusDays(5), () -> loaded)).isSameAs(loaded);
+        assertThat(testee.get(CAMPSITE_ID, today, today.plusDays(5), () -> { throw new AssertionError("Should be cached"); })).isSameAs(loaded);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "availabilities").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void get_Disabled() {
+        testee = new AvailabilityCache(false, 100, Duration.ofMinutes(5), meterRegistry);
+
+        testee.get(CAMPSITE_ID, today, today.plusDays(5), () -> new AvailableDates(today, new BitSet()));
+
+        assertThat(testee.getIfPresent(CAMPSITE_ID, today, today.plusDays(5))).isEmpty();
+    }
+
+    @Test
+    void get_NotStoredWhenEvictedWhileLoading() {
+        testee.get(CAMPSITE_ID, today, today.plusDays(5), () -> {
+            testee.onReservationDatesChanged(new ReservationDatesChangedEvent(CAMPSITE_ID, today.plusDays(10), today.plusDays(11)));
+            return new AvailableDates(today, new BitSet());
+        });
+
+        assertThat(testee.getIfPresent(CAMPSITE_ID, today, today.plusDays(5))).isEmpty();
+    }
+
+    @Test
+    void onReservationDatesChanged_EvictsOverlappingRanges() {
+        testee.get(CAMPSITE_ID, today, today.plusDays(5), () -> new AvailableDates(today, new BitSet()));
+        testee.get(CAMPSITE_ID, today.plusDays(6), today.plusDays(10), () -> new AvailableDates(today, new BitSet()));
+        testee.get(CAMPSITE_ID, today.plusDays(11), today.plusDays(20), () -> new AvailableDates(today, new BitSet()));
+
+        // Nights 5 and 6 were booked: the first two ranges include one of them, the third starts right after.
+        testee.onReservationDatesChanged(new ReservationDatesChangedEvent(CAMPSITE_ID, today.plusDays(5), today.plusDays(7)));
+
+        assertThat(testee.getIfPresent(CAMPSITE_ID, today, today.plusDays(5))).isEmpty();
+        assertThat(testee.getIfPresent(CAMPSITE_ID, today.plusDays(6), today.plusDays(10))).isEmpty();
+        assertThat(testee.getIfPresent(CAMPSITE_ID, today.plusDays(11), today.plusDays(20))).isPresent();
+    }
+
+    @Test
+    void onOccupancyIndexRefreshed_EvictsOverlappingRanges() {
+        testee.get(CAMPSITE_ID, today, today.plusDays(5), () -> new AvailableDates(today, new BitSet()));
+
+        testee.onOccupancyIndexRefreshed(new OccupancyIndexRefreshedEvent(CAMPSITE_ID, today.plusDays(5), today.plusDays(6)));
+
+        assertThat(testee.getIfPresent(CAMPSITE_ID, today, today.plusDays(5))).isEmpty();
+    }
+
+    @Test
+    void onReservationDatesChanged_KeepsOtherCampsites() {
+        testee.get(CAMPSITE_ID, today, today.plusDays(5), () -> new AvailableDates(today, new BitSet()));
+        testee.get(OTHER_CAMPSITE_ID, today, today.plusDays(5), () -> new AvailableDates(today, new BitSet()));
+
+        testee.onReservationDatesChanged(new ReservationDatesChangedEvent(OTHER_CAMPSITE_ID, today.plusDays(1), today.plusDays(2)));
+
+        assertThat(testee.getIfPresent(CAMPSITE_ID, today, today.plusDays(5))).isPresent();
+        assertThat(testee.getIfPresent(OTHER_CAMPSITE_ID, today, today.plusDays(5))).isEmpty();
+    }
+
+    @Test
+    void get_StoredWhenOtherCampsiteEvictedWhileLoading() {
+        testee.get(CAMPSITE_ID, today, today.plusDays(5), () -> {
+            testee.get(OTHER_CAMPSITE_ID, today, today.plusDays(5), () -> new AvailableDates(today, new BitSet()));
+            testee.onReservationDatesChanged(new ReservationDatesChangedEvent(OTHER_CAMPSITE_ID, today.plusDays(1), today.plusDays(2)));
+            return new AvailableDates(today, new BitSet());
+        });
+
+        assertThat(testee.getIfPresent(CAMPSITE_ID, today, today.plusDays(5))).isPresent();
+    }
+}
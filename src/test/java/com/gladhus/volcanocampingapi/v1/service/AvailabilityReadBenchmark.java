@@ -0,0 +1,136 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.VolcanoCampingApiApplication;
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingGuard;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reads of the available dates of a campsite over a month, against an in-memory H2 database holding
+ * {@link #PREFILLED_ROWS} reservations spread over {@link #CAMPSITES} campsites and the next year, as done by
+ * {@link ReservationService} when the occupancy index does not cover the range.
+ * <ul>
+ *     <li>reservations: the stays of the active reservations overlapping the month are selected, as in the
+ *     {@code pessimistic} booking mode.</li>
+ *     <li>night-rows: the {@code reservation_night} rows of the month are read by primary key range.</li>
+ *     <li>optimistic: the {@code daily_occupancy} rows of the month are read by primary key range.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AvailabilityReadBenchmark {
+
+    private static final int PREFILLED_ROWS = 10_000;
+
+    private static final int CAMPSITES = 100;
+
+    @Param({"reservations", "night-rows", "optimistic"})
+    public String source;
+
+    ConfigurableApplicationContext context;
+
+    ReservationRepository reservationRepository;
+
+    BookingGuard bookingGuard;
+
+    TransactionTemplate readOnlyTransaction;
+
+    LocalDate today;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(VolcanoCampingApiApplication.class)
+                .web(WebApplicationType.NONE)
+                // Arguments rather than default properties, which application.properties would override.
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:availability-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--volcano.booking.mode=" + ("reservations".equals(source) ? "pessimistic" : source),
+                        "--volcano.occupancy-index.enabled=false",
+                        "--volcano.archive.enabled=false",
+                        "--volcano.partitioning.enabled=false",
+                        "--logging.level.root=WARN");
+        reservationRepository = context.getBean(ReservationRepository.class);
+        bookingGuard = context.getBean(BookingGuard.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        today = LocalDate.now();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Reservation> reservations = new ArrayList<>();
+        for (long campsiteId = 1; campsiteId <= CAMPSITES; campsiteId++) {
+            // Consecutive stays, so the reservations of a campsite never overlap.
+            LocalDate checkin = today;
+            for (int i = 0; i < PREFILLED_ROWS / CAMPSITES; i++) {
+                checkin = checkin.plusDays(random.nextInt(0, 3));
+                LocalDate checkout = checkin.plusDays(random.nextInt(1, 4));
+                reservations.add(Reservation.builder()
+                        .campsiteId(campsiteId)
+                        .email("test@example.com")
+                        .fullName("fullName-test")
+                        .status(ReservationStatus.ACTIVE)
+                        .checkin(checkin)
+                        .checkout(checkout)
+                        .build());
+                checkin = checkout;
+            }
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            try {
+                bookingGuard.reserveNights(reservationRepository.saveAll(reservations));
+            } catch (InvalidDatesException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public AvailableDates getAvailabilities() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long campsiteId = random.nextLong(1, CAMPSITES + 1);
+        LocalDate fromDate = today.plusDays(random.nextInt(0, 300));
+        LocalDate toDate = fromDate.plusMonths(1);
+        return readOnlyTransaction.execute(status -> bookingGuard.readAvailableNights(campsiteId, fromDate, toDate.plusDays(1))
+                .orElseGet(() -> AvailableDates.fromStays(fromDate, toDate,
+                        reservationRepository.findStaysOverlappingByStatus(campsiteId, fromDate, toDate.plusDays(1), ReservationStatus.ACTIVE))));
+    }
+}
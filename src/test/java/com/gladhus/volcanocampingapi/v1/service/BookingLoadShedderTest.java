@@ -0,0 +1,54 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.exception.ServiceUnavailableException;
+import com.gladhus.volcanocampingapi.exception.TooManyRequestsException;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookingLoadShedderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final BookingLoadShedder testee = new BookingLoadShedder(new BookingMetrics(meterRegistry, "night-rows"), 1,
+            Duration.ofSeconds(2), meterRegistry);
+
+    @Test
+    void call() throws GenericAPIException {
+        assertThat(testee.call(BookingMetrics.OPERATION_CREATE, () -> "booked")).isEqualTo("booked");
+        // The permit is released once the booking completes.
+        assertThat(testee.call(BookingMetrics.OPERATION_CREATE, () -> "booked")).isEqualTo("booked");
+    }
+
+    @Test
+    void call_InFlightLimitReached() throws GenericAPIException {
+        testee.call(BookingMetrics.OPERATION_CREATE, () -> {
+            assertThatThrownBy(() -> testee.call(BookingMetrics.OPERATION_UPDATE, () -> "booked"))
+                    .isInstanceOf(TooManyRequestsException.class)
+                    .hasFieldOrPropertyWithValue("retryAfter", Duration.ofSeconds(2));
+            return "booked";
+        });
+
+        assertThat(meterRegistry.get("booking.shed").tag("operation", "update").tag("reason", "in-flight-limit").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void call_LockTimeout() throws GenericAPIException {
+        assertThatThrownBy(() -> testee.call(BookingMetrics.OPERATION_CANCEL, () -> {
+            throw new CannotAcquireLockException("Lock wait timeout exceeded.");
+        })).isInstanceOf(ServiceUnavailableException.class);
+
+        assertThat(meterRegistry.get("booking.shed").tag("operation", "cancel").tag("reason", "lock-timeout").counter().count())
+                .isEqualTo(1);
+        // The permit of the rejected booking is released.
+        assertThat(testee.call(BookingMetrics.OPERATION_CREATE, () -> "booked")).isEqualTo("booked");
+    }
+}
@@ -0,0 +1,63 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.exception.ReservationNotFoundException;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookingRetryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final BookingRetry testee = new BookingRetry(new BookingMetrics(meterRegistry, "optimistic"), 3,
+            Duration.ofMillis(1), Duration.ofMillis(2));
+
+    @Test
+    void call() throws GenericAPIException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = testee.call(BookingMetrics.OPERATION_CREATE, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("A night was booked concurrently.");
+            }
+            return "booked";
+        });
+
+        assertThat(result).isEqualTo("booked");
+        assertThat(meterRegistry.get("booking.retries").tag("operation", "create").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void call_AttemptsExhausted() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> testee.call(BookingMetrics.OPERATION_CREATE, () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("A night was booked concurrently.");
+        })).isInstanceOf(DatesNotAvailableException.class);
+
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.get("booking.outcomes").tag("outcome", "conflict").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void call_OtherErrorsNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> testee.call(BookingMetrics.OPERATION_UPDATE, () -> {
+            attempts.incrementAndGet();
+            throw new ReservationNotFoundException();
+        })).isInstanceOf(ReservationNotFoundException.class);
+
+        assertThat(attempts).hasValue(1);
+    }
+}
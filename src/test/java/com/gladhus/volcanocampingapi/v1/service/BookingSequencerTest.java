@@ -0,0 +1,259 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.exception.BatchReservationException;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.exception.ReservationNotFoundException;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingGuard;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BookingSequencerTest {
+
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+
+    BookingSequencer testee;
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    BookingGuard bookingGuard;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setup() {
+        when(reservationRepository.save(any())).thenAnswer(invocation -> withId(invocation.getArgument(0)));
+        when(reservationRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Reservation> reservations = invocation.getArgument(0);
+            reservations.forEach(BookingSequencerTest::withId);
+            return reservations;
+        });
+        testee = new BookingSequencer(reservationRepository, bookingGuard, new BookingMetrics(new SimpleMeterRegistry(), "night-rows"),
+                eventPublisher, transactionManager, new SimpleMeterRegistry(), 16, 8);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        testee.destroy();
+    }
+
+    @Test
+    void createReservation() throws GenericAPIException {
+        testee.afterSingletonsInstantiated();
+
+        Reservation created = testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(2)));
+
+        assertThat(created.getId()).isNotNull();
+        assertThat(created.getStatus()).isEqualTo(ReservationStatus.ACTIVE);
+        assertThatThrownBy(() -> testee.createReservation(reservation(TOMORROW.plusDays(1), TOMORROW.plusDays(3))))
+                .isInstanceOf(DatesNotAvailableException.class);
+        verify(reservationRepository, times(1)).save(any());
+    }
+
+    @Test
+    void createReservation_OtherCampsite() throws GenericAPIException {
+        testee.afterSingletonsInstantiated();
+        testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(2)));
+
+        Reservation otherCampsite = reservation(TOMORROW, TOMORROW.plusDays(2));
+        otherCampsite.setCampsiteId(2L);
+
+        assertThat(testee.createReservation(otherCampsite).getStatus()).isEqualTo(ReservationStatus.ACTIVE);
+    }
+
+    @Test
+    void createReservation_RecoveredNightsNotAvailable() {
+        Reservation existing = withId(reservation(TOMORROW, TOMORROW.plusDays(2)));
+        when(reservationRepository.findByStatusAndCheckoutAfter(ReservationStatus.ACTIVE, LocalDate.now())).thenReturn(List.of(existing));
+        testee.afterSingletonsInstantiated();
+
+        assertThatThrownBy(() -> testee.createReservation(reservation(TOMORROW.plusDays(1), TOMORROW.plusDays(2))))
+                .isInstanceOf(DatesNotAvailableException.class);
+    }
+
+    @Test
+    void createReservation_Concurrently() throws Exception {
+        testee.afterSingletonsInstantiated();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Reservation>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Callable<Reservation> create = () -> testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(2)));
+                results.add(executor.submit(create));
+            }
+
+            int booked = 0;
+            for (Future<Reservation> result : results) {
+                try {
+                    result.get();
+                    booked++;
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(DatesNotAvailableException.class);
+                }
+            }
+            assertThat(booked).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void createReservations_OverlappingBatch() {
+        testee.afterSingletonsInstantiated();
+
+        assertThatThrownBy(() -> testee.createReservations(List.of(
+                reservation(TOMORROW, TOMORROW.plusDays(2)),
+                reservation(TOMORROW.plusDays(1), TOMORROW.plusDays(3)))))
+                .isInstanceOf(BatchReservationException.class)
+                .satisfies(e -> assertThat(((BatchReservationException) e).getItemErrors()).containsOnlyKeys(1));
+    }
+
+    @Test
+    void updateReservation() throws GenericAPIException {
+        testee.afterSingletonsInstantiated();
+        Reservation created = testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(2)));
+        when(reservationRepository.findById(created.getId())).thenReturn(Optional.of(copy(created)));
+
+        Reservation moved = reservation(TOMORROW.plusDays(1), TOMORROW.plusDays(3));
+        moved.setId(created.getId());
+        testee.updateReservation(moved);
+
+        // The first night was released by the update, the nights it moved to are taken.
+        testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(1)));
+        assertThatThrownBy(() -> testee.createReservation(reservation(TOMORROW.plusDays(2), TOMORROW.plusDays(3))))
+                .isInstanceOf(DatesNotAvailableException.class);
+    }
+
+    @Test
+    void updateReservation_NotFound() {
+        testee.afterSingletonsInstantiated();
+        Reservation unknown = withId(reservation(TOMORROW, TOMORROW.plusDays(2)));
+
+        assertThatThrownBy(() -> testee.updateReservation(unknown)).isInstanceOf(ReservationNotFoundException.class);
+    }
+
+    @Test
+    void cancelReservation() throws GenericAPIException {
+        testee.afterSingletonsInstantiated();
+        Reservation created = testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(2)));
+        when(reservationRepository.findByIdAndStatus(created.getId(), ReservationStatus.ACTIVE)).thenReturn(Optional.of(copy(created)));
+
+        assertThat(testee.cancelReservation(created.getId()).getStatus()).isEqualTo(ReservationStatus.CANCELLED);
+
+        assertThat(testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(2))).getId()).isNotEqualTo(created.getId());
+    }
+
+    @Test
+    void bookingGuardRowsKept() throws GenericAPIException {
+        testee.afterSingletonsInstantiated();
+        Reservation created = testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(2)));
+        verify(bookingGuard).reserveNights(created, null, null);
+
+        List<Reservation> batch = testee.createReservations(List.of(reservation(TOMORROW.plusDays(5), TOMORROW.plusDays(6))));
+        verify(bookingGuard).reserveNights(batch);
+
+        when(reservationRepository.findById(created.getId())).thenReturn(Optional.of(copy(created)));
+        Reservation moved = reservation(TOMORROW.plusDays(1), TOMORROW.plusDays(3));
+        moved.setId(created.getId());
+        testee.updateReservation(moved);
+        verify(bookingGuard).reserveNights(moved, TOMORROW, TOMORROW.plusDays(2));
+
+        when(reservationRepository.findByIdAndStatus(created.getId(), ReservationStatus.ACTIVE)).thenReturn(Optional.of(copy(moved)));
+        Reservation cancelled = testee.cancelReservation(created.getId());
+        verify(bookingGuard).releaseNights(cancelled);
+    }
+
+    @Test
+    void createReservation_BookingGuardDisagrees() throws GenericAPIException {
+        testee.afterSingletonsInstantiated();
+        doThrow(new DatesNotAvailableException()).doNothing().when(bookingGuard).reserveNights(any(Reservation.class), any(), any());
+
+        // The reservation is already saved when the guard rejects its nights, the whole batch is rolled back.
+        assertThatThrownBy(() -> testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(2))))
+                .isInstanceOf(IllegalStateException.class);
+        verify(transactionManager).rollback(any());
+
+        assertThat(testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(2))).getStatus()).isEqualTo(ReservationStatus.ACTIVE);
+    }
+
+    @Test
+    void createReservation_CommitFailed() throws GenericAPIException {
+        testee.afterSingletonsInstantiated();
+        doThrow(new DataAccessResourceFailureException("Connection lost")).doNothing().when(transactionManager).commit(any());
+
+        assertThatThrownBy(() -> testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(2))))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        // Nothing was saved, the nights are still available.
+        assertThat(testee.createReservation(reservation(TOMORROW, TOMORROW.plusDays(2))).getStatus()).isEqualTo(ReservationStatus.ACTIVE);
+        verify(reservationRepository, times(2)).findByStatusAndCheckoutAfter(ReservationStatus.ACTIVE, LocalDate.now());
+    }
+
+    private static Reservation reservation(LocalDate checkin, LocalDate checkout) {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(checkin, checkout);
+        reservation.setId(null);
+        return reservation;
+    }
+
+    private static Reservation withId(Reservation reservation) {
+        if (reservation.getId() == null) {
+            reservation.setId(UUID.randomUUID());
+        }
+        return reservation;
+    }
+
+    private static Reservation copy(Reservation reservation) {
+        return Reservation.builder()
+                .id(reservation.getId())
+                .campsiteId(reservation.getCampsiteId())
+                .email(reservation.getEmail())
+                .fullName(reservation.getFullName())
+                .status(reservation.getStatus())
+                .checkin(reservation.getCheckin())
+                .checkout(reservation.getCheckout())
+                .build();
+    }
+}
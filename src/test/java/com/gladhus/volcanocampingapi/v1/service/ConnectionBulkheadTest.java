@@ -0,0 +1,63 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionBulkheadTest {
+
+    @Test
+    void call_Disabled() throws Exception {
+        ConnectionBulkhead testee = new ConnectionBulkhead(false, 1, Duration.ZERO, null, new SimpleMeterRegistry());
+
+        assertThat(testee.call(() -> testee.call(() -> "nested"))).isEqualTo("nested");
+    }
+
+    @Test
+    void call_PermitReleasedAfterWork() throws Exception {
+        ConnectionBulkhead testee = new ConnectionBulkhead(true, 1, Duration.ofMillis(100), null, new SimpleMeterRegistry());
+
+        assertThat(testee.call(() -> "first")).isEqualTo("first");
+        assertThat(testee.call(() -> "second")).isEqualTo("second");
+    }
+
+    @Test
+    void call_TimesOutWhenNoPermitAvailable() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConnectionBulkhead testee = new ConnectionBulkhead(true, 1, Duration.ofMillis(50), null, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> holder = executor.submit(() -> testee.call(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "holder";
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> testee.call(() -> "rejected")).isInstanceOf(ServiceUnavailableException.class);
+            assertThat(meterRegistry.get("booking.bulkhead.available").gauge().value()).isZero();
+
+            release.countDown();
+            assertThat(holder.get(5, TimeUnit.SECONDS)).isEqualTo("holder");
+            assertThat(meterRegistry.get("booking.bulkhead.available").gauge().value()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.domain.Stay;
+import com.gladhus.volcanocampingapi.event.OccupancyIndexRefreshedEvent;
+import com.gladhus.volcanocampingapi.event.ReservationDatesChangedEvent;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class OccupancyIndexTest {
+
+    private static final int HORIZON_DAYS = 64;
+
+    private static final Long CAMPSITE_ID = Campsite.DEFAULT_ID;
+
+    private static final Long OTHER_CAMPSITE_ID = 2L;
+
+    OccupancyIndex testee;
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    CampsiteService campsiteService;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(campsiteService.getCampsiteIds()).thenReturn(List.of(CAMPSITE_ID));
+        testee = new OccupancyIndex(reservationRepository, campsiteService, transactionManager, eventPublisher, true, HORIZON_DAYS, Runnable::run);
+    }
+
+    @Test
+    void findAvailableDates_NotLoaded() {
+        assertThat(testee.findAvailableDates(CAMPSITE_ID, LocalDate.now(), LocalDate.now().plusDays(10))).isEmpty();
+    }
+
+    @Test
+    void findAvailableDates_Disabled() {
+        testee = new OccupancyIndex(reservationRepository, campsiteService, transactionManager, eventPublisher, false, HORIZON_DAYS, Runnable::run);
+
+        testee.reload();
+
+        assertThat(testee.findAvailableDates(CAMPSITE_ID, LocalDate.now(), LocalDate.now().plusDays(10))).isEmpty();
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void findAvailableDates() {
+        LocalDate today = LocalDate.now();
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(
+                        new Stay(today.plusDays(1), today.plusDays(3)),
+                        new Stay(today.plusDays(4), today.plusDays(5))));
+
+        testee.reload();
+
+        verify(eventPublisher).publishEvent(new OccupancyIndexRefreshedEvent(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS)));
+        Optional<AvailableDates> result = testee.findAvailableDates(CAMPSITE_ID, today, today.plusDays(6));
+        assertThat(result).isPresent();
+        assertThat(result.get()).containsExactly(today, today.plusDays(3), today.plusDays(5), today.plusDays(6));
+        assertThat(result.get().isAvailable(today.plusDays(5), today.plusDays(7))).isTrue();
+        assertThat(result.get().isAvailable(today.plusDays(2), today.plusDays(4))).isFalse();
+    }
+
+    @Test
+    void findAvailableDates_RangeNotCovered() {
+        LocalDate today = LocalDate.now();
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS), ReservationStatus.ACTIVE))
+                .thenReturn(List.of());
+
+        testee.reload();
+
+        assertThat(testee.findAvailableDates(CAMPSITE_ID, today.minusDays(1), today.plusDays(10))).isEmpty();
+        assertThat(testee.findAvailableDates(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS))).isEmpty();
+        assertThat(testee.findAvailableDates(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS - 1)).orElseThrow()).hasSize(HORIZON_DAYS);
+    }
+
+    @Test
+    void onReservationDatesChanged() {
+        LocalDate today = LocalDate.now();
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(
+                        new Stay(today.plusDays(1), today.plusDays(3)),
+                        new Stay(today.plusDays(4), today.plusDays(6))));
+        testee.reload();
+
+        // The first reservation was moved one night later, only the nights it touched are re-read.
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today.plusDays(1), today.plusDays(4), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(
+                        new Stay(today.plusDays(2), today.plusDays(4)),
+                        new Stay(today.plusDays(4), today.plusDays(6))));
+
+        testee.onReservationDatesChanged(new ReservationDatesChangedEvent(CAMPSITE_ID, today.plusDays(1), today.plusDays(4)));
+
+        assertThat(testee.findAvailableDates(CAMPSITE_ID, today, today.plusDays(7)).orElseThrow())
+                .containsExactly(today, today.plusDays(1), today.plusDays(6), today.plusDays(7));
+        verify(eventPublisher).publishEvent(new OccupancyIndexRefreshedEvent(CAMPSITE_ID, today.plusDays(1), today.plusDays(4)));
+    }
+
+    @Test
+    void onReservationDatesChanged_MergedWhilePending() {
+        LocalDate today = LocalDate.now();
+        List<Runnable> pendingRefreshes = new ArrayList<>();
+        testee = new OccupancyIndex(reservationRepository, campsiteService, transactionManager, eventPublisher, true, HORIZON_DAYS, pendingRefreshes::add);
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS), ReservationStatus.ACTIVE))
+                .thenReturn(List.of());
+        testee.reload();
+
+        testee.onReservationDatesChanged(new ReservationDatesChangedEvent(CAMPSITE_ID, today.plusDays(1), today.plusDays(3)));
+        testee.onReservationDatesChanged(new ReservationDatesChangedEvent(CAMPSITE_ID, today.plusDays(5), today.plusDays(6)));
+        assertThat(pendingRefreshes).hasSize(1);
+
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today.plusDays(1), today.plusDays(6), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(new Stay(today.plusDays(5), today.plusDays(6))));
+        pendingRefreshes.get(0).run();
+
+        assertThat(testee.findAvailableDates(CAMPSITE_ID, today.plusDays(4), today.plusDays(6)).orElseThrow())
+                .containsExactly(today.plusDays(4), today.plusDays(6));
+        verify(eventPublisher).publishEvent(new OccupancyIndexRefreshedEvent(CAMPSITE_ID, today.plusDays(1), today.plusDays(6)));
+    }
+
+    @Test
+    void onReservationDatesChanged_NotLoaded() {
+        LocalDate today = LocalDate.now();
+
+        testee.onReservationDatesChanged(new ReservationDatesChangedEvent(CAMPSITE_ID, today.plusDays(1), today.plusDays(4)));
+
+        assertThat(testee.findAvailableDates(CAMPSITE_ID, today, today.plusDays(7))).isEmpty();
+        verifyNoInteractions(reservationRepository, eventPublisher);
+    }
+
+    @Test
+    void findVersion() {
+        LocalDate today = LocalDate.now();
+        LocalDate nextMonth = YearMonth.from(today).plusMonths(1).atDay(1);
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS), ReservationStatus.ACTIVE))
+                .thenReturn(List.of());
+        testee.reload();
+        String todayVersion = testee.findVersion(CAMPSITE_ID, today, today).orElseThrow();
+        String nextMonthVersion = testee.findVersion(CAMPSITE_ID, nextMonth, nextMonth.plusDays(3)).orElseThrow();
+
+        assertThat(testee.findAvailableDates(CAMPSITE_ID, nextMonth, nextMonth.plusDays(3)).orElseThrow().getVersion()).contains(nextMonthVersion);
+        assertThat(testee.findVersion(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS))).isEmpty();
+
+        // A night of next month was booked: only the ranges including next month change.
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, nextMonth, nextMonth.plusDays(3), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(new Stay(nextMonth.plusDays(1), nextMonth.plusDays(2))));
+        testee.onReservationDatesChanged(new ReservationDatesChangedEvent(CAMPSITE_ID, nextMonth, nextMonth.plusDays(3)));
+
+        assertThat(testee.findVersion(CAMPSITE_ID, today, today)).contains(todayVersion);
+        assertThat(testee.findVersion(CAMPSITE_ID, nextMonth, nextMonth.plusDays(3))).isPresent().get().isNotEqualTo(nextMonthVersion);
+        assertThat(testee.findVersion(CAMPSITE_ID, nextMonth, nextMonth)).isNotEqualTo(testee.findVersion(CAMPSITE_ID, nextMonth, nextMonth.plusDays(3)));
+    }
+
+    @Test
+    void findVersion_NothingChanged() {
+        LocalDate today = LocalDate.now();
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(new Stay(today.plusDays(1), today.plusDays(3))));
+        testee.reload();
+        String version = testee.findVersion(CAMPSITE_ID, today, today.plusDays(10)).orElseThrow();
+
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today.plusDays(1), today.plusDays(3), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(new Stay(today.plusDays(1), today.plusDays(3))));
+        testee.onReservationDatesChanged(new ReservationDatesChangedEvent(CAMPSITE_ID, today.plusDays(1), today.plusDays(3)));
+        testee.reload();
+
+        assertThat(testee.findVersion(CAMPSITE_ID, today, today.plusDays(10))).contains(version);
+    }
+
+    @Test
+    void findVersion_OtherInstance() {
+        LocalDate today = LocalDate.now();
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS), ReservationStatus.ACTIVE))
+                .thenReturn(List.of());
+        OccupancyIndex otherInstance = new OccupancyIndex(reservationRepository, campsiteService, transactionManager, eventPublisher, true, HORIZON_DAYS, Runnable::run);
+        testee.reload();
+        otherInstance.reload();
+
+        assertThat(testee.findVersion(CAMPSITE_ID, today, today.plusDays(10))).isNotEqualTo(otherInstance.findVersion(CAMPSITE_ID, today, today.plusDays(10)));
+    }
+
+    @Test
+    void onReservationDatesChanged_OtherCampsite() {
+        LocalDate today = LocalDate.now();
+        when(campsiteService.getCampsiteIds()).thenReturn(List.of(CAMPSITE_ID, OTHER_CAMPSITE_ID));
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS), ReservationStatus.ACTIVE))
+                .thenReturn(List.of());
+        when(reservationRepository.findStaysOverlappingByStatus(OTHER_CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(new Stay(today.plusDays(1), today.plusDays(3))));
+        testee.reload();
+        String version = testee.findVersion(CAMPSITE_ID, today, today.plusDays(10)).orElseThrow();
+
+        when(reservationRepository.findStaysOverlappingByStatus(OTHER_CAMPSITE_ID, today.plusDays(1), today.plusDays(3), ReservationStatus.ACTIVE))
+                .thenReturn(List.of());
+        testee.onReservationDatesChanged(new ReservationDatesChangedEvent(OTHER_CAMPSITE_ID, today.plusDays(1), today.plusDays(3)));
+
+        assertThat(testee.findAvailableDates(CAMPSITE_ID, today, today.plusDays(3)).orElseThrow()).hasSize(4);
+        assertThat(testee.findAvailableDates(OTHER_CAMPSITE_ID, today, today.plusDays(3)).orElseThrow()).hasSize(4);
+        assertThat(testee.findVersion(CAMPSITE_ID, today, today.plusDays(10))).contains(version);
+        verify(reservationRepository, never()).findStaysOverlappingByStatus(CAMPSITE_ID, today.plusDays(1), today.plusDays(3), ReservationStatus.ACTIVE);
+    }
+
+    @Test
+    void findAvailableDates_UnknownCampsite() {
+        LocalDate today = LocalDate.now();
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, today, today.plusDays(HORIZON_DAYS), ReservationStatus.ACTIVE))
+                .thenReturn(List.of());
+
+        testee.reload();
+
+        assertThat(testee.findAvailableDates(OTHER_CAMPSITE_ID, today, today.plusDays(10))).isEmpty();
+    }
+}
@@ -0,0 +1,302 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationNight;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.domain.ReservationView;
+import com.gladhus.volcanocampingapi.exception.BatchReservationException;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import com.gladhus.volcanocampingapi.exception.ReservationNotFoundException;
+import com.gladhus.volcanocampingapi.exception.ServiceUnavailableException;
+import com.gladhus.volcanocampingapi.repository.ReactiveReservationRepository;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class ReactiveReservationServiceTest {
+
+    static final Long CAMPSITE_ID = Campsite.DEFAULT_ID;
+
+    ReactiveReservationService testee;
+
+    @Mock
+    ReactiveReservationRepository reservationRepository;
+
+    @Mock
+    CampsiteService campsiteService;
+
+    @Mock
+    TransactionalOperator transactionalOperator;
+
+    SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        // The transactions themselves are left to the integration tests.
+        lenient().when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        meterRegistry = new SimpleMeterRegistry();
+        testee = new ReactiveReservationService(reservationRepository, campsiteService, new BookingMetrics(meterRegistry, "night-rows"),
+                transactionalOperator, Duration.ofSeconds(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createReservation() {
+        Reservation reservation = ReservationDataTestUtil.getReservationPreCreate();
+
+        when(reservationRepository.insert(List.of(reservation))).thenReturn(Mono.empty());
+        when(reservationRepository.insertNights(anyList())).thenReturn(Mono.empty());
+
+        StepVerifier.create(testee.createReservation(reservation))
+                .assertNext(created -> {
+                    assertThat(created.getId()).isNotNull();
+                    assertThat(created.getStatus()).isEqualTo(ReservationStatus.ACTIVE);
+                    assertThat(created.getVersion()).isZero();
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<List<ReservationNight>> nights = ArgumentCaptor.forClass(List.class);
+        verify(reservationRepository).insertNights(nights.capture());
+        assertThat(nights.getValue()).extracting(ReservationNight::getNight)
+                .containsExactly(reservation.getCheckin(), reservation.getCheckin().plusDays(1));
+        assertThat(meterRegistry.get("booking.outcomes").tag("outcome", "booked").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void createReservation_InvalidDates() {
+        Reservation reservation = ReservationDataTestUtil.getReservationPreCreate(LocalDate.now(), LocalDate.now().plusDays(2));
+
+        StepVerifier.create(testee.createReservation(reservation))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(InvalidDatesException.class)
+                        .hasMessage("The checkin date needs to be at least one day in the future."))
+                .verify();
+
+        verifyNoInteractions(reservationRepository);
+        assertThat(meterRegistry.get("booking.outcomes").tag("outcome", "invalid").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void createReservation_NightsTaken() {
+        Reservation reservation = ReservationDataTestUtil.getReservationPreCreate();
+
+        when(reservationRepository.insert(List.of(reservation))).thenReturn(Mono.empty());
+        when(reservationRepository.insertNights(anyList())).thenReturn(Mono.error(new DataIntegrityViolationException("Duplicate entry")));
+
+        StepVerifier.create(testee.createReservation(reservation))
+                .expectError(DatesNotAvailableException.class)
+                .verify();
+
+        assertThat(meterRegistry.get("booking.outcomes").tag("outcome", "conflict").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void createReservation_LockWaitTimeout() {
+        Reservation reservation = ReservationDataTestUtil.getReservationPreCreate();
+
+        when(reservationRepository.insert(List.of(reservation))).thenReturn(Mono.empty());
+        when(reservationRepository.insertNights(anyList())).thenReturn(Mono.error(new QueryTimeoutException("Lock wait timeout exceeded")));
+
+        StepVerifier.create(testee.createReservation(reservation))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(ServiceUnavailableException.class)
+                        .hasFieldOrPropertyWithValue("retryAfter", Duration.ofSeconds(1)))
+                .verify();
+
+        assertThat(meterRegistry.get("booking.shed").tag("operation", BookingMetrics.OPERATION_CREATE)
+                .tag("reason", BookingMetrics.SHED_LOCK_TIMEOUT).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void createReservations_OverlapWithinBatch() {
+        List<Reservation> reservations = List.of(
+                ReservationDataTestUtil.getReservationPreCreate(LocalDate.now().plusDays(3), LocalDate.now().plusDays(5)),
+                ReservationDataTestUtil.getReservationPreCreate(LocalDate.now().plusDays(4), LocalDate.now().plusDays(6)));
+
+        StepVerifier.create(testee.createReservations(reservations))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(BatchReservationException.class)
+                        .hasFieldOrPropertyWithValue("status", HttpStatus.FORBIDDEN)
+                        .extracting(error -> ((BatchReservationException) error).getItemErrors())
+                        .isEqualTo(Map.of(1, "The dates selected overlap the reservation at index 0 of the batch.")))
+                .verify();
+
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void createReservations_NightsTaken() {
+        LocalDate checkin = LocalDate.now().plusDays(3);
+        List<Reservation> reservations = List.of(
+                ReservationDataTestUtil.getReservationPreCreate(checkin, checkin.plusDays(2)),
+                ReservationDataTestUtil.getReservationPreCreate(checkin.plusDays(5), checkin.plusDays(6)));
+
+        when(reservationRepository.findBookedNights(CAMPSITE_ID, checkin, checkin.plusDays(6))).thenReturn(Flux.just(checkin.plusDays(5)));
+
+        StepVerifier.create(testee.createReservations(reservations))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(BatchReservationException.class)
+                        .extracting(error -> ((BatchReservationException) error).getItemErrors())
+                        .isEqualTo(Map.of(1, new DatesNotAvailableException().getMessage())))
+                .verify();
+    }
+
+    @Test
+    void updateReservation() {
+        LocalDate checkin = LocalDate.now().plusDays(3);
+        Reservation oldReservation = ReservationDataTestUtil.getReservationEntity(checkin, checkin.plusDays(2));
+        oldReservation.setVersion(1L);
+        Reservation newReservation = Reservation.builder()
+                .id(oldReservation.getId())
+                .checkin(checkin.plusDays(1))
+                .checkout(checkin.plusDays(3))
+                .build();
+
+        when(reservationRepository.findForUpdateById(oldReservation.getId())).thenReturn(Mono.just(oldReservation));
+        when(reservationRepository.update(newReservation)).thenReturn(Mono.empty());
+        when(reservationRepository.deleteNights(CAMPSITE_ID, oldReservation.getId(), List.of(checkin))).thenReturn(Mono.empty());
+        when(reservationRepository.insertNights(List.of(ReservationNight.builder()
+                .campsiteId(CAMPSITE_ID)
+                .night(checkin.plusDays(2))
+                .reservationId(oldReservation.getId())
+                .build()))).thenReturn(Mono.empty());
+
+        StepVerifier.create(testee.updateReservation(newReservation))
+                .assertNext(updated -> {
+                    assertThat(updated.getEmail()).isEqualTo(oldReservation.getEmail());
+                    assertThat(updated.getStatus()).isEqualTo(ReservationStatus.ACTIVE);
+                    assertThat(updated.getVersion()).isEqualTo(2L);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void updateReservation_NotFound() {
+        Reservation newReservation = ReservationDataTestUtil.getReservationEntity();
+
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Mono.empty());
+
+        StepVerifier.create(testee.updateReservation(newReservation))
+                .expectError(ReservationNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void cancelReservation() {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity();
+        reservation.setVersion(1L);
+
+        when(reservationRepository.findForUpdateByIdAndStatus(reservation.getId(), ReservationStatus.ACTIVE)).thenReturn(Mono.just(reservation));
+        when(reservationRepository.update(reservation)).thenReturn(Mono.empty());
+        when(reservationRepository.deleteNights(CAMPSITE_ID, reservation.getId(),
+                List.of(reservation.getCheckin(), reservation.getCheckin().plusDays(1)))).thenReturn(Mono.empty());
+
+        StepVerifier.create(testee.cancelReservation(reservation.getId()))
+                .assertNext(cancelled -> {
+                    assertThat(cancelled.getStatus()).isEqualTo(ReservationStatus.CANCELLED);
+                    assertThat(cancelled.getVersion()).isEqualTo(2L);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getReservation_Archived() {
+        ReservationView reservationView = ReservationDataTestUtil.getReservationView();
+
+        when(reservationRepository.findViewById(reservationView.id())).thenReturn(Mono.empty());
+        when(reservationRepository.findArchivedViewById(reservationView.id())).thenReturn(Mono.just(reservationView));
+
+        StepVerifier.create(testee.getReservation(reservationView.id()))
+                .expectNext(reservationView)
+                .verifyComplete();
+    }
+
+    @Test
+    void getReservation_NotFound() {
+        UUID id = ReservationDataTestUtil.RESERVATION_ID;
+
+        when(reservationRepository.findViewById(id)).thenReturn(Mono.empty());
+        when(reservationRepository.findArchivedViewById(id)).thenReturn(Mono.empty());
+
+        StepVerifier.create(testee.getReservation(id))
+                .expectError(ReservationNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void getAvailabilities() {
+        LocalDate fromDate = LocalDate.now();
+        LocalDate toDate = fromDate.plusDays(4);
+
+        when(reservationRepository.findBookedNights(CAMPSITE_ID, fromDate, toDate.plusDays(1)))
+                .thenReturn(Flux.just(fromDate.plusDays(1), fromDate.plusDays(2)));
+
+        StepVerifier.create(testee.getAvailabilities(CAMPSITE_ID, fromDate, toDate))
+                .assertNext(availableDates -> assertThat(availableDates)
+                        .containsExactly(fromDate, fromDate.plusDays(3), fromDate.plusDays(4)))
+                .verifyComplete();
+    }
+
+    @Test
+    void getAvailabilities_InvalidDates() {
+        LocalDate fromDate = LocalDate.now();
+
+        StepVerifier.create(testee.getAvailabilities(CAMPSITE_ID, fromDate, fromDate))
+                .expectError(InvalidDatesException.class)
+                .verify();
+
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void getAvailabilitiesByCampsite() {
+        LocalDate fromDate = LocalDate.now();
+        LocalDate toDate = fromDate.plusDays(1);
+        Campsite campsite = Campsite.builder().id(CAMPSITE_ID).name("campsite").build();
+        Campsite otherCampsite = Campsite.builder().id(2L).name("other campsite").build();
+
+        when(campsiteService.getCampsites()).thenReturn(List.of(campsite, otherCampsite));
+        when(reservationRepository.findBookedNights(CAMPSITE_ID, fromDate, toDate.plusDays(1))).thenReturn(Flux.just(fromDate));
+        when(reservationRepository.findBookedNights(2L, fromDate, toDate.plusDays(1))).thenReturn(Flux.empty());
+
+        StepVerifier.create(testee.getAvailabilitiesByCampsite(fromDate, toDate))
+                .assertNext(availabilities -> {
+                    assertThat(availabilities).containsOnlyKeys(campsite, otherCampsite);
+                    assertThat(availabilities.get(campsite)).containsExactly(toDate);
+                    assertThat(availabilities.get(otherCampsite)).containsExactly(fromDate, toDate);
+                })
+                .verifyComplete();
+    }
+}
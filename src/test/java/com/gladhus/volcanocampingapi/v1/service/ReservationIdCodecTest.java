@@ -0,0 +1,65 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.domain.TimeOrderedUuidGenerator;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReservationIdCodecTest {
+
+    private final ReservationIdCodec testee = ReservationDataTestUtil.getReservationIdCodec();
+
+    @Test
+    void encode() {
+        UUID id = TimeOrderedUuidGenerator.next();
+
+        String publicId = testee.encode(id);
+
+        assertThat(publicId).matches("[0-9a-f]{32}");
+        assertThat(publicId).isNotEqualTo(id.toString().replace("-", ""));
+        assertThat(testee.decode(publicId)).contains(id);
+    }
+
+    @Test
+    void encode_ConsecutiveIds() {
+        String first = testee.encode(TimeOrderedUuidGenerator.next());
+        String second = testee.encode(TimeOrderedUuidGenerator.next());
+
+        // Ids created in the same millisecond share their first 6 bytes, their public ids share nothing.
+        assertThat(first.substring(0, 12)).isNotEqualTo(second.substring(0, 12));
+    }
+
+    @Test
+    void decode_LegacyId() {
+        // Ids generated before the storage ids were binary are public ids as they are.
+        String legacyId = "4028b8817f1e2c3d017f1e2c3d4e0000";
+
+        assertThat(testee.decode(legacyId).map(testee::encode)).contains(legacyId);
+    }
+
+    @Test
+    void missingKey() {
+        // The key has no default, the application does not start without one.
+        assertThatThrownBy(() -> new ReservationIdCodec(""))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("volcano.reservation-id.key");
+    }
+
+    @Test
+    void decode_NotAPublicId() {
+        assertThat(testee.decode("id-test")).isEmpty();
+        assertThat(testee.decode("zz28b8817f1e2c3d017f1e2c3d4e0000")).isEmpty();
+        assertThat(testee.decode(null)).isEmpty();
+    }
+
+    @Test
+    void invalidKey() {
+        assertThatThrownBy(() -> new ReservationIdCodec("AAEC"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Invalid reservation id key.");
+    }
+}
@@ -0,0 +1,134 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.VolcanoCampingApiApplication;
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
+import com.gladhus.volcanocampingapi.v1.v1.mapper.ReservationMapper;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reads of a reservation by id, and of the reservations overlapping a month, against an in-memory H2 database holding
+ * {@link #PREFILLED_ROWS} reservations, through the application's repositories and transaction manager. Run with the
+ * gc profiler to compare the allocations per read.
+ * <ul>
+ *     <li>entity: the entities are loaded in a read-write transaction, which keeps a snapshot of each of them and
+ *     dirty-checks them when flushing on commit.</li>
+ *     <li>entity-read-only: the entities are loaded in a read-only transaction, which neither keeps snapshots nor
+ *     flushes.</li>
+ *     <li>projection: the {@link com.gladhus.volcanocampingapi.domain.ReservationView} or the
+ *     {@link com.gladhus.volcanocampingapi.domain.Stay stays} are selected in a read-only transaction, without loading
+ *     any entity.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReservationReadBenchmark {
+
+    private static final int PREFILLED_ROWS = 10_000;
+
+    @Param({"entity", "entity-read-only", "projection"})
+    public String path;
+
+    ConfigurableApplicationContext context;
+
+    ReservationRepository reservationRepository;
+
+    ReservationMapper reservationMapper;
+
+    TransactionTemplate transaction;
+
+    List<UUID> ids;
+
+    LocalDate fromDate;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(VolcanoCampingApiApplication.class)
+                .web(WebApplicationType.NONE)
+                // Arguments rather than default properties, which application.properties would override.
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:read-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--volcano.archive.enabled=false",
+                        "--volcano.partitioning.enabled=false",
+                        "--logging.level.root=WARN");
+        reservationRepository = context.getBean(ReservationRepository.class);
+        reservationMapper = context.getBean(ReservationMapper.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(!"entity".equals(path));
+
+        fromDate = LocalDate.now();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Reservation> reservations = new ArrayList<>();
+        for (int i = 0; i < PREFILLED_ROWS; i++) {
+            LocalDate checkin = fromDate.plusDays(random.nextInt(1, 365));
+            reservations.add(Reservation.builder()
+                    .email("test@example.com")
+                    .fullName("fullName-test")
+                    .status(ReservationStatus.ACTIVE)
+                    .checkin(checkin)
+                    .checkout(checkin.plusDays(random.nextInt(1, 4)))
+                    .build());
+        }
+        ids = new TransactionTemplate(transactionManager).execute(status ->
+                reservationRepository.saveAll(reservations).stream().map(Reservation::getId).toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ReservationDto getReservation() {
+        UUID id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        return transaction.execute(status -> "projection".equals(path)
+                ? reservationMapper.mapToDto(reservationRepository.findViewById(id).orElseThrow())
+                : reservationMapper.mapToDto(reservationRepository.findById(id).orElseThrow()));
+    }
+
+    @Benchmark
+    public AvailableDates getAvailabilities() {
+        LocalDate toDate = fromDate.plusMonths(1);
+        return transaction.execute(status -> "projection".equals(path)
+                ? AvailableDates.fromStays(fromDate, toDate,
+                        reservationRepository.findStaysOverlappingByStatus(Campsite.DEFAULT_ID, fromDate, toDate.plusDays(1), ReservationStatus.ACTIVE))
+                : AvailableDates.fromReservations(fromDate, toDate,
+                        reservationRepository.findOverlappingByStatus(Campsite.DEFAULT_ID, fromDate, toDate.plusDays(1), ReservationStatus.ACTIVE)));
+    }
+}
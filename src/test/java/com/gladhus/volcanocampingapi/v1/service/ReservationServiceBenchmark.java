@@ -0,0 +1,141 @@
+package com.gladhus.volcanocampingapi.v1.service;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDatesBenchmark;
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.Stay;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import com.gladhus.volcanocampingapi.v1.service.booking.NightLockManager;
+import com.gladhus.volcanocampingapi.v1.service.booking.PessimisticLockBookingGuard;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+/**
+ * Service operations on top of a stubbed {@link ReservationRepository}, with the occupancy index and the availability
+ * cache disabled so every call does the full computation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReservationServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class AvailabilityState {
+
+        @Param({"0", "30", "300"})
+        public int reservations;
+
+        ReservationService service;
+
+        LocalDate fromDate;
+
+        LocalDate toDate;
+
+        @Setup
+        public void setup() {
+            fromDate = LocalDate.now();
+            toDate = fromDate.plusMonths(1);
+            service = newService(AvailableDatesBenchmark.randomReservations(fromDate, reservations));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ValidationState {
+
+        ReservationService service;
+
+        Reservation reservation;
+
+        @Setup
+        public void setup() {
+            LocalDate today = LocalDate.now();
+            service = newService(List.of(
+                    ReservationDataTestUtil.getReservationEntity(today.plusDays(2), today.plusDays(5)),
+                    ReservationDataTestUtil.getReservationEntity(today.plusDays(7), today.plusDays(9))));
+            reservation = ReservationDataTestUtil.getReservationPreCreate(today.plusDays(5), today.plusDays(7));
+        }
+    }
+
+    @Benchmark
+    public Set<LocalDate> getAvailabilities(AvailabilityState state) throws InvalidDatesException {
+        return state.service.getAvailabilities(Campsite.DEFAULT_ID, state.fromDate, state.toDate);
+    }
+
+    @Benchmark
+    public Reservation validateDatesForCreationOrUpdate(ValidationState state) throws InvalidDatesException {
+        state.service.validateDatesForCreationOrUpdate(state.reservation);
+        return state.reservation;
+    }
+
+    private static ReservationService newService(List<Reservation> reservations) {
+        ReservationRepository reservationRepository = stubRepository(reservations);
+        PlatformTransactionManager transactionManager = new NoOpTransactionManager();
+        BookingMetrics bookingMetrics = new BookingMetrics(new SimpleMeterRegistry(), "pessimistic");
+        return new ReservationService(reservationRepository,
+                null, // The archive is only read by getReservation, which is not benchmarked.
+                new PessimisticLockBookingGuard(reservationRepository, bookingMetrics),
+                new NightLockManager(false, 64, Duration.ofSeconds(5), new SimpleMeterRegistry()),
+                bookingMetrics,
+                new OccupancyIndex(reservationRepository, null, transactionManager, event -> { }, false, 64, Runnable::run),
+                new AvailabilityCache(false, 1, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+                null, // The campsites are only read when querying all of them, which is not benchmarked.
+                event -> { },
+                transactionManager);
+    }
+
+    /**
+     * Returns a repository where the range queries always return the reservations provided.
+     */
+    private static ReservationRepository stubRepository(List<Reservation> reservations) {
+        return (ReservationRepository) Proxy.newProxyInstance(ReservationRepository.class.getClassLoader(),
+                new Class<?>[]{ReservationRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findOverlappingByStatus", "findOverlappingByStatusForUpdate" -> reservations;
+                    case "findStaysOverlappingByStatus" -> reservations.stream()
+                            .map(reservation -> new Stay(reservation.getCheckin(), reservation.getCheckout()))
+                            .toList();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
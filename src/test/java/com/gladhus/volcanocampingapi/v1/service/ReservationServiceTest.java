@@ -1,69 +1,149 @@
 package com.gladhus.volcanocampingapi.v1.service;
 
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
 import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationNight;
 import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.domain.ReservationView;
+import com.gladhus.volcanocampingapi.domain.Stay;
+import com.gladhus.volcanocampingapi.event.ReservationDatesChangedEvent;
+import com.gladhus.volcanocampingapi.exception.BatchReservationException;
 import com.gladhus.volcanocampingapi.exception.GenericAPIException;
 import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
 import com.gladhus.volcanocampingapi.exception.ReservationNotFoundException;
+import com.gladhus.volcanocampingapi.repository.ArchivedReservationRepository;
+import com.gladhus.volcanocampingapi.repository.ReservationNightRepository;
 import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingGuard;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import com.gladhus.volcanocampingapi.v1.service.booking.NightLockManager;
+import com.gladhus.volcanocampingapi.v1.service.booking.NightRowBookingGuard;
+import com.gladhus.volcanocampingapi.v1.service.booking.PessimisticLockBookingGuard;
 import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith({MockitoExtension.class})
 class ReservationServiceTest {
 
+    static final Long CAMPSITE_ID = Campsite.DEFAULT_ID;
+
+    static final Long OTHER_CAMPSITE_ID = 2L;
+
     ReservationService testee;
 
     @Mock
     ReservationRepository reservationRepository;
 
+    @Mock
+    ArchivedReservationRepository archivedReservationRepository;
+
+    @Mock
+    OccupancyIndex occupancyIndex;
+
+    @Mock
+    CampsiteService campsiteService;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    AvailabilityCache availabilityCache;
+
+    SimpleMeterRegistry meterRegistry;
+
     @BeforeEach
     void setup() {
-        testee = new ReservationService(reservationRepository);
+        availabilityCache = new AvailabilityCache(true, 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        meterRegistry = new SimpleMeterRegistry();
+        BookingMetrics bookingMetrics = new BookingMetrics(meterRegistry, "pessimistic");
+        testee = new ReservationService(reservationRepository, archivedReservationRepository, new PessimisticLockBookingGuard(reservationRepository, bookingMetrics),
+                new NightLockManager(true, 64, Duration.ofSeconds(5), meterRegistry), bookingMetrics,
+                occupancyIndex, availabilityCache, campsiteService, eventPublisher, transactionManager);
     }
 
     @Test
     void getReservation() throws GenericAPIException {
-        Reservation reservationEntity = ReservationDataTestUtil.getReservationEntity();
+        ReservationView reservationView = ReservationDataTestUtil.getReservationView();
+
+        when(reservationRepository.findViewById(reservationView.id())).thenReturn(Optional.of(reservationView));
+
+        ReservationView result = testee.getReservation(reservationView.id());
+
+        assertThat(result).isEqualTo(reservationView);
+        verifyNoInteractions(archivedReservationRepository);
+    }
+
+    @Test
+    void getReservation_Archived() throws GenericAPIException {
+        ReservationView reservationView = ReservationDataTestUtil.getReservationView();
 
-        when(reservationRepository.findById(reservationEntity.getId())).thenReturn(Optional.of(reservationEntity));
+        when(reservationRepository.findViewById(reservationView.id())).thenReturn(Optional.empty());
+        when(archivedReservationRepository.findViewById(reservationView.id())).thenReturn(Optional.of(reservationView));
 
-        Reservation result = testee.getReservation(reservationEntity.getId());
+        ReservationView result = testee.getReservation(reservationView.id());
 
-        assertThat(result).isEqualTo(reservationEntity);
+        assertThat(result).isEqualTo(reservationView);
     }
 
     @Test
     void getReservation_NotFound() {
-        Reservation reservationEntity = ReservationDataTestUtil.getReservationEntity();
+        UUID id = ReservationDataTestUtil.RESERVATION_ID;
 
-        when(reservationRepository.findById(reservationEntity.getId())).thenReturn(Optional.empty());
+        when(reservationRepository.findViewById(id)).thenReturn(Optional.empty());
+        when(archivedReservationRepository.findViewById(id)).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> testee.getReservation(reservationEntity.getId()))
+        assertThatThrownBy(() -> testee.getReservation(id))
                 .isInstanceOf(ReservationNotFoundException.class)
                 .hasMessage("No reservation was found for provided reservation id.")
                 .hasFieldOrPropertyWithValue("status", HttpStatus.NOT_FOUND);
     }
 
+    @Test
+    void getReservationVersion_Archived() {
+        UUID id = ReservationDataTestUtil.RESERVATION_ID;
+
+        when(reservationRepository.findVersionById(id)).thenReturn(Optional.empty());
+        when(archivedReservationRepository.findVersionById(id)).thenReturn(Optional.of(2L));
+
+        assertThat(testee.getReservationVersion(id)).contains(2L);
+    }
+
     @Test
     void cancelReservation() throws GenericAPIException {
         Reservation reservationEntity = ReservationDataTestUtil.getReservationEntity();
 
-        when(reservationRepository.findByIdAndStatus(reservationEntity.getId(), ReservationStatus.ACTIVE))
+        when(reservationRepository.findForUpdateByIdAndStatus(reservationEntity.getId(), ReservationStatus.ACTIVE))
                 .thenReturn(Optional.of(reservationEntity));
 
         Reservation result = testee.cancelReservation(reservationEntity.getId());
@@ -74,13 +154,14 @@ class ReservationServiceTest {
         assertThat(result.getEmail()).isEqualTo(reservationEntity.getEmail());
         assertThat(result.getCheckin()).isEqualTo(reservationEntity.getCheckin());
         assertThat(result.getCheckout()).isEqualTo(reservationEntity.getCheckout());
+        verify(eventPublisher).publishEvent(new ReservationDatesChangedEvent(CAMPSITE_ID, reservationEntity.getCheckin(), reservationEntity.getCheckout()));
     }
 
     @Test
     void cancelReservation_NotFound() {
         Reservation reservationEntity = ReservationDataTestUtil.getReservationEntity();
 
-        when(reservationRepository.findByIdAndStatus(reservationEntity.getId(), ReservationStatus.ACTIVE))
+        when(reservationRepository.findForUpdateByIdAndStatus(reservationEntity.getId(), ReservationStatus.ACTIVE))
                 .thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> testee.cancelReservation(reservationEntity.getId()))
@@ -94,26 +175,137 @@ class ReservationServiceTest {
         LocalDate fromDate = LocalDate.now();
         LocalDate toDate = LocalDate.now().plusDays(10);
 
-        List<Reservation> reservationList = List.of(
-                ReservationDataTestUtil.getReservationEntity(LocalDate.now(), LocalDate.now().plusDays(2)),
-                ReservationDataTestUtil.getReservationEntity(LocalDate.now().plusDays(4), LocalDate.now().plusDays(5)));
+        List<Stay> stays = List.of(
+                new Stay(LocalDate.now(), LocalDate.now().plusDays(2)),
+                new Stay(LocalDate.now().plusDays(4), LocalDate.now().plusDays(5)));
 
-        when(reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatus(fromDate, toDate, ReservationStatus.ACTIVE))
-                .thenReturn(Optional.of(reservationList));
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, fromDate, toDate.plusDays(1), ReservationStatus.ACTIVE))
+                .thenReturn(stays);
 
-        Set<LocalDate> result = testee.getAvailabilities(fromDate, toDate);
+        Set<LocalDate> result = testee.getAvailabilities(CAMPSITE_ID, fromDate, toDate);
         assertThat(result).hasSize(8)
                 .doesNotContain(LocalDate.now())
                 .doesNotContain(LocalDate.now().plusDays(1))
                 .doesNotContain(LocalDate.now().plusDays(4));
     }
 
+    @Test
+    void getAvailabilities_FromOccupancyIndex() throws GenericAPIException {
+        LocalDate fromDate = LocalDate.now();
+        LocalDate toDate = LocalDate.now().plusDays(3);
+        BitSet available = new BitSet();
+        available.set(1);
+        available.set(3);
+
+        when(occupancyIndex.findAvailableDates(CAMPSITE_ID, fromDate, toDate)).thenReturn(Optional.of(new AvailableDates(fromDate, available)));
+
+        Set<LocalDate> result = testee.getAvailabilities(CAMPSITE_ID, fromDate, toDate);
+
+        assertThat(result).containsExactly(LocalDate.now().plusDays(1), LocalDate.now().plusDays(3));
+        verifyNoInteractions(reservationRepository, transactionManager);
+    }
+
+    @Test
+    void getAvailabilities_FromNightRows() throws GenericAPIException {
+        BookingGuard bookingGuard = mock(BookingGuard.class);
+        testee = new ReservationService(reservationRepository, archivedReservationRepository, bookingGuard, new NightLockManager(true, 64, Duration.ofSeconds(5), meterRegistry),
+                new BookingMetrics(meterRegistry, "night-rows"), occupancyIndex, availabilityCache, campsiteService, eventPublisher, transactionManager);
+        LocalDate fromDate = LocalDate.now();
+        LocalDate toDate = LocalDate.now().plusDays(3);
+        BitSet available = new BitSet();
+        available.set(0);
+        available.set(2);
+
+        when(bookingGuard.readAvailableNights(CAMPSITE_ID, fromDate, toDate.plusDays(1))).thenReturn(Optional.of(new AvailableDates(fromDate, available)));
+
+        Set<LocalDate> result = testee.getAvailabilities(CAMPSITE_ID, fromDate, toDate);
+
+        assertThat(result).containsExactly(LocalDate.now(), LocalDate.now().plusDays(2));
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void getAvailabilities_FromNightRowsBookedBySequencer() throws Exception {
+        // The occupancy index mock covers no range, as when it is disabled.
+        List<ReservationNight> nights = new ArrayList<>();
+        ReservationNightRepository reservationNightRepository = mock(ReservationNightRepository.class);
+        when(reservationNightRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            nights.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(reservationNightRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(any(), any(), any())).thenAnswer(invocation ->
+                nights.stream()
+                        .filter(night -> night.getCampsiteId().equals(invocation.getArgument(0))
+                                && !night.getNight().isBefore(invocation.getArgument(1)) && night.getNight().isBefore(invocation.getArgument(2)))
+                        .toList());
+        when(reservationRepository.save(any())).thenAnswer(invocation -> {
+            Reservation reservation = invocation.getArgument(0);
+            reservation.setId(UUID.randomUUID());
+            return reservation;
+        });
+        BookingMetrics bookingMetrics = new BookingMetrics(meterRegistry, "night-rows");
+        NightRowBookingGuard bookingGuard = new NightRowBookingGuard(reservationNightRepository, bookingMetrics);
+        testee = new ReservationService(reservationRepository, archivedReservationRepository, bookingGuard, new NightLockManager(true, 64, Duration.ofSeconds(5), meterRegistry),
+                bookingMetrics, occupancyIndex, availabilityCache, campsiteService, eventPublisher, transactionManager);
+        BookingSequencer bookingSequencer = new BookingSequencer(reservationRepository, bookingGuard, bookingMetrics, eventPublisher,
+                transactionManager, meterRegistry, 16, 8);
+        LocalDate fromDate = LocalDate.now();
+        LocalDate toDate = LocalDate.now().plusDays(3);
+
+        bookingSequencer.afterSingletonsInstantiated();
+        try {
+            Reservation reservation = ReservationDataTestUtil.getReservationEntity(fromDate.plusDays(1), fromDate.plusDays(3));
+            reservation.setId(null);
+            bookingSequencer.createReservation(reservation);
+        } finally {
+            bookingSequencer.destroy();
+        }
+
+        assertThat(testee.getAvailabilities(CAMPSITE_ID, fromDate, toDate)).containsExactly(fromDate, toDate);
+        verify(reservationRepository, times(0)).findStaysOverlappingByStatus(any(), any(), any(), any());
+    }
+
+    @Test
+    void getAvailabilities_PastNightsFromReservations() throws GenericAPIException {
+        BookingGuard bookingGuard = mock(BookingGuard.class);
+        testee = new ReservationService(reservationRepository, archivedReservationRepository, bookingGuard, new NightLockManager(true, 64, Duration.ofSeconds(5), meterRegistry),
+                new BookingMetrics(meterRegistry, "night-rows"), occupancyIndex, availabilityCache, campsiteService, eventPublisher, transactionManager);
+        LocalDate fromDate = LocalDate.now().minusDays(2);
+        LocalDate toDate = LocalDate.now().plusDays(1);
+
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, fromDate, toDate.plusDays(1), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(new Stay(LocalDate.now(), LocalDate.now().plusDays(1))));
+
+        Set<LocalDate> result = testee.getAvailabilities(CAMPSITE_ID, fromDate, toDate);
+
+        assertThat(result).containsExactly(fromDate, fromDate.plusDays(1), toDate);
+        verifyNoInteractions(bookingGuard);
+    }
+
+    @Test
+    void getAvailabilities_Cached() throws GenericAPIException {
+        LocalDate fromDate = LocalDate.now();
+        LocalDate toDate = LocalDate.now().plusDays(10);
+
+        when(reservationRepository.findStaysOverlappingByStatus(CAMPSITE_ID, fromDate, toDate.plusDays(1), ReservationStatus.ACTIVE))
+                .thenReturn(List.of());
+
+        assertThat(testee.getAvailabilities(CAMPSITE_ID, fromDate, toDate)).hasSize(11);
+        assertThat(testee.getAvailabilities(CAMPSITE_ID, fromDate, toDate)).hasSize(11);
+        verify(reservationRepository, times(1)).findStaysOverlappingByStatus(CAMPSITE_ID, fromDate, toDate.plusDays(1), ReservationStatus.ACTIVE);
+
+        availabilityCache.onReservationDatesChanged(new ReservationDatesChangedEvent(CAMPSITE_ID, toDate, toDate.plusDays(1)));
+
+        assertThat(testee.getAvailabilities(CAMPSITE_ID, fromDate, toDate)).hasSize(11);
+        verify(reservationRepository, times(2)).findStaysOverlappingByStatus(CAMPSITE_ID, fromDate, toDate.plusDays(1), ReservationStatus.ACTIVE);
+    }
+
     @Test
     void getAvailabilities_OverAMonthInTheFuture() throws GenericAPIException {
         LocalDate fromDate = LocalDate.now();
         LocalDate toDate = LocalDate.now().plusDays(32);
 
-        assertThatThrownBy(() -> testee.getAvailabilities(fromDate, toDate))
+        assertThatThrownBy(() -> testee.getAvailabilities(CAMPSITE_ID, fromDate, toDate))
                 .isInstanceOf(InvalidDatesException.class)
                 .hasMessage("The toDate cannot be more than a month in the future.")
                 .hasFieldOrPropertyWithValue("status", HttpStatus.FORBIDDEN);
@@ -124,12 +316,26 @@ class ReservationServiceTest {
         LocalDate fromDate = LocalDate.now().plusDays(2);
         LocalDate toDate = LocalDate.now();
 
-        assertThatThrownBy(() -> testee.getAvailabilities(fromDate, toDate))
+        assertThatThrownBy(() -> testee.getAvailabilities(CAMPSITE_ID, fromDate, toDate))
                 .isInstanceOf(InvalidDatesException.class)
                 .hasMessage("The toDate should be after the fromDate.")
                 .hasFieldOrPropertyWithValue("status", HttpStatus.FORBIDDEN);
     }
 
+    @Test
+    void getAvailabilitiesVersion_ToDateBeforeFromDate() {
+        LocalDate fromDate = LocalDate.now().plusDays(2);
+        LocalDate toDate = LocalDate.now();
+
+        assertThatThrownBy(() -> testee.getAvailabilitiesVersion(CAMPSITE_ID, fromDate, toDate))
+                .isInstanceOf(InvalidDatesException.class)
+                .hasMessage("The toDate should be after the fromDate.");
+        assertThatThrownBy(() -> testee.getAvailabilitiesByCampsiteVersion(fromDate, toDate))
+                .isInstanceOf(InvalidDatesException.class)
+                .hasMessage("The toDate should be after the fromDate.");
+        verifyNoInteractions(occupancyIndex);
+    }
+
     @Test
     void createReservation() throws GenericAPIException {
         Reservation reservationInput = ReservationDataTestUtil.getReservationPreCreate();
@@ -137,16 +343,20 @@ class ReservationServiceTest {
         Reservation reservationForInsert = ReservationDataTestUtil.getReservationPreCreate();
         reservationForInsert.setStatus(ReservationStatus.ACTIVE);
 
-        when(reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatusForUpdate(
-                            reservationInput.getCheckin(), reservationInput.getCheckout(),
+        when(reservationRepository.findOverlappingByStatusForUpdate(
+                            CAMPSITE_ID, reservationInput.getCheckin(), reservationInput.getCheckout(),
                             ReservationStatus.ACTIVE))
-                .thenReturn(Optional.empty());
+                .thenReturn(List.of());
 
         when(reservationRepository.save(reservationForInsert)).thenReturn(reservationOutput);
 
         Reservation result = testee.createReservation(reservationInput);
 
         assertThat(result).isEqualTo(reservationOutput);
+        verify(eventPublisher).publishEvent(new ReservationDatesChangedEvent(CAMPSITE_ID, reservationOutput.getCheckin(), reservationOutput.getCheckout()));
+        assertThat(meterRegistry.get("booking.outcomes").tag("operation", "create").tag("outcome", "booked").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("booking.lock.wait").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("booking.validation").timer().count()).isEqualTo(1);
     }
 
     @Test
@@ -158,6 +368,7 @@ class ReservationServiceTest {
                 .isInstanceOf(InvalidDatesException.class)
                 .hasMessage("The checkout date should be after the checkin date.")
                 .hasFieldOrPropertyWithValue("status", HttpStatus.FORBIDDEN);
+        assertThat(meterRegistry.get("booking.outcomes").tag("operation", "create").tag("outcome", "invalid").counter().count()).isEqualTo(1);
     }
 
     @Test
@@ -210,37 +421,123 @@ class ReservationServiceTest {
                 .getReservationPreCreate(LocalDate.now().plusDays(1), LocalDate.now().plusDays(3));
         Reservation reservationAlreadyDone = ReservationDataTestUtil.getReservationEntity(LocalDate.now(), LocalDate.now().plusDays(2));
 
-        when(reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatusForUpdate(
-                reservation.getCheckin(), reservation.getCheckout(),
+        when(reservationRepository.findOverlappingByStatusForUpdate(
+                CAMPSITE_ID, reservation.getCheckin(), reservation.getCheckout(),
                 ReservationStatus.ACTIVE))
-                .thenReturn(Optional.of(List.of(reservationAlreadyDone)));
+                .thenReturn(List.of(reservationAlreadyDone));
 
         assertThatThrownBy(() -> testee.createReservation(reservation))
                 .isInstanceOf(InvalidDatesException.class)
                 .hasMessage("The dates selected are not available.")
                 .hasFieldOrPropertyWithValue("status", HttpStatus.FORBIDDEN);
+        assertThat(meterRegistry.get("booking.outcomes").tag("operation", "create").tag("outcome", "conflict").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void createReservations() throws GenericAPIException {
+        LocalDate today = LocalDate.now();
+        List<Reservation> reservations = List.of(
+                ReservationDataTestUtil.getReservationPreCreate(today.plusDays(5), today.plusDays(7)),
+                ReservationDataTestUtil.getReservationPreCreate(today.plusDays(1), today.plusDays(3)));
+
+        when(reservationRepository.findOverlappingByStatusForUpdate(CAMPSITE_ID, today.plusDays(1), today.plusDays(7), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(ReservationDataTestUtil.getReservationEntity(today.plusDays(3), today.plusDays(5))));
+        when(reservationRepository.saveAll(reservations)).thenReturn(reservations);
+
+        List<Reservation> result = testee.createReservations(reservations);
+
+        assertThat(result).isEqualTo(reservations).allMatch(reservation -> reservation.getStatus() == ReservationStatus.ACTIVE);
+        verify(reservationRepository).findOverlappingByStatusForUpdate(any(), any(), any(), any());
+        verify(eventPublisher).publishEvent(new ReservationDatesChangedEvent(CAMPSITE_ID, today.plusDays(1), today.plusDays(7)));
+        assertThat(meterRegistry.get("booking.outcomes").tag("operation", "batch-create").tag("outcome", "booked").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("booking.lock.wait").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void createReservations_InvalidAndOverlapping() {
+        LocalDate today = LocalDate.now();
+        List<Reservation> reservations = List.of(
+                ReservationDataTestUtil.getReservationPreCreate(today.plusDays(2), today.plusDays(4)),
+                ReservationDataTestUtil.getReservationPreCreate(today.plusDays(1), today.plusDays(6)),
+                ReservationDataTestUtil.getReservationPreCreate(today.plusDays(1), today.plusDays(3)));
+
+        assertThatThrownBy(() -> testee.createReservations(reservations))
+                .isInstanceOf(BatchReservationException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.FORBIDDEN)
+                .extracting("itemErrors")
+                .isEqualTo(Map.of(
+                        0, "The dates selected overlap the reservation at index 2 of the batch.",
+                        1, "The length of the stay cannot be longer than 3 days."));
+        verifyNoInteractions(eventPublisher);
+        verify(reservationRepository, times(0)).saveAll(any());
+        assertThat(meterRegistry.get("booking.outcomes").tag("operation", "batch-create").tag("outcome", "conflict").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("booking.outcomes").tag("operation", "batch-create").tag("outcome", "invalid").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void createReservations_DatesUnavailable() {
+        LocalDate today = LocalDate.now();
+        List<Reservation> reservations = List.of(
+                ReservationDataTestUtil.getReservationPreCreate(today.plusDays(1), today.plusDays(3)),
+                ReservationDataTestUtil.getReservationPreCreate(today.plusDays(5), today.plusDays(7)));
+
+        when(reservationRepository.findOverlappingByStatusForUpdate(CAMPSITE_ID, today.plusDays(1), today.plusDays(7), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(ReservationDataTestUtil.getReservationEntity(today.plusDays(6), today.plusDays(8))));
+
+        assertThatThrownBy(() -> testee.createReservations(reservations))
+                .isInstanceOf(BatchReservationException.class)
+                .extracting("itemErrors")
+                .isEqualTo(Map.of(1, "The dates selected are not available."));
+        verify(reservationRepository, times(0)).saveAll(any());
     }
 
     @Test
     void updateReservation() throws GenericAPIException {
         Reservation newReservation = ReservationDataTestUtil.getReservationPreCreate(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2));
         Reservation oldReservation = ReservationDataTestUtil.getReservationEntity();
+        oldReservation.setVersion(4L);
         newReservation.setId(oldReservation.getId());
         Reservation newReservationForSave = ReservationDataTestUtil.getReservationPreCreate(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2));
         newReservationForSave.setId(oldReservation.getId());
         newReservationForSave.setStatus(oldReservation.getStatus());
+        newReservationForSave.setVersion(4L);
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
-        when(reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatusForUpdate(
-                newReservation.getCheckin(), newReservation.getCheckout(),
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findOverlappingByStatusForUpdate(
+                CAMPSITE_ID, newReservation.getCheckin(), newReservation.getCheckout(),
                 ReservationStatus.ACTIVE))
-                .thenReturn(Optional.of(List.of(oldReservation)));
+                .thenReturn(List.of(oldReservation));
 
         when(reservationRepository.save(newReservationForSave)).thenReturn(newReservationForSave);
 
         Reservation result = testee.updateReservation(newReservation);
 
         assertThat(result).isEqualTo(newReservationForSave);
+        verify(eventPublisher).publishEvent(new ReservationDatesChangedEvent(CAMPSITE_ID, LocalDate.now().plusDays(1), LocalDate.now().plusDays(5)));
+    }
+
+    @Test
+    void updateReservation_Cancelled() throws GenericAPIException {
+        BookingGuard bookingGuard = mock(BookingGuard.class);
+        testee = new ReservationService(reservationRepository, archivedReservationRepository, bookingGuard, new NightLockManager(true, 64, Duration.ofSeconds(5), meterRegistry),
+                new BookingMetrics(meterRegistry, "pessimistic"), occupancyIndex, availabilityCache, campsiteService, eventPublisher, transactionManager);
+        Reservation newReservation = ReservationDataTestUtil.getReservationPreCreate();
+        Reservation oldReservation = ReservationDataTestUtil.getReservationEntity();
+        oldReservation.setStatus(ReservationStatus.CANCELLED);
+        newReservation.setId(oldReservation.getId());
+
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        // Like a merge, saving copies the new state onto the managed old reservation.
+        when(reservationRepository.save(newReservation)).thenAnswer(invocation -> {
+            oldReservation.setStatus(newReservation.getStatus());
+            return newReservation;
+        });
+
+        Reservation result = testee.updateReservation(newReservation);
+
+        // The nights were released on cancellation, so they are all reserved again even though the dates are the same.
+        assertThat(result.getStatus()).isEqualTo(ReservationStatus.ACTIVE);
+        verify(bookingGuard).reserveNights(newReservation, null, null);
     }
 
     @Test
@@ -252,11 +549,11 @@ class ReservationServiceTest {
         newReservationForSave.setId(oldReservation.getId());
         newReservationForSave.setStatus(oldReservation.getStatus());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
-        when(reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatusForUpdate(
-                newReservation.getCheckin(), newReservation.getCheckout(),
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findOverlappingByStatusForUpdate(
+                CAMPSITE_ID, newReservation.getCheckin(), newReservation.getCheckout(),
                 ReservationStatus.ACTIVE))
-                .thenReturn(Optional.of(List.of(oldReservation)));
+                .thenReturn(List.of(oldReservation));
 
         when(reservationRepository.save(newReservationForSave)).thenReturn(newReservationForSave);
 
@@ -274,13 +571,13 @@ class ReservationServiceTest {
         newReservationForSave.setId(oldReservation.getId());
         newReservationForSave.setStatus(oldReservation.getStatus());
         Reservation reservationConflict = ReservationDataTestUtil.getReservationEntity();
-        reservationConflict.setId("id-test-2");
+        reservationConflict.setId(UUID.randomUUID());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
-        when(reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatusForUpdate(
-                newReservation.getCheckin(), newReservation.getCheckout(),
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findOverlappingByStatusForUpdate(
+                CAMPSITE_ID, newReservation.getCheckin(), newReservation.getCheckout(),
                 ReservationStatus.ACTIVE))
-                .thenReturn(Optional.of(List.of(reservationConflict, oldReservation)));
+                .thenReturn(List.of(reservationConflict, oldReservation));
 
         assertThatThrownBy(() -> testee.updateReservation(newReservation))
                 .isInstanceOf(InvalidDatesException.class)
@@ -301,11 +598,11 @@ class ReservationServiceTest {
         newReservationForSave.setCheckin(oldReservation.getCheckin());
         newReservationForSave.setEmail(oldReservation.getEmail());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
-        when(reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatusForUpdate(
-                newReservationForSave.getCheckin(), newReservationForSave.getCheckout(),
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findOverlappingByStatusForUpdate(
+                CAMPSITE_ID, newReservationForSave.getCheckin(), newReservationForSave.getCheckout(),
                 ReservationStatus.ACTIVE))
-                .thenReturn(Optional.of(List.of(oldReservation)));
+                .thenReturn(List.of(oldReservation));
 
         when(reservationRepository.save(newReservationForSave)).thenReturn(newReservationForSave);
 
@@ -327,11 +624,11 @@ class ReservationServiceTest {
         newReservationForSave.setCheckin(oldReservation.getCheckin());
         newReservationForSave.setFullName(oldReservation.getFullName());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
-        when(reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatusForUpdate(
-                newReservationForSave.getCheckin(), newReservationForSave.getCheckout(),
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findOverlappingByStatusForUpdate(
+                CAMPSITE_ID, newReservationForSave.getCheckin(), newReservationForSave.getCheckout(),
                 ReservationStatus.ACTIVE))
-                .thenReturn(Optional.of(List.of(oldReservation)));
+                .thenReturn(List.of(oldReservation));
 
         when(reservationRepository.save(newReservationForSave)).thenReturn(newReservationForSave);
 
@@ -353,11 +650,11 @@ class ReservationServiceTest {
         newReservationForSave.setEmail(oldReservation.getEmail());
         newReservationForSave.setFullName(oldReservation.getFullName());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
-        when(reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatusForUpdate(
-                newReservationForSave.getCheckin(), newReservationForSave.getCheckout(),
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findOverlappingByStatusForUpdate(
+                CAMPSITE_ID, newReservationForSave.getCheckin(), newReservationForSave.getCheckout(),
                 ReservationStatus.ACTIVE))
-                .thenReturn(Optional.of(List.of(oldReservation)));
+                .thenReturn(List.of(oldReservation));
 
         when(reservationRepository.save(newReservationForSave)).thenReturn(newReservationForSave);
 
@@ -379,7 +676,7 @@ class ReservationServiceTest {
         newReservationForSave.setEmail(oldReservation.getEmail());
         newReservationForSave.setFullName(oldReservation.getFullName());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
 
         assertThatThrownBy(() -> testee.updateReservation(newReservation))
                 .isInstanceOf(InvalidDatesException.class)
@@ -400,7 +697,7 @@ class ReservationServiceTest {
         newReservationForSave.setEmail(oldReservation.getEmail());
         newReservationForSave.setFullName(oldReservation.getFullName());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
 
         assertThatThrownBy(() -> testee.updateReservation(newReservation))
                 .isInstanceOf(InvalidDatesException.class)
@@ -421,11 +718,11 @@ class ReservationServiceTest {
         newReservationForSave.setEmail(oldReservation.getEmail());
         newReservationForSave.setFullName(oldReservation.getFullName());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
-        when(reservationRepository.findByCheckoutOrCheckinIsBetweenAndStatusForUpdate(
-                newReservationForSave.getCheckin(), newReservationForSave.getCheckout(),
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findOverlappingByStatusForUpdate(
+                CAMPSITE_ID, newReservationForSave.getCheckin(), newReservationForSave.getCheckout(),
                 ReservationStatus.ACTIVE))
-                .thenReturn(Optional.of(List.of(oldReservation)));
+                .thenReturn(List.of(oldReservation));
 
         when(reservationRepository.save(newReservationForSave)).thenReturn(newReservationForSave);
 
@@ -447,7 +744,7 @@ class ReservationServiceTest {
         newReservationForSave.setEmail(oldReservation.getEmail());
         newReservationForSave.setFullName(oldReservation.getFullName());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
 
         assertThatThrownBy(() -> testee.updateReservation(newReservation))
                 .isInstanceOf(InvalidDatesException.class)
@@ -468,7 +765,7 @@ class ReservationServiceTest {
         newReservationForSave.setEmail(oldReservation.getEmail());
         newReservationForSave.setFullName(oldReservation.getFullName());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
 
         assertThatThrownBy(() -> testee.updateReservation(newReservation))
                 .isInstanceOf(InvalidDatesException.class)
@@ -488,7 +785,7 @@ class ReservationServiceTest {
         newReservationForSave.setEmail(oldReservation.getEmail());
         newReservationForSave.setFullName(oldReservation.getFullName());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
 
         assertThatThrownBy(() -> testee.updateReservation(newReservation))
                 .isInstanceOf(InvalidDatesException.class)
@@ -514,7 +811,7 @@ class ReservationServiceTest {
         newReservationForSave.setEmail(oldReservation.getEmail());
         newReservationForSave.setFullName(oldReservation.getFullName());
 
-        when(reservationRepository.findById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
 
         assertThatThrownBy(() -> testee.updateReservation(newReservation))
                 .isInstanceOf(InvalidDatesException.class)
@@ -522,5 +819,82 @@ class ReservationServiceTest {
                 .hasFieldOrPropertyWithValue("status", HttpStatus.FORBIDDEN);
     }
 
+    @Test
+    void updateReservation_OtherCampsite() throws GenericAPIException {
+        BookingGuard bookingGuard = mock(BookingGuard.class);
+        testee = new ReservationService(reservationRepository, archivedReservationRepository, bookingGuard, new NightLockManager(true, 64, Duration.ofSeconds(5), meterRegistry),
+                new BookingMetrics(meterRegistry, "pessimistic"), occupancyIndex, availabilityCache, campsiteService, eventPublisher, transactionManager);
+        Reservation newReservation = ReservationDataTestUtil.getReservationPreCreate();
+        newReservation.setCampsiteId(OTHER_CAMPSITE_ID);
+        Reservation oldReservation = ReservationDataTestUtil.getReservationEntity();
+        newReservation.setId(oldReservation.getId());
+
+        when(reservationRepository.findForUpdateById(newReservation.getId())).thenReturn(Optional.of(oldReservation));
+        when(reservationRepository.save(newReservation)).thenReturn(newReservation);
+
+        testee.updateReservation(newReservation);
+
+        // The nights of the former campsite are released, all nights of the new one are reserved.
+        verify(bookingGuard).releaseNights(Reservation.builder().id(oldReservation.getId()).campsiteId(CAMPSITE_ID)
+                .checkin(oldReservation.getCheckin()).checkout(oldReservation.getCheckout()).build());
+        verify(bookingGuard).reserveNights(newReservation, null, null);
+        verify(eventPublisher).publishEvent(new ReservationDatesChangedEvent(CAMPSITE_ID, oldReservation.getCheckin(), oldReservation.getCheckout()));
+        verify(eventPublisher).publishEvent(new ReservationDatesChangedEvent(OTHER_CAMPSITE_ID, newReservation.getCheckin(), newReservation.getCheckout()));
+    }
+
+    @Test
+    void createReservations_SeveralCampsites() throws GenericAPIException {
+        LocalDate today = LocalDate.now();
+        Reservation otherCampsiteReservation = ReservationDataTestUtil.getReservationPreCreate(today.plusDays(2), today.plusDays(4));
+        otherCampsiteReservation.setCampsiteId(OTHER_CAMPSITE_ID);
+        List<Reservation> reservations = List.of(
+                ReservationDataTestUtil.getReservationPreCreate(today.plusDays(1), today.plusDays(3)),
+                otherCampsiteReservation);
+
+        // The stays overlap, but not on the same campsite.
+        when(reservationRepository.findOverlappingByStatusForUpdate(CAMPSITE_ID, today.plusDays(1), today.plusDays(3), ReservationStatus.ACTIVE))
+                .thenReturn(List.of());
+        when(reservationRepository.findOverlappingByStatusForUpdate(OTHER_CAMPSITE_ID, today.plusDays(2), today.plusDays(4), ReservationStatus.ACTIVE))
+                .thenReturn(List.of());
+        when(reservationRepository.saveAll(reservations)).thenReturn(reservations);
+
+        List<Reservation> result = testee.createReservations(reservations);
+
+        assertThat(result).isEqualTo(reservations);
+        verify(eventPublisher).publishEvent(new ReservationDatesChangedEvent(CAMPSITE_ID, today.plusDays(1), today.plusDays(3)));
+        verify(eventPublisher).publishEvent(new ReservationDatesChangedEvent(OTHER_CAMPSITE_ID, today.plusDays(2), today.plusDays(4)));
+    }
 
-}
\ No newline at end of file
+    @Test
+    void getAvailabilitiesByCampsite() throws GenericAPIException {
+        LocalDate fromDate = LocalDate.now();
+        LocalDate toDate = LocalDate.now().plusDays(3);
+        Campsite campsite = Campsite.builder().id(CAMPSITE_ID).name("campsite").build();
+        Campsite otherCampsite = Campsite.builder().id(OTHER_CAMPSITE_ID).name("other campsite").build();
+        BitSet available = new BitSet();
+        available.set(1);
+
+        when(campsiteService.getCampsites()).thenReturn(List.of(campsite, otherCampsite));
+        when(occupancyIndex.findAvailableDates(CAMPSITE_ID, fromDate, toDate)).thenReturn(Optional.of(new AvailableDates(fromDate, available)));
+        when(occupancyIndex.findAvailableDates(OTHER_CAMPSITE_ID, fromDate, toDate)).thenReturn(Optional.empty());
+        when(reservationRepository.findStaysOverlappingByStatus(OTHER_CAMPSITE_ID, fromDate, toDate.plusDays(1), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(new Stay(fromDate, fromDate.plusDays(1))));
+
+        Map<Campsite, AvailableDates> result = testee.getAvailabilitiesByCampsite(fromDate, toDate);
+
+        assertThat(result.keySet()).containsExactly(campsite, otherCampsite);
+        assertThat(result.get(campsite)).containsExactly(fromDate.plusDays(1));
+        assertThat(result.get(otherCampsite)).containsExactly(fromDate.plusDays(1), fromDate.plusDays(2), fromDate.plusDays(3));
+    }
+
+    @Test
+    void combineVersions() {
+        Optional<String> version = ReservationService.combineVersions(Map.of(CAMPSITE_ID, Optional.of("a"), OTHER_CAMPSITE_ID, Optional.of("b")));
+
+        assertThat(version).isPresent();
+        assertThat(ReservationService.combineVersions(Map.of(CAMPSITE_ID, Optional.of("a"), OTHER_CAMPSITE_ID, Optional.of("b")))).isEqualTo(version);
+        assertThat(ReservationService.combineVersions(Map.of(CAMPSITE_ID, Optional.of("a"), OTHER_CAMPSITE_ID, Optional.of("c")))).isNotEqualTo(version);
+        assertThat(ReservationService.combineVersions(Map.of(CAMPSITE_ID, Optional.of("a")))).isNotEqualTo(version);
+        assertThat(ReservationService.combineVersions(Map.of(CAMPSITE_ID, Optional.of("a"), OTHER_CAMPSITE_ID, Optional.empty()))).isEmpty();
+    }
+}
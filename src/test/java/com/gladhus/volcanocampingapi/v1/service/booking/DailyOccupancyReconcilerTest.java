@@ -0,0 +1,72 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.DailyOccupancy;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.repository.DailyOccupancyRepository;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class DailyOccupancyReconcilerTest {
+
+    DailyOccupancyReconciler testee;
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    DailyOccupancyRepository dailyOccupancyRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Captor
+    ArgumentCaptor<List<DailyOccupancy>> savedNights;
+
+    @BeforeEach
+    void setup() {
+        testee = new DailyOccupancyReconciler(reservationRepository, dailyOccupancyRepository, transactionManager);
+    }
+
+    @Test
+    void reconcile() {
+        LocalDate today = LocalDate.now();
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(today.plusDays(1), today.plusDays(3));
+        UUID cancelledReservationId = UUID.randomUUID();
+
+        when(reservationRepository.findByStatusAndCheckoutAfter(ReservationStatus.ACTIVE, today)).thenReturn(List.of(reservation));
+        when(dailyOccupancyRepository.findByNightGreaterThanEqual(today)).thenReturn(List.of(
+                occupancy(today.plusDays(1), reservation.getId(), 1L),
+                occupancy(today.plusDays(5), cancelledReservationId, 1L)));
+
+        testee.afterSingletonsInstantiated();
+
+        verify(dailyOccupancyRepository).deleteByNightLessThan(today);
+        verify(dailyOccupancyRepository).saveAll(savedNights.capture());
+        assertThat(savedNights.getValue()).containsExactlyInAnyOrder(
+                occupancy(today.plusDays(5), null, 1L),
+                occupancy(today.plusDays(2), reservation.getId(), null));
+    }
+
+    private static DailyOccupancy occupancy(LocalDate night, UUID reservationId, Long version) {
+        return DailyOccupancy.builder().campsiteId(Campsite.DEFAULT_ID).night(night).reservationId(reservationId).version(version).build();
+    }
+}
@@ -0,0 +1,154 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NightLockManagerTest {
+
+    static final Long CAMPSITE_ID = Campsite.DEFAULT_ID;
+
+    NightLockManager testee;
+
+    SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        testee = new NightLockManager(true, 64, Duration.ofSeconds(5), meterRegistry);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            completeTransaction();
+        }
+    }
+
+    @Test
+    void lockNights_SameNightsWaitForCompletion() throws Exception {
+        LocalDate checkin = LocalDate.now().plusDays(1);
+        testee.lockNights(CAMPSITE_ID, checkin, checkin.plusDays(2));
+
+        CompletableFuture<Void> other = lockInOtherTransaction(checkin.plusDays(1), checkin.plusDays(3));
+        Thread.sleep(100);
+        assertThat(other).isNotDone();
+
+        completeTransaction();
+
+        other.get(5, TimeUnit.SECONDS);
+        assertThat(meterRegistry.get(NightLockManager.LOCK_WAIT_METRIC).tag("night", checkin.plusDays(1).toString()).timer().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get(NightLockManager.LOCK_HOLD_METRIC).tag("night", checkin.toString()).timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void lockNights_TimesOut() throws Exception {
+        testee = new NightLockManager(true, 64, Duration.ofMillis(100), meterRegistry);
+        LocalDate checkin = LocalDate.now().plusDays(2);
+        testee.lockNights(CAMPSITE_ID, checkin, checkin.plusDays(2));
+
+        CompletableFuture<Void> other = lockInOtherTransaction(checkin.minusDays(1), checkin.plusDays(1));
+
+        assertThatThrownBy(() -> other.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(CannotAcquireLockException.class);
+        // The nights locked before timing out are released.
+        lockInOtherTransaction(checkin.minusDays(1), checkin).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void lockNights_DisjointNightsDoNotWait() throws Exception {
+        LocalDate checkin = LocalDate.now().plusDays(1);
+        testee.lockNights(CAMPSITE_ID, checkin, checkin.plusDays(2));
+
+        lockInOtherTransaction(checkin.plusDays(2), checkin.plusDays(5)).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void lockNights_OtherCampsiteDoesNotWait() throws Exception {
+        LocalDate checkin = LocalDate.now().plusDays(1);
+        testee.lockNights(CAMPSITE_ID, checkin, checkin.plusDays(2));
+
+        lockInOtherTransaction(2L, checkin, checkin.plusDays(2)).get(5, TimeUnit.SECONDS);
+        assertThat(meterRegistry.get(NightLockManager.LOCK_WAIT_METRIC).tag("campsite", "2").tag("night", checkin.toString()).timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void lockNights_WithoutTransaction() throws Exception {
+        completeTransaction();
+        LocalDate checkin = LocalDate.now().plusDays(1);
+        testee.lockNights(CAMPSITE_ID, checkin, checkin.plusDays(2));
+
+        lockInOtherTransaction(checkin, checkin.plusDays(2)).get(5, TimeUnit.SECONDS);
+        assertThat(meterRegistry.find(NightLockManager.LOCK_WAIT_METRIC).tag("night", checkin.toString()).timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void removeMetricsOfPastNights() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        testee.lockNights(CAMPSITE_ID, yesterday, yesterday.plusDays(2));
+        completeTransaction();
+
+        testee.removeMetricsOfPastNights();
+
+        assertThat(meterRegistry.find(NightLockManager.LOCK_WAIT_METRIC).tag("night", yesterday.toString()).timer()).isNull();
+        assertThat(meterRegistry.find(NightLockManager.LOCK_HOLD_METRIC).tag("night", yesterday.toString()).timer()).isNull();
+        assertThat(meterRegistry.find(NightLockManager.LOCK_WAIT_METRIC).tag("night", yesterday.plusDays(1).toString()).timer())
+                .isNotNull();
+    }
+
+    /**
+     * Locks the nights from another thread, within its own transaction that completes right away.
+     */
+    private CompletableFuture<Void> lockInOtherTransaction(LocalDate checkin, LocalDate checkout) {
+        return lockInOtherTransaction(CAMPSITE_ID, checkin, checkout);
+    }
+
+    /**
+     * Locks the nights of the campsite from another thread, within its own transaction that completes right away.
+     */
+    private CompletableFuture<Void> lockInOtherTransaction(Long campsiteId, LocalDate checkin, LocalDate checkout) {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            started.countDown();
+            try {
+                testee.lockNights(campsiteId, checkin, checkout);
+            } finally {
+                completeTransaction();
+            }
+        });
+        try {
+            started.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return future;
+    }
+
+    private static void completeTransaction() {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
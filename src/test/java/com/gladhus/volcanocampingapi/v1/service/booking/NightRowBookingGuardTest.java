@@ -0,0 +1,146 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationNight;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import com.gladhus.volcanocampingapi.repository.ReservationNightRepository;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class NightRowBookingGuardTest {
+
+    NightRowBookingGuard testee;
+
+    @Mock
+    ReservationNightRepository reservationNightRepository;
+
+    @BeforeEach
+    void setup() {
+        testee = new NightRowBookingGuard(reservationNightRepository, new BookingMetrics(new SimpleMeterRegistry(), "night-rows"));
+    }
+
+    @Test
+    void reserveNights_NewReservation() throws InvalidDatesException {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(LocalDate.now().plusDays(3), LocalDate.now().plusDays(5));
+
+        testee.reserveNights(reservation, null, null);
+
+        verify(reservationNightRepository).saveAllAndFlush(List.of(
+                night(LocalDate.now().plusDays(3), reservation),
+                night(LocalDate.now().plusDays(4), reservation)));
+    }
+
+    @Test
+    void reserveNights_UpdatedReservation() throws InvalidDatesException {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(LocalDate.now().plusDays(4), LocalDate.now().plusDays(6));
+
+        testee.reserveNights(reservation, LocalDate.now().plusDays(3), LocalDate.now().plusDays(5));
+
+        verify(reservationNightRepository).deleteByCampsiteIdAndReservationIdAndNightIn(Campsite.DEFAULT_ID, reservation.getId(), List.of(LocalDate.now().plusDays(3)));
+        verify(reservationNightRepository).saveAllAndFlush(List.of(night(LocalDate.now().plusDays(5), reservation)));
+    }
+
+    @Test
+    void reserveNights_SameDates() throws InvalidDatesException {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(LocalDate.now().plusDays(3), LocalDate.now().plusDays(5));
+
+        testee.reserveNights(reservation, LocalDate.now().plusDays(3), LocalDate.now().plusDays(5));
+
+        verifyNoInteractions(reservationNightRepository);
+    }
+
+    @Test
+    void findAvailableNights() {
+        LocalDate today = LocalDate.now();
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(today.plusDays(2), today.plusDays(4));
+
+        when(reservationNightRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(Campsite.DEFAULT_ID, today.plusDays(1), today.plusDays(5)))
+                .thenReturn(List.of(night(today.plusDays(2), reservation), night(today.plusDays(3), reservation)));
+
+        assertThat(testee.findAvailableNights(Campsite.DEFAULT_ID, today.plusDays(1), today.plusDays(5)))
+                .containsExactly(today.plusDays(1), today.plusDays(4));
+    }
+
+    @Test
+    void readAvailableNights() {
+        LocalDate today = LocalDate.now();
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(today.plusDays(1), today.plusDays(2));
+
+        when(reservationNightRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(Campsite.DEFAULT_ID, today, today.plusDays(3)))
+                .thenReturn(List.of(night(today.plusDays(1), reservation)));
+
+        assertThat(testee.readAvailableNights(Campsite.DEFAULT_ID, today, today.plusDays(3))).hasValueSatisfying(availableDates ->
+                assertThat(availableDates).containsExactly(today, today.plusDays(2)));
+    }
+
+    @Test
+    void reserveNights_Batch() throws InvalidDatesException {
+        Reservation first = ReservationDataTestUtil.getReservationEntity(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2));
+        Reservation second = ReservationDataTestUtil.getReservationEntity(LocalDate.now().plusDays(4), LocalDate.now().plusDays(6));
+        second.setId(UUID.randomUUID());
+
+        testee.reserveNights(List.of(first, second));
+
+        verify(reservationNightRepository).saveAllAndFlush(List.of(
+                night(LocalDate.now().plusDays(1), first),
+                night(LocalDate.now().plusDays(4), second),
+                night(LocalDate.now().plusDays(5), second)));
+    }
+
+    @Test
+    void reserveNights_OtherCampsite() throws InvalidDatesException {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(LocalDate.now().plusDays(3), LocalDate.now().plusDays(4));
+        reservation.setCampsiteId(2L);
+
+        testee.reserveNights(reservation, null, null);
+
+        verify(reservationNightRepository).saveAllAndFlush(List.of(
+                ReservationNight.builder().campsiteId(2L).night(LocalDate.now().plusDays(3)).reservationId(reservation.getId()).build()));
+    }
+
+    @Test
+    void reserveNights_DatesUnavailable() {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(LocalDate.now().plusDays(3), LocalDate.now().plusDays(5));
+
+        when(reservationNightRepository.saveAllAndFlush(any())).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        assertThatThrownBy(() -> testee.reserveNights(reservation, null, null))
+                .isInstanceOf(InvalidDatesException.class)
+                .hasMessage("The dates selected are not available.")
+                .hasFieldOrPropertyWithValue("status", HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void releaseNights() {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(LocalDate.now().plusDays(3), LocalDate.now().plusDays(5));
+
+        testee.releaseNights(reservation);
+
+        verify(reservationNightRepository).deleteByCampsiteIdAndReservationIdAndNightIn(Campsite.DEFAULT_ID, reservation.getId(),
+                List.of(LocalDate.now().plusDays(3), LocalDate.now().plusDays(4)));
+    }
+
+    private static ReservationNight night(LocalDate night, Reservation reservation) {
+        return ReservationNight.builder().campsiteId(reservation.getCampsiteId()).night(night).reservationId(reservation.getId()).build();
+    }
+}
@@ -0,0 +1,143 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.DailyOccupancy;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.InvalidDatesException;
+import com.gladhus.volcanocampingapi.repository.DailyOccupancyRepository;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class OptimisticBookingGuardTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private static final Long CAMPSITE_ID = Campsite.DEFAULT_ID;
+
+    OptimisticBookingGuard testee;
+
+    @Mock
+    DailyOccupancyRepository dailyOccupancyRepository;
+
+    @BeforeEach
+    void setup() {
+        testee = new OptimisticBookingGuard(dailyOccupancyRepository, new BookingMetrics(new SimpleMeterRegistry(), "optimistic"));
+    }
+
+    @Test
+    void reserveNights_NewReservation() throws InvalidDatesException {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(TODAY.plusDays(3), TODAY.plusDays(5));
+        DailyOccupancy freeNight = occupancy(TODAY.plusDays(4), null, 3L);
+        when(dailyOccupancyRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(CAMPSITE_ID, TODAY.plusDays(3), TODAY.plusDays(5)))
+                .thenReturn(List.of(freeNight));
+
+        testee.reserveNights(reservation, null, null);
+
+        verify(dailyOccupancyRepository).saveAllAndFlush(List.of(
+                occupancy(TODAY.plusDays(3), reservation.getId(), null),
+                occupancy(TODAY.plusDays(4), reservation.getId(), 3L)));
+    }
+
+    @Test
+    void reserveNights_UpdatedReservation() throws InvalidDatesException {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(TODAY.plusDays(4), TODAY.plusDays(6));
+        when(dailyOccupancyRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(CAMPSITE_ID, TODAY.plusDays(3), TODAY.plusDays(6)))
+                .thenReturn(List.of(
+                        occupancy(TODAY.plusDays(3), reservation.getId(), 1L),
+                        occupancy(TODAY.plusDays(4), reservation.getId(), 1L)));
+
+        testee.reserveNights(reservation, TODAY.plusDays(3), TODAY.plusDays(5));
+
+        // The night kept is not written again.
+        verify(dailyOccupancyRepository).saveAllAndFlush(List.of(
+                occupancy(TODAY.plusDays(3), null, 1L),
+                occupancy(TODAY.plusDays(5), reservation.getId(), null)));
+    }
+
+    @Test
+    void reserveNights_NightTaken() {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(TODAY.plusDays(3), TODAY.plusDays(5));
+        when(dailyOccupancyRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(CAMPSITE_ID, TODAY.plusDays(3), TODAY.plusDays(5)))
+                .thenReturn(List.of(occupancy(TODAY.plusDays(4), UUID.randomUUID(), 2L)));
+
+        assertThatThrownBy(() -> testee.reserveNights(reservation, null, null))
+                .isInstanceOf(DatesNotAvailableException.class);
+        verify(dailyOccupancyRepository, never()).saveAllAndFlush(any());
+    }
+
+    @Test
+    void reserveNights_NightCreatedConcurrently() {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(TODAY.plusDays(3), TODAY.plusDays(5));
+        when(dailyOccupancyRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(CAMPSITE_ID, TODAY.plusDays(3), TODAY.plusDays(5)))
+                .thenReturn(List.of());
+        when(dailyOccupancyRepository.saveAllAndFlush(any())).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        assertThatThrownBy(() -> testee.reserveNights(reservation, null, null))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    void reserveNights_Batch() throws InvalidDatesException {
+        Reservation first = ReservationDataTestUtil.getReservationEntity(TODAY.plusDays(1), TODAY.plusDays(2));
+        Reservation second = ReservationDataTestUtil.getReservationEntity(TODAY.plusDays(4), TODAY.plusDays(5));
+        second.setId(UUID.randomUUID());
+        when(dailyOccupancyRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(CAMPSITE_ID, TODAY.plusDays(1), TODAY.plusDays(5)))
+                .thenReturn(List.of(occupancy(TODAY.plusDays(4), null, 5L)));
+
+        testee.reserveNights(List.of(first, second));
+
+        verify(dailyOccupancyRepository).saveAllAndFlush(List.of(
+                occupancy(TODAY.plusDays(1), first.getId(), null),
+                occupancy(TODAY.plusDays(4), second.getId(), 5L)));
+    }
+
+    @Test
+    void findAvailableNights() {
+        when(dailyOccupancyRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(CAMPSITE_ID, TODAY.plusDays(1), TODAY.plusDays(4)))
+                .thenReturn(List.of(
+                        occupancy(TODAY.plusDays(1), null, 2L),
+                        occupancy(TODAY.plusDays(2), UUID.randomUUID(), 1L)));
+
+        AvailableDates result = testee.findAvailableNights(CAMPSITE_ID, TODAY.plusDays(1), TODAY.plusDays(4));
+
+        assertThat(result).containsExactly(TODAY.plusDays(1), TODAY.plusDays(3));
+    }
+
+    @Test
+    void releaseNights() {
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(TODAY.plusDays(3), TODAY.plusDays(5));
+        when(dailyOccupancyRepository.findByCampsiteIdAndNightGreaterThanEqualAndNightLessThan(CAMPSITE_ID, TODAY.plusDays(3), TODAY.plusDays(5)))
+                .thenReturn(List.of(
+                        occupancy(TODAY.plusDays(3), reservation.getId(), 1L),
+                        occupancy(TODAY.plusDays(4), UUID.randomUUID(), 1L)));
+
+        testee.releaseNights(reservation);
+
+        verify(dailyOccupancyRepository).saveAllAndFlush(List.of(occupancy(TODAY.plusDays(3), null, 1L)));
+    }
+
+    private static DailyOccupancy occupancy(LocalDate night, UUID reservationId, Long version) {
+        return DailyOccupancy.builder().campsiteId(CAMPSITE_ID).night(night).reservationId(reservationId).version(version).build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class PessimisticLockBookingGuardTest {
+
+    PessimisticLockBookingGuard testee;
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @BeforeEach
+    void setup() {
+        testee = new PessimisticLockBookingGuard(reservationRepository, new BookingMetrics(new SimpleMeterRegistry(), "pessimistic"));
+    }
+
+    @Test
+    void checkAvailability_CoveringReservation() {
+        LocalDate today = LocalDate.now();
+        Reservation covering = ReservationDataTestUtil.getReservationEntity(today.plusDays(1), today.plusDays(5));
+        covering.setId(UUID.randomUUID());
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(today.plusDays(2), today.plusDays(4));
+
+        when(reservationRepository.findOverlappingByStatusForUpdate(Campsite.DEFAULT_ID, today.plusDays(2), today.plusDays(4), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(covering));
+
+        assertThatThrownBy(() -> testee.checkAvailability(reservation))
+                .isInstanceOf(DatesNotAvailableException.class);
+    }
+
+    @Test
+    void checkAvailability_SameReservation() {
+        LocalDate today = LocalDate.now();
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(today.plusDays(2), today.plusDays(4));
+
+        when(reservationRepository.findOverlappingByStatusForUpdate(Campsite.DEFAULT_ID, today.plusDays(2), today.plusDays(4), ReservationStatus.ACTIVE))
+                .thenReturn(List.of(ReservationDataTestUtil.getReservationEntity(today.plusDays(1), today.plusDays(3))));
+
+        assertThatNoException().isThrownBy(() -> testee.checkAvailability(reservation));
+    }
+}
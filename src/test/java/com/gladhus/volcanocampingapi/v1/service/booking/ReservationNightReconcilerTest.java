@@ -0,0 +1,66 @@
+package com.gladhus.volcanocampingapi.v1.service.booking;
+
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationNight;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.repository.ReservationNightRepository;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class ReservationNightReconcilerTest {
+
+    ReservationNightReconciler testee;
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    ReservationNightRepository reservationNightRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setup() {
+        testee = new ReservationNightReconciler(reservationRepository, reservationNightRepository, transactionManager);
+    }
+
+    @Test
+    void reconcile() {
+        LocalDate today = LocalDate.now();
+        Reservation reservation = ReservationDataTestUtil.getReservationEntity(today.plusDays(1), today.plusDays(4));
+        Reservation conflictingReservation = ReservationDataTestUtil.getReservationEntity(today.plusDays(3), today.plusDays(5));
+        conflictingReservation.setId(UUID.randomUUID());
+
+        when(reservationNightRepository.findByNightGreaterThanEqual(today))
+                .thenReturn(List.of(night(today.plusDays(2), reservation)));
+        when(reservationRepository.findByStatusAndCheckoutAfter(ReservationStatus.ACTIVE, today))
+                .thenReturn(List.of(reservation, conflictingReservation));
+
+        testee.afterSingletonsInstantiated();
+
+        verify(reservationNightRepository).deleteOrphans();
+        verify(reservationNightRepository).saveAll(List.of(
+                night(today.plusDays(1), reservation),
+                night(today.plusDays(3), reservation),
+                night(today.plusDays(4), conflictingReservation)));
+    }
+
+    private static ReservationNight night(LocalDate night, Reservation reservation) {
+        return ReservationNight.builder().campsiteId(reservation.getCampsiteId()).night(night).reservationId(reservation.getId()).build();
+    }
+}
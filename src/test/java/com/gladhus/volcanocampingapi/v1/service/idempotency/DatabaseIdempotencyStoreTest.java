@@ -0,0 +1,108 @@
+package com.gladhus.volcanocampingapi.v1.service.idempotency;
+
+import com.gladhus.volcanocampingapi.domain.IdempotencyKey;
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.repository.IdempotencyKeyRepository;
+import com.gladhus.volcanocampingapi.v1.service.ConnectionBulkhead;
+import com.gladhus.volcanocampingapi.v1.service.idempotency.IdempotencyStore.StoredRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class DatabaseIdempotencyStoreTest {
+
+    private static final String KEY = "create:key-test";
+
+    DatabaseIdempotencyStore testee;
+
+    @Mock
+    IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Captor
+    ArgumentCaptor<IdempotencyKey> savedKey;
+
+    @BeforeEach
+    void setup() {
+        testee = new DatabaseIdempotencyStore(idempotencyKeyRepository,
+                new ConnectionBulkhead(false, 1, Duration.ofSeconds(1), null, new SimpleMeterRegistry()),
+                transactionManager, Duration.ofHours(1), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void claim() throws GenericAPIException {
+        when(idempotencyKeyRepository.findById(KEY)).thenReturn(Optional.empty());
+
+        assertThat(testee.claim(KEY, "fingerprint")).isEmpty();
+
+        verify(idempotencyKeyRepository).saveAndFlush(savedKey.capture());
+        assertThat(savedKey.getValue().getFingerprint()).isEqualTo("fingerprint");
+        assertThat(savedKey.getValue().getResponse()).isNull();
+        assertThat(savedKey.getValue().getExpiresAt()).isAfter(Instant.now());
+    }
+
+    @Test
+    void claim_Completed() throws GenericAPIException {
+        when(idempotencyKeyRepository.findById(KEY)).thenReturn(Optional.of(key("{}", Instant.now().plusSeconds(60))));
+
+        assertThat(testee.claim(KEY, "fingerprint")).contains(new StoredRequest("fingerprint", "{}"));
+
+        verify(idempotencyKeyRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void claim_Expired() throws GenericAPIException {
+        IdempotencyKey expired = key("{}", Instant.now().minusSeconds(1));
+        when(idempotencyKeyRepository.findById(KEY)).thenReturn(Optional.of(expired));
+
+        assertThat(testee.claim(KEY, "fingerprint")).isEmpty();
+
+        verify(idempotencyKeyRepository).delete(expired);
+        verify(idempotencyKeyRepository).saveAndFlush(any());
+    }
+
+    @Test
+    void claim_ClaimedConcurrently() throws GenericAPIException {
+        when(idempotencyKeyRepository.findById(KEY))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(key(null, Instant.now().plusSeconds(60))));
+        when(idempotencyKeyRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("Duplicate key"));
+
+        assertThat(testee.claim(KEY, "fingerprint")).contains(new StoredRequest("fingerprint", null));
+    }
+
+    @Test
+    void complete() throws GenericAPIException {
+        when(idempotencyKeyRepository.findById(KEY)).thenReturn(Optional.of(key(null, Instant.now().plusSeconds(60))));
+
+        testee.complete(KEY, new StoredRequest("fingerprint", "{}"));
+
+        verify(idempotencyKeyRepository).save(savedKey.capture());
+        assertThat(savedKey.getValue().getResponse()).isEqualTo("{}");
+        assertThat(savedKey.getValue().getExpiresAt()).isAfter(Instant.now().plus(Duration.ofMinutes(59)));
+    }
+
+    private static IdempotencyKey key(String response, Instant expiresAt) {
+        return IdempotencyKey.builder().key(KEY).fingerprint("fingerprint").response(response).expiresAt(expiresAt).version(0L).build();
+    }
+}
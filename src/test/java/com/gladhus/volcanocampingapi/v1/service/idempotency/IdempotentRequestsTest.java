@@ -0,0 +1,149 @@
+package com.gladhus.volcanocampingapi.v1.service.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
+import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.exception.IdempotencyKeyInProgressException;
+import com.gladhus.volcanocampingapi.exception.IdempotencyKeyReusedException;
+import com.gladhus.volcanocampingapi.v1.service.idempotency.IdempotencyStore.StoredRequest;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotentRequestsTest {
+
+    private static final String OPERATION = "create";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final IdempotentRequests testee = new IdempotentRequests(
+            new InMemoryIdempotencyStore(10, Duration.ofMinutes(1), meterRegistry),
+            new ObjectMapper().findAndRegisterModules(), meterRegistry);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void call_ReplayedForSameKey() throws GenericAPIException {
+        ReservationDto first = testee.call("key-test", OPERATION, "fingerprint", ReservationDto.class, this::book);
+        ReservationDto second = testee.call("key-test", OPERATION, "fingerprint", ReservationDto.class, this::book);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(calls).hasValue(1);
+        assertThat(meterRegistry.get("idempotent.requests").tag("outcome", "replayed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void call_RunForOtherKeysOrOperations() throws GenericAPIException {
+        testee.call("key-test", OPERATION, "fingerprint", ReservationDto.class, this::book);
+        testee.call("other-key-test", OPERATION, "fingerprint", ReservationDto.class, this::book);
+        testee.call("key-test", "update", "fingerprint", ReservationDto.class, this::book);
+        testee.call(null, OPERATION, "fingerprint", ReservationDto.class, this::book);
+
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void call_KeyReusedForOtherRequest() throws GenericAPIException {
+        testee.call("key-test", OPERATION, "fingerprint", ReservationDto.class, this::book);
+
+        assertThatThrownBy(() -> testee.call("key-test", OPERATION, "other-fingerprint", ReservationDto.class, this::book))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void call_RunAgainAfterFailure() throws GenericAPIException {
+        assertThatThrownBy(() -> testee.call("key-test", OPERATION, "fingerprint", ReservationDto.class, () -> {
+            throw new DatesNotAvailableException();
+        })).isInstanceOf(DatesNotAvailableException.class);
+
+        testee.call("key-test", OPERATION, "fingerprint", ReservationDto.class, this::book);
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void call_RunAgainAfterError() throws GenericAPIException {
+        assertThatThrownBy(() -> testee.call("key-test", OPERATION, "fingerprint", ReservationDto.class, () -> {
+            throw new AssertionError("failed");
+        })).isInstanceOf(AssertionError.class);
+
+        ReservationDto response = testee.call("key-test", OPERATION, "fingerprint", ReservationDto.class, this::book);
+
+        assertThat(response).isNotNull();
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void call_InvalidKey() {
+        assertThatThrownBy(() -> testee.call(" ", OPERATION, "fingerprint", ReservationDto.class, this::book))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> testee.call("k".repeat(IdempotentRequests.MAX_KEY_LENGTH + 1), OPERATION, "fingerprint",
+                ReservationDto.class, this::book))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void call_InProgressOnOtherInstance() throws GenericAPIException {
+        IdempotencyStore store = mock(IdempotencyStore.class);
+        IdempotentRequests idempotentRequests = new IdempotentRequests(store, new ObjectMapper(), meterRegistry);
+        when(store.claim("create:key-test", "fingerprint")).thenReturn(Optional.of(new StoredRequest("fingerprint", null)));
+
+        assertThatThrownBy(() -> idempotentRequests.call("key-test", OPERATION, "fingerprint", ReservationDto.class, this::book))
+                .isInstanceOf(IdempotencyKeyInProgressException.class);
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void call_ConcurrentDuplicatesCollapsed() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ReservationDto> first = executor.submit(() -> testee.call("key-test", OPERATION, "fingerprint", ReservationDto.class, () -> {
+                started.countDown();
+                release.join();
+                return book();
+            }));
+            started.await();
+            Future<ReservationDto> duplicate = executor.submit(() -> testee.call("key-test", OPERATION, "fingerprint", ReservationDto.class, this::book));
+            while (meterRegistry.get("idempotent.requests").tag("outcome", "collapsed").counter().count() < 1) {
+                Thread.onSpinWait();
+            }
+            release.complete(null);
+
+            assertThat(duplicate.get(5, TimeUnit.SECONDS)).isEqualTo(first.get(5, TimeUnit.SECONDS));
+            assertThat(calls).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void fingerprint() {
+        assertThat(IdempotentRequests.fingerprint("a", "bc")).isEqualTo(IdempotentRequests.fingerprint("a", "bc"))
+                .isNotEqualTo(IdempotentRequests.fingerprint("ab", "c"))
+                .hasSize(64);
+    }
+
+    private ReservationDto book() {
+        calls.incrementAndGet();
+        return ReservationDataTestUtil.getReservationDto();
+    }
+}
@@ -0,0 +1,110 @@
+package com.gladhus.volcanocampingapi.v1.service.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RateLimiter testee = new RateLimiter(properties(true), meterRegistry);
+
+    @Test
+    void tryAcquire_BurstUpToCapacity() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", 0)).isZero();
+        }
+
+        assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", 0)).isEqualTo(SECOND);
+        assertThat(meterRegistry.get("rate.limit.rejected").tag("endpoint", "create").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void tryAcquire_Refilled() {
+        for (int i = 0; i < 3; i++) {
+            testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", 0);
+        }
+
+        assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", SECOND / 4)).isEqualTo(SECOND * 3 / 4);
+        assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", SECOND)).isZero();
+        assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", SECOND)).isPositive();
+        // An idle bucket refills up to its capacity, not beyond.
+        for (int i = 0; i < 3; i++) {
+            assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", SECOND * 60)).isZero();
+        }
+        assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", SECOND * 60)).isPositive();
+    }
+
+    @Test
+    void tryAcquire_PerClientAndEndpoint() {
+        for (int i = 0; i < 3; i++) {
+            testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", 0);
+        }
+
+        assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", 0)).isPositive();
+        assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "other-client", 0)).isZero();
+        assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_READ, "client", 0)).isZero();
+    }
+
+    @Test
+    void tryAcquire_EndpointWithoutLimit() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CANCEL, "client", 0)).isZero();
+        }
+    }
+
+    @Test
+    void tryAcquire_Disabled() {
+        RateLimiter disabled = new RateLimiter(properties(false), meterRegistry);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(disabled.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", 0)).isZero();
+        }
+    }
+
+    @Test
+    void setLimit() {
+        for (int i = 0; i < 3; i++) {
+            testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", 0);
+        }
+
+        testee.setLimit(RateLimiter.ENDPOINT_CREATE, new RateLimit(5, 1));
+
+        // The bucket keeps the tokens it used, with the new capacity.
+        assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", 0)).isZero();
+        assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", 0)).isZero();
+        assertThat(testee.tryAcquire(RateLimiter.ENDPOINT_CREATE, "client", 0)).isPositive();
+        assertThat(testee.getLimits()).isEqualTo(Map.of(
+                RateLimiter.ENDPOINT_CREATE, new RateLimit(5, 1),
+                RateLimiter.ENDPOINT_READ, new RateLimit(100, 20)));
+    }
+
+    @Test
+    void setLimit_UnknownEndpoint() {
+        assertThatThrownBy(() -> testee.setLimit(RateLimiter.ENDPOINT_CANCEL, new RateLimit(5, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static RateLimitProperties properties(boolean enabled) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setEnabled(enabled);
+        properties.getLimits().put(RateLimiter.ENDPOINT_CREATE, limit(3, 1));
+        properties.getLimits().put(RateLimiter.ENDPOINT_READ, limit(100, 20));
+        return properties;
+    }
+
+    private static RateLimitProperties.Limit limit(int capacity, double refillPerSecond) {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setCapacity(capacity);
+        limit.setRefillPerSecond(refillPerSecond);
+        return limit;
+    }
+}
@@ -0,0 +1,61 @@
+package com.gladhus.volcanocampingapi.v1.service.storage;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class CampsiteMigrationTest {
+
+    private static final String COLUMNS_QUERY = "select column_name from information_schema.columns "
+            + "where table_schema = database() and table_name = ?";
+
+    CampsiteMigration testee;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        testee = new CampsiteMigration(jdbcTemplate);
+    }
+
+    @Test
+    void migrate() {
+        when(jdbcTemplate.queryForList(COLUMNS_QUERY, String.class, "reservation_night"))
+                .thenReturn(List.of("night", "reservation_id"));
+
+        testee.migrate("reservation_night");
+
+        verify(jdbcTemplate).execute("drop table reservation_night");
+    }
+
+    @Test
+    void migrate_AlreadyMigrated() {
+        when(jdbcTemplate.queryForList(COLUMNS_QUERY, String.class, "daily_occupancy"))
+                .thenReturn(List.of("campsite_id", "night", "occupied", "version"));
+
+        testee.migrate("daily_occupancy");
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void migrate_NoTable() {
+        when(jdbcTemplate.queryForList(COLUMNS_QUERY, String.class, "daily_occupancy")).thenReturn(List.of());
+
+        testee.migrate("daily_occupancy");
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
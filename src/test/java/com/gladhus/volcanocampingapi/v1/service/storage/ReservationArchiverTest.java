@@ -0,0 +1,88 @@
+package com.gladhus.volcanocampingapi.v1.service.storage;
+
+import com.gladhus.volcanocampingapi.domain.ArchivedReservation;
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.repository.ArchivedReservationRepository;
+import com.gladhus.volcanocampingapi.repository.ReservationNightRepository;
+import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class ReservationArchiverTest {
+
+    ReservationArchiver testee;
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    ReservationNightRepository reservationNightRepository;
+
+    @Mock
+    ArchivedReservationRepository archivedReservationRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Captor
+    ArgumentCaptor<List<ArchivedReservation>> archivedReservations;
+
+    @BeforeEach
+    void setup() {
+        testee = new ReservationArchiver(reservationRepository, reservationNightRepository, archivedReservationRepository,
+                transactionManager, true, 2);
+    }
+
+    @Test
+    void archive() {
+        LocalDate today = LocalDate.now();
+        Reservation past = ReservationDataTestUtil.getReservationEntity(today.minusDays(3), today.minusDays(1));
+        Reservation cancelled = ReservationDataTestUtil.getReservationEntity(today.plusDays(1), today.plusDays(2));
+        cancelled.setId(UUID.randomUUID());
+        cancelled.setStatus(ReservationStatus.CANCELLED);
+        Reservation lastPast = ReservationDataTestUtil.getReservationEntity(today.minusDays(2), today.minusDays(1));
+        lastPast.setId(UUID.randomUUID());
+
+        when(reservationRepository.findArchivableForUpdate(today, ReservationStatus.CANCELLED, PageRequest.of(0, 2)))
+                .thenReturn(List.of(past, cancelled), List.of(lastPast));
+
+        testee.archive();
+
+        verify(archivedReservationRepository, times(2)).saveAll(archivedReservations.capture());
+        assertThat(archivedReservations.getAllValues().get(0)).extracting(ArchivedReservation::toReservation).containsExactly(past, cancelled);
+        assertThat(archivedReservations.getAllValues().get(1)).extracting(ArchivedReservation::toReservation).containsExactly(lastPast);
+        verify(reservationNightRepository).deleteByReservationIdIn(List.of(past.getId(), cancelled.getId()));
+        verify(reservationRepository).deleteAllInBatch(List.of(past, cancelled));
+        verify(reservationRepository).deleteAllInBatch(List.of(lastPast));
+    }
+
+    @Test
+    void archive_Disabled() {
+        testee = new ReservationArchiver(reservationRepository, reservationNightRepository, archivedReservationRepository,
+                transactionManager, false, 2);
+
+        testee.archive();
+
+        verifyNoInteractions(reservationRepository, archivedReservationRepository);
+    }
+}
@@ -0,0 +1,92 @@
+package com.gladhus.volcanocampingapi.v1.service.storage;
+
+import com.gladhus.volcanocampingapi.v1.service.ReservationIdCodec;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class ReservationIdMigrationTest {
+
+    private static final String COLUMN_TYPE_QUERY = "select data_type from information_schema.columns "
+            + "where table_schema = database() and table_name = ? and column_name = ?";
+
+    private final ReservationIdCodec reservationIdCodec = ReservationDataTestUtil.getReservationIdCodec();
+
+    ReservationIdMigration testee;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Captor
+    ArgumentCaptor<List<Object[]>> updates;
+
+    @BeforeEach
+    void setup() {
+        testee = new ReservationIdMigration(jdbcTemplate, reservationIdCodec);
+    }
+
+    @Test
+    void migrate() {
+        String legacyId = "4028b8817f1e2c3d017f1e2c3d4e0000";
+        when(jdbcTemplate.queryForList(COLUMN_TYPE_QUERY, String.class, "reservation", "id")).thenReturn(List.of("varchar"));
+        when(jdbcTemplate.queryForList(COLUMN_TYPE_QUERY, String.class, "reservation", "binary_id")).thenReturn(List.of());
+        when(jdbcTemplate.queryForList("select id from reservation where binary_id is null", String.class)).thenReturn(List.of(legacyId));
+        when(jdbcTemplate.queryForList(startsWith("select partition_name"), eq(String.class), eq("reservation"))).thenReturn(List.of("p202206"));
+
+        testee.migrate("reservation");
+
+        verify(jdbcTemplate).execute("alter table reservation add column binary_id binary(16)");
+        verify(jdbcTemplate).batchUpdate(eq("update reservation set binary_id = ? where id = ?"), updates.capture());
+        verify(jdbcTemplate).execute("alter table reservation drop primary key, drop column id");
+        verify(jdbcTemplate).execute("alter table reservation change column binary_id id binary(16) not null, add primary key (id, checkin)");
+
+        // The legacy id stays the public id of the reservation.
+        Object[] update = updates.getValue().get(0);
+        ByteBuffer storageId = ByteBuffer.wrap((byte[]) update[0]);
+        assertThat(reservationIdCodec.encode(new UUID(storageId.getLong(), storageId.getLong()))).isEqualTo(legacyId);
+        assertThat(update[1]).isEqualTo(legacyId);
+    }
+
+    @Test
+    void migrate_Resumed() {
+        // The former column was dropped but the binary one not renamed yet.
+        when(jdbcTemplate.queryForList(COLUMN_TYPE_QUERY, String.class, "reservation_archive", "id")).thenReturn(List.of());
+        when(jdbcTemplate.queryForList(COLUMN_TYPE_QUERY, String.class, "reservation_archive", "binary_id")).thenReturn(List.of("binary"));
+        when(jdbcTemplate.queryForList(startsWith("select partition_name"), eq(String.class), eq("reservation_archive"))).thenReturn(List.of());
+
+        testee.migrate("reservation_archive");
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), ArgumentMatchers.<Object[]>anyList());
+        verify(jdbcTemplate).execute("alter table reservation_archive change column binary_id id binary(16) not null, add primary key (id)");
+    }
+
+    @Test
+    void migrate_AlreadyMigrated() {
+        when(jdbcTemplate.queryForList(COLUMN_TYPE_QUERY, String.class, "reservation", "id")).thenReturn(List.of("binary"));
+        when(jdbcTemplate.queryForList(COLUMN_TYPE_QUERY, String.class, "reservation", "binary_id")).thenReturn(List.of());
+
+        testee.migrate("reservation");
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
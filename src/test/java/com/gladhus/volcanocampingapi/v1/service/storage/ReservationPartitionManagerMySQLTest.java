@@ -0,0 +1,97 @@
+package com.gladhus.volcanocampingapi.v1.service.storage;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the partitioning statements on MySQL, on tables with the columns and keys of the reservation entities. The
+ * database has its own container, so that partitioning never reaches the schema of the other integration tests.
+ */
+@Testcontainers
+class ReservationPartitionManagerMySQLTest {
+
+    @Container
+    private static final MySQLContainer<?> MY_SQL_CONTAINER = new MySQLContainer<>("mysql:8.0");
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ReservationPartitionManager testee;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(MY_SQL_CONTAINER.getJdbcUrl(),
+                MY_SQL_CONTAINER.getUsername(), MY_SQL_CONTAINER.getPassword()));
+        jdbcTemplate.execute("drop table if exists reservation, reservation_archive");
+        jdbcTemplate.execute("create table reservation (id binary(16) not null, campsite_id bigint default 1 not null, "
+                + "checkin date, checkout date, email varchar(255), full_name varchar(255), status varchar(255), "
+                + "version bigint default 0 not null, primary key (id), "
+                + "index idx_reservation_campsite_id_checkin (campsite_id, checkin)) engine=InnoDB");
+        jdbcTemplate.execute("create table reservation_archive (id binary(16) not null, campsite_id bigint default 1 not null, "
+                + "checkin date, checkout date, email varchar(255), full_name varchar(255), status varchar(255), "
+                + "archived_at datetime(6), version bigint, primary key (id), "
+                + "index idx_reservation_archive_checkin (checkin)) engine=InnoDB");
+        testee = new ReservationPartitionManager(jdbcTemplate, 2);
+    }
+
+    @Test
+    void maintainPartitions_PartitionReorganizeAndDrop() {
+        UUID mayReservation = insertReservation(LocalDate.of(2022, 5, 20));
+        insertReservation(LocalDate.of(2022, 6, 10));
+
+        testee.maintainPartitions("reservation", YearMonth.of(2022, 6), true);
+
+        assertThat(partitions("reservation")).containsExactly("pold", "p202205", "p202206", "p202207", "p202208", "pfuture");
+        assertThat(jdbcTemplate.queryForList("select column_name from information_schema.key_column_usage "
+                + "where table_schema = database() and table_name = 'reservation' and constraint_name = 'PRIMARY' "
+                + "order by ordinal_position", String.class)).containsExactly("id", "checkin");
+
+        // Archived by then, the May partition is empty a month later.
+        jdbcTemplate.update("delete from reservation where id = uuid_to_bin(?)", mayReservation.toString());
+        testee.maintainPartitions("reservation", YearMonth.of(2022, 7), true);
+
+        assertThat(partitions("reservation")).containsExactly("p202206", "p202207", "p202208", "p202209", "pfuture");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from reservation where checkin = '2022-06-10'", Integer.class))
+                .isEqualTo(1);
+
+        insertReservation(LocalDate.of(2022, 9, 15));
+        insertReservation(LocalDate.of(2023, 1, 5));
+        assertThat(jdbcTemplate.queryForObject("select count(*) from reservation partition (p202209)", Integer.class))
+                .isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from reservation partition (pfuture)", Integer.class))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void maintainPartitions_EmptyArchiveKeepsPastMonths() {
+        testee.maintainPartitions("reservation_archive", YearMonth.of(2022, 6), false);
+        testee.maintainPartitions("reservation_archive", YearMonth.of(2022, 8), false);
+
+        assertThat(partitions("reservation_archive"))
+                .containsExactly("pold", "p202206", "p202207", "p202208", "p202209", "p202210", "pfuture");
+    }
+
+    private UUID insertReservation(LocalDate checkin) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("insert into reservation (id, checkin, checkout, status) values (uuid_to_bin(?), ?, ?, 'ACTIVE')",
+                id.toString(), checkin, checkin.plusDays(2));
+        return id;
+    }
+
+    private List<String> partitions(String table) {
+        return jdbcTemplate.queryForList("select partition_name from information_schema.partitions "
+                + "where table_schema = database() and table_name = ? and partition_name is not null "
+                + "order by partition_ordinal_position", String.class, table);
+    }
+}
@@ -0,0 +1,78 @@
+package com.gladhus.volcanocampingapi.v1.service.storage;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class})
+class ReservationPartitionManagerTest {
+
+    private static final YearMonth CURRENT_MONTH = YearMonth.of(2022, 6);
+
+    ReservationPartitionManager testee;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        testee = new ReservationPartitionManager(jdbcTemplate, 2);
+    }
+
+    @Test
+    void monthPartitionDefinitions() {
+        assertThat(ReservationPartitionManager.monthPartitionDefinitions(YearMonth.of(2022, 11), YearMonth.of(2023, 1)))
+                .isEqualTo("partition p202211 values less than ('2022-12-01'), "
+                        + "partition p202212 values less than ('2023-01-01'), "
+                        + "partition p202301 values less than ('2023-02-01'), "
+                        + "partition pfuture values less than (maxvalue)");
+    }
+
+    @Test
+    void maintainPartitions_NotPartitioned() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("reservation"))).thenReturn(List.of());
+        when(jdbcTemplate.queryForObject("select min(checkin) from reservation", LocalDate.class)).thenReturn(LocalDate.of(2022, 5, 20));
+
+        testee.maintainPartitions("reservation", CURRENT_MONTH, true);
+
+        verify(jdbcTemplate).execute("alter table reservation drop primary key, add primary key (id, checkin)");
+        verify(jdbcTemplate).execute("alter table reservation partition by range columns(checkin) ("
+                + "partition pold values less than ('2022-05-01'), "
+                + "partition p202205 values less than ('2022-06-01'), "
+                + "partition p202206 values less than ('2022-07-01'), "
+                + "partition p202207 values less than ('2022-08-01'), "
+                + "partition p202208 values less than ('2022-09-01'), "
+                + "partition pfuture values less than (maxvalue))");
+    }
+
+    @Test
+    void maintainPartitions_Partitioned() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("reservation")))
+                .thenReturn(List.of("pold", "p202205", "p202206", "p202207", "pfuture"));
+        when(jdbcTemplate.queryForList("select 1 from reservation partition (pold) limit 1")).thenReturn(List.of());
+        when(jdbcTemplate.queryForList("select 1 from reservation partition (p202205) limit 1")).thenReturn(List.of(Map.of("1", 1)));
+
+        testee.maintainPartitions("reservation", CURRENT_MONTH, true);
+
+        verify(jdbcTemplate).execute("alter table reservation reorganize partition pfuture into ("
+                + "partition p202208 values less than ('2022-09-01'), "
+                + "partition pfuture values less than (maxvalue))");
+        verify(jdbcTemplate).execute("alter table reservation drop partition pold");
+        verify(jdbcTemplate, never()).execute("alter table reservation drop partition p202205");
+    }
+}
@@ -1,24 +1,52 @@
 package com.gladhus.volcanocampingapi.v1.v1.adapter;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.DateRange;
 import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationView;
+import com.gladhus.volcanocampingapi.exception.BatchReservationException;
+import com.gladhus.volcanocampingapi.exception.CampsiteNotFoundException;
+import com.gladhus.volcanocampingapi.exception.DatesNotAvailableException;
 import com.gladhus.volcanocampingapi.exception.GenericAPIException;
+import com.gladhus.volcanocampingapi.exception.ReservationNotFoundException;
+import com.gladhus.volcanocampingapi.v1.service.BookingLoadShedder;
+import com.gladhus.volcanocampingapi.v1.service.BookingRetry;
+import com.gladhus.volcanocampingapi.v1.service.CampsiteService;
+import com.gladhus.volcanocampingapi.v1.service.ConnectionBulkhead;
+import com.gladhus.volcanocampingapi.v1.service.ReadRouting;
 import com.gladhus.volcanocampingapi.v1.service.ReservationService;
+import com.gladhus.volcanocampingapi.v1.service.booking.BookingMetrics;
+import com.gladhus.volcanocampingapi.v1.service.idempotency.IdempotentRequests;
+import com.gladhus.volcanocampingapi.v1.service.idempotency.InMemoryIdempotencyStore;
+import com.gladhus.volcanocampingapi.v1.v1.dto.AvailabilityRangeDto;
 import com.gladhus.volcanocampingapi.v1.v1.dto.CreateReservationDto;
 import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
 import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
 import com.gladhus.volcanocampingapi.v1.v1.mapper.ReservationMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.TreeSet;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith({MockitoExtension.class})
@@ -32,9 +60,19 @@ class ReservationAdapterTest {
     @Mock
     private ReservationService reservationService;
 
+    @Mock
+    private CampsiteService campsiteService;
+
     @BeforeEach
     void setup() {
-        testee = new ReservationAdapter(reservationMapper, reservationService);
+        testee = new ReservationAdapter(reservationMapper, reservationService, campsiteService,
+                new ConnectionBulkhead(false, 1, Duration.ofSeconds(1), null, new SimpleMeterRegistry()),
+                ReservationDataTestUtil.getReservationIdCodec(),
+                new BookingRetry(new BookingMetrics(new SimpleMeterRegistry(), "optimistic"), 2, Duration.ZERO, Duration.ZERO),
+                new BookingLoadShedder(new BookingMetrics(new SimpleMeterRegistry(), "optimistic"), 2, Duration.ofSeconds(1), new SimpleMeterRegistry()),
+                new IdempotentRequests(new InMemoryIdempotencyStore(10, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+                        new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry()),
+                Optional.empty(), 2);
     }
 
     @Test
@@ -47,9 +85,99 @@ class ReservationAdapterTest {
         when(reservationService.createReservation(reservationEntity)).thenReturn(reservationEntity);
         when(reservationMapper.mapToDto(reservationEntity)).thenReturn(reservationDto);
 
-        ReservationDto result = testee.createReservation(createReservationDto);
+        ReservationDto result = testee.createReservation(createReservationDto, null);
+
+        assertThat(result).isEqualTo(reservationDto);
+    }
+
+    @Test
+    void createReservation_RetriedAfterOptimisticConflict() throws GenericAPIException {
+        CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
+        Reservation reservationEntity = ReservationDataTestUtil.getReservationEntity();
+        ReservationDto reservationDto = ReservationDataTestUtil.getReservationDto();
+
+        when(reservationMapper.mapToEntity(createReservationDto)).thenReturn(reservationEntity);
+        when(reservationService.createReservation(reservationEntity))
+                .thenThrow(new OptimisticLockingFailureException("A night was booked concurrently."))
+                .thenReturn(reservationEntity);
+        when(reservationMapper.mapToDto(reservationEntity)).thenReturn(reservationDto);
+
+        ReservationDto result = testee.createReservation(createReservationDto, null);
+
+        assertThat(result).isEqualTo(reservationDto);
+        verify(reservationMapper, times(2)).mapToEntity(createReservationDto);
+    }
+
+    @Test
+    void createReservation_OptimisticConflictsExhausted() throws GenericAPIException {
+        CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
+        Reservation reservationEntity = ReservationDataTestUtil.getReservationEntity();
+
+        when(reservationMapper.mapToEntity(createReservationDto)).thenReturn(reservationEntity);
+        when(reservationService.createReservation(reservationEntity))
+                .thenThrow(new OptimisticLockingFailureException("A night was booked concurrently."));
+
+        assertThatThrownBy(() -> testee.createReservation(createReservationDto, null))
+                .isInstanceOf(DatesNotAvailableException.class);
+        verify(reservationService, times(2)).createReservation(reservationEntity);
+    }
+
+    @Test
+    void createReservation_ReplayedForSameIdempotencyKey() throws GenericAPIException {
+        CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
+        Reservation reservationEntity = ReservationDataTestUtil.getReservationEntity();
+        ReservationDto reservationDto = ReservationDataTestUtil.getReservationDto();
+
+        when(reservationMapper.mapToEntity(createReservationDto)).thenReturn(reservationEntity);
+        when(reservationService.createReservation(reservationEntity)).thenReturn(reservationEntity);
+        when(reservationMapper.mapToDto(reservationEntity)).thenReturn(reservationDto);
+
+        ReservationDto result = testee.createReservation(createReservationDto, "key-test");
+        ReservationDto replayed = testee.createReservation(createReservationDto, "key-test");
 
         assertThat(result).isEqualTo(reservationDto);
+        assertThat(replayed).isEqualTo(reservationDto);
+        verify(reservationService, times(1)).createReservation(reservationEntity);
+    }
+
+    @Test
+    void createReservations() throws GenericAPIException {
+        CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
+        Reservation reservationEntity = ReservationDataTestUtil.getReservationEntity();
+        ReservationDto reservationDto = ReservationDataTestUtil.getReservationDto();
+
+        when(reservationMapper.mapToEntity(createReservationDto)).thenReturn(reservationEntity);
+        when(reservationService.createReservations(List.of(reservationEntity))).thenReturn(List.of(reservationEntity));
+        when(reservationMapper.mapToDto(reservationEntity)).thenReturn(reservationDto);
+
+        List<ReservationDto> result = testee.createReservations(List.of(createReservationDto));
+
+        assertThat(result).containsExactly(reservationDto);
+    }
+
+    @Test
+    void createReservations_invalidItems() {
+        CreateReservationDto missingEmail = ReservationDataTestUtil.getCreateReservationDto();
+        missingEmail.setEmail(null);
+        CreateReservationDto missingCheckout = ReservationDataTestUtil.getCreateReservationDto();
+        missingCheckout.setCheckout(null);
+
+        assertThatThrownBy(() -> testee.createReservations(List.of(missingCheckout, missingEmail)))
+                .isInstanceOf(BatchReservationException.class)
+                .hasFieldOrPropertyWithValue("status", HttpStatus.BAD_REQUEST)
+                .extracting("itemErrors")
+                .isEqualTo(Map.of(0, "Checkout date is required.", 1, "Email is required."));
+        verifyNoInteractions(reservationService);
+    }
+
+    @Test
+    void createReservations_tooMany() {
+        List<CreateReservationDto> createReservationDtos = List.of(ReservationDataTestUtil.getCreateReservationDto(),
+                ReservationDataTestUtil.getCreateReservationDto(), ReservationDataTestUtil.getCreateReservationDto());
+
+        assertThatThrownBy(() -> testee.createReservations(createReservationDtos))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("A batch cannot hold more than 2 reservations.");
     }
 
     @Test
@@ -57,7 +185,7 @@ class ReservationAdapterTest {
         CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
         createReservationDto.setEmail("");
 
-        assertThatThrownBy(() -> testee.createReservation(createReservationDto))
+        assertThatThrownBy(() -> testee.createReservation(createReservationDto, null))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Email is required.");
     }
@@ -67,7 +195,7 @@ class ReservationAdapterTest {
         CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
         createReservationDto.setEmail(null);
 
-        assertThatThrownBy(() -> testee.createReservation(createReservationDto))
+        assertThatThrownBy(() -> testee.createReservation(createReservationDto, null))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Email is required.");
     }
@@ -77,7 +205,7 @@ class ReservationAdapterTest {
         CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
         createReservationDto.setFullName("");
 
-        assertThatThrownBy(() -> testee.createReservation(createReservationDto))
+        assertThatThrownBy(() -> testee.createReservation(createReservationDto, null))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Full name is required.");
     }
@@ -87,7 +215,7 @@ class ReservationAdapterTest {
         CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
         createReservationDto.setFullName(null);
 
-        assertThatThrownBy(() -> testee.createReservation(createReservationDto))
+        assertThatThrownBy(() -> testee.createReservation(createReservationDto, null))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Full name is required.");
     }
@@ -97,7 +225,7 @@ class ReservationAdapterTest {
         CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
         createReservationDto.setCheckin(null);
 
-        assertThatThrownBy(() -> testee.createReservation(createReservationDto))
+        assertThatThrownBy(() -> testee.createReservation(createReservationDto, null))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Checkin date is required.");
     }
@@ -107,7 +235,7 @@ class ReservationAdapterTest {
         CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
         createReservationDto.setCheckout(null);
 
-        assertThatThrownBy(() -> testee.createReservation(createReservationDto))
+        assertThatThrownBy(() -> testee.createReservation(createReservationDto, null))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Checkout date is required.");
     }
@@ -122,7 +250,7 @@ class ReservationAdapterTest {
         when(reservationService.updateReservation(reservationEntity)).thenReturn(reservationEntity);
         when(reservationMapper.mapToDto(reservationEntity)).thenReturn(reservationDto);
 
-        ReservationDto result = testee.updateReservation(reservationEntity.getId(), createReservationDto);
+        ReservationDto result = testee.updateReservation(reservationDto.getId(), createReservationDto, null);
 
         assertThat(result).isEqualTo(reservationDto);
     }
@@ -131,7 +259,7 @@ class ReservationAdapterTest {
     void updateReservation_emptyId() {
         CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
 
-        assertThatThrownBy(() -> testee.updateReservation("", createReservationDto))
+        assertThatThrownBy(() -> testee.updateReservation("", createReservationDto, null))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Reservation id is required.");
     }
@@ -140,34 +268,78 @@ class ReservationAdapterTest {
     void updateReservation_nullId() {
         CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
 
-        assertThatThrownBy(() -> testee.updateReservation(null, createReservationDto))
+        assertThatThrownBy(() -> testee.updateReservation(null, createReservationDto, null))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Reservation id is required.");
     }
 
     @Test
     void getReservation() throws GenericAPIException {
-        Reservation reservationEntity = ReservationDataTestUtil.getReservationEntity();
+        ReservationView reservationView = ReservationDataTestUtil.getReservationView();
         ReservationDto reservationDto = ReservationDataTestUtil.getReservationDto();
 
-        when(reservationService.getReservation(reservationEntity.getId())).thenReturn(reservationEntity);
-        when(reservationMapper.mapToDto(reservationEntity)).thenReturn(reservationDto);
+        when(reservationService.getReservation(reservationView.id())).thenReturn(reservationView);
+        when(reservationMapper.mapToDto(reservationView)).thenReturn(reservationDto);
 
-        ReservationDto result = testee.getReservation(reservationEntity.getId());
+        ReservationDto result = testee.getReservation(reservationDto.getId(), false);
 
         assertThat(result).isEqualTo(reservationDto);
     }
 
+    @Test
+    void getReservation_fresh() throws GenericAPIException {
+        ReservationView reservationView = ReservationDataTestUtil.getReservationView();
+        ReservationDto reservationDto = ReservationDataTestUtil.getReservationDto();
+
+        when(reservationService.getReservation(reservationView.id())).thenAnswer(invocation -> {
+            assertThat(ReadRouting.isPrimaryRequired()).isTrue();
+            return reservationView;
+        });
+        when(reservationMapper.mapToDto(reservationView)).thenReturn(reservationDto);
+
+        assertThat(testee.getReservation(reservationDto.getId(), true)).isEqualTo(reservationDto);
+        assertThat(ReadRouting.isPrimaryRequired()).isFalse();
+    }
+
+    @Test
+    void getReservationVersion() throws GenericAPIException {
+        ReservationDto reservationDto = ReservationDataTestUtil.getReservationDto();
+
+        when(reservationService.getReservationVersion(ReservationDataTestUtil.RESERVATION_ID)).thenReturn(Optional.of(3L));
+
+        assertThat(testee.getReservationVersion(reservationDto.getId(), false)).contains(3L);
+    }
+
+    @Test
+    void getReservationVersion_fresh() throws GenericAPIException {
+        ReservationDto reservationDto = ReservationDataTestUtil.getReservationDto();
+
+        when(reservationService.getReservationVersion(ReservationDataTestUtil.RESERVATION_ID)).thenAnswer(invocation -> {
+            assertThat(ReadRouting.isPrimaryRequired()).isTrue();
+            return Optional.of(3L);
+        });
+
+        assertThat(testee.getReservationVersion(reservationDto.getId(), true)).contains(3L);
+        assertThat(ReadRouting.isPrimaryRequired()).isFalse();
+    }
+
+    @Test
+    void getReservation_unknownId() {
+        assertThatThrownBy(() -> testee.getReservation("id-test", false))
+                .isInstanceOf(ReservationNotFoundException.class);
+        verifyNoInteractions(reservationService);
+    }
+
     @Test
     void getReservation_emptyId() {
-        assertThatThrownBy(() -> testee.getReservation(""))
+        assertThatThrownBy(() -> testee.getReservation("", false))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Reservation id is required.");
     }
 
     @Test
     void getReservation_nullId() {
-        assertThatThrownBy(() -> testee.getReservation(null))
+        assertThatThrownBy(() -> testee.getReservation(null, false))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Reservation id is required.");
     }
@@ -180,7 +352,7 @@ class ReservationAdapterTest {
         when(reservationService.cancelReservation(reservationEntity.getId())).thenReturn(reservationEntity);
         when(reservationMapper.mapToDto(reservationEntity)).thenReturn(reservationDto);
 
-        ReservationDto result = testee.cancelReservation(reservationEntity.getId());
+        ReservationDto result = testee.cancelReservation(reservationDto.getId());
 
         assertThat(result).isEqualTo(reservationDto);
     }
@@ -204,11 +376,11 @@ class ReservationAdapterTest {
         LocalDate fromDate = LocalDate.now().plusDays(1);
         LocalDate toDate = LocalDate.now().plusDays(10);
 
-        Set<LocalDate> availabilities = new TreeSet<>(fromDate.datesUntil(toDate).toList());
+        AvailableDates availabilities = AvailableDates.fromReservations(fromDate, toDate, List.of());
 
-        when(reservationService.getAvailabilities(fromDate, toDate)).thenReturn(availabilities);
+        when(reservationService.getAvailabilities(Campsite.DEFAULT_ID, fromDate, toDate)).thenReturn(availabilities);
 
-        Set<LocalDate> result = testee.getAvailabilities(fromDate, toDate);
+        Set<LocalDate> result = testee.getAvailabilities(null, fromDate, toDate);
 
         assertThat(result).isEqualTo(availabilities);
     }
@@ -218,11 +390,11 @@ class ReservationAdapterTest {
         LocalDate fromDate = null;
         LocalDate toDate = LocalDate.now().plusDays(10);
 
-        Set<LocalDate> availabilities = new TreeSet<>(LocalDate.now().datesUntil(toDate).toList());
+        AvailableDates availabilities = AvailableDates.fromReservations(LocalDate.now(), toDate, List.of());
 
-        when(reservationService.getAvailabilities(LocalDate.now(), toDate)).thenReturn(availabilities);
+        when(reservationService.getAvailabilities(Campsite.DEFAULT_ID, LocalDate.now(), toDate)).thenReturn(availabilities);
 
-        Set<LocalDate> result = testee.getAvailabilities(fromDate, toDate);
+        Set<LocalDate> result = testee.getAvailabilities(null, fromDate, toDate);
 
         assertThat(result).isEqualTo(availabilities);
     }
@@ -232,11 +404,11 @@ class ReservationAdapterTest {
         LocalDate fromDate = LocalDate.now();
         LocalDate toDate = null;
 
-        Set<LocalDate> availabilities = new TreeSet<>(fromDate.datesUntil(LocalDate.now().plusDays(10)).toList());
+        AvailableDates availabilities = AvailableDates.fromReservations(fromDate, LocalDate.now().plusDays(10), List.of());
 
-        when(reservationService.getAvailabilities(fromDate, LocalDate.now().plusMonths(1))).thenReturn(availabilities);
+        when(reservationService.getAvailabilities(Campsite.DEFAULT_ID, fromDate, LocalDate.now().plusMonths(1))).thenReturn(availabilities);
 
-        Set<LocalDate> result = testee.getAvailabilities(fromDate, toDate);
+        Set<LocalDate> result = testee.getAvailabilities(null, fromDate, toDate);
 
         assertThat(result).isEqualTo(availabilities);
     }
@@ -246,12 +418,80 @@ class ReservationAdapterTest {
         LocalDate fromDate = null;
         LocalDate toDate = null;
 
-        Set<LocalDate> availabilities = new TreeSet<>(LocalDate.now().datesUntil(LocalDate.now().plusDays(10)).toList());
+        AvailableDates availabilities = AvailableDates.fromReservations(LocalDate.now(), LocalDate.now().plusDays(10), List.of());
+
+        when(reservationService.getAvailabilities(Campsite.DEFAULT_ID, LocalDate.now(), LocalDate.now().plusMonths(1))).thenReturn(availabilities);
+
+        Set<LocalDate> result = testee.getAvailabilities(null, fromDate, toDate);
+
+        assertThat(result).isEqualTo(availabilities);
+    }
+
+    @Test
+    void getAvailabilities_Campsite() throws GenericAPIException {
+        LocalDate fromDate = LocalDate.now().plusDays(1);
+        LocalDate toDate = LocalDate.now().plusDays(10);
+
+        AvailableDates availabilities = AvailableDates.fromReservations(fromDate, toDate, List.of());
 
-        when(reservationService.getAvailabilities(LocalDate.now(), LocalDate.now().plusMonths(1))).thenReturn(availabilities);
+        when(reservationService.getAvailabilities(2L, fromDate, toDate)).thenReturn(availabilities);
 
-        Set<LocalDate> result = testee.getAvailabilities(fromDate, toDate);
+        Set<LocalDate> result = testee.getAvailabilities(2L, fromDate, toDate);
 
         assertThat(result).isEqualTo(availabilities);
+        verify(campsiteService).checkExists(2L);
+    }
+
+    @Test
+    void getAvailabilities_UnknownCampsite() throws GenericAPIException {
+        doThrow(new CampsiteNotFoundException()).when(campsiteService).checkExists(2L);
+
+        assertThatThrownBy(() -> testee.getAvailabilities(2L, null, null))
+                .isInstanceOf(CampsiteNotFoundException.class)
+                .hasMessage("No campsite was found for provided campsite id.")
+                .hasFieldOrPropertyWithValue("status", HttpStatus.NOT_FOUND);
+        verifyNoInteractions(reservationService);
+    }
+
+    @Test
+    void getAvailabilityRanges() {
+        LocalDate fromDate = LocalDate.now().plusDays(1);
+        LocalDate toDate = LocalDate.now().plusDays(10);
+        AvailabilityRangeDto rangeDto = AvailabilityRangeDto.builder().from(fromDate).to(toDate).build();
+
+        when(reservationMapper.mapToDto(new DateRange(fromDate, toDate))).thenReturn(rangeDto);
+
+        List<AvailabilityRangeDto> result = testee.getAvailabilityRanges(AvailableDates.fromReservations(fromDate, toDate, List.of()));
+
+        assertThat(result).containsExactly(rangeDto);
+    }
+
+    @Test
+    void getAvailabilitiesVersion_nullToDate_nullFromDate() throws GenericAPIException {
+        when(reservationService.getAvailabilitiesVersion(Campsite.DEFAULT_ID, LocalDate.now(), LocalDate.now().plusMonths(1))).thenReturn(Optional.of("version-test"));
+
+        assertThat(testee.getAvailabilitiesVersion(null, null, null)).contains("version-test");
+        verify(campsiteService).checkExists(Campsite.DEFAULT_ID);
+    }
+
+    @Test
+    void getAvailabilitiesVersion_UnknownCampsite() throws GenericAPIException {
+        doThrow(new CampsiteNotFoundException()).when(campsiteService).checkExists(2L);
+
+        assertThatThrownBy(() -> testee.getAvailabilitiesVersion(2L, null, null))
+                .isInstanceOf(CampsiteNotFoundException.class);
+        verifyNoInteractions(reservationService);
+    }
+
+    @Test
+    void createReservation_UnknownCampsite() throws GenericAPIException {
+        CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
+        createReservationDto.setCampsiteId(2L);
+
+        doThrow(new CampsiteNotFoundException()).when(campsiteService).checkExists(2L);
+
+        assertThatThrownBy(() -> testee.createReservation(createReservationDto, null))
+                .isInstanceOf(CampsiteNotFoundException.class);
+        verifyNoInteractions(reservationService);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package com.gladhus.volcanocampingapi.v1.v1.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gladhus.volcanocampingapi.config.JacksonConfig;
+import com.gladhus.volcanocampingapi.domain.AvailableDates;
+import com.gladhus.volcanocampingapi.domain.AvailableDatesBenchmark;
+import com.gladhus.volcanocampingapi.v1.v1.dto.AvailabilityRangeDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import com.gladhus.volcanocampingapi.v1.v1.mapper.ReservationMapper;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Serialization of the availabilities response body, as dates or as ranges, with an object mapper configured like the one of Spring Boot.
+ * The default serializers are compared with the ones registered by {@link JacksonConfig}, the GC profiler reports the
+ * allocations of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AvailabilitiesSerializationBenchmark {
+
+    @Param({"0", "30"})
+    public int reservations;
+
+    @Param({"default", "custom"})
+    public String serializers;
+
+    ObjectWriter writer;
+
+    List<LocalDate> availabilities;
+
+    List<AvailabilityRangeDto> availabilityRanges;
+
+    @Setup
+    public void setup() {
+        // Spring Boot disables WRITE_DATES_AS_TIMESTAMPS by default.
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if ("custom".equals(serializers)) {
+            new JacksonConfig().responseSerializersCustomizer().customize(builder);
+        }
+        writer = builder.build().writerFor(List.class);
+        LocalDate fromDate = LocalDate.now();
+        AvailableDates availableDates = AvailableDates.fromReservations(fromDate, fromDate.plusMonths(1),
+                AvailableDatesBenchmark.randomReservations(fromDate, reservations));
+        availabilities = new ArrayList<>(availableDates);
+        ReservationMapper mapper = new ReservationMapper(ReservationDataTestUtil.getReservationIdCodec());
+        availabilityRanges = availableDates.ranges().stream().map(mapper::mapToDto).toList();
+    }
+
+    @Benchmark
+    public byte[] writeAvailabilities() throws JsonProcessingException {
+        return writer.writeValueAsBytes(availabilities);
+    }
+
+    @Benchmark
+    public byte[] writeAvailabilityRanges() throws JsonProcessingException {
+        return writer.writeValueAsBytes(availabilityRanges);
+    }
+}
@@ -0,0 +1,95 @@
+package com.gladhus.volcanocampingapi.v1.v1.controller;
+
+import com.gladhus.volcanocampingapi.exception.TooManyRequestsException;
+import com.gladhus.volcanocampingapi.v1.service.ratelimit.RateLimitProperties;
+import com.gladhus.volcanocampingapi.v1.service.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitInterceptorTest {
+
+    private static final String CLIENT_HEADER = "X-API-Key";
+
+    private static final String CLIENT_KEY = "known-key";
+
+    private final RateLimitInterceptor testee = new RateLimitInterceptor(new RateLimiter(properties(), new SimpleMeterRegistry()),
+            CLIENT_HEADER, Set.of(CLIENT_KEY));
+
+    private final HandlerMethod handler = handler();
+
+    @Test
+    void preHandle_RotatingUnknownKeys() throws TooManyRequestsException {
+        for (int i = 0; i < 3; i++) {
+            assertThat(testee.preHandle(request("10.0.0.1", UUID.randomUUID().toString()), new MockHttpServletResponse(), handler)).isTrue();
+        }
+
+        // Unknown keys are ignored, the client is still identified by its address.
+        assertThatThrownBy(() -> testee.preHandle(request("10.0.0.1", UUID.randomUUID().toString()), new MockHttpServletResponse(), handler))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThatThrownBy(() -> testee.preHandle(request("10.0.0.1", null), new MockHttpServletResponse(), handler))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThat(testee.preHandle(request("10.0.0.2", null), new MockHttpServletResponse(), handler)).isTrue();
+    }
+
+    @Test
+    void preHandle_KnownKey() throws TooManyRequestsException {
+        for (int i = 0; i < 3; i++) {
+            testee.preHandle(request("10.0.0.1", CLIENT_KEY), new MockHttpServletResponse(), handler);
+        }
+
+        assertThatThrownBy(() -> testee.preHandle(request("10.0.0.2", CLIENT_KEY), new MockHttpServletResponse(), handler))
+                .isInstanceOf(TooManyRequestsException.class);
+        // The key has its own budget, apart from the one of the address.
+        assertThat(testee.preHandle(request("10.0.0.1", null), new MockHttpServletResponse(), handler)).isTrue();
+    }
+
+    @Test
+    void clientOf() {
+        assertThat(RateLimitInterceptor.clientOf(CLIENT_KEY, "10.0.0.1", Set.of(CLIENT_KEY))).isEqualTo("key:" + CLIENT_KEY);
+        assertThat(RateLimitInterceptor.clientOf("unknown-key", "10.0.0.1", Set.of(CLIENT_KEY))).isEqualTo("address:10.0.0.1");
+        assertThat(RateLimitInterceptor.clientOf(null, "10.0.0.1", Set.of())).isEqualTo("address:10.0.0.1");
+    }
+
+    private static MockHttpServletRequest request(String address, String clientKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(address);
+        if (clientKey != null) {
+            request.addHeader(CLIENT_HEADER, clientKey);
+        }
+        return request;
+    }
+
+    private static HandlerMethod handler() {
+        try {
+            return new HandlerMethod(new Handler(), Handler.class.getMethod("create"));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RateLimitProperties properties() {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setCapacity(3);
+        // Slow enough not to refill while the test runs.
+        limit.setRefillPerSecond(0.001);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getLimits().put(RateLimiter.ENDPOINT_CREATE, limit);
+        return properties;
+    }
+
+    public static class Handler {
+
+        @RateLimited(RateLimiter.ENDPOINT_CREATE)
+        public void create() {
+        }
+    }
+}
@@ -2,16 +2,24 @@ package com.gladhus.volcanocampingapi.v1.v1.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gladhus.volcanocampingapi.AbstractMySQLContainerBasedTest;
+import com.gladhus.volcanocampingapi.domain.Campsite;
 import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.domain.ReservationNight;
 import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.repository.ReservationNightRepository;
 import com.gladhus.volcanocampingapi.repository.ReservationRepository;
+import com.gladhus.volcanocampingapi.v1.service.ReservationIdCodec;
+import com.gladhus.volcanocampingapi.v1.service.storage.ReservationArchiver;
 import com.gladhus.volcanocampingapi.v1.v1.dto.CreateReservationDto;
 import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
 import java.time.LocalDate;
+import java.util.List;
+import javax.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
@@ -23,12 +31,15 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import static com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil.getCreateReservationDto;
 import static com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil.getReservationEntity;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -41,6 +52,18 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
     @Autowired
     private ReservationRepository reservationRepository;
 
+    @Autowired
+    private ReservationNightRepository reservationNightRepository;
+
+    @Autowired
+    private ReservationArchiver reservationArchiver;
+
+    @Autowired
+    private ReservationIdCodec reservationIdCodec;
+
+    @Autowired
+    private EntityManager entityManager;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -50,12 +73,12 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
     @Test
     @Transactional
     void givenReservation_whenGetReservation_thenReservation() throws Exception {
-        Reservation reservationEntity = reservationRepository.save(getReservationEntity());
+        Reservation reservationEntity = saveActiveReservation(getReservationEntity());
 
-        ResultActions response = mockMvc.perform(get("/api/v1.1/reservation/" + reservationEntity.getId()));
+        ResultActions response = mockMvc.perform(get("/api/v1.1/reservation/" + reservationIdCodec.encode(reservationEntity.getId())));
 
         response.andExpect(status().isOk());
-        response.andExpect(jsonPath("$.id", is(equalTo(reservationEntity.getId()))));
+        response.andExpect(jsonPath("$.id", is(equalTo(reservationIdCodec.encode(reservationEntity.getId())))));
         response.andExpect(jsonPath("$.email", is(equalTo(reservationEntity.getEmail()))));
         response.andExpect(jsonPath("$.fullName", is(equalTo(reservationEntity.getFullName()))));
         response.andExpect(jsonPath("$.status", is(equalTo(reservationEntity.getStatus().toString()))));
@@ -63,6 +86,72 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
         response.andExpect(jsonPath("$.checkout", is(equalTo(reservationEntity.getCheckout().toString()))));
     }
 
+    @Test
+    @Transactional
+    void givenReservation_whenGetReservationNoCache_thenReservation() throws Exception {
+        Reservation reservationEntity = saveActiveReservation(getReservationEntity());
+
+        ResultActions response = mockMvc.perform(get("/api/v1.1/reservation/" + reservationIdCodec.encode(reservationEntity.getId()))
+                .header(HttpHeaders.CACHE_CONTROL, "max-age=0, no-cache"));
+
+        response.andExpect(status().isOk());
+        response.andExpect(jsonPath("$.id", is(equalTo(reservationIdCodec.encode(reservationEntity.getId())))));
+    }
+
+    @Test
+    @Transactional
+    void givenReservation_whenGetReservationWithItsETag_thenNotModified() throws Exception {
+        Reservation reservationEntity = saveActiveReservation(getReservationEntity());
+        String url = "/api/v1.1/reservation/" + reservationIdCodec.encode(reservationEntity.getId());
+        String eTag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        ResultActions response = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag));
+
+        response.andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @Transactional
+    void givenUpdatedReservation_whenGetReservationWithPreviousETag_thenReservation() throws Exception {
+        Reservation reservationEntity = saveActiveReservation(getReservationEntity());
+        String url = "/api/v1.1/reservation/" + reservationIdCodec.encode(reservationEntity.getId());
+        mockMvc.perform(put(url)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(CreateReservationDto.builder().fullName("newFullName").build())))
+                .andExpect(status().isOk());
+
+        ResultActions response = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, "\"0\""));
+
+        response.andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.fullName", is(equalTo("newFullName"))));
+    }
+
+    @Test
+    @Transactional
+    void givenArchivedReservation_whenGetReservation_thenReservation() throws Exception {
+        Reservation reservationEntity = getReservationEntity();
+        reservationEntity.setStatus(ReservationStatus.CANCELLED);
+        reservationEntity = reservationRepository.save(reservationEntity);
+        reservationArchiver.archive();
+        // The archive runs within the transaction of the test: write its changes and forget the reservation it moved.
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(reservationRepository.findById(reservationEntity.getId())).isEmpty();
+
+        ResultActions response = mockMvc.perform(get("/api/v1.1/reservation/" + reservationIdCodec.encode(reservationEntity.getId())));
+
+        response.andExpect(status().isOk());
+        response.andExpect(jsonPath("$.id", is(equalTo(reservationIdCodec.encode(reservationEntity.getId())))));
+        response.andExpect(jsonPath("$.status", is(equalTo(ReservationStatus.CANCELLED.toString()))));
+        response.andExpect(jsonPath("$.checkin", is(equalTo(reservationEntity.getCheckin().toString()))));
+    }
+
     @Test
     void givenNoReservation_whenGetReservation_thenNotFound() throws Exception {
         ResultActions response = mockMvc.perform(get("/api/v1.1/reservation/" + "invalid-id"));
@@ -105,7 +194,7 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
     @Transactional
     void givenReservation_whenCreateReservationAtSameDates_thenForbidden() throws Exception {
         CreateReservationDto createReservationDto = getCreateReservationDto();
-        reservationRepository.save(getReservationEntity(createReservationDto.getCheckin(), createReservationDto.getCheckout()));
+        saveActiveReservation(getReservationEntity(createReservationDto.getCheckin(), createReservationDto.getCheckout()));
 
         ResultActions response = mockMvc.perform(post("/api/v1.1/reservation")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -116,10 +205,92 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
                 .andExpect(jsonPath("$.status", is(equalTo(HttpStatus.FORBIDDEN.name()))));
     }
 
+    @Test
+    @Transactional
+    void givenCreatedReservation_whenCreateReservationWithSameIdempotencyKey_thenSameReservation() throws Exception {
+        CreateReservationDto createReservationDto = getCreateReservationDto();
+
+        ResultActions responseCreate = mockMvc.perform(post("/api/v1.1/reservation")
+                .header("Idempotency-Key", "key-create-test")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createReservationDto)));
+        ResultActions responseRetry = mockMvc.perform(post("/api/v1.1/reservation")
+                .header("Idempotency-Key", "key-create-test")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createReservationDto)));
+
+        responseCreate.andExpect(status().isCreated());
+        responseRetry.andExpect(status().isCreated());
+        assertThat(responseRetry.andReturn().getResponse().getContentAsString())
+                .isEqualTo(responseCreate.andReturn().getResponse().getContentAsString());
+    }
+
+    @Test
+    @Transactional
+    void givenCreatedReservation_whenCreateOtherReservationWithSameIdempotencyKey_thenUnprocessable() throws Exception {
+        CreateReservationDto createReservationDto = getCreateReservationDto();
+        mockMvc.perform(post("/api/v1.1/reservation")
+                .header("Idempotency-Key", "key-reused-test")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createReservationDto)))
+                .andExpect(status().isCreated());
+        createReservationDto.setFullName("other-fullName-test");
+
+        ResultActions response = mockMvc.perform(post("/api/v1.1/reservation")
+                .header("Idempotency-Key", "key-reused-test")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createReservationDto)));
+
+        response.andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.message", is(equalTo("The idempotency key was already used for a different request."))))
+                .andExpect(jsonPath("$.status", is(equalTo(HttpStatus.UNPROCESSABLE_ENTITY.name()))));
+    }
+
+    @Test
+    @Transactional
+    void givenNoReservation_whenCreateReservations_thenReservations() throws Exception {
+        LocalDate today = LocalDate.now();
+        List<CreateReservationDto> createReservationDtos = List.of(
+                getCreateReservationDto(today.plusDays(4), today.plusDays(6)),
+                getCreateReservationDto(today.plusDays(1), today.plusDays(3)));
+
+        ResultActions response = mockMvc.perform(post("/api/v1.1/reservation/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createReservationDtos)));
+
+        response.andExpect(status().isCreated())
+                .andExpect(jsonPath("$.size()", is(equalTo(2))))
+                .andExpect(jsonPath("$.[0].status", is(equalTo(ReservationStatus.ACTIVE.toString()))))
+                .andExpect(jsonPath("$.[0].checkin", is(equalTo(today.plusDays(4).toString()))))
+                .andExpect(jsonPath("$.[1].checkin", is(equalTo(today.plusDays(1).toString()))));
+        assertThat(reservationNightRepository.findByNightGreaterThanEqual(today)).hasSize(4);
+    }
+
+    @Test
+    @Transactional
+    void givenReservation_whenCreateReservationsAtSameDates_thenNoneCreated() throws Exception {
+        LocalDate today = LocalDate.now();
+        saveActiveReservation(getReservationEntity(today.plusDays(5), today.plusDays(6)));
+        List<CreateReservationDto> createReservationDtos = List.of(
+                getCreateReservationDto(today.plusDays(1), today.plusDays(3)),
+                getCreateReservationDto(today.plusDays(4), today.plusDays(6)));
+
+        ResultActions response = mockMvc.perform(post("/api/v1.1/reservation/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createReservationDtos)));
+
+        response.andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.status", is(equalTo(HttpStatus.FORBIDDEN.name()))))
+                .andExpect(jsonPath("$.errors.size()", is(equalTo(1))))
+                .andExpect(jsonPath("$.errors[0].index", is(equalTo(1))))
+                .andExpect(jsonPath("$.errors[0].message", is(equalTo("The dates selected are not available."))));
+        assertThat(reservationRepository.findOverlappingByStatus(Campsite.DEFAULT_ID, today, today.plusDays(7), ReservationStatus.ACTIVE)).hasSize(1);
+    }
+
     @Test
     @Transactional
     void givenReservation_whenUpdateReservation_thenUpdatedReservation() throws Exception {
-        Reservation reservationEntity = reservationRepository.save(getReservationEntity());
+        Reservation reservationEntity = saveActiveReservation(getReservationEntity());
         CreateReservationDto createReservationDto = CreateReservationDto.builder()
                 .email("newEmail")
                 .fullName("newFullName")
@@ -127,12 +298,12 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
                 .checkout(reservationEntity.getCheckout().plusDays(1))
                 .build();
 
-        ResultActions response = mockMvc.perform(put("/api/v1.1/reservation/" + reservationEntity.getId())
+        ResultActions response = mockMvc.perform(put("/api/v1.1/reservation/" + reservationIdCodec.encode(reservationEntity.getId()))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(createReservationDto)));
 
         response.andExpect(status().isOk())
-                .andExpect(jsonPath("$.id", is(equalTo(reservationEntity.getId()))))
+                .andExpect(jsonPath("$.id", is(equalTo(reservationIdCodec.encode(reservationEntity.getId())))))
                 .andExpect(jsonPath("$.email", is(equalTo(createReservationDto.getEmail()))))
                 .andExpect(jsonPath("$.fullName", is(equalTo(createReservationDto.getFullName()))))
                 .andExpect(jsonPath("$.checkin", is(createReservationDto.getCheckin().toString())))
@@ -158,14 +329,14 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
     @Test
     @Transactional
     void givenReservation_whenUpdateReservationToUnavailableDates_thenForbidden() throws Exception {
-        Reservation reservationEntityExisting = reservationRepository
-                .save(getReservationEntity(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
-        Reservation reservationEntityToUpdate = reservationRepository
-                .save(getReservationEntity(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
+        Reservation reservationEntityExisting =
+                saveActiveReservation(getReservationEntity(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
+        Reservation reservationEntityToUpdate =
+                saveActiveReservation(getReservationEntity(LocalDate.now().plusDays(3), LocalDate.now().plusDays(4)));
         CreateReservationDto createReservationDto =
                 getCreateReservationDto(reservationEntityExisting.getCheckin(), reservationEntityExisting.getCheckout());
 
-        ResultActions response = mockMvc.perform(put("/api/v1.1/reservation/" + reservationEntityToUpdate.getId())
+        ResultActions response = mockMvc.perform(put("/api/v1.1/reservation/" + reservationIdCodec.encode(reservationEntityToUpdate.getId()))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(createReservationDto)));
 
@@ -177,10 +348,10 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
     @Test
     @Transactional
     void givenReservation_whenUpdateReservationWithNoBody_thenBadRequest() throws Exception {
-        Reservation reservationEntityToUpdate = reservationRepository
-                .save(getReservationEntity(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
+        Reservation reservationEntityToUpdate =
+                saveActiveReservation(getReservationEntity(LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
 
-        ResultActions response = mockMvc.perform(put("/api/v1.1/reservation/" + reservationEntityToUpdate.getId())
+        ResultActions response = mockMvc.perform(put("/api/v1.1/reservation/" + reservationIdCodec.encode(reservationEntityToUpdate.getId()))
                 .contentType(MediaType.APPLICATION_JSON));
 
         response.andExpect(status().isBadRequest());
@@ -189,12 +360,12 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
     @Test
     @Transactional
     void givenReservation_whenCancelReservation_thenCancelledReservation() throws Exception {
-        Reservation reservationEntity = reservationRepository.save(getReservationEntity());
+        Reservation reservationEntity = saveActiveReservation(getReservationEntity());
 
-        ResultActions response = mockMvc.perform(delete("/api/v1.1/reservation/" + reservationEntity.getId()));
+        ResultActions response = mockMvc.perform(delete("/api/v1.1/reservation/" + reservationIdCodec.encode(reservationEntity.getId())));
 
         response.andExpect(status().isOk())
-                .andExpect(jsonPath("$.id", is(equalTo(reservationEntity.getId()))))
+                .andExpect(jsonPath("$.id", is(equalTo(reservationIdCodec.encode(reservationEntity.getId())))))
                 .andExpect(jsonPath("$.email", is(equalTo(reservationEntity.getEmail()))))
                 .andExpect(jsonPath("$.fullName", is(equalTo(reservationEntity.getFullName()))))
                 .andExpect(jsonPath("$.checkin", is(reservationEntity.getCheckin().toString())))
@@ -215,7 +386,7 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
     @Test
     @Transactional
     void givenReservation_whenGetAvailabilities_thenNotAvailableOnReservedDates() throws Exception {
-        Reservation reservationEntity = reservationRepository.save(getReservationEntity());
+        Reservation reservationEntity = saveActiveReservation(getReservationEntity());
 
         ResultActions response = mockMvc.perform(get("/api/v1.1/reservation/availabilities")
                 .param("fromDate", reservationEntity.getCheckin().minusDays(1).toString())
@@ -224,7 +395,9 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
         response.andExpect(status().isOk())
                 .andExpect(jsonPath("$.size()", is(equalTo(2))))
                 .andExpect(jsonPath("$.[0]", is(equalTo(reservationEntity.getCheckin().minusDays(1).toString()))))
-                .andExpect(jsonPath("$.[1]", is(equalTo(reservationEntity.getCheckout().toString()))));
+                .andExpect(jsonPath("$.[1]", is(equalTo(reservationEntity.getCheckout().toString()))))
+                // Read from the database rather than from the occupancy index, the version of the dates is unknown.
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
     }
 
     @Test
@@ -246,4 +419,66 @@ class ReservationControllerTest extends AbstractMySQLContainerBasedTest {
                 .andExpect(jsonPath("$.[3]", is(equalTo(reservationEntity.getCheckout().toString()))));
     }
 
+    @Test
+    @Transactional
+    void givenReservation_whenGetAvailabilityRanges_thenRangesAroundReservedDates() throws Exception {
+        Reservation reservationEntity = saveActiveReservation(getReservationEntity());
+
+        ResultActions response = mockMvc.perform(get("/api/v1.1/reservation/availabilities")
+                .param("fromDate", reservationEntity.getCheckin().minusDays(2).toString())
+                .param("toDate", reservationEntity.getCheckout().plusDays(1).toString())
+                .param("format", "ranges"));
+
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(equalTo(2))))
+                .andExpect(jsonPath("$.[0].from", is(equalTo(reservationEntity.getCheckin().minusDays(2).toString()))))
+                .andExpect(jsonPath("$.[0].to", is(equalTo(reservationEntity.getCheckin().minusDays(1).toString()))))
+                .andExpect(jsonPath("$.[1].from", is(equalTo(reservationEntity.getCheckout().toString()))))
+                .andExpect(jsonPath("$.[1].to", is(equalTo(reservationEntity.getCheckout().plusDays(1).toString()))));
+    }
+
+    @Test
+    @Transactional
+    void givenReservation_whenGetCampsiteAvailabilities_thenNotAvailableOnReservedDatesOfItsCampsite() throws Exception {
+        Reservation reservationEntity = saveActiveReservation(getReservationEntity());
+
+        ResultActions response = mockMvc.perform(get("/api/v1.1/reservation/availabilities/campsites")
+                .param("fromDate", reservationEntity.getCheckin().minusDays(1).toString())
+                .param("toDate", reservationEntity.getCheckout().toString()));
+
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].campsiteId", is(equalTo((int) Campsite.DEFAULT_ID))))
+                .andExpect(jsonPath("$.[0].dates.size()", is(equalTo(2))))
+                .andExpect(jsonPath("$.[0].dates.[0]", is(equalTo(reservationEntity.getCheckin().minusDays(1).toString()))))
+                .andExpect(jsonPath("$.[0].dates.[1]", is(equalTo(reservationEntity.getCheckout().toString()))));
+    }
+
+    @Test
+    void whenGetAvailabilitiesOfUnknownCampsite_thenNotFound() throws Exception {
+        ResultActions response = mockMvc.perform(get("/api/v1.1/reservation/availabilities").param("campsiteId", "-1"));
+
+        response.andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status", is(equalTo(HttpStatus.NOT_FOUND.name()))));
+    }
+
+    @Test
+    void whenGetAvailabilitiesInUnknownFormat_thenBadRequest() throws Exception {
+        ResultActions response = mockMvc.perform(get("/api/v1.1/reservation/availabilities").param("format", "weeks"));
+
+        response.andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is(equalTo("The format should be either dates or ranges."))));
+    }
+
+    /**
+     * Saves an active reservation along with the nights it holds, as the booking flow does.
+     */
+    private Reservation saveActiveReservation(Reservation reservation) {
+        Reservation savedReservation = reservationRepository.save(reservation);
+        reservationNightRepository.saveAll(savedReservation.getCheckin().datesUntil(savedReservation.getCheckout())
+                .map(night -> ReservationNight.builder().campsiteId(savedReservation.getCampsiteId()).night(night)
+                        .reservationId(savedReservation.getId()).build())
+                .toList());
+        return savedReservation;
+    }
+
 }
\ No newline at end of file
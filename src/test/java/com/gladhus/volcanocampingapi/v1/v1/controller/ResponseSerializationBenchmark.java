@@ -0,0 +1,90 @@
+package com.gladhus.volcanocampingapi.v1.v1.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gladhus.volcanocampingapi.config.JacksonConfig;
+import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.handler.dto.ErrorMessageDto;
+import com.gladhus.volcanocampingapi.handler.dto.ItemErrorDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Serialization of the reservation and error response bodies, with the default serializers and with the ones
+ * registered by {@link JacksonConfig}. The GC profiler reports the allocations of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ResponseSerializationBenchmark {
+
+    @Param({"default", "custom"})
+    public String serializers;
+
+    ObjectWriter reservationWriter;
+
+    ObjectWriter errorWriter;
+
+    ReservationDto reservation;
+
+    ErrorMessageDto error;
+
+    @Setup
+    public void setup() {
+        // Spring Boot disables WRITE_DATES_AS_TIMESTAMPS by default.
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if ("custom".equals(serializers)) {
+            new JacksonConfig().responseSerializersCustomizer().customize(builder);
+        }
+        ObjectMapper objectMapper = builder.build();
+        reservationWriter = objectMapper.writerFor(ReservationDto.class);
+        errorWriter = objectMapper.writerFor(ErrorMessageDto.class);
+
+        LocalDate checkin = LocalDate.now().plusDays(10);
+        reservation = ReservationDto.builder()
+                .id("gKX0pXDuQ3WbIuQ2m0Ml3A")
+                .campsiteId(1L)
+                .email("john.doe@example.com")
+                .fullName("John Doe")
+                .status(ReservationStatus.ACTIVE)
+                .checkin(checkin)
+                .checkout(checkin.plusDays(3))
+                .build();
+        error = ErrorMessageDto.builder()
+                .status(HttpStatus.CONFLICT)
+                .message("Some of the reservations could not be created.")
+                .errors(List.of(ItemErrorDto.builder().index(1).message("The dates selected are not available.").build()))
+                .build();
+    }
+
+    @Benchmark
+    public byte[] writeReservation() throws JsonProcessingException {
+        return reservationWriter.writeValueAsBytes(reservation);
+    }
+
+    @Benchmark
+    public byte[] writeError() throws JsonProcessingException {
+        return errorWriter.writeValueAsBytes(error);
+    }
+}
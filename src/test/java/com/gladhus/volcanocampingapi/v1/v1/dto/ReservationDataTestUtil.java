@@ -1,8 +1,12 @@
 package com.gladhus.volcanocampingapi.v1.v1.dto;
 
+import com.gladhus.volcanocampingapi.domain.Campsite;
 import com.gladhus.volcanocampingapi.domain.Reservation;
 import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.domain.ReservationView;
+import com.gladhus.volcanocampingapi.v1.service.ReservationIdCodec;
 import java.time.LocalDate;
+import java.util.UUID;
 
 /**
  * Util class to create entities or DTOs for other tests.
@@ -10,13 +14,22 @@ import java.time.LocalDate;
  */
 public class ReservationDataTestUtil {
 
+    public static final String RESERVATION_ID_KEY = "AAECAwQFBgcICQoLDA0ODw==";
+
+    public static final UUID RESERVATION_ID = UUID.fromString("0183c5a0-7b2e-7c3d-9f1e-2a3b4c5d6e7f");
+
+    public static ReservationIdCodec getReservationIdCodec() {
+        return new ReservationIdCodec(RESERVATION_ID_KEY);
+    }
+
     public static ReservationDto getReservationDto() {
         return getReservationDto(LocalDate.now().plusDays(3), LocalDate.now().plusDays(5));
     }
 
     public static ReservationDto getReservationDto(LocalDate checkin, LocalDate checkout) {
         return ReservationDto.builder()
-                .id("id-test")
+                .id(getReservationIdCodec().encode(RESERVATION_ID))
+                .campsiteId(Campsite.DEFAULT_ID)
                 .fullName("fullName-test")
                 .email("test@example.com")
                 .checkin(checkin)
@@ -57,7 +70,7 @@ public class ReservationDataTestUtil {
 
     public static Reservation getReservationEntity(LocalDate checkin, LocalDate checkout) {
         return Reservation.builder()
-                .id("id-test")
+                .id(RESERVATION_ID)
                 .fullName("fullName-test")
                 .email("test@example.com")
                 .checkin(checkin)
@@ -66,4 +79,9 @@ public class ReservationDataTestUtil {
                 .build();
     }
 
+    public static ReservationView getReservationView() {
+        return new ReservationView(RESERVATION_ID, Campsite.DEFAULT_ID, "test@example.com", "fullName-test", ReservationStatus.ACTIVE,
+                LocalDate.now().plusDays(3), LocalDate.now().plusDays(5), 1L);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.gladhus.volcanocampingapi.v1.v1.mapper;
+
+import com.gladhus.volcanocampingapi.domain.Reservation;
+import com.gladhus.volcanocampingapi.v1.v1.dto.CreateReservationDto;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
+import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReservationMapperBenchmark {
+
+    ReservationMapper mapper = new ReservationMapper(ReservationDataTestUtil.getReservationIdCodec());
+
+    Reservation reservation = ReservationDataTestUtil.getReservationEntity();
+
+    CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
+
+    @Benchmark
+    public ReservationDto mapToDto() {
+        return mapper.mapToDto(reservation);
+    }
+
+    @Benchmark
+    public Reservation mapToEntity() {
+        return mapper.mapToEntity(createReservationDto);
+    }
+
+    @Benchmark
+    public Reservation mapToEntityWithId() {
+        return mapper.mapToEntity(ReservationDataTestUtil.RESERVATION_ID, createReservationDto);
+    }
+}
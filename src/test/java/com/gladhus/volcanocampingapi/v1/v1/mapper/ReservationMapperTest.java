@@ -1,11 +1,16 @@
 package com.gladhus.volcanocampingapi.v1.v1.mapper;
 
 
+import com.gladhus.volcanocampingapi.domain.Campsite;
+import com.gladhus.volcanocampingapi.domain.DateRange;
 import com.gladhus.volcanocampingapi.domain.Reservation;
 import com.gladhus.volcanocampingapi.domain.ReservationStatus;
+import com.gladhus.volcanocampingapi.domain.ReservationView;
+import com.gladhus.volcanocampingapi.v1.v1.dto.AvailabilityRangeDto;
 import com.gladhus.volcanocampingapi.v1.v1.dto.CreateReservationDto;
 import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDataTestUtil;
 import com.gladhus.volcanocampingapi.v1.v1.dto.ReservationDto;
+import java.time.LocalDate;
 import org.junit.jupiter.api.Test;
 
 
@@ -14,7 +19,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 
 class ReservationMapperTest {
 
-    private final ReservationMapper testee = new ReservationMapper();
+    private final ReservationMapper testee = new ReservationMapper(ReservationDataTestUtil.getReservationIdCodec());
 
     @Test
     void mapToEntity() {
@@ -22,6 +27,7 @@ class ReservationMapperTest {
 
         Reservation result = testee.mapToEntity(createReservationDto);
 
+        assertThat(result.getCampsiteId()).isEqualTo(Campsite.DEFAULT_ID);
         assertThat(result.getFullName()).isEqualTo(createReservationDto.getFullName());
         assertThat(result.getEmail()).isEqualTo(createReservationDto.getEmail());
         assertThat(result.getCheckin()).isEqualTo(createReservationDto.getCheckin());
@@ -34,13 +40,14 @@ class ReservationMapperTest {
     void mapToEntity_withId() {
         CreateReservationDto createReservationDto = ReservationDataTestUtil.getCreateReservationDto();
 
-        Reservation result = testee.mapToEntity("id-test", createReservationDto);
+        Reservation result = testee.mapToEntity(ReservationDataTestUtil.RESERVATION_ID, createReservationDto);
 
+        assertNull(result.getCampsiteId());
         assertThat(result.getFullName()).isEqualTo(createReservationDto.getFullName());
         assertThat(result.getEmail()).isEqualTo(createReservationDto.getEmail());
         assertThat(result.getCheckin()).isEqualTo(createReservationDto.getCheckin());
         assertThat(result.getCheckout()).isEqualTo(createReservationDto.getCheckout());
-        assertThat(result.getId()).isEqualTo("id-test");
+        assertThat(result.getId()).isEqualTo(ReservationDataTestUtil.RESERVATION_ID);
         assertNull(result.getStatus());
     }
 
@@ -49,11 +56,32 @@ class ReservationMapperTest {
         Reservation reservationEntity = ReservationDataTestUtil.getReservationEntity();
 
         ReservationDto result = testee.mapToDto(reservationEntity);
-        assertThat(result.getId()).isEqualTo(reservationEntity.getId());
+        assertThat(result.getId()).isEqualTo(ReservationDataTestUtil.getReservationIdCodec().encode(reservationEntity.getId()));
+        assertThat(result.getCampsiteId()).isEqualTo(reservationEntity.getCampsiteId());
         assertThat(result.getFullName()).isEqualTo(reservationEntity.getFullName());
         assertThat(result.getEmail()).isEqualTo(reservationEntity.getEmail());
         assertThat(result.getCheckin()).isEqualTo(reservationEntity.getCheckin());
         assertThat(result.getCheckout()).isEqualTo(reservationEntity.getCheckout());
         assertThat(result.getStatus()).isEqualTo(ReservationStatus.ACTIVE);
     }
-}
\ No newline at end of file
+
+    @Test
+    void mapToDto_view() {
+        ReservationView reservationView = ReservationDataTestUtil.getReservationView();
+
+        ReservationDto expected = ReservationDataTestUtil.getReservationDto();
+        expected.setVersion(reservationView.version());
+
+        ReservationDto result = testee.mapToDto(reservationView);
+        assertThat(result).isEqualTo(expected);
+    }
+
+    @Test
+    void mapToDto_dateRange() {
+        DateRange dateRange = new DateRange(LocalDate.now(), LocalDate.now().plusDays(2));
+
+        AvailabilityRangeDto result = testee.mapToDto(dateRange);
+        assertThat(result.getFrom()).isEqualTo(dateRange.from());
+        assertThat(result.getTo()).isEqualTo(dateRange.to());
+    }
+}